@@ -0,0 +1,3 @@
+@echo off
+rem The command line front end of JYzer (see doc\cli.txt).
+java -Djava.awt.headless=true -cp "%~dp0JYzer.jar" jyzer.cli.CommandLine %*
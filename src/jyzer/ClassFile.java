@@ -19,10 +19,8 @@
 package jyzer;
 
 import java.io.*;
-import javax.swing.JFrame;
-import javax.swing.JOptionPane;
-import javax.swing.ProgressMonitor;
-import javax.swing.ProgressMonitorInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import jyzer.items.*;
 import jyzer.items.accessflags.AccessFlags;
@@ -32,6 +30,7 @@ import jyzer.items.constantpool.ConstantPoolInfo;
 import jyzer.items.fields.FieldInfo;
 import jyzer.items.methods.MethodInfo;
 import jyzer.items.exceptions.*;
+import jyzer.report.HTMLReportWriter;
 
 /**
  * This class represents a classfile object. The definition of the classfile structure is:
@@ -69,6 +68,9 @@ public final class ClassFile {
 	/** The magic number that has to be the first 4 bytes of a classfile. */
 	public static final int   MAGIC = 0xCAFEBABE;
 
+	/** Separates the path of a jar file and the name of an entry in the path of a classfile (<code>a.jar!/B.class</code>). */
+	public static final String ENTRY_SEPARATOR = "!/";
+
 	/** The maximum major version that the program works properly with. */
 	public static final short MAX_MAJOR_VERSION = 49;
 	/** The maximum minor version that the program works properly with. */
@@ -88,9 +90,33 @@ public final class ClassFile {
 	private Attributes classAttributes;
 
 	// own variables
-	private JFrame owner;
+	private ParseMonitor monitor;
 	private String fileName = null;
+	private InputStream source = null;
 	private DataInputStream dis;
+	private PositionInputStream reader = null;
+
+	/**
+	 * A stream on the whole contents of a classfile that tells how much was read of it. The position is a field of the
+	 * stream, so following the progress costs nothing per read.
+	 */
+	private static final class PositionInputStream extends ByteArrayInputStream {
+
+		PositionInputStream(byte contents[]) {
+			super(contents);
+		}
+
+		/** Returns the number of the bytes read so far. */
+		int getPosition() {
+			return pos;
+		}
+
+		/** Returns the length of the contents. */
+		int getLength() {
+			return count;
+		}
+
+	}// class.PositionInputStream
 
 	// --- Constructors ---------------------------------------------------------------------------------------------------------
 
@@ -101,20 +127,33 @@ public final class ClassFile {
 	 */
 	public ClassFile(String fileName) {
 		this.fileName = fileName;
-		owner = null;
+		monitor = null;
 	}// constr:ClassFile(String)
 
 	/**
-	 * Constructor, creates a new instance of ClassFile. The owner has to be known for the <code>ProgressMonitorInputStream</code>
-	 * for processing the classfile.
+	 * Constructor, creates a new instance of ClassFile that is opened by the user. The monitor follows the progress of
+	 * the parsing, can cancel it, and is asked if the version of the classfile is not supported.
 	 *
 	 * @param fileName the path of the classfile.
-	 * @param owner a JFrame that uses the classfile.
+	 * @param monitor the monitor of the parsing.
+	 */
+	public ClassFile(String fileName, ParseMonitor monitor) {
+		this.fileName = fileName;
+		this.monitor  = monitor;
+	}// constr:ClassFile(String, ParseMonitor)
+
+	/**
+	 * Constructor, creates a new instance of ClassFile that is read from the given stream (for example an entry of
+	 * a jar file). The stream is closed after the parsing.
+	 *
+	 * @param fileName the name of the classfile (used only in the descriptions).
+	 * @param source the contents of the classfile.
 	 */
-	public ClassFile(String fileName, JFrame owner) {
+	public ClassFile(String fileName, InputStream source) {
 		this.fileName = fileName;
-		this.owner    = owner;
-	}// constr:ClassFile(String, JFrame)
+		this.source   = source;
+		monitor = null;
+	}// constr:ClassFile(String, InputStream)
 
 	// --- Getter methods ---------------------------------------------------------------------------------------------------------
 
@@ -160,6 +199,27 @@ public final class ClassFile {
 		return majorVersion;
 	}
 
+	/**
+	 * Returns the access flags of this classfile as an integer.
+	 */
+	public int getAccessInt() {
+		return accessFlags.getAccessInt();
+	}
+
+	/**
+	 * Returns the constant pool index of this class.
+	 */
+	public int getThisClassIndex() {
+		return thisClass.getIndex();
+	}
+
+	/**
+	 * Returns the constant pool index of the superclass (0 for <code>java.lang.Object</code>).
+	 */
+	public int getSuperClassIndex() {
+		return superClass.getIndex();
+	}
+
 	/**
 	 * Returns the accessflags of this classfiles.
 	 */
@@ -192,11 +252,12 @@ public final class ClassFile {
 	 * Returns the number of the entries in the constantpool.
 	 */
 	public int getConstantPoolCount() {
-		return constantPool.getConstantPoolCount();
+		return constantPool.size();
 	}
 
 	/**
-	 * Returns the <code>ConstantPool</code> of the class.
+	 * Returns the <code>ConstantPool</code> of the class. The descriptions use the current pool, so if this classfile
+	 * is described on an other thread, this pool has to be set with <code>ConstantPool.setCurrent()</code> first.
 	 */
 	public ConstantPool getConstantPoolItem() {
 		return constantPool;
@@ -209,6 +270,13 @@ public final class ClassFile {
 		return interfaces.getInterfaceNames();
 	}
 
+	/**
+	 * Returns the <code>Interfaces</code> of the class.
+	 */
+	public Interfaces getInterfaceItem() {
+		return interfaces;
+	}
+
 	/**
 	 * Returns the <code>Fields</code> of the class.
 	 */
@@ -230,6 +298,20 @@ public final class ClassFile {
 		return methods;
 	}
 
+	/**
+	 * Returns the <code>Attributes</code> of the class.
+	 */
+	public Attributes getClassAttributes() {
+		return classAttributes;
+	}
+
+	/**
+	 * Returns the path of the classfile.
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
 	/**
 	 * Validation. Not implemented perfectly yet.
 	 */
@@ -241,24 +323,126 @@ public final class ClassFile {
 
 	// --- Functions --------------------------------------------------------------------------------------------------------
 
+	/**
+	 * Reads the whole contents of a classfile. The path is either the path of a file, or the path of a jar file and
+	 * the name of an entry in it, separated by <code>ENTRY_SEPARATOR</code> (<code>lib/a.jar!/a/B.class</code>).
+	 *
+	 * @param fileName the path of the classfile.
+	 * @return the contents of the classfile.
+	 * @throws IOException if the file (or the entry) is not found, or cannot be read.
+	 */
+	public static byte[] readFile(String fileName) throws IOException {
+		int separator = fileName.indexOf(ENTRY_SEPARATOR);
+		if ( 0 <= separator ) {
+			return readEntry( fileName.substring(0, separator), fileName.substring( separator + ENTRY_SEPARATOR.length() ) );
+		}
+
+		File file = new File(fileName);
+		DataInputStream in = new DataInputStream( new FileInputStream(file) );
+
+		try {
+			byte contents[] = new byte[ (int) file.length() ];
+			in.readFully(contents);
+			return contents;
+		} finally {
+			in.close();
+		}
+	}// readFile
+
+	/**
+	 * Reads the whole contents of an entry of a jar file.
+	 */
+	private static byte[] readEntry(String archiveName, String entryName) throws IOException {
+		ZipFile archive = new ZipFile(archiveName);
+
+		try {
+			ZipEntry entry = archive.getEntry(entryName);
+			if ( null == entry ) {
+				throw new FileNotFoundException( archiveName + ENTRY_SEPARATOR + entryName );
+			}
+
+			DataInputStream in = new DataInputStream( archive.getInputStream(entry) );
+			try {
+				byte contents[] = new byte[ (int) entry.getSize() ];
+				in.readFully(contents);
+				return contents;
+			} finally {
+				in.close();
+			}
+		} finally {
+			archive.close();
+		}
+	}// readEntry
+
+	/**
+	 * Returns the length of a classfile, or 0 if it is not found. The path can name an entry of a jar file too.
+	 *
+	 * @param fileName the path of the classfile.
+	 */
+	public static long getFileLength(String fileName) {
+		int separator = fileName.indexOf(ENTRY_SEPARATOR);
+		if ( separator < 0 ) {
+			return new File(fileName).length();
+		}
+
+		try {
+			ZipFile archive = new ZipFile( fileName.substring(0, separator) );
+			try {
+				ZipEntry entry = archive.getEntry( fileName.substring( separator + ENTRY_SEPARATOR.length() ) );
+				return ( (null == entry) ? 0 : Math.max( 0, entry.getSize() ) );
+			} finally {
+				archive.close();
+			}
+		} catch (IOException ioe) {
+			return 0;
+		}
+	}// getFileLength
+
+	/**
+	 * Returns true if the path names an entry of a jar file.
+	 */
+	public static boolean isEntryPath(String fileName) {
+		return ( 0 <= fileName.indexOf(ENTRY_SEPARATOR) );
+	}
+
+
+	/**
+	 * Reports the progress to the monitor after a section is parsed, and stops the parsing if it was cancelled.
+	 *
+	 * @param section the name of the section that was parsed.
+	 * @throws ParsingCancelledException if the monitor cancelled the parsing.
+	 */
+	private void checkpoint(String section) throws ParsingCancelledException {
+		if ( null == monitor ) {
+			return;
+		}
+
+		monitor.progress( section, reader.getPosition(), reader.getLength() );
+
+		if ( monitor.isCancelled() ) {
+			throw new ParsingCancelledException(section);
+		}
+	}// checkpoint
+
 	/**
 	 * The parsing of the classfile. Makes the requied tests, and notifies if not a classfile was opened, or if
 	 * its version number is above the suggested maximum.
 	 *
 	 * @throws IOException if problem occured with processing the file.
-	 * @throws ParsingException if the given file is not a real classfile.
+	 * @throws ParsingException if the given file is not a real classfile, or the parsing was cancelled by the monitor.
 	 */
 	public void parse() throws IOException, ParsingException {
 		try {
 
-			if ( null == owner ) {
-				dis = new DataInputStream ( new FileInputStream(fileName) );
-			} else {
-				dis = new DataInputStream (
-					new ProgressMonitorInputStream(
-						owner, "Reading file: " + fileName, new FileInputStream(fileName)
-					)
-				);
+			// the items read the classfile by a few bytes, so the stream has to be buffered
+			if ( null != source ) {
+				dis = new DataInputStream ( new BufferedInputStream(source) );
+			} else if ( null == monitor && ! isEntryPath(fileName) ) {
+				dis = new DataInputStream ( new BufferedInputStream( new FileInputStream(fileName) ) );
+			} else { // the progress is taken from the position of the reader
+				reader = new PositionInputStream( readFile(fileName) );
+				dis = new DataInputStream(reader);
+				checkpoint("reading");
 			}
 
 			magic = dis.readInt();
@@ -270,15 +454,10 @@ public final class ClassFile {
 			minorVersion = dis.readShort();
 			majorVersion = dis.readShort();
 
-			if ( MAX_MAJOR_VERSION < majorVersion || ( MAX_MAJOR_VERSION == majorVersion && MAX_MINOR_VERSION < minorVersion) ) {
-				int back = JOptionPane.showConfirmDialog(
-							owner,
-							"Not a supported classfile version (" + majorVersion + "." + minorVersion + ")!\n" +
-							"There could be some errors, proceed although?",
-							"Warning:",
-							JOptionPane.YES_NO_OPTION
-						   );
-				if ( JOptionPane.YES_OPTION != back ) {
+			// without a monitor (batch processing) there's no one to ask, the parsing goes on
+			if ( null != monitor &&
+				 ( MAX_MAJOR_VERSION < majorVersion || ( MAX_MAJOR_VERSION == majorVersion && MAX_MINOR_VERSION < minorVersion) ) ) {
+				if ( ! monitor.acceptVersion(fileName, majorVersion, minorVersion) ) {
 					throw new ParsingException(
 						"ClassFile",
 						"User interruption.\nCause: unsupported classfile version (" + majorVersion + "." + minorVersion + ")."
@@ -286,50 +465,60 @@ public final class ClassFile {
 				}
 			}
 
+			checkpoint("the header");
+
 			constantPool = new ConstantPool(dis);
+			checkpoint("the constant pool");
+
 			accessFlags  = new AccessFlags(dis, AccessFlags.Type.CLASS);
 			thisClass    = new ClassObject(dis);
 			superClass   = new ClassObject(dis);
 			interfaces   = new Interfaces(dis);
+			checkpoint("the interfaces");
 
 			fields  = new Fields(dis, accessFlags.isInterface() );
+			checkpoint("the fields");
+
 			methods = new Methods(dis);
+			checkpoint("the methods");
+
 			classAttributes = new Attributes(dis);
+			checkpoint("the attributes");
 		} finally {
 			if ( dis != null) {
 				try { dis.close(); } catch (IOException ioe) { System.err.println( ioe.getMessage() ); }
 			}
+			reader = null; // the contents are not needed any more
 		}
 
 	}// parse
 
 	/**
-	 * Returns the description of the classfile as a html text. It is used to display on the Summary pane, that can be saved.
-	 * Calls recursively the <code>getHTMLDescription</code> of the components.
+	 * Returns the description of the classfile as a html text. It is used when the summary is saved.
+	 * For big classfiles use a <code>HTMLReportWriter</code> directly, it can write the description into a stream.
 	 *
 	 * @return the description of the classfile in <code>HTML</code>.
 	 */
 	public String getHTMLDescription() {
 		StringBuilder sb = new StringBuilder();
 
-		sb.append("<html>");
-		sb.append("<body>");
-
-		sb.append("<center>");
-		sb.append("<H1>").append( fileName.substring( fileName.lastIndexOf(File.separator) + 1, fileName.length() ) ).append("</H1>");
-
-		sb.append("<H2>Summary:</H2>");
-		sb.append("<table border=\"1\" width=\"90%\">");
-
-		sb.append("<tr>");
-		sb.append("<td align=\"center\" bgcolor=\"green\">");
-		sb.append("General Info\n");
-		sb.append("</td>");
-		sb.append("</tr>");
+		try {
+			new HTMLReportWriter().write(this, sb);
+		} catch (IOException ioe) {
+			// cannot happen, a StringBuilder is written
+			throw new IllegalStateException(ioe);
+		}
 
-		sb.append("<tr>");
-		sb.append("<td>");
+		return sb.toString();
+	}// getHTMLDescription
 
+	/**
+	 * Concatenates the general information of the classfile (magic number, versions, this and super class, access flags)
+	 * as a html list to the end of the given <code>StringBuilder</code>.
+	 *
+	 * @param sb a <code>StringBuilder<code> that contains the string representation of the classfile.
+	 */
+	public void getGeneralInfoHTMLDescription(StringBuilder sb) {
 		sb.append("<ul>");
 		sb.append("<li>Magic Number: 0x").append( Integer.toHexString(magic).toUpperCase() ).append('\n');
 		sb.append("<li>Major Classfile Version: ").append(majorVersion).append('\n');
@@ -341,80 +530,6 @@ public final class ClassFile {
 		sb.append("<li>Access flags: ");
 		accessFlags.getHTMLDescription(sb);
 		sb.append("</ul>");
-
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td align=\"center\" bgcolor=\"green\">");
-		sb.append("Class Attributes").append('\n');
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td>");
-		classAttributes.getHTMLDescription(sb);
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<A name=\"CONST_POOL\">");
-		sb.append("<tr>");
-		sb.append("<td align=\"center\" bgcolor=\"green\">");
-		sb.append("<A name=\"CONST_POOL\">");
-		sb.append("Constant Pool:").append('\n');
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td>");
-		constantPool.getHTMLDescription(sb);
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td align=\"center\" bgcolor=\"green\">");
-		sb.append("Interfaces").append('\n');
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td>");
-		interfaces.getHTMLDescription(sb);
-		sb.append("</td>");
-		sb.append("</tr>");
-
-
-		sb.append("<tr>");
-		sb.append("<td align=\"center\" bgcolor=\"green\">");
-		sb.append("Fields").append('\n');
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td>");
-		fields.getHTMLDescription(sb);
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td align=\"center\" bgcolor=\"green\">");
-		sb.append("Methods").append('\n');
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("<tr>");
-		sb.append("<td>");
-		methods.getHTMLDescription(sb);
-		sb.append("</td>");
-		sb.append("</tr>");
-
-		sb.append("</table>");
-		sb.append("</center>");
-
-		sb.append("</body>");
-		sb.append("</html>");
-
-		return sb.toString();
-	}// getHTMLDescription
+	}// getGeneralInfoHTMLDescription
 
 }// class.ClassFile
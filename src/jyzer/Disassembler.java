@@ -0,0 +1,355 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+/* MODLOG:
+ * -------------------------------------------------------------------------
+ * 1.00 Initial release. The source generation was moved here from the
+ *			DisassemblePane, so it can run on a worker thread and can write
+ *			into any Appendable (a document, a file, a StringBuilder, ...).
+ */
+
+package jyzer;
+
+import java.io.IOException;
+import java.util.Vector;
+
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.attributes.types.helpers.InnerClass;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+import jyzer.gui.guihelpers.RelatedClasses;
+
+/**
+ * Creates the disassembled (pseudo-Java) source of a parsed classfile. The output is written line by line
+ * into the given <code>Appendable</code>, every line is terminated with a <code>'\n'</code>, so the
+ * caller may publish the text in chunks while the rest is still being generated.
+ *
+ * <p>An instance is not thread-safe (it holds the actual insets), create a new one for each classfile.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class Disassembler {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------------
+
+	private static final String INCREASE = "    ";
+
+	private boolean showBridge = true;
+	private boolean showSynthetic = true;
+	private boolean showDisassembledCode = true;
+	private boolean showAnonymusInnerClasses = true;
+	private boolean showHeader = true;
+
+	private String inset = "";
+	private Appendable out;
+
+	// --- Setter methods ------------------------------------------------------------------------------------------------------
+
+	/** Sets if the bridge methods should be displayed (in a comment). */
+	public void setShowBridge(boolean showBridge) {
+		this.showBridge = showBridge;
+	}
+
+	/** Sets if the synthetic methods should be displayed (in a comment). */
+	public void setShowSynthetic(boolean showSynthetic) {
+		this.showSynthetic = showSynthetic;
+	}
+
+	/** Sets if the disassembled code of the methods should be displayed. */
+	public void setShowDisassembledCode(boolean showDisassembledCode) {
+		this.showDisassembledCode = showDisassembledCode;
+	}
+
+	/** Sets if the anonymus inner classes should be displayed (in a comment). */
+	public void setShowAnonymusInnerClasses(boolean showAnonymusInnerClasses) {
+		this.showAnonymusInnerClasses = showAnonymusInnerClasses;
+	}
+
+	/** Sets if the comment with the name and the license of the program should be written before the source. */
+	public void setShowHeader(boolean showHeader) {
+		this.showHeader = showHeader;
+	}
+
+	// --- Helper methods ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Increases the actual insets with the constant defined in the header (by default it equals to 4 space).
+	 */
+	private void increaseInset() {
+		inset += INCREASE;
+	}
+
+	/**
+	 * Decreases the actual insets with the constant defined in the header (by default it equals to 4 space).
+	 */
+	private void decreaseInset() {
+		inset = inset.substring( 0, inset.length() - INCREASE.length() );
+	}
+
+	/**
+	 * Terminates the actual line.
+	 */
+	private void newLine() throws IOException {
+		out.append('\n');
+	}
+
+	/**
+	 * Appends the given string to the end of the contents.
+	 *
+	 * @param str the string that has to be appended.
+	 */
+	private void append(String str) throws IOException {
+		out.append(str);
+	}
+
+	/**
+	 * Appends the given string to the end of the contents, and terminates the actual line.
+	 *
+	 * @param line the string that has to be appended.
+	 */
+	private void addLine(String line) throws IOException {
+		out.append(inset).append(line).append('\n');
+	}
+
+	/**
+	 * Truncates the given field's name to just the name, and drops away the remaining (the package name, ...)
+	 *
+	 * @param fieldDescriptor the descriptor of the field.
+	 * @return the truncated name.
+	 */
+	private String getDescriptorString(String fieldDescriptor) {
+		if ( fieldDescriptor.contains(".") ) { // class descriptor
+			return fieldDescriptor.substring( fieldDescriptor.lastIndexOf(".") + 1 );
+		}
+
+		return fieldDescriptor;
+	}// getDescriptorString
+
+	// --- Functions -----------------------------------------------------------------------------------------------------------
+
+	/**
+	 * This method makes the disassembling.
+	 *
+	 * @param cf the classfile that has to be disassemled.
+	 * @param out the destination of the source.
+	 * @throws IOException if the destination cannot be written.
+	 */
+	public void disassemble(ClassFile cf, Appendable out) throws IOException {
+		this.out = out;
+		inset = "";
+
+		if ( showHeader ) {
+			addLine("/*");
+			addLine(" * This file was disassembled by JYzer v" + JYzer.VERSION);
+			addLine(" * Copyright(C) 2005 Legendi Richard Oliver");
+			addLine(" * Come to http://leriaat.web.elte.hu/ for more Java programs!");
+			addLine(" *");
+			addLine(" * This program is distributed in the hope that it will be useful,");
+			addLine(" * but WITHOUT ANY WARRANTY; without even the implied warranty of");
+			addLine(" * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the");
+			addLine(" * GNU General Public License for more details. ");
+			addLine(" */");
+		}
+
+		String thisClassName = cf.getThisClassName();
+
+		//package ...
+		if ( cf.getThisClassName().contains(".") ) {
+			addLine("package " + cf.getThisClassName().substring( 0, cf.getThisClassName().lastIndexOf('.') ) + ";");
+			thisClassName = cf.getThisClassName().substring( cf.getThisClassName().lastIndexOf('.') + 1);
+		}
+
+		addLine("");
+
+		// import ...
+		Vector<String> relatedClassNames = new RelatedClasses( cf.getThisClassName() ).getRelatedClassNames();
+		for (int i=0; i<relatedClassNames.size(); ++i) {
+			addLine("import " + relatedClassNames.get(i) + ";");
+			if (relatedClassNames.size() == i+1) addLine("");
+		}
+
+		// class header
+		// -- modifiers + classname
+		StringBuilder header = new StringBuilder();
+		if ( cf.isInterface() ) {
+			header.append(cf.getAccessString() + "interface " + thisClassName);
+		} else {
+			header.append(cf.getAccessString() + cf.getRealModifierString() + "class "+ thisClassName);
+		}
+
+		// -- super classname
+		if ( ! cf.getSuperClassName().equals("java.lang.Object") ) {
+			header.append( " extends " + getDescriptorString( cf.getSuperClassName() ) );
+		}
+
+		// -- interfaces (if any)
+		if ( cf.hasInterfaces() ) {
+			header.append(" implements ");
+			String names[] = cf.getInterfaceNames();
+
+			for ( int i=0; i<names.length; ++i) {
+				header.append( getDescriptorString( names[i] ) );
+				if (i+1 != names.length) header.append(", ");
+			}
+		}
+
+		append( header.toString().replaceAll("\\s+"," ") );
+		addLine(" {");
+		addLine("");
+		increaseInset();
+
+		// fields
+		FieldInfo fields[] = cf.getFieldItem().getFields();
+		for (int i=0; i<fields.length; ++i) {
+			String constantValue = "";
+			String variableName  = getDescriptorString( fields[i].getDescriptorString() );
+
+			if ( fields[i].hasConstantValue() ) {
+				constantValue = " = " + fields[i].getConstantValueString();
+			}
+
+			if ( fields[i].hasSynthetic() ) {
+				addLine("/* SYNTHETIC field - not present in the source");
+			} else if ( variableName.contains("$") ) { // Inner class variable type (?)
+				variableName = variableName.substring( variableName.lastIndexOf('$') + 1);
+			}
+
+			addLine( fields[i].getAccessString() + fields[i].getRealModifierString() +
+					 variableName + " " + fields[i].getNameString() + constantValue + ";" );
+
+			if ( fields[i].hasSynthetic() ) {
+				addLine("*/");
+			}
+
+			if (fields.length == i+1) addLine("");
+		}
+
+		// inner classes
+		if ( cf.hasInnerClasses() ) {
+			InnerClass innerClasses[] = cf.getInnerClasses();
+
+			for (int i=0; i<innerClasses.length; ++i) {
+				String innerClassName = "";
+
+				if ( innerClasses[i].isAnonymus() && showAnonymusInnerClasses ) {
+					addLine("/* ANONYMUS inner class");
+					innerClassName = innerClasses[i].getInnerClassInfo();
+				} else if ( innerClasses[i].isAnonymus() && ! showAnonymusInnerClasses ) {
+					continue;
+				} else {
+					innerClassName = innerClasses[i].getClassName();
+				}
+
+				addLine( innerClasses[i].getAccessString() + innerClasses[i].getRealModifierString() + "class "+ innerClassName + " {");
+				addLine( "}" );
+
+				if ( innerClasses[i].isAnonymus() && showAnonymusInnerClasses ) {
+					addLine("*/");
+				}
+
+				addLine( ""  );
+			}
+		}
+
+		// methods
+		MethodInfo methods[] = cf.getMethodItem().getMethods();
+		for (int i=0; i<methods.length; ++i) {
+
+			if ( methods[i].isBridge() && showBridge ) {
+				addLine("/* BRIDGE method - created by the compiler");
+				addLine("");
+			} else if ( methods[i].isSynthetic() && showSynthetic ) {
+				addLine("/* SYNTHETIC method - not present in the source");
+				addLine("");
+			} else if ( ( methods[i].isBridge()    && ! showBridge ) ||
+						( methods[i].isSynthetic() && ! showSynthetic) ) {
+				continue;
+			}
+
+			if ( methods[i].isClassInitializer() ) {
+				addLine("/**");
+				addLine(" * Class initializer.");
+				addLine(" */");
+			}
+
+			append( inset + methods[i].getPureSignature(thisClassName) );
+			if ( methods[i].hasExceptions() ) {
+				append(" throws ");
+
+				String exceptionNames[] = methods[i].getPureExceptionNames(thisClassName);
+				for (int j=0; j<exceptionNames.length; ++j) {
+					append( exceptionNames[j] );
+					if (j+1<exceptionNames.length) append(", ");
+				}
+			}
+			append(" {");
+			newLine();
+
+			increaseInset();
+
+			// local variables
+			if ( methods[i].hasTheCodeLocalVariables() ) {
+				addLine("// Local variables");
+				for ( String locVar : methods[i].getTheCodeLocalVariablesString() ) {
+					addLine(locVar);
+				}
+
+				if (showDisassembledCode) {
+					addLine("");
+				}
+			}
+
+			// disassembled code
+			if ( showDisassembledCode ) {
+				if ( ! methods[i].isBridge() && ! methods[i].isSynthetic() ) {
+					addLine("/*");
+				}
+
+				addLine("Disassembled Code:");
+
+				Vector<CodeInstruction> code = methods[i].getDisassembledCode();
+				if ( null != code ) {
+					for (CodeInstruction ci : code) {
+						addLine( ci.toString() );
+					}
+				}
+
+				if ( ! methods[i].isBridge() && ! methods[i].isSynthetic() ) {
+					addLine("*/");
+				}
+			}
+
+			decreaseInset();
+
+			addLine( "}" );
+			addLine( " ");
+
+			if ( methods[i].isBridge() || methods[i].isSynthetic() ) {
+				addLine("*/");
+			}
+		}
+
+		// end :-)
+		decreaseInset();
+		addLine("}");
+		addLine("");
+	}// disassemble
+
+}// class.Disassembler
@@ -25,12 +25,21 @@ import java.io.*;
 import java.net.URL;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import javax.swing.*;
 import javax.swing.event.*;
 
+import jyzer.classpath.ClassPath;
 import jyzer.gui.*;
 import jyzer.gui.guihelpers.*;
+import jyzer.items.ConstantPool;
+import jyzer.items.exceptions.ParsingCancelledException;
 import jyzer.items.exceptions.ParsingException;
+import jyzer.report.HTMLReportWriter;
+import jyzer.report.SourceReportWriter;
 
 // Java Help System
 import javax.help.*;
@@ -68,28 +77,98 @@ public final class JYzer extends JFrame {
 	private boolean startup = true;
 
 	// help
-	private HelpSet    hs;
-	private HelpBroker hb;
+	private HelpSet             hs;
+	private volatile HelpBroker hb;
+
+	// the tabs
+	private static final int SUMMARY_TAB     = 0;
+	private static final int HEXA_VIEW_TAB   = 1;
+	private static final int DISASSEMBLE_TAB = 2;
+	private static final int CONSTANT_TAB    = 3;
+	private static final int FIELDS_TAB      = 4;
+	private static final int METHODS_TAB     = 5;
+
+	private static final String TAB_TITLES[] = { "Summary", "Hexa View", "Disassembled Source", "Constant Pool", "Fields", "Methods" };
+	private static final String TAB_ICONS[]  = { "sum.jpg", "hexaView.jpg", "dis.gif", "cp.gif", "field.gif", "method.gif" };
+
+	/** The path of the classfile displayed by the panes (null if none). */
+	private String shownPath = null;
+
+	/** The open classfiles, and the shown one (null if none). */
+	private Workspace workspace = new Workspace();
+	private Workspace.Document document = null;
+
+	/**
+	 * Finds the referenced classes: the runtime classes, the class path given by the user and the roots of the
+	 * packages of the opened classfiles. It is replaced when the user's class path is changed.
+	 */
+	private volatile ClassPath classPath = new ClassPath();
+	private String userClassPath = "";
+	private Vector<File> packageRoots = new Vector<File>();
+
+	/** The member that has to be selected when its class is shown (null if none). Used on the event dispatch thread only. */
+	private NavigationTarget pendingTarget = null;
+
+	/** Opens the references followed on the panes. */
+	private final NavigationListener navigator = new NavigationListener() {
+		public void navigate(NavigationTarget target) {
+			navigateTo(target);
+		}
+	};
+
+	/** Parses the opened files one by one (and looks up the followed references). */
+	private final ExecutorService parser = Executors.newSingleThreadExecutor( new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "JYzer parser");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** The monitor of the running parsing (null if none), its path. Used on the event dispatch thread only. */
+	private SwingParseMonitor parseMonitor = null;
+	private String parsingPath = null;
+
+	/**
+	 * Loads the help, the icons and the properties after the frame is shown. It has a single thread, so the tasks are
+	 * done in the order they were submitted.
+	 */
+	private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor( new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "JYzer startup");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** The loading of the properties; they mustn't be saved before they are loaded. */
+	private Future<?> propertiesLoading;
 
 	static { // Creating the recent files vector.
 		RECENT_FILES_MAX_SIZE = 5;
 		recentFileNames    = new Vector<String>();
 	}
 
-	{ // Class initializer for loading the application properties.
-		loadProperties();
-	}
-
 	/**
-	 * The constructor. Creates the GUI, menubar & sets the default program properties.
+	 * The constructor. Creates the GUI & menubar, and shows the frame. The panes are created when their tab is
+	 * selected at first, the properties, the help and the icons are loaded on a background thread.
 	 */
 	public JYzer() {
 		super();
 
-		initHelp();
 		buildUpMenus();
 		buildUpGUI();
 		setDefaultValues();
+		StartupLog.mark("frame shown");
+
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				StartupLog.mark("frame painted");
+				ensurePane( tabbedPane.getSelectedIndex() );
+			}
+		});
+
+		startBackgroundLoading();
 	}// constr.JYzer()
 
 	// --- Properties processing ----------------------------------------------------
@@ -128,14 +207,30 @@ public final class JYzer extends JFrame {
 		// update
 		lastOpenPath = props.getProperty("path.lastopen");
 		lastSavePath = props.getProperty("path.lastsave");
+		userClassPath = props.getProperty("classpath", "");
 
 		int recentSize = Integer.parseInt( props.getProperty("recent.size") );
 		for (int i=0; i<recentSize; ++i) {
 			recentFileNames.add( props.getProperty("recent.item." + i) );
 		}
 
+		try { in.close(); } catch (IOException ioe) { ioe.printStackTrace(); }
 	}// loadProperties
 
+	/**
+	 * Saving the program properties when quitting. Waits for the loading of the properties if it is still running,
+	 * else the recent files would be lost.
+	 */
+	private void savePropertiesOnExit() {
+		try {
+			propertiesLoading.get();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		saveProperties();
+	}// savePropertiesOnExit
+
 	/**
 	 * Saving the actual program properties.
 	 */
@@ -149,6 +244,7 @@ public final class JYzer extends JFrame {
 			props.put("path.lastopen", lastOpenPath);
 			props.put("path.lastsave", lastSavePath);
 			props.put("recent.size", String.valueOf( recentFileNames.size() ) );
+			props.put("classpath", userClassPath);
 
 			for (int i=0; i<recentFileNames.size(); ++i) {
 				props.put("recent.item." + i, recentFileNames.get(i) );
@@ -196,6 +292,111 @@ public final class JYzer extends JFrame {
 	 	hb = hs.createHelpBroker();
 	}// initHelp
 
+	/**
+	 * Submits the loading of the properties, the icons and the help to the startup executor. The properties come first,
+	 * because the recent files are shown in the file menu.
+	 */
+	private void startBackgroundLoading() {
+		propertiesLoading = startupExecutor.submit(new Runnable() {
+			public void run() {
+				loadProperties();
+				StartupLog.mark("properties loaded");
+
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						recentUpdate("");
+						updateClassPath();
+					}
+				});
+			}
+		});
+
+		startupExecutor.submit(new Runnable() {
+			public void run() {
+				loadIcons();
+				StartupLog.mark("icons loaded");
+			}
+		});
+
+		startupExecutor.submit(new Runnable() {
+			public void run() {
+				initHelp();
+				StartupLog.mark("help loaded");
+			}
+		});
+	}// startBackgroundLoading
+
+	/**
+	 * Loads the icons of the menus and the tabs, then sets them on the event dispatch thread.
+	 */
+	private void loadIcons() {
+		final AbstractButton buttons[] = {
+			optionsMenu, helpMenu, openMenuItem, saveSummaryMenuItem, saveSourceMenuItem, closeMenuItem, previewMenuItem,
+			printMenuItem, preferencesMenuItem, clearRecentFilesMenuItem, helpMenuItem, licenseMenuItem, aboutMenuItem
+		};
+		String buttonIcons[] = {
+			"options.gif", "info.gif", "open.gif", "save.gif", "save.gif", "close.gif", "preview.gif",
+			"print.gif", "preferences.gif", "clearRecent.gif", "help.gif", "license.gif", "about.gif"
+		};
+
+		final Icon icons[] = new Icon[buttons.length];
+		for (int i=0; i<buttons.length; ++i) {
+			icons[i] = loadIcon( buttonIcons[i] );
+		}
+
+		final Icon tabIcons[] = new Icon[TAB_ICONS.length];
+		for (int i=0; i<TAB_ICONS.length; ++i) {
+			tabIcons[i] = loadIcon( TAB_ICONS[i] );
+		}
+
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				for (int i=0; i<buttons.length; ++i) {
+					buttons[i].setIcon( icons[i] );
+				}
+
+				for (int i=0; i<tabIcons.length; ++i) {
+					tabbedPane.setIconAt( i, tabIcons[i] );
+				}
+			}
+		});
+	}// loadIcons
+
+	/**
+	 * Loads an icon from the <code>/data/pix</code> directory.
+	 *
+	 * @param name the name of the image file.
+	 * @return the icon.
+	 */
+	private Icon loadIcon(String name) {
+		return new ImageIcon( getClass().getResource("/data/pix/" + name) );
+	}// loadIcon
+
+	/**
+	 * Displays the help. If the help is still being loaded, it is displayed when the loading is done (the startup
+	 * executor does the tasks in order).
+	 *
+	 * @param ae the event of the help menu item.
+	 */
+	private void displayHelp(final ActionEvent ae) {
+		if ( null != hb ) {
+			new CSH.DisplayHelpFromSource(hb).actionPerformed(ae);
+			return;
+		}
+
+		startupExecutor.submit(new Runnable() {
+			public void run() {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if ( null != hb ) {
+							new CSH.DisplayHelpFromSource(hb).actionPerformed(ae);
+						}
+					}
+				});
+			}
+		});
+	}// displayHelp
+
 
 	/**
 	 * This method writes a letter to Santa for Xmas :-) Ok, that was just a joke.
@@ -222,6 +423,7 @@ public final class JYzer extends JFrame {
 		*/
 
 		optionsMenu.add(preferencesMenuItem);
+		optionsMenu.add(classPathMenuItem);
 		optionsMenu.addSeparator();
 		optionsMenu.add(clearRecentFilesMenuItem);
 
@@ -248,6 +450,7 @@ public final class JYzer extends JFrame {
 		exitMenuItem.setMnemonic('e');
 		validationMenuItem.setMnemonic('f');
 		preferencesMenuItem.setMnemonic('p');
+		classPathMenuItem.setMnemonic('a');
 		clearRecentFilesMenuItem.setMnemonic('c');
 		helpMenuItem.setMnemonic('h');
 		hexCtrMenuItem.setMnemonic('x');
@@ -318,13 +521,23 @@ public final class JYzer extends JFrame {
 			}
 		});
 
+		classPathMenuItem.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent ae) {
+				classPathMenuItemActionPerformed();
+			}
+		});
+
 		clearRecentFilesMenuItem.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent ae) {
 				clearRecentFilesMenuItemActionPerformed();
 			}
 		});
 
-		helpMenuItem.addActionListener( new CSH.DisplayHelpFromSource(hb) );
+		helpMenuItem.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent ae) {
+				displayHelp(ae);
+			}
+		});
 
 		hexCtrMenuItem.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent ae) {
@@ -363,7 +576,22 @@ public final class JYzer extends JFrame {
 		getContentPane().add(mainPanel);
 
 		mainPanel.setLayout( new BorderLayout() );
-		mainPanel.add(tabbedPane);
+
+		// the open documents on the left, the panes of the selected one on the right
+		documentList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		documentList.setToolTipText("The open classfiles");
+		JSplitPane splitPane = new JSplitPane( JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(documentList), tabbedPane );
+		splitPane.setDividerLocation(160);
+		mainPanel.add(splitPane);
+
+		documentList.addListSelectionListener(new ListSelectionListener() {
+			public void valueChanged(ListSelectionEvent lse) {
+				Workspace.Document selected = (Workspace.Document) documentList.getSelectedValue();
+				if ( ! lse.getValueIsAdjusting() && null != selected && document != selected ) {
+					showDocument(selected);
+				}
+			}
+		});
 
 		JPanel statePanel = new JPanel( new BorderLayout() );
 		mainPanel.add(statePanel, BorderLayout.SOUTH);
@@ -371,14 +599,107 @@ public final class JYzer extends JFrame {
 		statePanel.add(stateLabel, BorderLayout.CENTER);
 		statePanel.add(progressBar, BorderLayout.EAST);
 
-		tabbedPane.addTab("Summary", new ImageIcon( getClass().getResource("/data/pix/sum.jpg") ), summaryPane);
-		tabbedPane.addTab("Hexa View", new ImageIcon( getClass().getResource("/data/pix/hexaView.jpg") ), hexaViewPane );
-		tabbedPane.addTab("Disassembled Source", new ImageIcon( getClass().getResource("/data/pix/dis.gif") ), disassemblePane);
-		tabbedPane.addTab("Constant Pool", new ImageIcon( getClass().getResource("/data/pix/cp.gif") ), constantPoolPane );
-		tabbedPane.addTab("Fields", new ImageIcon( getClass().getResource("/data/pix/field.gif") ), fieldsPane );
-		tabbedPane.addTab("Methods", new ImageIcon( getClass().getResource("/data/pix/method.gif") ), methodsPane );
+		// the panes are created when their tab is selected at first
+		for (int i=0; i<TAB_TITLES.length; ++i) {
+			tabbedPane.addTab( TAB_TITLES[i], new JPanel() );
+		}
+
+		tabbedPane.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent ce) {
+				ensurePane( tabbedPane.getSelectedIndex() );
+			}
+		});
 	}// buildUpGUI
 
+	/**
+	 * Creates the pane of a tab if it was not created yet, and shows the opened classfile on it. Called on the event
+	 * dispatch thread.
+	 *
+	 * @param tab the index of the tab.
+	 */
+	private void ensurePane(int tab) {
+		if ( tab < 0 || null != panes[tab] ) {
+			return;
+		}
+
+		switch (tab) {
+			case SUMMARY_TAB:     panes[tab] = summaryPane = new SummaryPane(); break;
+			case HEXA_VIEW_TAB:   panes[tab] = hexaViewPane = new HexaViewPane(); break;
+			case DISASSEMBLE_TAB: panes[tab] = disassemblePane = createDisassemblePane(); break;
+			case CONSTANT_TAB:    panes[tab] = constantPoolPane = new ConstantPoolPane();
+			                      constantPoolPane.setNavigationListener(navigator); break;
+			case FIELDS_TAB:      panes[tab] = fieldsPane = new FieldsPane(this); break;
+			case METHODS_TAB:     panes[tab] = methodsPane = new MethodsPane(this); break;
+			default:              return;
+		}
+
+		tabbedPane.setComponentAt( tab, panes[tab] );
+
+		if ( null != shownPath ) {
+			try {
+				showOnPane(tab);
+			} catch (IOException ioe) {
+				JOptionPane.showMessageDialog(this, "I/O Exception!\n" + ioe.getMessage(), "Exception:", JOptionPane.ERROR_MESSAGE);
+				ioe.printStackTrace();
+			}
+		}
+
+		StartupLog.mark("pane created: " + TAB_TITLES[tab]);
+	}// ensurePane
+
+	/**
+	 * Creates the disassemble pane. The rendered sources are kept by the documents, so they are not rendered again when
+	 * the document is shown the next time.
+	 */
+	private DisassemblePane createDisassemblePane() {
+		DisassemblePane pane = new DisassemblePane();
+		pane.setNavigationListener(navigator);
+
+		pane.setRenderListener(new DisassemblePane.RenderListener() {
+			public void rendered(ClassFile rendered, String text) {
+				if ( null != document && rendered == document.getModel() ) {
+					workspace.setRenderedText(document, text);
+				}
+			}
+		});
+
+		return pane;
+	}// createDisassemblePane
+
+	/**
+	 * Shows the opened classfile on the pane of a tab.
+	 *
+	 * @param tab the index of a tab whose pane is already created.
+	 * @throws IOException if the file cannot be read by the hexa view.
+	 */
+	private void showOnPane(int tab) throws IOException {
+		switch (tab) {
+			case SUMMARY_TAB:
+				summaryPane.setClassFile( cf );
+				break;
+			case HEXA_VIEW_TAB:
+				hexaViewPane.setData( ClassFile.readFile(shownPath) ); // the path may name an entry of a jar file
+				break;
+			case DISASSEMBLE_TAB:
+				String text = document.getRenderedText();
+				if ( null != text ) {
+					disassemblePane.setText(text);
+				} else {
+					disassemblePane.setClassFile( cf );
+				}
+				break;
+			case CONSTANT_TAB:
+				constantPoolPane.setData( cf.getConstantPoolItem().getConstantPoolData() );
+				break;
+			case FIELDS_TAB:
+				fieldsPane.setData( cf.getFieldItem().getFields(), cf.getFieldItem().getFieldData( fieldsPane.isShowingRealModifiersOnly() ) );
+				break;
+			case METHODS_TAB:
+				methodsPane.setData( cf.getMethodItem().getMethods(), cf.getMethodItem().getMethodData( methodsPane.isShowingRealModifiersOnly() ) );
+				break;
+		}
+	}// showOnPane
+
 	/**
 	 * Setting the default GUI values.
 	 */
@@ -393,7 +714,7 @@ public final class JYzer extends JFrame {
 				int back = JOptionPane.showConfirmDialog(tmp, "Are you sure wish to quit?", "Quitting:", JOptionPane.YES_NO_OPTION);
 
 				if ( JOptionPane.YES_OPTION == back ) {
-					saveProperties();
+					savePropertiesOnExit();
 					System.exit(0);
 				}
 			}
@@ -509,30 +830,50 @@ public final class JYzer extends JFrame {
 	 * @param path the absolute path to the file that has to be opened.
 	 */
 	private void doOpen(final String path) {
-		final String newClassFileName = path.substring( path.lastIndexOf('\\') + 1 );
-
-		if (newClassFileName.equals( classFileName ) ) {
+		if ( path.equals(shownPath) || path.equals(parsingPath) ) {
 			return;
 		}
 
-		classFileName = newClassFileName;
-		cf = new ClassFile( path, JYzer.this );
-
-		parse( path );
+		Workspace.Document open = workspace.get(path);
+		if ( null != open ) { // switching needs no parsing
+			showDocument(open);
+		} else {
+			parse( path );
+		}
 	}// doOpen
 
 	/**
-	 * Closing the opened classfile, and clearing every information from each pane.
+	 * Closing the shown classfile. Its neighbour in the list is shown (the next one, or the previous one if it was the
+	 * last), or if there's none, every information is cleared from each pane.
 	 */
 	private void clear() {
-		summaryPane.clear();
-		hexaViewPane.clear();
-		disassemblePane.clear();
-		constantPoolPane.clear();
-		fieldsPane.clear();
-		methodsPane.clear();
+		cancelParsing();
+
+		int index = 0;
+		if ( null != document ) {
+			Workspace.Document closed = document;
+			document = null;
+			workspace.close(closed);
+			index = Math.max( 0, documentListModel.indexOf(closed) );
+			documentListModel.removeElement(closed);
+		}
+
+		if ( ! documentListModel.isEmpty() ) {
+			showDocument( (Workspace.Document) documentListModel.get( Math.min( index, documentListModel.getSize() - 1 ) ) );
+			return;
+		}
+
+		shownPath = null;
+
+		if ( null != summaryPane )      summaryPane.clear();
+		if ( null != hexaViewPane )     hexaViewPane.clear();
+		if ( null != disassemblePane )  disassemblePane.clear();
+		if ( null != constantPoolPane ) constantPoolPane.clear();
+		if ( null != fieldsPane )       fieldsPane.clear();
+		if ( null != methodsPane )      methodsPane.clear();
 
 		classFileName = "<N/A>";
+		startup = true;
 		setTitleString();
 	}// clear
 
@@ -554,7 +895,8 @@ public final class JYzer extends JFrame {
 	}// openMenuItemActionPerformed
 
 	/**
-	 * Implementation of the save summary menu item. Saving the text that is visible on the Summary pane.
+	 * Implementation of the save summary menu item. Streams the whole description of the classfile into
+	 * the file (the Summary pane shows only a part of it).
 	 * The file gets <code>html</code> extension whatever happens.
 	 */
 	private void saveSummaryMenuItemActionPerformed() {
@@ -591,9 +933,7 @@ public final class JYzer extends JFrame {
 				saveFileName += ".html";
 			}
 
-			PrintWriter pw = new PrintWriter( new FileWriter(saveFileName) );
-			pw.print( summaryPane.getText() );
-			pw.close();
+			new HTMLReportWriter().write( cf, new File(saveFileName) );
 
 		} catch (IOException ioe) {
 			JOptionPane.showMessageDialog(this, "Save Failed!\nIOException was risen: " + ioe.getMessage(), "Exception:", JOptionPane.ERROR_MESSAGE);
@@ -605,7 +945,8 @@ public final class JYzer extends JFrame {
 	}// saveSummaryMenuItemActionPerformed
 
 	/**
-	 * Implementation of the save source menu item. Saves the disassembled source that is visible on the Disassemble pane.
+	 * Implementation of the save source menu item. Streams the disassembled source (the same that is
+	 * displayed on the Disassemble pane) into the file.
 	 * The file gets <code>java</code> extension whatever happens.
 	 */
 	private void saveSourceMenuItemActionPerformed() {
@@ -642,9 +983,7 @@ public final class JYzer extends JFrame {
 				saveFileName += ".java";
 			}
 
-			PrintWriter pw = new PrintWriter( new FileWriter(saveFileName) );
-			pw.print( disassemblePane.getText() );
-			pw.close();
+			new SourceReportWriter().write( cf, new File(saveFileName) );
 
 		} catch (IOException ioe) {
 			JOptionPane.showMessageDialog(this, "Save Failed!\nIOException was risen: " + ioe.getMessage(), "Exception:", JOptionPane.ERROR_MESSAGE);
@@ -700,7 +1039,7 @@ public final class JYzer extends JFrame {
 	 * Implementation of the exit menu item.
 	 */
 	private void exitMenuItemActionPerformed() {
-		saveProperties();
+		savePropertiesOnExit();
 		System.exit(0);
 	}// exitMenuItemActionPerformed
 
@@ -715,6 +1054,28 @@ public final class JYzer extends JFrame {
 	private void preferencesMenuItemActionPerformed() {
 	}// preferencesMenuItemActionPerformed
 
+	/**
+	 * Implementation of the class path menu item. The referenced classes are looked up on the given class path too.
+	 */
+	private void classPathMenuItemActionPerformed() {
+		Object back = JOptionPane.showInputDialog(
+			this,
+			"The directories and jar files where the referenced classes are looked up,\nseparated by '" + File.pathSeparator + "':",
+			"Class path",
+			JOptionPane.PLAIN_MESSAGE,
+			null,
+			null,
+			userClassPath
+		);
+
+		if ( null == back ) {
+			return;
+		}
+
+		userClassPath = back.toString().trim();
+		updateClassPath();
+	}// classPathMenuItemActionPerformed
+
 	/**
 	 * Implementation of the clear recent files menu item.
 	 */
@@ -747,82 +1108,322 @@ public final class JYzer extends JFrame {
 	// --- Working methods ----------------------------------------------------------------------------
 
 	/**
-	 * Performing the parsing. Works with an other thread to don't burden the swing thread.
+	 * Performing the parsing on the parser thread, so the swing thread is not burdened. The parsing of the previous
+	 * file is cancelled (it stops at its next section). The panes are updated on the event dispatch thread at once,
+	 * only when the parsing is complete, so a failed or cancelled parsing leaves the shown classfile untouched.
 	 *
 	 * @param path the path of the file that has to be parsed.
 	 */
 	private void parse(final String path) {
-		Thread parser = new Thread() {
-			public void run() {
-				// TODO: find the reason for npe in the awt event queue ! Serious
+		cancelParsing();
 
-				/*
-				If the system is under serious usage, the awt event queue throws a NullPointerException
-				for some reason, if I want to set the state of the progressbar. Don't know why ...
-				*/
+		final SwingParseMonitor monitor = new SwingParseMonitor(this, progressBar);
+		parseMonitor = monitor;
+		parsingPath  = path;
+		progressBar.setIndeterminate(true);
 
-				progressBar.setIndeterminate(true);
+		parser.execute(new Runnable() {
+			public void run() {
+				if ( monitor.isCancelled() ) {
+					return;
+				}
+
+				ClassFile parsed = new ClassFile(path, monitor);
 
 				try {
 
 					// make the parsing
-					cf.parse();
+					parsed.parse();
+					parsed.getConstantPoolItem().shareSymbols( workspace.getSymbols() );
 
 					// make the validation if needed ...
 					/*
 					if ( validationMenuItem.getState() ) {
-						cf.validate();
+						parsed.validate();
 					}
 					*/
 
-					// show the result
-					summaryPane.setText(  cf.getHTMLDescription() );
-					hexaViewPane.setData( new File(path) );
-					disassemblePane.setClassFile( cf );
-					constantPoolPane.setData( cf.getConstantPoolItem().getConstantPoolData() );
-					fieldsPane.setData( cf.getFieldItem().getFields(), cf.getFieldItem().getFieldData( fieldsPane.isShowingRealModifiersOnly() ) );
-					methodsPane.setData( cf.getMethodItem().getMethods(), cf.getMethodItem().getMethodData( methodsPane.isShowingRealModifiersOnly() ) );
-
-					// update state
-					setTitleString();
-					setStateLabelString("<HTML><FONT color=\"green\">File: " + classFileName + " was successfully opened & disassembled, " +
-							"and it seems it is a valid classfile.</FONT></HTML>");
-					recentUpdate(path);
-					lastOpenPath = path.substring(0, path.lastIndexOf("\\") );
-					startup = false;
+					parsingDone(monitor, path, parsed);
+				} catch (ParsingCancelledException pce) {
+					// an other file was opened, or the file was closed
 				} catch (ParsingException pe) { // if not a classfile
-					progressBar.setIndeterminate(false);
-					Toolkit.getDefaultToolkit().beep();
-					clear();
+					parsingFailed(monitor, pe.getMessage(), "Non-valid classfile!", null);
+				} catch (IOException ioe) {
+					parsingFailed(monitor, "I/O Exception!\n" + ioe.getMessage(), "Parsing stopped:", ioe);
+				} catch (Exception e) {
+					parsingFailed(monitor, "Unknown exception! Please, if you can, send me the stack trace dump!!", "Parsing stopped:", e);
+				}
+			}
+		});
+	}// parse
 
-					JOptionPane.showMessageDialog(JYzer.this, pe.getMessage(), "Non-valid classfile!", JOptionPane.ERROR_MESSAGE);
+	/**
+	 * Cancels the running parsing, if any. Called on the event dispatch thread.
+	 */
+	private void cancelParsing() {
+		if ( null != parseMonitor ) {
+			parseMonitor.cancel();
+			parseMonitor = null;
+			parsingPath  = null;
+		}
+
+		progressBar.setIndeterminate(false);
+		progressBar.setValue(0);
+	}// cancelParsing
+
+	/**
+	 * Shows a parsed classfile on the event dispatch thread, unless its parsing was cancelled meanwhile.
+	 */
+	private void parsingDone(final SwingParseMonitor monitor, final String path, final ClassFile parsed) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				if ( monitor != parseMonitor ) {
 					return;
-				} catch (IOException ioe) {
-					progressBar.setIndeterminate(false);
-					Toolkit.getDefaultToolkit().beep();
-					clear();
+				}
 
-					JOptionPane.showMessageDialog(JYzer.this, "I/O Exception!\n" + ioe.getMessage(), "Parsing stopped:", JOptionPane.ERROR_MESSAGE);
-					ioe.printStackTrace();
-				} catch (Exception e) {
-					progressBar.setIndeterminate(false);
-					Toolkit.getDefaultToolkit().beep();
-					clear();
+				cancelParsing();
+				show(path, parsed);
+				Toolkit.getDefaultToolkit().beep();
+			}
+		});
+	}// parsingDone
+
+	/**
+	 * Reports a failed parsing on the event dispatch thread, unless it was cancelled meanwhile.
+	 */
+	private void parsingFailed(final SwingParseMonitor monitor, final String message, final String title, final Exception e) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				if ( monitor != parseMonitor ) {
+					return;
+				}
+
+				cancelParsing();
+				Toolkit.getDefaultToolkit().beep();
 
-					JOptionPane.showMessageDialog(JYzer.this, "Unknown exception! Please, if you can, send me the stack trace dump!!",
-							"Parsing stopped:", JOptionPane.ERROR_MESSAGE);
+				JOptionPane.showMessageDialog(JYzer.this, message, title, JOptionPane.ERROR_MESSAGE);
+				if ( null != e ) {
 					System.err.println( "Error: " + e.getMessage() );
 					e.printStackTrace();
 				}
+			}
+		});
+	}// parsingFailed
 
-				// TODO: find the reason for npe in the awt event queue !!! Serious
-				progressBar.setIndeterminate(false);
-				Toolkit.getDefaultToolkit().beep();
+	/**
+	 * Adds a parsed classfile to the workspace, and shows it. Called on the event dispatch thread.
+	 *
+	 * @param path the path of the classfile.
+	 * @param parsed the parsed classfile.
+	 */
+	private void show(String path, ClassFile parsed) {
+		Workspace.Document opened = workspace.open(path);
+		workspace.setModel(opened, parsed);
+
+		if ( ! documentListModel.contains(opened) ) {
+			documentListModel.addElement(opened);
+		}
+
+		showDocument(opened);
+
+		// update state
+		setStateLabelString("<HTML><FONT color=\"green\">File: " + classFileName + " was successfully opened & disassembled, " +
+				"and it seems it is a valid classfile.</FONT></HTML>");
+		recentUpdate(path);
+		addPackageRoot(path, parsed);
+		if ( ! ClassFile.isEntryPath(path) ) {
+			lastOpenPath = new File(path).getParent();
+		}
+	}// show
+
+	/**
+	 * Shows an open document on the created panes, the others show it when they are created. If the model of the
+	 * document was evicted, it is parsed again (and shown when the parsing is done). Called on the event dispatch
+	 * thread.
+	 *
+	 * @param shown the document.
+	 */
+	private void showDocument(Workspace.Document shown) {
+		workspace.activate(shown);
+
+		ClassFile model = shown.getModel();
+		if ( null == model ) {
+			parse( shown.getPath() );
+			return;
+		}
+
+		// the panes describe the classfile on the event dispatch thread
+		ConstantPool.setCurrent( model.getConstantPoolItem() );
+
+		document = shown;
+		cf = model;
+		classFileName = shown.getName();
+		shownPath = shown.getPath();
+		documentList.setSelectedValue(shown, true);
+
+		for (int i=0; i<panes.length; ++i) {
+			if ( null != panes[i] ) {
+				try {
+					showOnPane(i);
+				} catch (IOException ioe) {
+					JOptionPane.showMessageDialog(this, "I/O Exception!\n" + ioe.getMessage(), "Exception:", JOptionPane.ERROR_MESSAGE);
+					ioe.printStackTrace();
+				}
 			}
-		};
+		}
 
-		parser.start();
-	}// parse
+		setTitleString();
+		startup = false;
+
+		selectPendingTarget();
+	}// showDocument
+
+	// --- Navigation ---------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates the class path of the navigation, and indexes it on the startup thread. The runtime classes come first,
+	 * like on the class path of the virtual machine. Called on the event dispatch thread.
+	 */
+	private void updateClassPath() {
+		final ClassPath created = new ClassPath();
+
+		File runtime = new File( System.getProperty("java.home"), "lib" + File.separator + "rt.jar" );
+		if ( runtime.isFile() ) {
+			created.add(runtime);
+		}
+		for (File location : new ClassPath(userClassPath).getLocations()) {
+			created.add(location);
+		}
+		for (File root : packageRoots) {
+			created.add(root);
+		}
+
+		ClassPath previous = classPath;
+		classPath = created;
+		previous.close();
+
+		startupExecutor.execute(new Runnable() {
+			public void run() {
+				try {
+					created.buildIndex();
+					StartupLog.mark("class path indexed: " + created.getIndexSize() + " classes");
+				} catch (IOException ioe) {
+					System.err.println( "Warning: " + ioe.getMessage() );
+				}
+			}
+		});
+	}// updateClassPath
+
+	/**
+	 * Adds the root of the package of an opened classfile to the class path, so the classes next to it can be
+	 * navigated to. The root of an entry is its jar file. Called on the event dispatch thread, after the classfile is
+	 * shown (its constant pool is the current one).
+	 */
+	private void addPackageRoot(String path, ClassFile parsed) {
+		File root;
+
+		if ( ClassFile.isEntryPath(path) ) {
+			root = new File( path.substring( 0, path.indexOf(ClassFile.ENTRY_SEPARATOR) ) );
+		} else {
+			root = new File(path).getAbsoluteFile().getParentFile();
+			String name = parsed.getThisClassName();
+			for (int i=name.indexOf('.'); 0 <= i && null != root; i=name.indexOf('.', i + 1)) {
+				root = root.getParentFile();
+			}
+		}
+
+		if ( null != root && ! packageRoots.contains(root) ) {
+			packageRoots.add(root);
+			classPath.add(root);
+		}
+	}// addPackageRoot
+
+	/**
+	 * Opens the definition of a referenced class, and selects the referenced member in it. The class is looked up on
+	 * the parser thread, then it is parsed there too (or it is shown at once, if it is already open). Called on the
+	 * event dispatch thread.
+	 *
+	 * @param target the referenced class or member.
+	 */
+	private void navigateTo(final NavigationTarget target) {
+		if ( null != cf && target.getClassName().equals( cf.getThisClassName() ) ) {
+			pendingTarget = target;
+			selectPendingTarget();
+			return;
+		}
+
+		setStateLabelString("Looking up " + target + " ...");
+		final ClassPath searched = classPath;
+
+		parser.execute(new Runnable() {
+			public void run() {
+				NavigationTarget found = target;
+				String path = null;
+				String message = null;
+
+				try {
+					path = searched.getPath( target.getClassName() );
+
+					// a qualified name of the disassembled source may be the name of a member too
+					int dot = target.getClassName().lastIndexOf('.');
+					if ( null == path && null == target.getMemberName() && 0 < dot ) {
+						found = new NavigationTarget( target.getClassName().substring(0, dot), target.getClassName().substring(dot + 1), null );
+						path = searched.getPath( found.getClassName() );
+					}
+				} catch (IOException ioe) {
+					message = ioe.getMessage();
+				}
+
+				final NavigationTarget foundTarget = found;
+				final String foundPath = path;
+				final String failure = ( (null != message) ? message : target + " was not found on the class path." );
+
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if ( null == foundPath ) {
+							Toolkit.getDefaultToolkit().beep();
+							setStateLabelString("<HTML><FONT color=\"red\">" + failure + "</FONT></HTML>");
+							return;
+						}
+
+						pendingTarget = ( (null == foundTarget.getMemberName()) ? null : foundTarget );
+						if ( foundPath.equals(shownPath) ) {
+							selectPendingTarget();
+						} else {
+							doOpen(foundPath);
+						}
+					}
+				});
+			}
+		});
+	}// navigateTo
+
+	/**
+	 * Selects the member that was navigated to on the methods or the fields pane, if the shown classfile is its class.
+	 * Called on the event dispatch thread.
+	 */
+	private void selectPendingTarget() {
+		NavigationTarget target = pendingTarget;
+		pendingTarget = null;
+
+		if ( null == target || null == target.getMemberName() || ! target.getClassName().equals( cf.getThisClassName() ) ) {
+			return;
+		}
+
+		boolean found = false;
+		if ( target.isMethod() ) {
+			tabbedPane.setSelectedIndex(METHODS_TAB);
+			found = methodsPane.selectMethod( target.getMemberName(), target.getDescriptor() );
+		}
+		if ( ! found && ( null == target.getDescriptor() || ! target.isMethod() ) ) {
+			tabbedPane.setSelectedIndex(FIELDS_TAB);
+			found = fieldsPane.selectField( target.getMemberName(), target.getDescriptor() );
+		}
+
+		if ( ! found ) {
+			setStateLabelString("<HTML><FONT color=\"red\">" + target + " is not defined in " + target.getClassName() + ".</FONT></HTML>");
+		}
+	}// selectPendingTarget
 
 	/**
 	 * To start the application. Sets some static values & kicks the program.
@@ -838,7 +1439,13 @@ public final class JYzer extends JFrame {
         Toolkit.getDefaultToolkit().setDynamicLayout(true);
         System.setProperty("sun.awt.noerasebackground","true");
 
-		JYzer jyzer = new JYzer();
+		StartupLog.mark("main");
+
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				JYzer jyzer = new JYzer();
+			}
+		});
 	}// main
 
 	// --- GUI variables -----------------------------------------------------------------------------------------------------------------------------------
@@ -847,26 +1454,23 @@ public final class JYzer extends JFrame {
 	private JMenuBar menuBar = new JMenuBar();
 	private JMenu fileMenu = new JMenu("File");
 	private JMenu validateMenu = new JMenu("Validate");
-	private JMenu optionsMenu = new JMenu("Options"); {
-		optionsMenu.setIcon( new ImageIcon( getClass().getResource("/data/pix/options.gif") ) );
-	}
-	private JMenu helpMenu = new JMenu("Help"); {
-		helpMenu.setIcon( new ImageIcon( getClass().getResource("/data/pix/info.gif") ) );
-	}
-	private JMenuItem openMenuItem = new JMenuItem("Open class", new ImageIcon( getClass().getResource("/data/pix/open.gif") ) );
-	private JMenuItem saveSummaryMenuItem = new JMenuItem("Save summary", new ImageIcon( getClass().getResource("/data/pix/save.gif") ) );
-	private JMenuItem saveSourceMenuItem = new JMenuItem("Save disassembled source", new ImageIcon( getClass().getResource("/data/pix/save.gif") ) );
-	private JMenuItem closeMenuItem = new JMenuItem("Close file", new ImageIcon( getClass().getResource("/data/pix/close.gif") ) );
-	private JMenuItem previewMenuItem = new JMenuItem("Print Preview", new ImageIcon( getClass().getResource("/data/pix/preview.gif") ) );
-	private JMenuItem printMenuItem = new JMenuItem("Print", new ImageIcon( getClass().getResource("/data/pix/print.gif") ) );
+	private JMenu optionsMenu = new JMenu("Options"); // the icons are set by loadIcons()
+	private JMenu helpMenu = new JMenu("Help");
+	private JMenuItem openMenuItem = new JMenuItem("Open class");
+	private JMenuItem saveSummaryMenuItem = new JMenuItem("Save summary");
+	private JMenuItem saveSourceMenuItem = new JMenuItem("Save disassembled source");
+	private JMenuItem closeMenuItem = new JMenuItem("Close file");
+	private JMenuItem previewMenuItem = new JMenuItem("Print Preview");
+	private JMenuItem printMenuItem = new JMenuItem("Print");
 	private JMenuItem exitMenuItem = new JMenuItem("Exit");
 	private JCheckBoxMenuItem validationMenuItem = new JCheckBoxMenuItem("Full validation");
-	private JMenuItem preferencesMenuItem = new JMenuItem("Preferences", new ImageIcon( getClass().getResource("/data/pix/preferences.gif") ) );
-	private JMenuItem clearRecentFilesMenuItem = new JMenuItem("Clear recent files", new ImageIcon( getClass().getResource("/data/pix/clearRecent.gif") ) );
-	private JMenuItem helpMenuItem = new JMenuItem("Help", new ImageIcon( getClass().getResource("/data/pix/help.gif") ) );
+	private JMenuItem preferencesMenuItem = new JMenuItem("Preferences");
+	private JMenuItem classPathMenuItem = new JMenuItem("Class path");
+	private JMenuItem clearRecentFilesMenuItem = new JMenuItem("Clear recent files");
+	private JMenuItem helpMenuItem = new JMenuItem("Help");
 	private JMenuItem hexCtrMenuItem = new JMenuItem("HexCtr");
-	private JMenuItem licenseMenuItem = new JMenuItem("License", new ImageIcon( getClass().getResource("/data/pix/license.gif") ) );
-	private JMenuItem aboutMenuItem = new JMenuItem("About...", new ImageIcon( getClass().getResource("/data/pix/about.gif") ) );
+	private JMenuItem licenseMenuItem = new JMenuItem("License");
+	private JMenuItem aboutMenuItem = new JMenuItem("About...");
 	private JMenuItem openJavaWebMenuItem = new JMenuItem("OpenJava Web");
 	private JMenuItem recentMenuItems[] = new JMenuItem[RECENT_FILES_MAX_SIZE];
 
@@ -874,13 +1478,16 @@ public final class JYzer extends JFrame {
 	private JPanel mainPanel = new JPanel();
 	private JLabel stateLabel = new JLabel(" ");
 	private JTabbedPane tabbedPane = new JTabbedPane();
+	private DefaultListModel documentListModel = new DefaultListModel();
+	private JList documentList = new JList(documentListModel);
 	private JProgressBar progressBar = new JProgressBar();
-	private SummaryPane summaryPane = new SummaryPane();
-	private DisassemblePane disassemblePane = new DisassemblePane();
-	private ConstantPoolPane constantPoolPane = new ConstantPoolPane();
-	private FieldsPane fieldsPane = new FieldsPane(this);
-	private MethodsPane methodsPane = new MethodsPane(this);
-	private HexaViewPane hexaViewPane = new HexaViewPane();
+	private JComponent panes[] = new JComponent[TAB_TITLES.length]; // null until the tab is selected
+	private SummaryPane summaryPane;
+	private DisassemblePane disassemblePane;
+	private ConstantPoolPane constantPoolPane;
+	private FieldsPane fieldsPane;
+	private MethodsPane methodsPane;
+	private HexaViewPane hexaViewPane;
 	private HexCtr hexCtr;
 
 }// class.JYzer
@@ -0,0 +1,59 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer;
+
+/**
+ * Follows the parsing of a classfile opened by the user. The classfile doesn't know anything about the user interface,
+ * the GUI implements this interface to show the progress and to ask the user (so the command line tools never load
+ * the AWT and Swing classes).
+ *
+ * <p>The monitor is called between the sections of the classfile (the header, the constant pool, the fields, ...) on
+ * the parsing thread. It also works as a cancellation token: if it returns true from <code>isCancelled()</code>, the
+ * parsing stops at the next section with a <code>ParsingCancelledException</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public interface ParseMonitor {
+
+	/**
+	 * Called when a section of the classfile was parsed.
+	 *
+	 * @param section the name of the section.
+	 * @param position the number of the bytes read so far.
+	 * @param length the length of the classfile in bytes.
+	 */
+	void progress(String section, int position, int length);
+
+	/**
+	 * Returns true if the parsing has to be stopped.
+	 */
+	boolean isCancelled();
+
+	/**
+	 * Called if the version of the classfile is above the supported maximum.
+	 *
+	 * @param fileName the path of the classfile.
+	 * @param majorVersion the major version of the classfile.
+	 * @param minorVersion the minor version of the classfile.
+	 * @return true if the parsing should go on.
+	 */
+	boolean acceptVersion(String fileName, int majorVersion, int minorVersion);
+
+}// interface.ParseMonitor
@@ -0,0 +1,335 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Aggregate statistics of the classfiles of a directory or a jar file: the opcode histogram, the distribution of
+ * the method sizes, of the <code>max_stack</code> and <code>max_locals</code> values, of the constant pool sizes,
+ * the number of the constant pool entries by tag and the classfile versions. The largest methods and classes are
+ * listed too.</p>
+ *
+ * <p>The classfiles are parsed by the workers of a <code>ClassScanner</code>, every worker counts into its own
+ * counters (see <code>ScanReport</code>).</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.BytecodeStatistics [-threads n] [-top n] &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class BytecodeStatistics extends ScanReport<BytecodeStatistics.Counters> {
+
+	/** The values of the histograms (the code length, the constant pool count, etc. are unsigned shorts). */
+	public static final int RANGE = 65536;
+
+	/** The percentiles that are printed. */
+	public static final double PERCENTILES[] = { 50, 90, 99, 99.9 };
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker. They are updated only by the thread of the worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long classes = 0;
+		private long methods = 0;
+		private long instructions = 0;
+		private long bytes = 0;
+
+		private long opcodes[] = new long[256];
+		private long tags[] = new long[256];
+		private Map<Integer, long[]> versions = new HashMap<Integer, long[]>();
+
+		private Histogram codeLengths = new Histogram(RANGE);
+		private Histogram maxStacks = new Histogram(RANGE);
+		private Histogram maxLocals = new Histogram(RANGE);
+		private Histogram constantPools = new Histogram(RANGE);
+
+		private TopList largestMethods = new TopList(top);
+		private TopList deepestMethods = new TopList(top);
+		private TopList widestMethods = new TopList(top);
+		private TopList largestPools = new TopList(top);
+
+		public void visitClass(ClassFile cf, byte classBytes[]) {
+			String className = cf.getThisClassName();
+
+			classes++;
+			bytes += classBytes.length;
+
+			count( versions, Integer.valueOf( ( cf.getMajorVersion() << 16 ) | cf.getMinorVersion() ), 1 );
+
+			ConstantPool pool = ConstantPool.getCurrent();
+			for (int i=1; i<pool.size(); ++i) {
+				tags[ pool.get(i).getTag() & 0xff ]++;
+			}
+			constantPools.add( pool.size() );
+			largestPools.add( pool.size(), className );
+
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				visitMethod(className, method);
+			}
+		}// visitClass
+
+		/**
+		 * Counts the code of a method.
+		 */
+		private void visitMethod(String className, MethodInfo method) {
+			methods++;
+
+			CodeAttribute code = method.getAttributes().getCode();
+			if ( null == code ) {
+				return;
+			}
+
+			Vector<CodeInstruction> codeInstructions = code.getDisassembledCode();
+			for (CodeInstruction ci : codeInstructions) {
+				opcodes[ ci.getOpcode() & 0xff ]++;
+			}
+			instructions += codeInstructions.size();
+
+			int length = code.getCode().getCodeLength();
+			codeLengths.add(length);
+			maxStacks.add( code.getMaxStack() );
+			maxLocals.add( code.getMaxLocals() );
+
+			// the labels are built only if the method gets on a list
+			if ( largestMethods.accepts(length) ) {
+				largestMethods.add( length, getMethodLabel(className, method) );
+			}
+			if ( deepestMethods.accepts( code.getMaxStack() ) ) {
+				deepestMethods.add( code.getMaxStack(), getMethodLabel(className, method) );
+			}
+			if ( widestMethods.accepts( code.getMaxLocals() ) ) {
+				widestMethods.add( code.getMaxLocals(), getMethodLabel(className, method) );
+			}
+		}// visitMethod
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private int top;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates empty statistics.
+	 *
+	 * @param top the length of the lists of the largest methods and classes.
+	 */
+	public BytecodeStatistics(int top) {
+		this.top = Math.max(0, top);
+		total = new Counters();
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the classes. */
+	public synchronized long getClassCount() {
+		return total.classes;
+	}
+
+	/** Returns the number of the methods (with or without code). */
+	public synchronized long getMethodCount() {
+		return total.methods;
+	}
+
+	/** Returns how many times the given opcode occurs in the code of the methods. */
+	public synchronized long getOpcodeCount(int opcode) {
+		return total.opcodes[opcode];
+	}
+
+	/** Returns the number of the constant pool entries with the given tag. */
+	public synchronized long getTagCount(int tag) {
+		return total.tags[tag];
+	}
+
+	/** Returns the distribution of the code lengths of the methods that have code. */
+	public synchronized Histogram getCodeLengths() {
+		return total.codeLengths;
+	}
+
+	/** Returns the distribution of the <code>max_stack</code> values. */
+	public synchronized Histogram getMaxStacks() {
+		return total.maxStacks;
+	}
+
+	/** Returns the distribution of the <code>max_locals</code> values. */
+	public synchronized Histogram getMaxLocals() {
+		return total.maxLocals;
+	}
+
+	/** Returns the distribution of the <code>constant_pool_count</code> values. */
+	public synchronized Histogram getConstantPools() {
+		return total.constantPools;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the label of a method in the lists.
+	 */
+	private static String getMethodLabel(String className, MethodInfo method) {
+		return className + "." + method.getNameString() + method.getDescriptorString();
+	}
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.classes      += counters.classes;
+		total.methods      += counters.methods;
+		total.instructions += counters.instructions;
+		total.bytes        += counters.bytes;
+
+		for (int i=0; i<256; ++i) {
+			total.opcodes[i] += counters.opcodes[i];
+			total.tags[i]    += counters.tags[i];
+		}
+
+		addCounts(total.versions, counters.versions);
+
+		total.codeLengths.merge(counters.codeLengths);
+		total.maxStacks.merge(counters.maxStacks);
+		total.maxLocals.merge(counters.maxLocals);
+		total.constantPools.merge(counters.constantPools);
+
+		total.largestMethods.merge(counters.largestMethods);
+		total.deepestMethods.merge(counters.deepestMethods);
+		total.widestMethods.merge(counters.widestMethods);
+		total.largestPools.merge(counters.largestPools);
+	}// merge
+
+	/**
+	 * Returns the given part of the whole as a percentage string.
+	 */
+	private static String percent(long part, long whole) {
+		return String.format( "%6.2f%%", ( (0 == whole) ? 0.0 : 100.0 * part / whole ) );
+	}
+
+	/**
+	 * Prints the percentiles of a histogram in a line.
+	 */
+	private static void printDistribution(PrintStream out, String title, Histogram histogram) {
+		out.print( String.format( "  %-16s n=%-8d mean=%-9.1f", title, histogram.getCount(), histogram.getMean() ) );
+		for (double p : PERCENTILES) {
+			out.print( String.format( " p%s=%-6d", ( (p == Math.floor(p)) ? String.valueOf( (int) p ) : String.valueOf(p) ), histogram.getPercentile(p) ) );
+		}
+		out.println( " max=" + histogram.getMax() );
+	}
+
+	/**
+	 * Prints the statistics as a plain text report.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		out.println( "Classes: " + total.classes + ", bytes: " + total.bytes + ", methods: " + total.methods +
+				", methods with code: " + total.codeLengths.getCount() + ", instructions: " + total.instructions );
+
+		out.println();
+		out.println("Distributions");
+		printDistribution(out, "code_length", total.codeLengths);
+		printDistribution(out, "max_stack", total.maxStacks);
+		printDistribution(out, "max_locals", total.maxLocals);
+		printDistribution(out, "constant_pool", total.constantPools);
+
+		out.println();
+		out.println("Class versions");
+		Integer versions[] = total.versions.keySet().toArray( new Integer[0] );
+		java.util.Arrays.sort(versions);
+		for (Integer version : versions) {
+			long count = total.versions.get(version)[0];
+			out.println( String.format( "  %5s  %8d %s", ( version.intValue() >>> 16 ) + "." + ( version.intValue() & 0xffff ), count, percent(count, total.classes) ) );
+		}
+
+		long entries = 0;
+		for (long count : total.tags) {
+			entries += count;
+		}
+
+		out.println();
+		out.println("Constant pool entries by tag");
+		for (int tag=0; tag<256; ++tag) {
+			if ( 0 != total.tags[tag] ) {
+				out.println( String.format( "  %-28s %10d %s", ConstantPoolInfo.getTagDescriptor(tag), total.tags[tag], percent(total.tags[tag], entries) ) );
+			}
+		}
+
+		// the opcodes in decreasing order of their counts
+		Integer opcodes[] = new Integer[256];
+		for (int i=0; i<256; ++i) {
+			opcodes[i] = Integer.valueOf(i);
+		}
+		java.util.Arrays.sort( opcodes, new java.util.Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				long ca = total.opcodes[ a.intValue() ];
+				long cb = total.opcodes[ b.intValue() ];
+				return ( (ca != cb) ? ( (ca > cb) ? -1 : 1 ) : a.compareTo(b) );
+			}
+		});
+
+		out.println();
+		out.println("Opcode histogram");
+		for (Integer opcode : opcodes) {
+			long count = total.opcodes[ opcode.intValue() ];
+			if ( 0 != count ) {
+				String mnemonic = CodeInstruction.INSTRUCTIONS[ opcode.intValue() ];
+				out.println( String.format( "  0x%02x %-16s %10d %s", opcode, ( (null == mnemonic) ? "?" : mnemonic ), count, percent(count, total.instructions) ) );
+			}
+		}
+
+		if ( 0 < top ) {
+			total.largestMethods.print(out, "Largest methods (code_length)", 8);
+			total.deepestMethods.print(out, "Deepest methods (max_stack)", 8);
+			total.widestMethods.print(out, "Widest methods (max_locals)", 8);
+			total.largestPools.print(out, "Largest constant pools (constant_pool_count)", 8);
+		}
+	}// print
+
+	/**
+	 * Entry point of the statistics.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.BytecodeStatistics", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 10);
+		options.parseOrExit(args);
+
+		new BytecodeStatistics( options.getInt("-top") ).run( new File( options.getArgument(0) ), options.getInt("-threads") );
+	}// main
+
+}// class.BytecodeStatistics
@@ -0,0 +1,532 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import jyzer.items.accessflags.AccessFlags;
+
+/**
+ * <p>The class hierarchy of the classes of a <code>MethodIndex</code>. The superclasses form a tree, its nodes are
+ * numbered in preorder and in postorder, so a class is a subclass of an other one if and only if it comes after it in
+ * preorder and before it in postorder: the subclass check costs <code>O(1)</code>, and the subclasses of a class are
+ * the nodes that follow it in preorder while their postorder number is smaller. Every interface has the set of the
+ * preorder numbers of its implementors, and the set of its superinterfaces, so the interface checks are
+ * <code>O(1)</code> too.</p>
+ *
+ * <p>The classes that are referenced as superclasses or interfaces but are not in the index are in the hierarchy
+ * too, without superclasses and methods. The analyses of the hierarchy assume a closed world: every subclass of a
+ * class is in the index. The analysis of the call sites is cached, it can be used by more threads.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ClassHierarchy {
+
+	/** The call site has one possible target. */
+	public static final byte MONOMORPHIC = 0;
+
+	/** The call site has two possible targets. */
+	public static final byte BIMORPHIC = 1;
+
+	/** The call site has more than two possible targets. */
+	public static final byte MEGAMORPHIC = 2;
+
+	/** No concrete class of the index implements the called method. */
+	public static final byte NO_TARGET = 3;
+
+	/** The referenced class is not in the index, so its subclasses are not known. */
+	public static final byte UNKNOWN = 4;
+
+	private static final String KIND_NAMES[] = { "monomorphic", "bimorphic", "megamorphic", "no concrete target", "unknown receiver" };
+
+	private static final String NO_TARGETS[] = {};
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private MethodIndex index;
+	private Map<String, Integer> ids = new HashMap<String, Integer>();
+	private String names[];
+	private MethodIndex.ClassEntry entries[];
+	private boolean interfaces[];
+	private int superIds[];
+	private int preorder[];
+	private int postorder[];
+	private int byPreorder[];
+	private int classCount;
+	private BitSet interfaceSets[];
+	private BitSet implementors[];
+	private int externalCount = 0;
+	private Map<String, String[]> targets = new HashMap<String, String[]>();
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Builds the hierarchy of the classes of an index.
+	 *
+	 * @param index the classes, it should not change later.
+	 */
+	public ClassHierarchy(MethodIndex index) {
+		this.index = index;
+
+		Vector<String> known = new Vector<String>();
+		for (MethodIndex.ClassEntry entry : index.getClasses()) {
+			known.add( entry.getName() );
+		}
+		String sorted[] = known.toArray( new String[known.size()] );
+		Arrays.sort(sorted); // the numbering does not depend on the order of the scan
+
+		Vector<String> all = new Vector<String>( Arrays.asList(sorted) );
+		Vector<Boolean> externalInterfaces = new Vector<Boolean>();
+		for (String name : sorted) {
+			ids.put( name, ids.size() );
+		}
+		for (String name : sorted) {
+			MethodIndex.ClassEntry entry = index.getClass(name);
+			if ( null != entry.getSuperName() && addExternal( entry.getSuperName(), all ) ) {
+				externalInterfaces.add(false);
+			}
+			for (String iface : entry.getInterfaces()) {
+				if ( addExternal(iface, all) ) {
+					externalInterfaces.add(true);
+				}
+			}
+		}
+
+		int count = all.size();
+		names      = all.toArray( new String[count] );
+		entries    = new MethodIndex.ClassEntry[count];
+		interfaces = new boolean[count];
+		superIds   = new int[count];
+		for (int id=0; id<count; ++id) {
+			entries[id] = index.getClass( names[id] );
+			if ( null == entries[id] ) {
+				interfaces[id] = externalInterfaces.get( id - sorted.length );
+				superIds[id] = -1;
+			} else {
+				interfaces[id] = ( 0 != ( entries[id].getAccess() & AccessFlags.ACC_INTERFACE ) );
+				superIds[id] = ( ( interfaces[id] || null == entries[id].getSuperName() ) ? -1 : ids.get( entries[id].getSuperName() ) );
+			}
+		}
+		externalCount = count - sorted.length;
+
+		number();
+		collectInterfaces();
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the classes and interfaces in the hierarchy (including the ones outside the index). */
+	public int getTypeCount() {
+		return names.length;
+	}
+
+	/** Returns the number of the classes and interfaces that are referenced but are not in the index. */
+	public int getExternalCount() {
+		return externalCount;
+	}
+
+	/** Returns the name of a class by its id. */
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/** Returns the id of a class, or -1 if it is not in the hierarchy. */
+	public int getId(String name) {
+		Integer id = ids.get(name);
+		return ( (null == id) ? -1 : id.intValue() );
+	}
+
+	/** Returns true if the class is in the index (not only referenced by it). */
+	public boolean isKnown(int id) {
+		return ( null != entries[id] );
+	}
+
+	/** Returns true if the type is an interface. */
+	public boolean isInterface(int id) {
+		return interfaces[id];
+	}
+
+	/** Returns the preorder number of a class, or -1 for the interfaces. */
+	public int getPreorder(int id) {
+		return preorder[id];
+	}
+
+	/** Returns the postorder number of a class, or -1 for the interfaces. */
+	public int getPostorder(int id) {
+		return postorder[id];
+	}
+
+	/** Returns the id of the superclass, or -1 for the roots and the interfaces. */
+	public int getSuperId(int id) {
+		return superIds[id];
+	}
+
+	/** Returns the name of the kind of a call site. */
+	public static String getKindName(byte kind) {
+		return KIND_NAMES[kind];
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Adds a referenced class to the list of the classes if it is not in the hierarchy yet.
+	 *
+	 * @return true if the class was added.
+	 */
+	private boolean addExternal(String name, Vector<String> all) {
+		if ( ids.containsKey(name) ) {
+			return false;
+		}
+
+		ids.put( name, all.size() );
+		all.add(name);
+		return true;
+	}
+
+	/**
+	 * Numbers the classes of the superclass tree in preorder and postorder, with an explicit stack (the hierarchy can
+	 * be deep). A class in a cycle of superclasses (a corrupted index) is handled like a root.
+	 */
+	private void number() {
+		int count = names.length;
+		int firstChild[] = new int[count];
+		int nextSibling[] = new int[count];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+		for (int id=count - 1; id>=0; --id) { // the children are in the order of their ids
+			if ( 0 <= superIds[id] ) {
+				nextSibling[id] = firstChild[ superIds[id] ];
+				firstChild[ superIds[id] ] = id;
+			}
+		}
+
+		preorder   = new int[count];
+		postorder  = new int[count];
+		byPreorder = new int[count];
+		Arrays.fill(preorder, -1);
+		Arrays.fill(postorder, -1);
+
+		int stack[] = new int[count];
+		int next[] = new int[count];
+		int pre = 0;
+		int post = 0;
+		for (int pass=0; pass<2; ++pass) {
+			for (int root=0; root<count; ++root) {
+				if ( interfaces[root] || 0 <= preorder[root] || ( 0 == pass && 0 <= superIds[root] ) ) {
+					continue;
+				}
+
+				int top = 0;
+				stack[0] = root;
+				next[0] = firstChild[root];
+				byPreorder[pre] = root;
+				preorder[root] = pre++;
+				while ( 0 <= top ) {
+					int child = next[top];
+					if ( child < 0 ) {
+						postorder[ stack[top--] ] = post++;
+					} else {
+						next[top] = nextSibling[child];
+						if ( preorder[child] < 0 ) {
+							stack[++top] = child;
+							next[top] = firstChild[child];
+							byPreorder[pre] = child;
+							preorder[child] = pre++;
+						}
+					}
+				}
+			}
+		}
+		classCount = pre;
+	}// number
+
+	/**
+	 * Collects the superinterfaces of the interfaces, the interfaces of the classes (with the inherited ones) and the
+	 * implementors of the interfaces.
+	 */
+	private void collectInterfaces() {
+		int count = names.length;
+		interfaceSets = new BitSet[count];
+		implementors  = new BitSet[count];
+
+		for (int id=0; id<count; ++id) {
+			if ( interfaces[id] ) {
+				collectSuperInterfaces(id);
+				implementors[id] = new BitSet();
+			}
+		}
+
+		for (int pre=0; pre<classCount; ++pre) {
+			int id = byPreorder[pre];
+			BitSet set = new BitSet();
+			if ( 0 <= superIds[id] ) {
+				set.or( interfaceSets[ superIds[id] ] );
+			}
+			addDirectInterfaces(id, set);
+			interfaceSets[id] = set;
+
+			for (int i=set.nextSetBit(0); i>=0; i=set.nextSetBit(i + 1)) {
+				implementors[i].set(pre);
+			}
+		}
+	}// collectInterfaces
+
+	/**
+	 * Collects the superinterfaces of an interface, after the ones of its superinterfaces.
+	 */
+	private void collectSuperInterfaces(int id) {
+		if ( null != interfaceSets[id] ) {
+			return;
+		}
+
+		interfaceSets[id] = new BitSet(); // an empty set stops the cycles of a corrupted index
+		BitSet set = new BitSet();
+		addDirectInterfaces(id, set);
+		interfaceSets[id] = set;
+	}
+
+	/**
+	 * Adds the direct interfaces of a type and their superinterfaces to a set.
+	 */
+	private void addDirectInterfaces(int id, BitSet set) {
+		if ( null == entries[id] ) {
+			return;
+		}
+
+		for (String name : entries[id].getInterfaces()) {
+			int iface = ids.get(name);
+			if ( ! interfaces[iface] ) {
+				continue; // a class in the interfaces of a corrupted classfile
+			}
+			collectSuperInterfaces(iface);
+			set.set(iface);
+			set.or( interfaceSets[iface] );
+		}
+	}
+
+	/**
+	 * Returns true if the first type is a subtype of the second one (or the same type). The types that are not in the
+	 * hierarchy are not subtypes of anything.
+	 *
+	 * @param sub the name of the subtype.
+	 * @param sup the name of the supertype.
+	 */
+	public boolean isSubtype(String sub, String sup) {
+		int subId = getId(sub);
+		int supId = getId(sup);
+		if ( subId < 0 || supId < 0 ) {
+			return false;
+		}
+
+		return isSubtype(subId, supId);
+	}
+
+	/**
+	 * Returns true if the first type is a subtype of the second one (or the same type).
+	 */
+	public boolean isSubtype(int sub, int sup) {
+		if ( sub == sup || "java.lang.Object".equals( names[sup] ) ) {
+			return true;
+		}
+
+		if ( interfaces[sup] ) {
+			return ( interfaces[sub] ? interfaceSets[sub].get(sup) : implementors[sup].get( preorder[sub] ) );
+		}
+
+		return ( ! interfaces[sub] && preorder[sup] <= preorder[sub] && postorder[sub] <= postorder[sup] );
+	}
+
+	/**
+	 * Returns true if a class has subclasses.
+	 */
+	public boolean hasSubclasses(int id) {
+		int next = preorder[id] + 1;
+		return ( 0 <= preorder[id] && next < classCount && postorder[ byPreorder[next] ] < postorder[id] );
+	}
+
+	/**
+	 * Returns the ids of the classes that are subtypes of the given type and can be instantiated: the ones in the
+	 * index that are not abstract.
+	 *
+	 * @param id the id of a class or an interface.
+	 */
+	public Vector<Integer> getConcreteSubtypes(int id) {
+		Vector<Integer> back = new Vector<Integer>();
+
+		if ( interfaces[id] ) {
+			BitSet set = implementors[id];
+			for (int pre=set.nextSetBit(0); pre>=0; pre=set.nextSetBit(pre + 1)) {
+				addIfConcrete( byPreorder[pre], back );
+			}
+		} else if ( 0 <= preorder[id] ) {
+			addIfConcrete(id, back);
+			for (int pre=preorder[id] + 1; pre<classCount && postorder[ byPreorder[pre] ] < postorder[id]; ++pre) {
+				addIfConcrete( byPreorder[pre], back );
+			}
+		}
+
+		return back;
+	}
+
+	/**
+	 * Adds a class to the list if it is in the index and not abstract.
+	 */
+	private void addIfConcrete(int id, Vector<Integer> list) {
+		if ( null != entries[id] && 0 == ( entries[id].getAccess() & ( AccessFlags.ACC_ABSTRACT | AccessFlags.ACC_INTERFACE ) ) ) {
+			list.add(id);
+		}
+	}
+
+	/**
+	 * Returns the method that is called on an instance of a class: the one declared by the class or by its nearest
+	 * superclass, or else a default method of its interfaces. If the method would be inherited from a class outside
+	 * the index, the returned key is the one of that class, because it stands for the same target for every
+	 * subclass.
+	 *
+	 * @param id the id of a concrete class.
+	 * @param member the name and the descriptor of the method, after a dot: <code>.name(descriptor)</code>.
+	 * @return the key of the called method, or null if it is abstract or not found.
+	 */
+	private String resolveVirtual(int id, String member) {
+		for (int c=id; 0 <= c; c=superIds[c]) {
+			if ( null == entries[c] ) {
+				return names[c] + member;
+			}
+
+			MethodIndex.MethodEntry method = index.getMethod( names[c] + member );
+			if ( null != method && 0 == ( method.getAccess() & AccessFlags.ACC_STATIC ) &&
+					( c == id || 0 == ( method.getAccess() & AccessFlags.ACC_PRIVATE ) ) ) { // the private ones are not inherited
+				return ( ( 0 != ( method.getAccess() & AccessFlags.ACC_ABSTRACT ) ) ? null : method.getKey() );
+			}
+		}
+
+		BitSet set = interfaceSets[id];
+		for (int i=set.nextSetBit(0); i>=0; i=set.nextSetBit(i + 1)) {
+			MethodIndex.MethodEntry method = index.getMethod( names[i] + member );
+			if ( null != method && 0 == ( method.getAccess() & ( AccessFlags.ACC_ABSTRACT | AccessFlags.ACC_STATIC ) ) ) {
+				return method.getKey();
+			}
+		}
+
+		return null;
+	}// resolveVirtual
+
+	/**
+	 * Returns the methods that can be called by a virtual or an interface call: the distinct implementations of the
+	 * method in the concrete subtypes of the referenced class. The result is cached.
+	 *
+	 * @param key the key of the referenced method.
+	 * @return the keys of the possible targets, or null if the referenced class is not in the index.
+	 */
+	public String[] getTargets(String key) {
+		synchronized (targets) {
+			if ( targets.containsKey(key) ) {
+				return targets.get(key);
+			}
+		}
+
+		int paren = key.indexOf('(');
+		int dot = key.lastIndexOf('.', paren);
+		int id = getId( key.substring(0, dot) );
+
+		String back[] = null;
+		if ( 0 <= id && null != entries[id] ) {
+			String member = key.substring(dot);
+			Vector<String> found = new Vector<String>();
+			for (int sub : getConcreteSubtypes(id)) {
+				String target = resolveVirtual(sub, member);
+				if ( null != target && ! found.contains(target) ) {
+					found.add(target);
+				}
+			}
+			back = ( found.isEmpty() ? NO_TARGETS : found.toArray( new String[found.size()] ) );
+		}
+
+		synchronized (targets) {
+			targets.put(key, back);
+		}
+		return back;
+	}// getTargets
+
+	/**
+	 * Classifies a virtual or an interface call by the number of its possible targets.
+	 *
+	 * @param key the key of the referenced method.
+	 * @return <code>MONOMORPHIC</code>, <code>BIMORPHIC</code>, <code>MEGAMORPHIC</code>, <code>NO_TARGET</code> or
+	 *         <code>UNKNOWN</code>.
+	 */
+	public byte getCallKind(String key) {
+		String found[] = getTargets(key);
+		if ( null == found ) {
+			return UNKNOWN;
+		}
+
+		switch ( found.length ) {
+			case 0:  return NO_TARGET;
+			case 1:  return MONOMORPHIC;
+			case 2:  return BIMORPHIC;
+			default: return MEGAMORPHIC;
+		}
+	}
+
+	/**
+	 * Returns true if a class of the index is not final, but it has no subclasses, so it could be.
+	 */
+	public boolean isEffectivelyFinal(int id) {
+		return ( null != entries[id] && ! interfaces[id] && 0 == ( entries[id].getAccess() & AccessFlags.ACC_FINAL ) && ! hasSubclasses(id) );
+	}
+
+	/**
+	 * Returns true if a method can be overridden, but it is not overridden by any subclass in the index, so it
+	 * could be final. Only the methods with code of the classes (not of the interfaces) are checked.
+	 *
+	 * @param method a method of the index.
+	 */
+	public boolean isEffectivelyFinal(MethodIndex.MethodEntry method) {
+		int id = getId( method.getOwner() );
+		if ( id < 0 || ! isOverridable(method) || ! isKnown(id) || interfaces[id] ||
+				0 != ( entries[id].getAccess() & AccessFlags.ACC_FINAL ) ) {
+			return false;
+		}
+
+		String member = "." + method.getName() + method.getDescriptor();
+		for (int pre=preorder[id] + 1; pre<classCount && postorder[ byPreorder[pre] ] < postorder[id]; ++pre) {
+			MethodIndex.MethodEntry other = index.getMethod( names[ byPreorder[pre] ] + member );
+			if ( null != other && 0 == ( other.getAccess() & ( AccessFlags.ACC_STATIC | AccessFlags.ACC_PRIVATE ) ) ) {
+				return false;
+			}
+		}
+
+		return true;
+	}// isEffectivelyFinal
+
+	/**
+	 * Returns true if a method is virtual, not final and has code.
+	 */
+	public static boolean isOverridable(MethodIndex.MethodEntry method) {
+		int bound = AccessFlags.ACC_STATIC | AccessFlags.ACC_PRIVATE | AccessFlags.ACC_FINAL | AccessFlags.ACC_ABSTRACT;
+		return ( 0 == ( method.getAccess() & bound ) && ! method.getName().startsWith("<") );
+	}
+
+}// class.ClassHierarchy
@@ -0,0 +1,135 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+/**
+ * A histogram of non-negative integer values with a fixed range (values above the range are counted in the last
+ * bucket). Every value has its own bucket, so the percentiles are exact, and the memory usage doesn't depend on the
+ * number of the values. Not thread-safe: every worker should have its own, and they can be merged at the end.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class Histogram {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private long counts[];
+	private long count = 0;
+	private long sum = 0;
+	private int max = -1;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty histogram.
+	 *
+	 * @param range the values from 0 to <code>range - 1</code> are counted separately.
+	 */
+	public Histogram(int range) {
+		counts = new long[range];
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the values. */
+	public long getCount() {
+		return count;
+	}
+
+	/** Returns the sum of the values. */
+	public long getSum() {
+		return sum;
+	}
+
+	/** Returns the largest value, or -1 if the histogram is empty. */
+	public int getMax() {
+		return max;
+	}
+
+	/** Returns the average of the values, or 0 if the histogram is empty. */
+	public double getMean() {
+		return ( (0 == count) ? 0 : (double) sum / count );
+	}
+
+	/** Returns how many times the given value was added. */
+	public long getCount(int value) {
+		return counts[ Math.min(value, counts.length - 1) ];
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param value a non-negative value.
+	 * @throws IllegalArgumentException if the value is negative.
+	 */
+	public void add(int value) {
+		if ( value < 0 ) {
+			throw new IllegalArgumentException( "Negative value: " + value );
+		}
+
+		counts[ Math.min(value, counts.length - 1) ]++;
+		count++;
+		sum += value;
+		if ( value > max ) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Adds the values of an other histogram with the same range.
+	 *
+	 * @param other the histogram of an other worker.
+	 */
+	public void merge(Histogram other) {
+		for (int i=0; i<counts.length; ++i) {
+			counts[i] += other.counts[i];
+		}
+
+		count += other.count;
+		sum   += other.sum;
+		max    = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns the smallest value that is greater or equal to the given part of the values.
+	 *
+	 * @param percent the percentile, between 0 and 100.
+	 * @return the value of the percentile, or -1 if the histogram is empty.
+	 */
+	public int getPercentile(double percent) {
+		if ( 0 == count ) {
+			return -1;
+		}
+
+		long rank = Math.max( 1, (long) Math.ceil(percent / 100.0 * count) );
+		long seen = 0;
+		for (int i=0; i<counts.length; ++i) {
+			seen += counts[i];
+			if ( seen >= rank ) {
+				return ( (i == counts.length - 1) ? max : i );
+			}
+		}
+
+		return max;
+	}// getPercentile
+
+}// class.Histogram
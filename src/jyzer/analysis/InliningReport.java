@@ -0,0 +1,412 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+import jyzer.classpath.ClassScanner;
+import jyzer.items.accessflags.AccessFlags;
+
+/**
+ * <p>Estimates how the C2 compiler of HotSpot will inline the methods of a directory or a jar file, from the code
+ * lengths of the methods. The methods over <code>HugeMethodLimit</code> are not compiled at all, the ones over
+ * <code>FreqInlineSize</code> are never inlined, the ones over <code>MaxInlineSize</code> are inlined only at hot
+ * call sites. The inlining tree of every method is simulated along the call sites resolved from the operands of the
+ * invoke instructions: a call is inlined if the callee is known and small enough, the tree is not deeper than
+ * <code>MaxInlineLevel</code>, the recursion is not deeper than <code>MaxRecursiveInlineLevel</code>, and the
+ * inlined code is not larger than <code>DesiredMethodLimit</code>.</p>
+ *
+ * <p>The simulation is an estimate: the virtual calls are bound to the method in the referenced class (or its
+ * nearest superclass), the profile of the call sites is unknown (every call site is cold, or every one is hot), and
+ * the size of the already compiled code (<code>InlineSmallCode</code>) is not known. The calls to classes outside
+ * of the location are reported as unknown.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.InliningReport [-threads n] [-top n] [-hot] [-max-inline-size n]
+ * [-freq-inline-size n] [-huge-method-limit n] [-max-inline-level n] [-max-recursive-inline-level n]
+ * [-desired-method-limit n] [-tree prefix] &lt;classfile|directory|jar&gt;</code>. The <code>-tree</code> option prints the inlining trees of the methods
+ * whose key starts with the prefix.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class InliningReport {
+
+	// --- Defaults of HotSpot -------------------------------------------------------------------------------------------
+
+	/** The default <code>MaxInlineSize</code>: the largest method inlined at any call site. */
+	public static final int MAX_INLINE_SIZE = 35;
+	/** The default <code>FreqInlineSize</code>: the largest method inlined at a hot call site. */
+	public static final int FREQ_INLINE_SIZE = 325;
+	/** The default <code>HugeMethodLimit</code>: larger methods are not compiled. */
+	public static final int HUGE_METHOD_LIMIT = 8000;
+	/** The default <code>MaxInlineLevel</code>: the maximal depth of the inlining tree. */
+	public static final int MAX_INLINE_LEVEL = 9;
+	/** The default <code>MaxRecursiveInlineLevel</code>: how many times a method can be on the inlining chain. */
+	public static final int MAX_RECURSIVE_INLINE_LEVEL = 1;
+	/** The default <code>DesiredMethodLimit</code>: the maximal bytecode size of an inlining tree. */
+	public static final int DESIRED_METHOD_LIMIT = 8000;
+
+	// --- Decisions -----------------------------------------------------------------------------------------------------
+
+	private static final int INLINE = 0;
+	private static final int TOO_BIG = 1;
+	private static final int HOT_TOO_BIG = 2;
+	private static final int TOO_DEEP = 3;
+	private static final int RECURSIVE = 4;
+	private static final int OVER_LIMIT = 5;
+	private static final int NATIVE = 6;
+	private static final int ABSTRACT = 7;
+	private static final int UNKNOWN = 8;
+
+	/** The messages of the decisions, like in the output of <code>-XX:+PrintInlining</code>. */
+	private static final String DECISIONS[] = {
+		"inline", "too big", "hot method too big", "inlining too deep", "recursive inlining is too deep",
+		"size > DesiredMethodLimit", "native method", "abstract method", "unknown method"
+	};
+
+	/**
+	 * The call sites of the scanned code that call a method that is not inlined.
+	 */
+	private static final class Rejection {
+
+		private String callee;
+		private int size;
+		private int decision;
+		private int count = 0;
+
+		Rejection(String callee, int size, int decision) {
+			this.callee   = callee;
+			this.size     = size;
+			this.decision = decision;
+		}
+
+	}// class.Rejection
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private int maxInlineSize = MAX_INLINE_SIZE;
+	private int freqInlineSize = FREQ_INLINE_SIZE;
+	private int hugeMethodLimit = HUGE_METHOD_LIMIT;
+	private int maxInlineLevel = MAX_INLINE_LEVEL;
+	private int maxRecursiveInlineLevel = MAX_RECURSIVE_INLINE_LEVEL;
+	private int desiredMethodLimit = DESIRED_METHOD_LIMIT;
+	private boolean hot = false;
+	private int top;
+
+	private MethodIndex index;
+
+	// the results of the simulation
+	private long sizeClasses[] = new long[4]; // inlined anywhere, only when hot, never, not compiled
+	private long directDecisions[] = new long[DECISIONS.length];
+	private long treeDecisions[] = new long[DECISIONS.length];
+	private Map<String, Rejection> rejections = new HashMap<String, Rejection>();
+	private TopList largestTrees;
+	private TopList hugeMethods;
+
+	// the state of the simulation of a tree
+	private MethodIndex.MethodEntry chain[];
+	private int inlinedSize;
+	private int inlinedCalls;
+	private int treeDepth;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a report of the methods of an index.
+	 *
+	 * @param index the methods of the scanned location.
+	 * @param top the length of the lists.
+	 */
+	public InliningReport(MethodIndex index, int top) {
+		this.index = index;
+		this.top = Math.max(0, top);
+	}
+
+	// --- Setter methods ------------------------------------------------------------------------------------------------
+
+	/** Sets the <code>MaxInlineSize</code>. */
+	public void setMaxInlineSize(int maxInlineSize) {
+		this.maxInlineSize = maxInlineSize;
+	}
+
+	/** Sets the <code>FreqInlineSize</code>. */
+	public void setFreqInlineSize(int freqInlineSize) {
+		this.freqInlineSize = freqInlineSize;
+	}
+
+	/** Sets the <code>HugeMethodLimit</code>. */
+	public void setHugeMethodLimit(int hugeMethodLimit) {
+		this.hugeMethodLimit = hugeMethodLimit;
+	}
+
+	/** Sets the <code>MaxInlineLevel</code>. */
+	public void setMaxInlineLevel(int maxInlineLevel) {
+		this.maxInlineLevel = maxInlineLevel;
+	}
+
+	/** Sets the <code>MaxRecursiveInlineLevel</code>. */
+	public void setMaxRecursiveInlineLevel(int maxRecursiveInlineLevel) {
+		this.maxRecursiveInlineLevel = maxRecursiveInlineLevel;
+	}
+
+	/** Sets the <code>DesiredMethodLimit</code>. */
+	public void setDesiredMethodLimit(int desiredMethodLimit) {
+		this.desiredMethodLimit = desiredMethodLimit;
+	}
+
+	/** Sets whether the call sites are hot (<code>FreqInlineSize</code> applies) or cold (<code>MaxInlineSize</code>). */
+	public void setHot(boolean hot) {
+		this.hot = hot;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Decides whether a callee is inlined at the given depth of the tree being simulated.
+	 */
+	private int decide(MethodIndex.MethodEntry callee, int depth) {
+		if ( null == callee ) {
+			return UNKNOWN;
+		}
+		if ( 0 != ( callee.getAccess() & AccessFlags.ACC_NATIVE ) ) {
+			return NATIVE;
+		}
+		if ( callee.getCodeLength() < 0 ) {
+			return ABSTRACT;
+		}
+		if ( depth > maxInlineLevel ) {
+			return TOO_DEEP;
+		}
+
+		int recursion = 0;
+		for (int i=0; i<depth; ++i) {
+			if ( chain[i] == callee ) {
+				recursion++;
+			}
+		}
+		if ( recursion > maxRecursiveInlineLevel ) {
+			return RECURSIVE;
+		}
+
+		int size = callee.getCodeLength();
+		if ( ! hot && size > maxInlineSize ) {
+			return TOO_BIG; // a cold call site is limited by MaxInlineSize only
+		}
+		if ( size > freqInlineSize ) {
+			return HOT_TOO_BIG;
+		}
+		if ( inlinedSize + size > desiredMethodLimit ) {
+			return OVER_LIMIT;
+		}
+
+		return INLINE;
+	}// decide
+
+	/**
+	 * Simulates the inlining into the method at the given depth of the chain, and prints the tree if needed.
+	 */
+	private void inline(MethodIndex.MethodEntry method, int depth, PrintStream tree) {
+		chain[depth - 1] = method;
+		treeDepth = Math.max(treeDepth, depth - 1);
+
+		for (int i=0; i<method.getCallCount(); ++i) {
+			MethodIndex.MethodEntry callee = index.resolve( method.getCallTarget(i) );
+			int decision = decide(callee, depth);
+			treeDecisions[decision]++;
+
+			if ( 1 == depth ) {
+				directDecisions[decision]++;
+				if ( INLINE != decision ) {
+					reject( method.getCallTarget(i), callee, decision );
+				}
+			}
+
+			if ( null != tree ) {
+				StringBuilder sb = new StringBuilder();
+				for (int d=0; d<depth; ++d) {
+					sb.append("  ");
+				}
+				sb.append("@ ").append( method.getCallOffset(i) ).append("   ").append( method.getCallTarget(i) );
+				if ( null != callee && 0 <= callee.getCodeLength() ) {
+					sb.append(" (").append( callee.getCodeLength() ).append(" bytes)");
+				}
+				tree.println( sb.append("   ").append( DECISIONS[decision] ) );
+			}
+
+			if ( INLINE == decision ) {
+				inlinedSize += callee.getCodeLength();
+				inlinedCalls++;
+				inline(callee, depth + 1, tree);
+			}
+		}
+	}// inline
+
+	/**
+	 * Counts a call site where the callee is not inlined.
+	 */
+	private void reject(String target, MethodIndex.MethodEntry callee, int decision) {
+		String key = ( (null == callee) ? target : callee.getKey() );
+		Rejection rejection = rejections.get(key);
+		if ( null == rejection ) {
+			rejection = new Rejection( key, ( (null == callee) ? -1 : callee.getCodeLength() ), decision );
+			rejections.put(key, rejection);
+		}
+		rejection.count++;
+	}
+
+	/**
+	 * Simulates the inlining tree of every compiled method of the index.
+	 *
+	 * @param treePrefix the trees of the methods whose key starts with this prefix are printed, null to print none.
+	 * @param out the trees are printed here.
+	 */
+	public void simulate(String treePrefix, PrintStream out) {
+		chain = new MethodIndex.MethodEntry[maxInlineLevel + 2];
+		largestTrees = new TopList(top);
+		hugeMethods = new TopList(top);
+
+		for (MethodIndex.MethodEntry method : index.getMethods()) {
+			int size = method.getCodeLength();
+			if ( size < 0 ) {
+				continue;
+			}
+
+			if ( size > hugeMethodLimit ) {
+				sizeClasses[3]++;
+				hugeMethods.add( size, method.getKey() );
+				continue; // not compiled, so nothing is inlined into it
+			}
+			sizeClasses[ (size <= maxInlineSize) ? 0 : ( (size <= freqInlineSize) ? 1 : 2 ) ]++;
+
+			boolean print = ( null != treePrefix && method.getKey().startsWith(treePrefix) );
+			if ( print ) {
+				out.println( method.getKey() + " (" + size + " bytes)" );
+			}
+
+			inlinedSize = size;
+			inlinedCalls = 0;
+			treeDepth = 0;
+			inline( method, 1, ( print ? out : null ) );
+
+			if ( largestTrees.accepts(inlinedSize) ) {
+				largestTrees.add( inlinedSize, method.getKey() + ": " + inlinedCalls + " calls inlined, depth " + treeDepth );
+			}
+		}
+	}// simulate
+
+	/**
+	 * Prints the rejected callees with the most call sites, whose decision is accepted by the filter.
+	 */
+	private void printRejections(PrintStream out, String title, int decisions[], int minSize, int maxSize) {
+		TopList list = new TopList(top);
+		for (Rejection rejection : rejections.values()) {
+			boolean matches = false;
+			for (int decision : decisions) {
+				matches |= ( decision == rejection.decision );
+			}
+
+			if ( matches && minSize <= rejection.size && rejection.size <= maxSize ) {
+				list.add( rejection.count, String.format( "%6s  %-30s %s", ( (rejection.size < 0) ? "?" : String.valueOf(rejection.size) ), DECISIONS[rejection.decision], rejection.callee ) );
+			}
+		}
+
+		out.println();
+		out.println(title);
+		out.println("     sites    bytes  decision                       callee");
+		for (TopList.Item item : list.getItems()) {
+			out.println( String.format( "  %8d  %s", item.getValue(), item.getLabel() ) );
+		}
+	}
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public void print(PrintStream out) {
+		out.println( String.format( "MaxInlineSize=%d FreqInlineSize=%d HugeMethodLimit=%d MaxInlineLevel=%d MaxRecursiveInlineLevel=%d DesiredMethodLimit=%d, %s call sites",
+				maxInlineSize, freqInlineSize, hugeMethodLimit, maxInlineLevel, maxRecursiveInlineLevel, desiredMethodLimit, ( hot ? "hot" : "cold" ) ) );
+
+		out.println();
+		out.println("Methods by size");
+		out.println( String.format( "  <= MaxInlineSize (inlined anywhere)      %8d", sizeClasses[0] ) );
+		out.println( String.format( "  <= FreqInlineSize (inlined when hot)     %8d", sizeClasses[1] ) );
+		out.println( String.format( "  >  FreqInlineSize (never inlined)        %8d", sizeClasses[2] ) );
+		out.println( String.format( "  >  HugeMethodLimit (never compiled)      %8d", sizeClasses[3] ) );
+
+		out.println();
+		out.println("Decisions            direct call sites   in the inlining trees");
+		for (int i=0; i<DECISIONS.length; ++i) {
+			out.println( String.format( "  %-30s %10d %14d", DECISIONS[i], directDecisions[i], treeDecisions[i] ) );
+		}
+
+		if ( 0 < top ) {
+			printRejections(out, "Callees not inlined because of their size", new int[] { TOO_BIG, HOT_TOO_BIG }, 0, Integer.MAX_VALUE);
+			printRejections(out, "Near misses (at most 25% over the limit)", new int[] { TOO_BIG }, maxInlineSize + 1, maxInlineSize + maxInlineSize / 4);
+			printRejections(out, "Near misses of hot call sites (at most 25% over the limit)", new int[] { HOT_TOO_BIG }, freqInlineSize + 1, freqInlineSize + freqInlineSize / 4);
+			largestTrees.print(out, "Largest inlining trees (bytes)", 8);
+			hugeMethods.print(out, "Methods over HugeMethodLimit (bytes)", 8);
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.InliningReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 10);
+		options.addFlag("-hot");
+		options.addInt("-max-inline-size", MAX_INLINE_SIZE);
+		options.addInt("-freq-inline-size", FREQ_INLINE_SIZE);
+		options.addInt("-huge-method-limit", HUGE_METHOD_LIMIT);
+		options.addInt("-max-inline-level", MAX_INLINE_LEVEL);
+		options.addInt("-max-recursive-inline-level", MAX_RECURSIVE_INLINE_LEVEL);
+		options.addInt("-desired-method-limit", DESIRED_METHOD_LIMIT);
+		options.addString("-tree", "prefix", null);
+		options.parseOrExit(args);
+
+		ClassScanner scanner = new ClassScanner( options.getInt("-threads"), System.err );
+		MethodIndex index = new MethodIndex();
+		try {
+			index.collect( new File( options.getArgument(0) ), scanner );
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		}
+
+		InliningReport report = new InliningReport( index, options.getInt("-top") );
+		report.setHot( options.isSet("-hot") );
+		report.setMaxInlineSize( options.getInt("-max-inline-size") );
+		report.setFreqInlineSize( options.getInt("-freq-inline-size") );
+		report.setHugeMethodLimit( options.getInt("-huge-method-limit") );
+		report.setMaxInlineLevel( options.getInt("-max-inline-level") );
+		report.setMaxRecursiveInlineLevel( options.getInt("-max-recursive-inline-level") );
+		report.setDesiredMethodLimit( options.getInt("-desired-method-limit") );
+
+		report.simulate( options.getString("-tree"), System.out );
+		report.print(System.out);
+		System.err.println( "Scanned: " + scanner.getScannedCount() + ", skipped: " + scanner.getFailedCount() );
+	}// main
+
+}// class.InliningReport
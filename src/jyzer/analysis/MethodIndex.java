@@ -0,0 +1,360 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>An index of the classes and the methods of a directory or a jar file, with the call sites of every method. It
+ * is the base of the analyses that follow the calls between the methods. The classfiles are parsed by the workers of
+ * a <code>ClassScanner</code>, every worker fills its own maps, that are merged when the worker is finished. The
+ * class names are written with dots, the methods are identified by their keys:
+ * <code>owner.name(descriptor)</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class MethodIndex {
+
+	/**
+	 * A class of the index.
+	 */
+	public static final class ClassEntry {
+
+		private String name;
+		private String superName;
+		private String interfaces[];
+		private int access;
+		private Vector<MethodEntry> methods = new Vector<MethodEntry>();
+
+		ClassEntry(String name, String superName, String interfaces[], int access) {
+			this.name       = name;
+			this.superName  = superName;
+			this.interfaces = interfaces;
+			this.access     = access;
+		}
+
+		/** Returns the name of the class. */
+		public String getName() {
+			return name;
+		}
+
+		/** Returns the name of the superclass, or null for <code>java.lang.Object</code>. */
+		public String getSuperName() {
+			return superName;
+		}
+
+		/** Returns the names of the implemented interfaces. */
+		public String[] getInterfaces() {
+			return interfaces;
+		}
+
+		/** Returns the access flags of the class. */
+		public int getAccess() {
+			return access;
+		}
+
+		/** Returns the methods declared by the class. */
+		public Vector<MethodEntry> getMethods() {
+			return methods;
+		}
+
+	}// class.ClassEntry
+
+	/**
+	 * A method of the index.
+	 */
+	public static final class MethodEntry {
+
+		private String owner;
+		private String name;
+		private String descriptor;
+		private int access;
+		private int codeLength = -1;
+		private int callOffsets[];
+		private int callOpcodes[];
+		private String callTargets[];
+
+		MethodEntry(String owner, String name, String descriptor, int access) {
+			this.owner      = owner;
+			this.name       = name;
+			this.descriptor = descriptor;
+			this.access     = access;
+		}
+
+		/** Returns the name of the declaring class. */
+		public String getOwner() {
+			return owner;
+		}
+
+		/** Returns the name of the method. */
+		public String getName() {
+			return name;
+		}
+
+		/** Returns the descriptor of the method. */
+		public String getDescriptor() {
+			return descriptor;
+		}
+
+		/** Returns the key of the method: <code>owner.name(descriptor)</code>. */
+		public String getKey() {
+			return MethodIndex.getKey(owner, name, descriptor);
+		}
+
+		/** Returns the access flags of the method. */
+		public int getAccess() {
+			return access;
+		}
+
+		/** Returns the <code>code_length</code>, or -1 for the abstract and native methods. */
+		public int getCodeLength() {
+			return codeLength;
+		}
+
+		/** Returns the number of the call sites (invoke instructions) in the code. */
+		public int getCallCount() {
+			return ( (null == callTargets) ? 0 : callTargets.length );
+		}
+
+		/** Returns the offset of a call site. */
+		public int getCallOffset(int i) {
+			return callOffsets[i];
+		}
+
+		/** Returns the opcode of a call site. */
+		public int getCallOpcode(int i) {
+			return callOpcodes[i];
+		}
+
+		/** Returns the key of the method referenced by a call site (the owner is the class in the reference). */
+		public String getCallTarget(int i) {
+			return callTargets[i];
+		}
+
+		public String toString() {
+			return getKey();
+		}
+
+	}// class.MethodEntry
+
+	// --- Worker --------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Collects the classes of a worker.
+	 */
+	private final class Collector implements ClassScanner.Visitor {
+
+		private Map<String, ClassEntry> classes = new HashMap<String, ClassEntry>();
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			String className = cf.getThisClassName();
+			String superName = ( (0 == cf.getSuperClassIndex()) ? null : cf.getSuperClassName() );
+			ClassEntry entry = new ClassEntry( className, superName, cf.getInterfaceNames(), cf.getAccessInt() );
+
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				entry.methods.add( createEntry(className, method) );
+			}
+
+			classes.put(className, entry);
+		}
+
+		/** Merges the classes of this worker into the index. */
+		public void finish() {
+			merge(classes);
+		}
+
+	}// class.Collector
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private Map<String, ClassEntry> classes = new HashMap<String, ClassEntry>();
+	private Map<String, MethodEntry> methods = new HashMap<String, MethodEntry>();
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the classes of the index. */
+	public Collection<ClassEntry> getClasses() {
+		return classes.values();
+	}
+
+	/** Returns the methods of the index. */
+	public Collection<MethodEntry> getMethods() {
+		return methods.values();
+	}
+
+	/** Returns the class with the given name, or null if it is not in the index. */
+	public ClassEntry getClass(String name) {
+		return classes.get(name);
+	}
+
+	/** Returns the method with the given key, or null if it is not in the index. */
+	public MethodEntry getMethod(String key) {
+		return methods.get(key);
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the key of a method.
+	 */
+	public static String getKey(String owner, String name, String descriptor) {
+		return owner + "." + name + descriptor;
+	}
+
+	/**
+	 * Creates the entry of a method with its call sites. The constant pool of the class must be the current one.
+	 */
+	private static MethodEntry createEntry(String className, MethodInfo method) {
+		MethodEntry entry = new MethodEntry( className, method.getNameString(), method.getDescriptorString(), method.getAccessInt() );
+
+		CodeAttribute code = method.getAttributes().getCode();
+		if ( null == code ) {
+			return entry;
+		}
+
+		entry.codeLength = code.getCode().getCodeLength();
+
+		Vector<CodeInstruction> instructions = code.getDisassembledCode();
+		int count = 0;
+		for (CodeInstruction ci : instructions) {
+			if ( isInvoke( ci.getOpcode() ) ) {
+				count++;
+			}
+		}
+
+		entry.callOffsets = new int[count];
+		entry.callOpcodes = new int[count];
+		entry.callTargets = new String[count];
+
+		int i = 0;
+		for (CodeInstruction ci : instructions) {
+			if ( isInvoke( ci.getOpcode() ) ) {
+				entry.callOffsets[i] = ci.getOffset();
+				entry.callOpcodes[i] = ci.getOpcode();
+				entry.callTargets[i] = getReferenceKey( ci.getOperands()[0] );
+				i++;
+			}
+		}
+
+		return entry;
+	}// createEntry
+
+	/**
+	 * Returns true for the invoke instructions (invokevirtual, invokespecial, invokestatic, invokeinterface).
+	 */
+	public static boolean isInvoke(int opcode) {
+		return ( 0xb6 <= opcode && opcode <= 0xb9 );
+	}
+
+	/**
+	 * Returns the key of the method referenced by the given constant pool index, or null if it is not a reference.
+	 */
+	public static String getReferenceKey(int index) {
+		ConstantPoolInfo info = ConstantPool.getElement(index);
+		if ( ! ( info instanceof AbstractReference ) ) {
+			return null;
+		}
+
+		AbstractReference ref = (AbstractReference) info;
+		ConstantPoolInfo nat = ConstantPool.getElement( ref.getNameAndTypeIndex() );
+		if ( ! ( nat instanceof ConstantNameAndTypeInfo ) ) {
+			return null;
+		}
+
+		return getKey( ConstantPool.getClassName( ref.getClassIndex() ),
+				ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getNameIndex() ),
+				ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getDescriptorIndex() ) );
+	}
+
+	/**
+	 * Adds the classes of a finished worker to the index.
+	 */
+	private synchronized void merge(Map<String, ClassEntry> workerClasses) {
+		for (ClassEntry entry : workerClasses.values()) {
+			if ( classes.containsKey( entry.name ) ) {
+				continue; // the first one wins, like on a classpath
+			}
+
+			classes.put(entry.name, entry);
+			for (MethodEntry method : entry.methods) {
+				methods.put( method.getKey(), method );
+			}
+		}
+	}
+
+	/**
+	 * Adds the classes of the given location to the index.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param scanner the scanner that parses the classfiles.
+	 * @throws IOException if the location cannot be read.
+	 */
+	public void collect(File location, ClassScanner scanner) throws IOException {
+		scanner.scan( location, new ClassScanner.VisitorFactory() {
+			public ClassScanner.Visitor newVisitor(int worker) {
+				return new Collector();
+			}
+		});
+	}
+
+	/**
+	 * Finds the method that is called by a reference: the method of the referenced class, or the one inherited from
+	 * the nearest superclass in the index.
+	 *
+	 * @param key the key of the referenced method.
+	 * @return the method, or null if it is not in the index.
+	 */
+	public MethodEntry resolve(String key) {
+		MethodEntry back = methods.get(key);
+		if ( null != back ) {
+			return back;
+		}
+
+		int paren = key.indexOf('(');
+		int dot = key.lastIndexOf('.', paren);
+		String member = key.substring(dot);
+
+		ClassEntry entry = classes.get( key.substring(0, dot) );
+		while ( null != entry && null != entry.superName ) {
+			back = methods.get(entry.superName + member);
+			if ( null != back ) {
+				return back;
+			}
+			entry = classes.get(entry.superName);
+		}
+
+		return null;
+	}// resolve
+
+}// class.MethodIndex
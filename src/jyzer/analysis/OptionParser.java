@@ -0,0 +1,311 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * <p>Parses the command line of the reports and the tools: the options come first, then the arguments (the
+ * locations, usually). An option is a flag (or one of alternative flags, like <code>-columns|-csv</code>), an option
+ * with an integer or a string value, or an option with a string value that can be repeated. The usage line is built
+ * from the declared options, so it always shows what is accepted.</p>
+ *
+ * <pre>
+ *   OptionParser options = new OptionParser("jyzer.analysis.flow.LoopReport", "&lt;classfile|directory|jar&gt;", 1, 1);
+ *   options.addInt("-threads", ClassScanner.getDefaultThreads());
+ *   options.addInt("-top", 20);
+ *   options.parseOrExit(args);
+ * </pre>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class OptionParser {
+
+	// --- Kinds of options ----------------------------------------------------------------------------------------------
+
+	private static final int FLAG = 0;
+	private static final int INT = 1;
+	private static final int STRING = 2;
+	private static final int LIST = 3;
+
+	/** The usage lines are wrapped at this length. */
+	private static final int USAGE_WIDTH = 120;
+	/** The indentation of the wrapped usage lines. */
+	private static final String USAGE_INDENT = "           ";
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private String command;
+	private String arguments;
+	private int minArguments;
+	private int maxArguments;
+
+	private Map<String, Integer> kinds = new HashMap<String, Integer>();
+	private Vector<String> usage = new Vector<String>();
+	private Vector<String> otherUsages = new Vector<String>();
+
+	private Map<String, Integer> positions = new HashMap<String, Integer>();
+	private Map<String, String> values = new HashMap<String, String>();
+	private Map<String, Vector<String>> lists = new HashMap<String, Vector<String>>();
+	private String parsedArguments[] = new String[0];
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a parser without options.
+	 *
+	 * @param command the name of the main class, for the usage.
+	 * @param arguments the arguments after the options, for the usage (like <code>&lt;old&gt; &lt;new&gt;</code>), empty
+	 *        if there are none.
+	 * @param minArguments the least number of the arguments.
+	 * @param maxArguments the largest number of the arguments, -1 for any.
+	 */
+	public OptionParser(String command, String arguments, int minArguments, int maxArguments) {
+		this.command      = command;
+		this.arguments    = arguments;
+		this.minArguments = minArguments;
+		this.maxArguments = maxArguments;
+	}
+
+	// --- Declarations --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Declares an option.
+	 */
+	private void add(String name, int kind, String usageText) {
+		if ( ! name.startsWith("-") || kinds.containsKey(name) ) {
+			throw new IllegalArgumentException( "Wrong or repeated option: " + name );
+		}
+
+		kinds.put( name, Integer.valueOf(kind) );
+		if ( null != usageText ) {
+			usage.add(usageText);
+		}
+	}
+
+	/**
+	 * Declares a flag, or alternative flags: when more of them are given, the last one counts (see
+	 * {@link #getLast(String[])}).
+	 *
+	 * @param names the names of the flags, with the leading <code>-</code>.
+	 */
+	public void addFlag(String... names) {
+		StringBuilder sb = new StringBuilder();
+		for (String name : names) {
+			add(name, FLAG, null);
+			sb.append( (0 == sb.length()) ? "[" : "|" ).append(name);
+		}
+		usage.add( sb.append(']').toString() );
+	}
+
+	/**
+	 * Declares an option with an integer value.
+	 *
+	 * @param name the name of the option.
+	 * @param defaultValue the value if the option is not given.
+	 */
+	public void addInt(String name, int defaultValue) {
+		add( name, INT, "[" + name + " n]" );
+		values.put( name, String.valueOf(defaultValue) );
+	}
+
+	/**
+	 * Declares an option with a string value.
+	 *
+	 * @param name the name of the option.
+	 * @param value the name of the value, for the usage.
+	 * @param defaultValue the value if the option is not given (may be null).
+	 */
+	public void addString(String name, String value, String defaultValue) {
+		add( name, STRING, "[" + name + " " + value + "]" );
+		values.put(name, defaultValue);
+	}
+
+	/**
+	 * Declares an option with a string value that can be repeated.
+	 *
+	 * @param name the name of the option.
+	 * @param value the name of the value, for the usage.
+	 */
+	public void addList(String name, String value) {
+		add( name, LIST, "[" + name + " " + value + "]..." );
+		lists.put( name, new Vector<String>() );
+	}
+
+	/**
+	 * Adds an other form of the command to the usage, like <code>-list</code>. It is not parsed, the caller has to
+	 * check it before the parsing.
+	 *
+	 * @param form the options and the arguments of the form.
+	 */
+	public void addUsage(String form) {
+		otherUsages.add(form);
+	}
+
+	// --- Parsing -------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Parses the command line. The options end at the first argument that is not a declared option (a single
+	 * <code>-</code> is an argument).
+	 *
+	 * @param args the command line.
+	 * @return false if an option is unknown, its value is missing or it is not a number, or the number of the
+	 *         arguments is wrong.
+	 */
+	public boolean parse(String args[]) {
+		int first = 0;
+		for ( ; first < args.length; ++first) {
+			String name = args[first];
+			Integer kind = kinds.get(name);
+			if ( null == kind ) {
+				if ( name.startsWith("-") && 1 < name.length() ) {
+					return false; // unknown option
+				}
+				break;
+			}
+
+			positions.put( name, Integer.valueOf(first) );
+			if ( FLAG == kind.intValue() ) {
+				continue;
+			}
+
+			if ( ++first == args.length ) {
+				return false; // missing value
+			}
+
+			String value = args[first];
+			if ( INT == kind.intValue() ) {
+				try {
+					Integer.parseInt(value);
+				} catch (NumberFormatException nfe) {
+					return false;
+				}
+			}
+
+			if ( LIST == kind.intValue() ) {
+				lists.get(name).add(value);
+			} else {
+				values.put(name, value);
+			}
+		}
+
+		int count = args.length - first;
+		if ( count < minArguments || ( 0 <= maxArguments && count > maxArguments ) ) {
+			return false;
+		}
+
+		parsedArguments = new String[count];
+		System.arraycopy(args, first, parsedArguments, 0, count);
+		return true;
+	}// parse
+
+	/**
+	 * Parses the command line, or prints the usage to the standard error and exits with 2 if it is wrong.
+	 *
+	 * @param args the command line.
+	 */
+	public void parseOrExit(String args[]) {
+		if ( ! parse(args) ) {
+			printUsage(System.err);
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Prints the usage, the lines are wrapped at the options.
+	 *
+	 * @param out the usage is printed here.
+	 */
+	public void printUsage(PrintStream out) {
+		StringBuilder line = new StringBuilder( "Usage: java " + command );
+		Vector<String> parts = new Vector<String>(usage);
+		if ( 0 < arguments.length() ) {
+			parts.add(arguments);
+		}
+		for (String part : parts) {
+			if ( line.length() + 1 + part.length() > USAGE_WIDTH ) {
+				out.println(line);
+				line.setLength(0);
+				line.append(USAGE_INDENT).append(part);
+			} else {
+				line.append(' ').append(part);
+			}
+		}
+		out.println(line);
+
+		for (String form : otherUsages) {
+			out.println( "       java " + command + " " + form );
+		}
+	}// printUsage
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns true if the flag or the option was given. */
+	public boolean isSet(String name) {
+		return positions.containsKey(name);
+	}
+
+	/**
+	 * Returns the alternative flag that was given last, or null if none of them was given.
+	 *
+	 * @param names the alternative flags.
+	 */
+	public String getLast(String... names) {
+		String back = null;
+		int last = -1;
+		for (String name : names) {
+			Integer position = positions.get(name);
+			if ( null != position && position.intValue() > last ) {
+				back = name;
+				last = position.intValue();
+			}
+		}
+		return back;
+	}
+
+	/** Returns the value of an integer option. */
+	public int getInt(String name) {
+		return Integer.parseInt( values.get(name) );
+	}
+
+	/** Returns the value of a string option, or its default value if it was not given. */
+	public String getString(String name) {
+		return values.get(name);
+	}
+
+	/** Returns the values of a repeated option, in the order of the command line. */
+	public Vector<String> getList(String name) {
+		return lists.get(name);
+	}
+
+	/** Returns the arguments after the options. */
+	public String[] getArguments() {
+		return parsedArguments;
+	}
+
+	/** Returns an argument after the options. */
+	public String getArgument(int index) {
+		return parsedArguments[index];
+	}
+
+}// class.OptionParser
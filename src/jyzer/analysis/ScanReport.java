@@ -0,0 +1,210 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.classpath.ClassScanner;
+
+/**
+ * <p>The base of the reports that are collected from the classfiles of a location by the workers of a
+ * <code>ClassScanner</code>. Every worker counts into its own counters without any synchronization, and the counters
+ * are merged into the totals of the report once, when the worker is finished (holding the lock of the report).</p>
+ *
+ * <p>The <code>run</code> methods do the work of the <code>main</code> methods of the reports: they scan the location,
+ * print the report to the standard output and the number of the scanned and the skipped classfiles to the standard
+ * error, and exit with 1 if the location cannot be read.</p>
+ *
+ * @param <C> the type of the counters of a worker.
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public abstract class ScanReport<C extends ScanReport.Counters> {
+
+	/**
+	 * The counters of a worker. They are updated only by the thread of the worker.
+	 */
+	public interface Counters {
+
+		/**
+		 * Counts a classfile. The constant pool of the classfile is the current one.
+		 *
+		 * @param cf the parsed classfile.
+		 * @param bytes the contents of the classfile.
+		 * @throws IOException if the classfile cannot be processed, stops the scanning.
+		 */
+		void visitClass(ClassFile cf, byte bytes[]) throws IOException;
+
+	}// interface.Counters
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns new, empty counters for a worker.
+	 */
+	protected abstract C newCounters();
+
+	/**
+	 * Adds the counters of a finished worker to the totals. Called holding the lock of the report.
+	 *
+	 * @param counters the counters of the worker.
+	 */
+	protected abstract void merge(C counters);
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 * @throws IOException if the report needs classfiles that cannot be read.
+	 */
+	public abstract void print(PrintStream out) throws IOException;
+
+	/**
+	 * Returns a new visitor that counts the classfiles given to it, and adds its counts to the report when it is
+	 * finished. Every thread has to use its own visitor.
+	 */
+	public ClassScanner.Visitor newVisitor() {
+		final C counters = newCounters();
+		return new ClassScanner.Visitor() {
+			public void visitClass(ClassFile cf, byte bytes[]) throws IOException {
+				counters.visitClass(cf, bytes);
+			}
+
+			public void finish() {
+				synchronized (ScanReport.this) {
+					merge(counters);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Collects the report from the classfiles of the given location. Can be called more times, the counts are added
+	 * up.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param scanner the scanner that parses the classfiles.
+	 * @throws IOException if the location cannot be read.
+	 */
+	public void collect(File location, ClassScanner scanner) throws IOException {
+		scanner.scan( location, new ClassScanner.VisitorFactory() {
+			public ClassScanner.Visitor newVisitor(int worker) {
+				return ScanReport.this.newVisitor();
+			}
+		});
+	}
+
+	/**
+	 * Returns the last line of a run, printed to the standard error.
+	 *
+	 * @param scanner the scanner of the run.
+	 * @param millis the time of the scanning and the printing.
+	 */
+	protected String getRunSummary(ClassScanner scanner, long millis) {
+		return "Scanned: " + scanner.getScannedCount() + ", skipped: " + scanner.getFailedCount();
+	}
+
+	/**
+	 * Collects the report from the given locations and prints it, for the <code>main</code> methods. Exits with 1
+	 * if a location cannot be read.
+	 *
+	 * @param locations classfiles, directories or jar files.
+	 * @param threads the number of the workers.
+	 */
+	public void run(Vector<File> locations, int threads) {
+		long start = System.currentTimeMillis();
+		ClassScanner scanner = new ClassScanner(threads, System.err);
+		try {
+			for (File location : locations) {
+				collect(location, scanner);
+			}
+			print(System.out);
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		}
+
+		System.err.println( getRunSummary( scanner, System.currentTimeMillis() - start ) );
+	}
+
+	/**
+	 * Collects the report from the given location and prints it, for the <code>main</code> methods. Exits with 1 if
+	 * the location cannot be read.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param threads the number of the workers.
+	 */
+	public void run(File location, int threads) {
+		Vector<File> locations = new Vector<File>();
+		locations.add(location);
+		run(locations, threads);
+	}
+
+	/**
+	 * Indexes the methods of a location and of the libraries, for the <code>main</code> methods of the reports that
+	 * need the callees. The index is built by other scanners than the run, so the counts of the run are not doubled;
+	 * the skipped classfiles of the location are reported by the run, the ones of the libraries here. Exits with 1
+	 * if a location cannot be read.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param libraries more locations that are only indexed.
+	 * @param threads the number of the workers.
+	 * @return the index.
+	 */
+	public static MethodIndex collectIndex(File location, Vector<String> libraries, int threads) {
+		MethodIndex index = new MethodIndex();
+		try {
+			index.collect( location, new ClassScanner(threads, null) );
+			ClassScanner libraryIndexer = new ClassScanner(threads, System.err);
+			for (String library : libraries) {
+				index.collect( new File(library), libraryIndexer );
+			}
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		}
+		return index;
+	}
+
+	/**
+	 * Adds to the counter of a key in a map of counters.
+	 */
+	protected static <K> void count(Map<K, long[]> counts, K key, long n) {
+		long count[] = counts.get(key);
+		if ( null == count ) {
+			counts.put( key, count = new long[1] );
+		}
+		count[0] += n;
+	}
+
+	/**
+	 * Adds the counters of a worker to the totals.
+	 */
+	protected static <K> void addCounts(Map<K, long[]> total, Map<K, long[]> counts) {
+		for (Map.Entry<K, long[]> entry : counts.entrySet()) {
+			count( total, entry.getKey(), entry.getValue()[0] );
+		}
+	}
+
+}// class.ScanReport
@@ -0,0 +1,148 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis;
+
+import java.io.PrintStream;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the N items with the largest values. The smallest kept item is at the head of a heap, so adding an item
+ * costs <code>O(log N)</code> at most. Not thread-safe: every worker should have its own, and they can be merged at
+ * the end.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class TopList {
+
+	/**
+	 * An item of the list.
+	 */
+	public static final class Item implements Comparable<Item> {
+
+		private long value;
+		private String label;
+
+		Item(long value, String label) {
+			this.value = value;
+			this.label = label;
+		}
+
+		/** Returns the value of the item. */
+		public long getValue() {
+			return value;
+		}
+
+		/** Returns the label of the item. */
+		public String getLabel() {
+			return label;
+		}
+
+		public int compareTo(Item other) {
+			if ( value != other.value ) {
+				return ( (value < other.value) ? -1 : 1 );
+			}
+
+			return other.label.compareTo(label); // the same values are ordered by their labels
+		}
+
+	}// class.Item
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private int size;
+	private PriorityQueue<Item> heap;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty list.
+	 *
+	 * @param size the number of the kept items.
+	 */
+	public TopList(int size) {
+		this.size = size;
+		heap = new PriorityQueue<Item>( Math.max(1, size + 1) );
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns true if an item with the given value may be kept (depending on its label if the value is equal to the
+	 * smallest kept one). Can be used to avoid building the label.
+	 */
+	public boolean accepts(long value) {
+		return ( heap.size() < size || ( 0 < size && value >= heap.peek().value ) );
+	}
+
+	/**
+	 * Adds an item, if its value is among the largest ones.
+	 *
+	 * @param value the value of the item.
+	 * @param label the label of the item.
+	 */
+	public void add(long value, String label) {
+		if ( accepts(value) ) {
+			Item item = new Item(value, label);
+			if ( heap.size() < size || 0 < item.compareTo( heap.peek() ) ) {
+				heap.add(item);
+				if ( heap.size() > size ) {
+					heap.poll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the items of an other list.
+	 *
+	 * @param other the list of an other worker.
+	 */
+	public void merge(TopList other) {
+		for (Item item : other.heap) {
+			add(item.value, item.label);
+		}
+	}
+
+	/**
+	 * Prints the kept items under a title (after an empty line), the largest first: the value and the label in a
+	 * line.
+	 *
+	 * @param out the list is printed here.
+	 * @param title the title of the list.
+	 * @param width the width of the values.
+	 */
+	public void print(PrintStream out, String title, int width) {
+		out.println();
+		out.println(title);
+		for (Item item : getItems()) {
+			out.println( String.format( "  %" + width + "d  %s", item.getValue(), item.getLabel() ) );
+		}
+	}
+
+	/**
+	 * Returns the kept items, the largest first.
+	 */
+	public Item[] getItems() {
+		Item items[] = heap.toArray( new Item[heap.size()] );
+		java.util.Arrays.sort(items, java.util.Collections.reverseOrder());
+		return items;
+	}
+
+}// class.TopList
@@ -0,0 +1,376 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.diff;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.MethodIndex;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.attributes.types.helpers.ExceptionTable;
+import jyzer.items.attributes.types.helpers.ExceptionTableEntry;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantClassInfo;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>The fingerprint of a class: a 64 bit hash of the header of the class, and one of every field and method. The
+ * hash of a member covers its access flags, its descriptor and its normalized code: the instructions with the
+ * constant pool indices replaced by the referenced symbols and values, and the exception table. So the hash does not
+ * depend on the order of the constant pool, nor on the debug attributes (line numbers, local variables), only on
+ * what the class does. The hash of the class covers the header and the hashes of the members, so two classes with
+ * the same hash can be skipped by a diff without looking at their members.</p>
+ *
+ * <p>A digest can ignore the packages too: every class name is replaced by its simple name, so the copies of a
+ * class that were relocated to an other package (shaded into an other jar) have the same hashes.</p>
+ *
+ * <p>The hashes are FNV-1a hashes of the normalized text, two different members have the same hash with a
+ * probability of about <code>2^-64</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ClassDigest {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private String name;
+	private String header;
+	private long hash;
+	private Map<String, long[]> members = new TreeMap<String, long[]>(); // key -> { hash, code length }
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Computes the digest of a classfile. The constant pool of the classfile must be the current one.
+	 *
+	 * @param cf a parsed classfile.
+	 */
+	public ClassDigest(ClassFile cf) {
+		this(cf, false);
+	}
+
+	/**
+	 * Computes the digest of a classfile. The constant pool of the classfile must be the current one.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param ignorePackages true if the class names should be replaced by their simple names.
+	 */
+	public ClassDigest(ClassFile cf, boolean ignorePackages) {
+		name = cf.getThisClassName();
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("class ").append( stripPackage(name, ignorePackages) );
+		sb.append(", version ").append( cf.getMajorVersion() ).append('.').append( cf.getMinorVersion() );
+		sb.append(", access ").append( cf.getAccessInt() );
+		if ( 0 != cf.getSuperClassIndex() ) {
+			sb.append(", extends ").append( stripPackage( cf.getSuperClassName(), ignorePackages ) );
+		}
+		for (String iface : cf.getInterfaceNames()) {
+			sb.append(", implements ").append( stripPackage(iface, ignorePackages) );
+		}
+		header = sb.toString();
+
+		for (FieldInfo field : cf.getFieldItem().getFields()) {
+			members.put( getFieldKey(field, ignorePackages), new long[] { hash( FNV_OFFSET, describe(field) ), -1 } );
+		}
+
+		for (MethodInfo method : cf.getMethodItem().getMethods()) {
+			CodeAttribute code = method.getAttributes().getCode();
+			long methodHash = hash( FNV_OFFSET, describe(method) );
+			if ( null != code ) {
+				for (String line : getNormalizedCode(code, ignorePackages)) {
+					methodHash = hash(methodHash, line);
+				}
+			}
+			members.put( getMethodKey(method, ignorePackages), new long[] { methodHash, ( (null == code) ? -1 : code.getCode().getCodeLength() ) } );
+		}
+
+		hash = hash(FNV_OFFSET, header);
+		for (Map.Entry<String, long[]> entry : members.entrySet()) {
+			hash = hash( hash, entry.getKey() );
+			hash = ( hash ^ entry.getValue()[0] ) * FNV_PRIME;
+		}
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the name of the class. */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the description of the header: the name, the version, the access flags, the superclass and the
+	 * interfaces.
+	 */
+	public String getHeader() {
+		return header;
+	}
+
+	/** Returns the hash of the whole class. */
+	public long getHash() {
+		return hash;
+	}
+
+	/** Returns the keys of the members, in alphabetical order. */
+	public Set<String> getMemberKeys() {
+		return members.keySet();
+	}
+
+	/** Returns true if the class has a member with the given key. */
+	public boolean hasMember(String key) {
+		return members.containsKey(key);
+	}
+
+	/** Returns the hash of a member. */
+	public long getMemberHash(String key) {
+		return members.get(key)[0];
+	}
+
+	/** Returns the code length of a method, or -1 for the fields and the methods without code. */
+	public int getCodeLength(String key) {
+		return (int) members.get(key)[1];
+	}
+
+	/** Returns the sum of the code lengths of the methods. */
+	public long getCodeSize() {
+		long back = 0;
+		for (long member[] : members.values()) {
+			back += Math.max(0, member[1]);
+		}
+		return back;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Adds a string to an FNV-1a hash.
+	 */
+	private static long hash(long hash, String s) {
+		for (int i=0; i<s.length(); ++i) {
+			hash = ( hash ^ s.charAt(i) ) * FNV_PRIME;
+		}
+		return ( hash ^ '\n' ) * FNV_PRIME; // the end of the string, so "ab" + "c" differs from "a" + "bc"
+	}
+
+	/**
+	 * Returns the hash of the bytes of a classfile.
+	 */
+	public static long hash(byte bytes[]) {
+		long back = FNV_OFFSET;
+		for (byte b : bytes) {
+			back = ( back ^ (b & 0xff) ) * FNV_PRIME;
+		}
+		return back;
+	}
+
+	/**
+	 * Returns the simple name of a class (the name of an array class is a descriptor).
+	 *
+	 * @param name the name of a class, with dots.
+	 * @param ignorePackages false if the name should be returned as it is.
+	 */
+	public static String stripPackage(String name, boolean ignorePackages) {
+		if ( ! ignorePackages || null == name ) {
+			return name;
+		}
+
+		return ( name.startsWith("[") ? stripPackages(name, true) : name.substring( name.lastIndexOf('.') + 1 ) );
+	}
+
+	/**
+	 * Replaces the class names of a descriptor by their simple names: <code>(Ljava/lang/String;)V</code> becomes
+	 * <code>(LString;)V</code>.
+	 *
+	 * @param descriptor a field or a method descriptor.
+	 * @param ignorePackages false if the descriptor should be returned as it is.
+	 */
+	public static String stripPackages(String descriptor, boolean ignorePackages) {
+		if ( ! ignorePackages || null == descriptor || ( descriptor.indexOf('/') < 0 && descriptor.indexOf('.') < 0 ) ) {
+			return descriptor;
+		}
+
+		StringBuilder sb = new StringBuilder( descriptor.length() );
+		int i = 0;
+		while ( i < descriptor.length() ) {
+			char c = descriptor.charAt(i++);
+			sb.append(c);
+			int end = ( ('L' == c) ? descriptor.indexOf(';', i) : -1 );
+			if ( 0 <= end ) { // the class names are skipped, so every other L starts a class name
+				int start = i;
+				for (int j=i; j<end; ++j) {
+					if ( '/' == descriptor.charAt(j) || '.' == descriptor.charAt(j) ) {
+						start = j + 1;
+					}
+				}
+				sb.append( descriptor, start, end );
+				i = end;
+			}
+		}
+
+		return sb.toString();
+	}// stripPackages
+
+	/**
+	 * Returns the key of a field: <code>field name descriptor</code>. The constant pool of the field must be the
+	 * current one.
+	 *
+	 * @param field a field.
+	 * @param ignorePackages true if the class names should be replaced by their simple names.
+	 */
+	public static String getFieldKey(FieldInfo field, boolean ignorePackages) {
+		return "field " + field.getNameString() + " " + stripPackages( ConstantPool.getUtf8String( field.getDescriptorIndex() ), ignorePackages );
+	}
+
+	/**
+	 * Returns the key of a method: <code>method name(descriptor)</code>. The constant pool of the method must be the
+	 * current one.
+	 *
+	 * @param method a method.
+	 * @param ignorePackages true if the class names should be replaced by their simple names.
+	 */
+	public static String getMethodKey(MethodInfo method, boolean ignorePackages) {
+		return "method " + method.getNameString() + stripPackages( method.getDescriptorString(), ignorePackages );
+	}
+
+	/**
+	 * Describes the header of a field: the access flags and the constant value.
+	 */
+	public static String describe(FieldInfo field) {
+		String back = "access " + field.getAccessInt();
+		if ( field.hasConstantValue() ) {
+			back += ", value " + field.getConstantValueString();
+		}
+		return back;
+	}
+
+	/**
+	 * Describes the header of a method: the access flags and the declared exceptions.
+	 */
+	public static String describe(MethodInfo method) {
+		StringBuilder sb = new StringBuilder("access ").append( method.getAccessInt() );
+		String exceptions[] = method.getAttributes().getPureExceptionNames(null);
+		if ( null != exceptions ) {
+			for (String exception : exceptions) {
+				sb.append(", throws ").append(exception);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns true if the first operand of the instruction is a constant pool index.
+	 */
+	public static boolean hasConstantPoolOperand(int opcode) {
+		return CodeInstruction.hasConstantPoolOperand(opcode);
+	}
+
+	/**
+	 * Returns the symbol or the value referenced by a constant pool index. The constant pool must be the current one.
+	 *
+	 * @param index a constant pool index.
+	 * @param ignorePackages true if the class names should be replaced by their simple names.
+	 */
+	public static String resolve(int index, boolean ignorePackages) {
+		ConstantPoolInfo info = ConstantPool.getElement(index);
+		if ( info instanceof ConstantClassInfo ) {
+			return stripPackage( ConstantPool.getClassName(index), ignorePackages );
+		}
+		if ( info instanceof AbstractReference ) {
+			AbstractReference ref = (AbstractReference) info;
+			ConstantPoolInfo nat = ConstantPool.getElement( ref.getNameAndTypeIndex() );
+			if ( ! ( nat instanceof ConstantNameAndTypeInfo ) ) {
+				return "#" + index;
+			}
+
+			return MethodIndex.getKey( stripPackage( ConstantPool.getClassName( ref.getClassIndex() ), ignorePackages ),
+					ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getNameIndex() ),
+					stripPackages( ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getDescriptorIndex() ), ignorePackages ) );
+		}
+
+		String value = ConstantPool.getValueString(index);
+		return ( (null == value) ? "#" + index : value ); // not resolvable: the constants of the newer versions
+	}
+
+	/**
+	 * Returns the normalized text of an instruction: the offset is left out, the constant pool indices are replaced
+	 * by the referenced symbols. The constant pool must be the current one.
+	 *
+	 * @param ci an instruction.
+	 * @param ignorePackages true if the class names should be replaced by their simple names.
+	 */
+	public static String normalize(CodeInstruction ci, boolean ignorePackages) {
+		StringBuilder sb = new StringBuilder( ci.getMnemonic() );
+		int operands[] = ci.getOperands();
+		boolean symbolic = hasConstantPoolOperand( ci.getOpcode() );
+
+		for (int i=0; i<operands.length; ++i) {
+			sb.append(' ');
+			if ( 0 == i && symbolic ) {
+				sb.append( resolve( operands[0], ignorePackages ) );
+			} else {
+				sb.append( operands[i] );
+			}
+		}
+
+		if ( 0xaa == ci.getOpcode() ) {
+			sb.append(" low ").append( ci.getLow() ).append(" high ").append( ci.getHigh() );
+		}
+		if ( 0xaa == ci.getOpcode() || 0xab == ci.getOpcode() ) {
+			sb.append(" default ").append( ci.getDefaultOffset() );
+		}
+
+		return sb.toString();
+	}// normalize
+
+	/**
+	 * Returns the normalized code of a method: one line per instruction, then one line per exception handler. The
+	 * constant pool must be the current one.
+	 *
+	 * @param code the code of a method.
+	 * @param ignorePackages true if the class names should be replaced by their simple names.
+	 */
+	public static Vector<String> getNormalizedCode(CodeAttribute code, boolean ignorePackages) {
+		Vector<String> back = new Vector<String>();
+		for (CodeInstruction ci : code.getDisassembledCode()) {
+			back.add( normalize(ci, ignorePackages) );
+		}
+
+		ExceptionTable table = code.getExceptionTable();
+		for (int i=0; i<table.getExceptionTableLength(); ++i) {
+			ExceptionTableEntry entry = table.getEntry(i);
+			back.add( "handler " + entry.getStartPc() + "-" + entry.getEndPc() + " -> " + entry.getHandlerPc() + " " + stripPackage( entry.getCatchTypeString(), ignorePackages ) );
+		}
+
+		return back;
+	}
+
+}// class.ClassDigest
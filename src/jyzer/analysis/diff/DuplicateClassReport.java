@@ -0,0 +1,302 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.diff;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.TopList;
+import jyzer.classpath.ClassScanner;
+
+/**
+ * <p>Finds the classes that are shipped more than once in a set of directories and jar files. Every class has three
+ * hashes: the hash of its bytes, the hash of its <code>ClassDigest</code> (that ignores the debug attributes and the
+ * order of the constant pool), and the hash of its digest without the packages (that finds the shaded copies, which
+ * were relocated to an other package). The copies with the same hash are grouped, and the groups are reported with
+ * the bytes they waste: every copy but the largest one. The size of the classfiles is only a rough measure of the
+ * Metaspace used by the copies, but every copy is loaded, verified and compiled on its own.</p>
+ *
+ * <p>The locations are scanned one after the other, every location by the workers of a <code>ClassScanner</code>,
+ * every worker hashes the classes into its own list (see <code>ScanReport</code>).</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.diff.DuplicateClassReport [-threads n] [-top n] &lt;location&gt;...</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class DuplicateClassReport extends ScanReport<DuplicateClassReport.Hasher> {
+
+	/** The copies have the same bytes. */
+	public static final int IDENTICAL = 0;
+
+	/** The copies have the same code, without the debug attributes and the order of the constant pool. */
+	public static final int EQUIVALENT = 1;
+
+	/** The copies have the same code, maybe in other packages. */
+	public static final int SHADED = 2;
+
+	private static final String LEVEL_NAMES[] = {
+		"identical bytes", "same code (no debug info, any pool order)", "same code in any package (shaded)" };
+
+	// --- Copy ----------------------------------------------------------------------------------------------------------
+
+	/**
+	 * A class found in a location.
+	 */
+	private static final class Copy {
+
+		private String location;
+		private String file;
+		private String name;
+		private int size;
+		private long hashes[] = new long[3];
+
+		Copy(String location, ClassFile cf, byte bytes[]) {
+			this.location = location;
+			file = cf.getFileName();
+			name = cf.getThisClassName();
+			size = bytes.length;
+			hashes[IDENTICAL]  = ClassDigest.hash(bytes);
+			hashes[EQUIVALENT] = new ClassDigest(cf, false).getHash();
+			hashes[SHADED]     = new ClassDigest(cf, true).getHash();
+		}
+
+		public String toString() {
+			return location + "!" + file;
+		}
+
+	}// class.Copy
+
+	// --- Worker --------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Hashes the classes of a worker.
+	 */
+	final class Hasher implements ScanReport.Counters {
+
+		private String location;
+		private Vector<Copy> found = new Vector<Copy>();
+
+		Hasher(String location) {
+			this.location = location;
+		}
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			found.add( new Copy(location, cf, bytes) );
+		}
+
+	}// class.Hasher
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private int top;
+	private String location;
+	private Vector<Copy> copies = new Vector<Copy>();
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param top the length of the lists.
+	 */
+	public DuplicateClassReport(int top) {
+		this.top = Math.max(0, top);
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	protected Hasher newCounters() {
+		return new Hasher(location);
+	}
+
+	protected void merge(Hasher hasher) {
+		copies.addAll(hasher.found);
+	}
+
+	/**
+	 * Hashes the classfiles of the given location, the copies are labelled with its path. The locations have to be
+	 * collected one after the other.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param scanner the scanner that parses the classfiles.
+	 * @throws IOException if the location cannot be read.
+	 */
+	public void collect(File location, ClassScanner scanner) throws IOException {
+		this.location = location.getPath();
+		super.collect(location, scanner);
+	}
+
+	/**
+	 * Groups the copies by one of their hashes. Only the groups with more than one copy are returned.
+	 *
+	 * @param level <code>IDENTICAL</code>, <code>EQUIVALENT</code> or <code>SHADED</code>.
+	 */
+	private Vector<Vector<Copy>> group(int level) {
+		Map<Long, Vector<Copy>> groups = new HashMap<Long, Vector<Copy>>();
+		for (Copy copy : copies) {
+			Vector<Copy> group = groups.get( copy.hashes[level] );
+			if ( null == group ) {
+				groups.put( copy.hashes[level], group = new Vector<Copy>() );
+			}
+			group.add(copy);
+		}
+
+		Vector<Vector<Copy>> back = new Vector<Vector<Copy>>();
+		for (Vector<Copy> group : groups.values()) {
+			if ( 1 < group.size() ) {
+				back.add(group);
+			}
+		}
+		return back;
+	}
+
+	/**
+	 * Returns the bytes wasted by a group: the sizes of every copy but the largest one.
+	 */
+	private static long getWastedBytes(Vector<Copy> group) {
+		long sum = 0;
+		int max = 0;
+		for (Copy copy : group) {
+			sum += copy.size;
+			max = Math.max(max, copy.size);
+		}
+		return sum - max;
+	}
+
+	/**
+	 * Describes a group: the names of the classes and the locations of the copies.
+	 */
+	private static String describe(Vector<Copy> group) {
+		Set<String> names = new TreeSet<String>();
+		Set<String> locations = new TreeSet<String>();
+		for (Copy copy : group) {
+			names.add(copy.name);
+			locations.add(copy.location);
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (String name : names) {
+			sb.append( (0 == sb.length()) ? "" : ", " ).append(name);
+		}
+		sb.append(" (").append( group.size() ).append(" copies in");
+		for (String location : locations) {
+			sb.append(' ').append(location);
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		long bytes = 0;
+		Map<String, Set<Long>> versions = new HashMap<String, Set<Long>>();
+		for (Copy copy : copies) {
+			bytes += copy.size;
+			Set<Long> hashes = versions.get(copy.name);
+			if ( null == hashes ) {
+				versions.put( copy.name, hashes = new HashSet<Long>() );
+			}
+			hashes.add( copy.hashes[EQUIVALENT] );
+		}
+
+		out.println( "Classes: " + copies.size() + ", names: " + versions.size() + ", bytes: " + bytes );
+
+		Vector<Vector<Vector<Copy>>> levels = new Vector<Vector<Vector<Copy>>>();
+		out.println();
+		out.println( String.format( "  %-42s %8s %8s %12s", "Duplicates", "groups", "copies", "wasted bytes" ) );
+		for (int level=IDENTICAL; level<=SHADED; ++level) {
+			levels.add( group(level) );
+			long groupCopies = 0;
+			long wasted = 0;
+			for (Vector<Copy> group : levels.get(level)) {
+				groupCopies += group.size();
+				wasted += getWastedBytes(group);
+			}
+			out.println( String.format( "  %-42s %8d %8d %12d", LEVEL_NAMES[level], levels.get(level).size(), groupCopies, wasted ) );
+		}
+
+		int conflicts = 0;
+		TopList conflicting = new TopList(top);
+		for (Map.Entry<String, Set<Long>> entry : versions.entrySet()) {
+			if ( 1 < entry.getValue().size() ) {
+				conflicts++;
+				conflicting.add( entry.getValue().size(), entry.getKey() );
+			}
+		}
+		out.println( String.format( "  %-42s %8d", "names with different code", conflicts ) );
+
+		if ( 0 < top ) {
+			for (int level=IDENTICAL; level<=SHADED; ++level) {
+				TopList groups = new TopList(top);
+				for (Vector<Copy> group : levels.get(level)) {
+					if ( SHADED != level || ! isSameName(group) ) { // the shaded list shows only the relocated copies
+						groups.add( getWastedBytes(group), describe(group) );
+					}
+				}
+
+				groups.print( out, "Groups with the most wasted bytes: " + LEVEL_NAMES[level] + ( (SHADED == level) ? ", other names" : "" ), 8 );
+			}
+
+			conflicting.print(out, "Classes with different code in the copies (versions)", 3);
+		}
+	}// print
+
+	/**
+	 * Returns true if every copy of a group has the same class name.
+	 */
+	private static boolean isSameName(Vector<Copy> group) {
+		for (Copy copy : group) {
+			if ( ! copy.name.equals( group.get(0).name ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the locations.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.diff.DuplicateClassReport", "<location>...", 1, -1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 20);
+		options.parseOrExit(args);
+
+		Vector<File> locations = new Vector<File>();
+		for (String location : options.getArguments()) {
+			locations.add( new File(location) );
+		}
+		new DuplicateClassReport( options.getInt("-top") ).run( locations, options.getInt("-threads") );
+	}// main
+
+}// class.DuplicateClassReport
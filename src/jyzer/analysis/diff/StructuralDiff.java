@@ -0,0 +1,418 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.diff;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.OptionParser;
+import jyzer.classpath.ClassPath;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Compares two versions of a classfile, a directory or a jar file, and reports the added, removed and changed
+ * classes and members, with the changes of the bytecode sizes. Both versions are scanned at the same time by the
+ * workers of two <code>ClassScanner</code>s, every worker computes the <code>ClassDigest</code>s of its classes. The
+ * classes and the members with the same hashes are skipped; only the changed classes are parsed again (from a
+ * <code>ClassPath</code>), to show the changed headers and the first different instruction of the changed
+ * methods.</p>
+ *
+ * <p>The differences of the debug attributes (line numbers, local variables) and the order of the constant pool are
+ * not changes, only the normalized code counts.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.diff.StructuralDiff [-threads n] [-summary] &lt;old location&gt; &lt;new
+ * location&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class StructuralDiff {
+
+	// --- Worker --------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Computes the digests of the classes of a worker.
+	 */
+	private final class Collector implements ClassScanner.Visitor {
+
+		private Map<String, ClassDigest> side;
+		private Map<String, ClassDigest> digests = new HashMap<String, ClassDigest>();
+
+		Collector(Map<String, ClassDigest> side) {
+			this.side = side;
+		}
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			ClassDigest digest = new ClassDigest(cf);
+			digests.put( digest.getName(), digest );
+		}
+
+		/** Merges the digests of this worker into its version. */
+		public void finish() {
+			merge(side, digests);
+		}
+
+	}// class.Collector
+
+	/**
+	 * A member of a class parsed again: its header and its normalized code with the offsets of the instructions.
+	 */
+	private static final class Member {
+
+		private String header = "";
+		private Vector<String> code = new Vector<String>();
+		private Vector<Integer> offsets = new Vector<Integer>();
+
+		Member(ClassFile cf, String key) {
+			ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+			try {
+				for (FieldInfo field : cf.getFieldItem().getFields()) {
+					if ( key.equals( ClassDigest.getFieldKey(field, false) ) ) {
+						header = ClassDigest.describe(field);
+					}
+				}
+
+				for (MethodInfo method : cf.getMethodItem().getMethods()) {
+					if ( key.equals( ClassDigest.getMethodKey(method, false) ) ) {
+						header = ClassDigest.describe(method);
+						CodeAttribute code = method.getAttributes().getCode();
+						if ( null != code ) {
+							this.code = ClassDigest.getNormalizedCode(code, false);
+							for (CodeInstruction ci : code.getDisassembledCode()) {
+								offsets.add( ci.getOffset() );
+							}
+						}
+					}
+				}
+			} finally {
+				ConstantPool.setCurrent(previous);
+			}
+		}
+
+		/** Returns a line of the normalized code with its pc, or the end of the code. */
+		String getLine(int i) {
+			if ( code.size() <= i ) {
+				return "(end of the code)";
+			}
+
+			return ( (i < offsets.size()) ? "pc " + offsets.get(i) + ": " : "" ) + code.get(i);
+		}
+
+	}// class.Member
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private File oldLocation;
+	private File newLocation;
+	private Map<String, ClassDigest> oldClasses = new HashMap<String, ClassDigest>();
+	private Map<String, ClassDigest> newClasses = new HashMap<String, ClassDigest>();
+
+	private Vector<String> added = new Vector<String>();
+	private Vector<String> removed = new Vector<String>();
+	private Vector<String> changed = new Vector<String>();
+	private int unchanged = 0;
+	private int memberCounts[] = new int[3]; // added, removed, changed
+	private long oldCodeSize = 0;
+	private long newCodeSize = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a diff of two locations.
+	 *
+	 * @param oldLocation the old version: a classfile, a directory or a jar file.
+	 * @param newLocation the new version.
+	 */
+	public StructuralDiff(File oldLocation, File newLocation) {
+		this.oldLocation = oldLocation;
+		this.newLocation = newLocation;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the names of the added classes, in alphabetical order. */
+	public Vector<String> getAddedClasses() {
+		return added;
+	}
+
+	/** Returns the names of the removed classes, in alphabetical order. */
+	public Vector<String> getRemovedClasses() {
+		return removed;
+	}
+
+	/** Returns the names of the changed classes, in alphabetical order. */
+	public Vector<String> getChangedClasses() {
+		return changed;
+	}
+
+	/** Returns the number of the classes that are the same in both versions. */
+	public int getUnchangedCount() {
+		return unchanged;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Adds the digests of a finished worker to a version.
+	 */
+	private synchronized void merge(Map<String, ClassDigest> side, Map<String, ClassDigest> digests) {
+		for (ClassDigest digest : digests.values()) {
+			if ( ! side.containsKey( digest.getName() ) ) { // the first one wins, like on a classpath
+				side.put( digest.getName(), digest );
+			}
+		}
+	}
+
+	/**
+	 * Computes the digests of both versions at the same time: the old version is scanned on a new thread, the new
+	 * one on the calling thread.
+	 *
+	 * @param oldScanner the scanner of the old version.
+	 * @param newScanner the scanner of the new version.
+	 * @throws IOException if a location cannot be read.
+	 * @throws InterruptedException if the calling thread is interrupted while it waits for the old version.
+	 */
+	public void collect(final ClassScanner oldScanner, ClassScanner newScanner) throws IOException, InterruptedException {
+		final IOException failure[] = new IOException[1];
+		Thread oldThread = new Thread("diff-old") {
+			public void run() {
+				try {
+					scan(oldScanner, oldLocation, oldClasses);
+				} catch (IOException ioe) {
+					failure[0] = ioe;
+				}
+			}
+		};
+
+		oldThread.start();
+		try {
+			scan(newScanner, newLocation, newClasses);
+		} finally {
+			oldThread.join();
+		}
+
+		if ( null != failure[0] ) {
+			throw failure[0];
+		}
+
+		compare();
+	}// collect
+
+	/**
+	 * Computes the digests of the classes of a location.
+	 */
+	private void scan(ClassScanner scanner, File location, final Map<String, ClassDigest> side) throws IOException {
+		scanner.scan( location, new ClassScanner.VisitorFactory() {
+			public ClassScanner.Visitor newVisitor(int worker) {
+				return new Collector(side);
+			}
+		});
+	}
+
+	/**
+	 * Sorts the classes into added, removed, changed and unchanged ones by their hashes, and counts the changed
+	 * members.
+	 */
+	private synchronized void compare() {
+		TreeSet<String> names = new TreeSet<String>( oldClasses.keySet() );
+		names.addAll( newClasses.keySet() );
+
+		for (String name : names) {
+			ClassDigest oldDigest = oldClasses.get(name);
+			ClassDigest newDigest = newClasses.get(name);
+
+			if ( null != oldDigest ) {
+				oldCodeSize += oldDigest.getCodeSize();
+			}
+			if ( null != newDigest ) {
+				newCodeSize += newDigest.getCodeSize();
+			}
+
+			if ( null == oldDigest ) {
+				added.add(name);
+				memberCounts[0] += newDigest.getMemberKeys().size();
+			} else if ( null == newDigest ) {
+				removed.add(name);
+				memberCounts[1] += oldDigest.getMemberKeys().size();
+			} else if ( oldDigest.getHash() == newDigest.getHash() ) {
+				unchanged++;
+			} else {
+				changed.add(name);
+				for (String key : newDigest.getMemberKeys()) {
+					if ( ! oldDigest.hasMember(key) ) {
+						memberCounts[0]++;
+					} else if ( oldDigest.getMemberHash(key) != newDigest.getMemberHash(key) ) {
+						memberCounts[2]++;
+					}
+				}
+				for (String key : oldDigest.getMemberKeys()) {
+					if ( ! newDigest.hasMember(key) ) {
+						memberCounts[1]++;
+					}
+				}
+			}
+		}
+	}// compare
+
+	/**
+	 * Formats a change of a size with its sign.
+	 */
+	private static String delta(long oldSize, long newSize) {
+		long d = newSize - oldSize;
+		return ( (0 <= d) ? "+" : "" ) + d;
+	}
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 * @param summary true if only the summary and the lists of the classes should be printed, without the changes
+	 *        of the members.
+	 * @throws IOException if a changed class cannot be read again.
+	 */
+	public synchronized void print(PrintStream out, boolean summary) throws IOException {
+		out.println( "Classes: " + oldClasses.size() + " -> " + newClasses.size() + ", added: " + added.size() + ", removed: " + removed.size() +
+				", changed: " + changed.size() + ", unchanged: " + unchanged );
+		out.println( "Members: added: " + memberCounts[0] + ", removed: " + memberCounts[1] + ", changed: " + memberCounts[2] );
+		out.println( "Bytecode size: " + oldCodeSize + " -> " + newCodeSize + " (" + delta(oldCodeSize, newCodeSize) + ")" );
+
+		out.println();
+		for (String name : added) {
+			out.println( "+ " + name + " (" + newClasses.get(name).getCodeSize() + " bytes)" );
+		}
+		for (String name : removed) {
+			out.println( "- " + name + " (" + oldClasses.get(name).getCodeSize() + " bytes)" );
+		}
+
+		ClassPath oldPath = new ClassPath();
+		ClassPath newPath = new ClassPath();
+		oldPath.add(oldLocation);
+		newPath.add(newLocation);
+		try {
+			for (String name : changed) {
+				ClassDigest oldDigest = oldClasses.get(name);
+				ClassDigest newDigest = newClasses.get(name);
+				out.println( "* " + name + " (" + oldDigest.getCodeSize() + " -> " + newDigest.getCodeSize() + " bytes, " +
+						delta( oldDigest.getCodeSize(), newDigest.getCodeSize() ) + ")" );
+				if ( ! summary ) {
+					printChanges(out, oldDigest, newDigest, oldPath.getClass(name), newPath.getClass(name) );
+				}
+			}
+		} finally {
+			oldPath.close();
+			newPath.close();
+		}
+	}// print
+
+	/**
+	 * Prints the changes of the members of a changed class.
+	 *
+	 * @param oldFile the old version of the class, parsed again (null if it cannot be found).
+	 * @param newFile the new version of the class, parsed again.
+	 */
+	private void printChanges(PrintStream out, ClassDigest oldDigest, ClassDigest newDigest, ClassFile oldFile, ClassFile newFile) {
+		if ( ! oldDigest.getHeader().equals( newDigest.getHeader() ) ) {
+			out.println( "    header: " + oldDigest.getHeader() );
+			out.println( "        ->  " + newDigest.getHeader() );
+		}
+
+		for (String key : newDigest.getMemberKeys()) {
+			if ( ! oldDigest.hasMember(key) ) {
+				out.println( "    + " + key + ( (newDigest.getCodeLength(key) < 0) ? "" : " (" + newDigest.getCodeLength(key) + " bytes)" ) );
+			}
+		}
+		for (String key : oldDigest.getMemberKeys()) {
+			if ( ! newDigest.hasMember(key) ) {
+				out.println( "    - " + key + ( (oldDigest.getCodeLength(key) < 0) ? "" : " (" + oldDigest.getCodeLength(key) + " bytes)" ) );
+			}
+		}
+
+		for (String key : newDigest.getMemberKeys()) {
+			if ( oldDigest.hasMember(key) && oldDigest.getMemberHash(key) != newDigest.getMemberHash(key) ) {
+				int oldLength = oldDigest.getCodeLength(key);
+				int newLength = newDigest.getCodeLength(key);
+				out.println( "    * " + key + ( (oldLength < 0 && newLength < 0) ? "" :
+						" (" + oldLength + " -> " + newLength + " bytes, " + delta(oldLength, newLength) + ")" ) );
+
+				if ( null != oldFile && null != newFile ) {
+					printMemberChanges( out, new Member(oldFile, key), new Member(newFile, key) );
+				}
+			}
+		}
+	}// printChanges
+
+	/**
+	 * Prints the changed header and the first different instruction of a member.
+	 */
+	private static void printMemberChanges(PrintStream out, Member oldMember, Member newMember) {
+		if ( ! oldMember.header.equals( newMember.header ) ) {
+			out.println( "        " + oldMember.header + " -> " + newMember.header );
+		}
+
+		int length = Math.min( oldMember.code.size(), newMember.code.size() );
+		int i = 0;
+		while ( i < length && oldMember.code.get(i).equals( newMember.code.get(i) ) ) {
+			++i;
+		}
+
+		if ( i < oldMember.code.size() || i < newMember.code.size() ) {
+			out.println( "        first difference: " + oldMember.getLine(i) );
+			out.println( "                       -> " + newMember.getLine(i) );
+		}
+	}
+
+	/**
+	 * Main method of the diff.
+	 *
+	 * @param args the options and the two locations.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.diff.StructuralDiff", "<old location> <new location>", 2, 2);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addFlag("-summary");
+		options.parseOrExit(args);
+
+		int threads = options.getInt("-threads");
+		ClassScanner oldScanner = new ClassScanner(threads, System.err);
+		ClassScanner newScanner = new ClassScanner(threads, System.err);
+		StructuralDiff diff = new StructuralDiff( new File( options.getArgument(0) ), new File( options.getArgument(1) ) );
+		try {
+			diff.collect(oldScanner, newScanner);
+			diff.print( System.out, options.isSet("-summary") );
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		} catch (InterruptedException ie) {
+			System.exit(1);
+		}
+
+		System.err.println( "Scanned: " + ( oldScanner.getScannedCount() + newScanner.getScannedCount() ) +
+				", skipped: " + ( oldScanner.getFailedCount() + newScanner.getFailedCount() ) );
+	}// main
+
+}// class.StructuralDiff
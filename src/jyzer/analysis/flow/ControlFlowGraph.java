@@ -0,0 +1,501 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import jyzer.ClassFile;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.attributes.types.helpers.ExceptionTable;
+import jyzer.items.attributes.types.helpers.ExceptionTableEntry;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>The control flow graph of the code of a method. The code is split into basic blocks at the jump targets, after
+ * the jumps, switches, returns and throws, and at the bounds of the protected ranges of the exception table, so a
+ * block is either fully protected by a handler or not at all.</p>
+ *
+ * <p>The graph is stored in primitive arrays: the blocks are ranges of the instruction list, the successors and the
+ * predecessors of the blocks are in compressed rows (the edges of block <code>b</code> are at the indices from
+ * <code>start[b]</code> to <code>start[b + 1] - 1</code>). The memory used is proportional to the number of the
+ * instructions and the edges, so even a 64 KB method needs only a few arrays. A <code>jsr</code> has an edge to the
+ * subroutine and an other one to the next instruction, where the subroutine returns; a <code>ret</code> has no
+ * successors.</p>
+ *
+ * <p>The graph is immutable, so it can be shared by threads; the graphs of the methods of a class can be built in
+ * parallel by <code>buildAll()</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ControlFlowGraph {
+
+	// --- Edge kinds ----------------------------------------------------------------------------------------------------
+
+	/** The execution continues with the next block. */
+	public static final byte FALLTHROUGH = 0;
+	/** A jump of a branch, a <code>goto</code> or a <code>jsr</code>. */
+	public static final byte BRANCH = 1;
+	/** A jump of a switch. */
+	public static final byte SWITCH = 2;
+	/** An exception thrown in the block is caught by the handler. */
+	public static final byte EXCEPTION = 3;
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private Vector<CodeInstruction> instructions;
+	private int offsets[];
+	private int codeLength;
+
+	private int blockCount;
+	private int blockFirst[];
+
+	private int successorStart[];
+	private int successors[];
+	private byte successorKinds[];
+
+	private int predecessorStart[];
+	private int predecessors[];
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Builds the graph of the given code.
+	 *
+	 * @param code the code attribute of a method.
+	 * @throws CorruptedClassfileException if a jump or a handler doesn't point to an instruction.
+	 */
+	public ControlFlowGraph(CodeAttribute code) throws CorruptedClassfileException {
+		instructions = code.getDisassembledCode();
+		codeLength   = code.getCode().getCodeLength();
+
+		int n = instructions.size();
+		offsets = new int[n];
+		for (int i=0; i<n; ++i) {
+			offsets[i] = instructions.get(i).getOffset();
+		}
+
+		ExceptionTable table = code.getExceptionTable();
+		BitSet leaders = findLeaders(table);
+
+		blockCount = leaders.cardinality();
+		blockFirst = new int[blockCount + 1];
+		for (int b=0, i=leaders.nextSetBit(0); b<blockCount; ++b, i=leaders.nextSetBit(i + 1)) {
+			blockFirst[b] = i;
+		}
+		blockFirst[blockCount] = n;
+
+		buildSuccessors(table);
+		buildPredecessors();
+	}// ControlFlowGraph(CodeAttribute)
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the instructions. */
+	public int getInstructionCount() {
+		return offsets.length;
+	}
+
+	/** Returns the instruction at the given index. */
+	public CodeInstruction getInstruction(int index) {
+		return instructions.get(index);
+	}
+
+	/** Returns the offset of the instruction at the given index. */
+	public int getOffset(int index) {
+		return offsets[index];
+	}
+
+	/** Returns the <code>code_length</code>. */
+	public int getCodeLength() {
+		return codeLength;
+	}
+
+	/** Returns the number of the basic blocks. */
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	/** Returns the index of the first instruction of a block. */
+	public int getFirstInstruction(int block) {
+		return blockFirst[block];
+	}
+
+	/** Returns the index of the last instruction of a block. */
+	public int getLastInstruction(int block) {
+		return blockFirst[block + 1] - 1;
+	}
+
+	/** Returns the offset of the first instruction of a block. */
+	public int getStartOffset(int block) {
+		return offsets[ blockFirst[block] ];
+	}
+
+	/** Returns the offset after the last instruction of a block. */
+	public int getEndOffset(int block) {
+		return ( (block + 1 < blockCount) ? offsets[ blockFirst[block + 1] ] : codeLength );
+	}
+
+	/** Returns the number of the edges. */
+	public int getEdgeCount() {
+		return successorStart[blockCount];
+	}
+
+	/** Returns the number of the successors of a block. */
+	public int getSuccessorCount(int block) {
+		return successorStart[block + 1] - successorStart[block];
+	}
+
+	/** Returns the <code>i</code>th successor of a block. */
+	public int getSuccessor(int block, int i) {
+		return successors[ successorStart[block] + i ];
+	}
+
+	/** Returns the kind of the edge to the <code>i</code>th successor of a block. */
+	public byte getSuccessorKind(int block, int i) {
+		return successorKinds[ successorStart[block] + i ];
+	}
+
+	/** Returns the number of the predecessors of a block. */
+	public int getPredecessorCount(int block) {
+		return predecessorStart[block + 1] - predecessorStart[block];
+	}
+
+	/** Returns the <code>i</code>th predecessor of a block. */
+	public int getPredecessor(int block, int i) {
+		return predecessors[ predecessorStart[block] + i ];
+	}
+
+	/**
+	 * Returns the index of the instruction at the given offset, or a negative number if no instruction starts there.
+	 */
+	public int getInstructionIndex(int offset) {
+		return Arrays.binarySearch(offsets, offset);
+	}
+
+	/**
+	 * Returns the block of the instruction at the given index.
+	 */
+	public int getBlockOfInstruction(int index) {
+		int b = Arrays.binarySearch(blockFirst, 0, blockCount, index);
+		return ( (b >= 0) ? b : -b - 2 );
+	}
+
+	/**
+	 * Returns the block that contains the given offset, or -1 if the offset is outside of the code.
+	 */
+	public int getBlockAt(int offset) {
+		if ( offset < 0 || offset >= codeLength || 0 == offsets.length ) {
+			return -1;
+		}
+
+		int i = Arrays.binarySearch(offsets, offset);
+		return getBlockOfInstruction( (i >= 0) ? i : -i - 2 );
+	}
+
+	/**
+	 * Returns the cyclomatic complexity of the code: the number of the edges - the number of the blocks + 2 * the
+	 * number of the connected components. The exception edges are not counted, so every handler that is entered only
+	 * by an exception is an own component, and adds one like a branch would. The result is at least 1.
+	 */
+	public int getCyclomaticComplexity() {
+		if ( 0 == blockCount ) {
+			return 1;
+		}
+
+		// union-find of the blocks along the normal edges
+		int roots[] = new int[blockCount];
+		for (int b=0; b<blockCount; ++b) {
+			roots[b] = b;
+		}
+
+		int edges = 0;
+		int components = blockCount;
+		for (int b=0; b<blockCount; ++b) {
+			for (int e=successorStart[b]; e<successorStart[b + 1]; ++e) {
+				if ( EXCEPTION != successorKinds[e] ) {
+					edges++;
+					int from = findRoot(roots, b);
+					int to = findRoot( roots, successors[e] );
+					if ( from != to ) {
+						roots[from] = to;
+						components--;
+					}
+				}
+			}
+		}
+
+		return edges - blockCount + 2 * components;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the root of the set of a block, and shortens the path to it.
+	 */
+	private static int findRoot(int roots[], int block) {
+		int root = block;
+		while ( roots[root] != root ) {
+			root = roots[root];
+		}
+		while ( roots[block] != root ) {
+			int next = roots[block];
+			roots[block] = root;
+			block = next;
+		}
+		return root;
+	}
+
+	/**
+	 * Returns the index of the instruction at the given offset.
+	 *
+	 * @throws CorruptedClassfileException if no instruction starts at the offset.
+	 */
+	private int indexOf(int offset, int from) throws CorruptedClassfileException {
+		int index = Arrays.binarySearch(offsets, offset);
+		if ( index < 0 ) {
+			throw new CorruptedClassfileException("ControlFlowGraph", "The target " + offset + " of the instruction at " + from + " is not an instruction.");
+		}
+
+		return index;
+	}
+
+	/**
+	 * Returns the index of the instruction at the given offset of the exception table (the end of a range may be the
+	 * end of the code).
+	 */
+	private int indexOfBound(int offset, int from) throws CorruptedClassfileException {
+		return ( (offset == codeLength) ? offsets.length : indexOf(offset, from) );
+	}
+
+	/**
+	 * Marks the instructions that start a block.
+	 */
+	private BitSet findLeaders(ExceptionTable table) throws CorruptedClassfileException {
+		int n = offsets.length;
+		BitSet leaders = new BitSet(n + 1);
+
+		if ( 0 < n ) {
+			leaders.set(0);
+		}
+
+		for (int i=0; i<n; ++i) {
+			CodeInstruction ci = instructions.get(i);
+			int opcode = ci.getOpcode();
+
+			if ( Instructions.isConditionalBranch(opcode) || Instructions.isGoto(opcode) || Instructions.isJsr(opcode) ) {
+				leaders.set( indexOf( Instructions.getBranchTarget(ci), offsets[i] ) );
+			} else if ( Instructions.isSwitch(opcode) ) {
+				for (int t=0; t<Instructions.getSwitchTargetCount(ci); ++t) {
+					leaders.set( indexOf( Instructions.getSwitchTarget(ci, t), offsets[i] ) );
+				}
+			}
+
+			if ( Instructions.endsBlock(ci) ) {
+				leaders.set(i + 1);
+			}
+		}
+
+		for (int e=0; e<table.getExceptionTableLength(); ++e) {
+			ExceptionTableEntry entry = table.getEntry(e);
+			leaders.set( indexOf( entry.getStartPc(), entry.getStartPc() ) );
+			leaders.set( indexOfBound( entry.getEndPc(), entry.getEndPc() ) );
+			leaders.set( indexOf( entry.getHandlerPc(), entry.getHandlerPc() ) );
+		}
+
+		leaders.clear(n); // the end of the code is not a block
+		return leaders;
+	}// findLeaders
+
+	/**
+	 * Collects the successors of every block into the compressed rows. An edge to the same block with the same kind
+	 * (for example the cases of a switch with the same target) is stored only once.
+	 */
+	private void buildSuccessors(ExceptionTable table) throws CorruptedClassfileException {
+		successorStart = new int[blockCount + 1];
+		int capacity = blockCount * 2 + 4;
+		int targets[] = new int[capacity];
+		byte kinds[] = new byte[capacity];
+		int count = 0;
+
+		// stamp[target] tells the last block (and kind) that has an edge to the target, to skip the duplicates
+		int stamps[] = new int[blockCount];
+		int handlers = table.getExceptionTableLength();
+
+		for (int b=0; b<blockCount; ++b) {
+			successorStart[b] = count;
+
+			int last = blockFirst[b + 1] - 1;
+			CodeInstruction ci = instructions.get(last);
+			int opcode = ci.getOpcode();
+			int normalStamp = 2 * b + 1;
+			int exceptionStamp = 2 * b + 2;
+
+			int branchTarget = -1;
+			if ( Instructions.isConditionalBranch(opcode) || Instructions.isGoto(opcode) || Instructions.isJsr(opcode) ) {
+				branchTarget = getBlockOfInstruction( indexOf( Instructions.getBranchTarget(ci), offsets[last] ) );
+			}
+
+			int switchTargets = ( Instructions.isSwitch(opcode) ? Instructions.getSwitchTargetCount(ci) : 0 );
+			int needed = count + switchTargets + 2 + handlers;
+			if ( needed > targets.length ) {
+				capacity = Math.max(needed, targets.length * 2);
+				targets = copy(targets, capacity);
+				kinds = copy(kinds, capacity);
+			}
+
+			if ( ! Instructions.isUnconditionalTransfer(ci) && b + 1 < blockCount ) {
+				stamps[b + 1] = normalStamp;
+				targets[count] = b + 1;
+				kinds[count++] = FALLTHROUGH;
+			}
+
+			if ( 0 <= branchTarget && normalStamp != stamps[branchTarget] ) {
+				stamps[branchTarget] = normalStamp;
+				targets[count] = branchTarget;
+				kinds[count++] = BRANCH;
+			}
+
+			for (int t=0; t<switchTargets; ++t) {
+				int target = getBlockOfInstruction( indexOf( Instructions.getSwitchTarget(ci, t), offsets[last] ) );
+				if ( normalStamp != stamps[target] ) {
+					stamps[target] = normalStamp;
+					targets[count] = target;
+					kinds[count++] = SWITCH;
+				}
+			}
+
+			// the protected ranges start and end at block bounds, so the whole block is either protected or not
+			int start = offsets[ blockFirst[b] ];
+			for (int e=0; e<handlers; ++e) {
+				ExceptionTableEntry entry = table.getEntry(e);
+				if ( entry.getStartPc() <= start && start < entry.getEndPc() ) {
+					int handler = getBlockAt( entry.getHandlerPc() );
+					if ( exceptionStamp != stamps[handler] ) {
+						stamps[handler] = exceptionStamp;
+						targets[count] = handler;
+						kinds[count++] = EXCEPTION;
+					}
+				}
+			}
+		}
+		successorStart[blockCount] = count;
+
+		successors = copy(targets, count);
+		successorKinds = copy(kinds, count);
+	}// buildSuccessors
+
+	/**
+	 * Inverts the successor rows.
+	 */
+	private void buildPredecessors() {
+		predecessorStart = new int[blockCount + 1];
+		for (int e=0; e<successors.length; ++e) {
+			predecessorStart[ successors[e] + 1 ]++;
+		}
+		for (int b=0; b<blockCount; ++b) {
+			predecessorStart[b + 1] += predecessorStart[b];
+		}
+
+		predecessors = new int[successors.length];
+		int next[] = new int[blockCount];
+		System.arraycopy(predecessorStart, 0, next, 0, blockCount);
+
+		for (int b=0; b<blockCount; ++b) {
+			for (int e=successorStart[b]; e<successorStart[b + 1]; ++e) {
+				predecessors[ next[ successors[e] ]++ ] = b;
+			}
+		}
+	}// buildPredecessors
+
+	/** Returns a copy of the array with the given length. */
+	private static int[] copy(int array[], int length) {
+		int back[] = new int[length];
+		System.arraycopy( array, 0, back, 0, Math.min(length, array.length) );
+		return back;
+	}
+
+	/** Returns a copy of the array with the given length. */
+	private static byte[] copy(byte array[], int length) {
+		byte back[] = new byte[length];
+		System.arraycopy( array, 0, back, 0, Math.min(length, array.length) );
+		return back;
+	}
+
+	/**
+	 * Builds the graphs of the methods of a class. The methods are processed in parallel by the given executor.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param executor runs the builders, or null to build the graphs on the calling thread.
+	 * @return the graphs in the order of the methods, null for the methods without code.
+	 * @throws CorruptedClassfileException if the code of a method is corrupted.
+	 * @throws InterruptedException if the calling thread was interrupted while waiting.
+	 */
+	public static ControlFlowGraph[] buildAll(ClassFile cf, ExecutorService executor) throws CorruptedClassfileException, InterruptedException {
+		MethodInfo methods[] = cf.getMethodItem().getMethods();
+		ControlFlowGraph back[] = new ControlFlowGraph[methods.length];
+
+		if ( null == executor ) {
+			for (int i=0; i<methods.length; ++i) {
+				CodeAttribute code = methods[i].getAttributes().getCode();
+				back[i] = ( (null == code) ? null : new ControlFlowGraph(code) );
+			}
+			return back;
+		}
+
+		Vector<Future<ControlFlowGraph>> futures = new Vector<Future<ControlFlowGraph>>(methods.length);
+		for (MethodInfo method : methods) {
+			final CodeAttribute code = method.getAttributes().getCode();
+			futures.add( executor.submit( new Callable<ControlFlowGraph>() {
+				public ControlFlowGraph call() throws CorruptedClassfileException {
+					return ( (null == code) ? null : new ControlFlowGraph(code) );
+				}
+			}));
+		}
+
+		try {
+			for (int i=0; i<methods.length; ++i) {
+				back[i] = futures.get(i).get();
+			}
+		} catch (ExecutionException ee) {
+			for (Future<ControlFlowGraph> future : futures) {
+				future.cancel(false);
+			}
+
+			Throwable cause = ee.getCause();
+			if ( cause instanceof CorruptedClassfileException ) {
+				throw (CorruptedClassfileException) cause;
+			} else if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+
+		return back;
+	}// buildAll
+
+}// class.ControlFlowGraph
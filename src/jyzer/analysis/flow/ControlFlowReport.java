@@ -0,0 +1,187 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.io.*;
+
+import jyzer.ClassFile;
+import jyzer.analysis.Histogram;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.TopList;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Builds the control flow graph of every method of a directory or a jar file, and prints the distribution of the
+ * number of the blocks and of the cyclomatic complexity, the number of the edges by kind, and the most complex
+ * methods. The classfiles are processed by the workers of a <code>ClassScanner</code>, every worker counts into its
+ * own counters (see <code>ScanReport</code>).</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.flow.ControlFlowReport [-threads n] [-top n] &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ControlFlowReport extends ScanReport<ControlFlowReport.Counters> {
+
+	/** The names of the edge kinds. */
+	private static final String KINDS[] = { "fallthrough", "branch", "switch", "exception" };
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long methods = 0;
+		private long corrupted = 0;
+		private long edges[] = new long[KINDS.length];
+
+		private Histogram blocks = new Histogram(65536);
+		private Histogram complexities = new Histogram(65536);
+		private TopList mostComplex = new TopList(top);
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				if ( null != code ) {
+					visitCode(cf, method, code);
+				}
+			}
+		}
+
+		/**
+		 * Builds and counts the graph of a method.
+		 */
+		private void visitCode(ClassFile cf, MethodInfo method, CodeAttribute code) {
+			ControlFlowGraph graph;
+			try {
+				graph = new ControlFlowGraph(code);
+			} catch (CorruptedClassfileException cce) {
+				corrupted++;
+				log.println( cf.getThisClassName() + "." + method.getNameString() + method.getDescriptorString() + ": " + cce.getMessage() );
+				return;
+			}
+
+			methods++;
+			blocks.add( graph.getBlockCount() );
+			for (int b=0; b<graph.getBlockCount(); ++b) {
+				for (int i=0; i<graph.getSuccessorCount(b); ++i) {
+					edges[ graph.getSuccessorKind(b, i) ]++;
+				}
+			}
+
+			int complexity = graph.getCyclomaticComplexity();
+			complexities.add(complexity);
+			if ( mostComplex.accepts(complexity) ) {
+				mostComplex.add( complexity, cf.getThisClassName() + "." + method.getNameString() + method.getDescriptorString() );
+			}
+		}// visitCode
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private int top;
+	private PrintStream log;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param top the length of the list of the most complex methods.
+	 * @param log the methods with corrupted code are reported here.
+	 */
+	public ControlFlowReport(int top, PrintStream log) {
+		this.top = Math.max(0, top);
+		this.log = log;
+		total = new Counters();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.methods   += counters.methods;
+		total.corrupted += counters.corrupted;
+		for (int i=0; i<KINDS.length; ++i) {
+			total.edges[i] += counters.edges[i];
+		}
+
+		total.blocks.merge(counters.blocks);
+		total.complexities.merge(counters.complexities);
+		total.mostComplex.merge(counters.mostComplex);
+	}
+
+	/**
+	 * Prints the percentiles of a histogram in a line.
+	 */
+	private static void printDistribution(PrintStream out, String title, Histogram histogram) {
+		out.println( String.format( "  %-12s mean=%-8.1f p50=%-6d p90=%-6d p99=%-6d max=%d", title, histogram.getMean(),
+				histogram.getPercentile(50), histogram.getPercentile(90), histogram.getPercentile(99), histogram.getMax() ) );
+	}
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		out.println( "Methods with code: " + total.methods + ", corrupted: " + total.corrupted + ", blocks: " + total.blocks.getSum() );
+
+		out.println();
+		out.println("Edges");
+		for (int i=0; i<KINDS.length; ++i) {
+			out.println( String.format( "  %-12s %10d", KINDS[i], total.edges[i] ) );
+		}
+
+		out.println();
+		out.println("Distributions");
+		printDistribution(out, "blocks", total.blocks);
+		printDistribution(out, "complexity", total.complexities);
+
+		if ( 0 < top ) {
+			total.mostComplex.print(out, "Most complex methods (cyclomatic complexity)", 8);
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.flow.ControlFlowReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 10);
+		options.parseOrExit(args);
+
+		new ControlFlowReport( options.getInt("-top"), System.err ).run( new File( options.getArgument(0) ), options.getInt("-threads") );
+	}// main
+
+}// class.ControlFlowReport
@@ -0,0 +1,334 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.ClassHierarchy;
+import jyzer.analysis.MethodIndex;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.TopList;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.accessflags.AccessFlags;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Classifies the virtual and interface call sites of a directory or a jar file by the class hierarchy: a call is
+ * monomorphic if the concrete subtypes of the referenced class have only one implementation of the called method,
+ * bimorphic if they have two, and megamorphic if more. HotSpot inlines the monomorphic and bimorphic calls with a
+ * type check, but a megamorphic call is a real virtual or interface dispatch, and it stops the inlining (and the
+ * escape analysis of the arguments), so the megamorphic calls in the deepest loops are listed first. The classes and
+ * the methods that are not final, but are not extended or overridden are counted as effectively final, they are
+ * listed with the <code>-final</code> option.</p>
+ *
+ * <p>The location is scanned twice: first the classes are indexed and the hierarchy is built, then the call sites
+ * are classified by the workers of a <code>ClassScanner</code>, every worker counts into its own counters (see
+ * <code>ScanReport</code>). The
+ * classification assumes that every subclass is in the index: the classes of the libraries can be added with the
+ * <code>-index</code> option (it can be repeated), the calls on the classes that are not in the index are counted as
+ * unknown. The profile of a running program can be narrower than the hierarchy: a call with more implementations can
+ * be monomorphic at runtime.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.flow.DevirtualizationReport [-threads n] [-top n] [-final] [-index location]
+ * &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class DevirtualizationReport extends ScanReport<DevirtualizationReport.Counters> {
+
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKEINTERFACE = 0xb9;
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long methods = 0;
+		private long corrupted = 0;
+		private long kinds[][] = new long[2][5];
+		private long megamorphicInLoops[] = new long[2];
+
+		private Map<String, long[]> callees = new HashMap<String, long[]>();
+		private TopList hot = new TopList(top);
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				if ( null != code ) {
+					visitCode(cf, method, code);
+				}
+			}
+		}
+
+		/**
+		 * Classifies the call sites of a method.
+		 */
+		private void visitCode(ClassFile cf, MethodInfo method, CodeAttribute code) {
+			String label = cf.getThisClassName() + "." + method.getNameString() + method.getDescriptorString();
+
+			ControlFlowGraph graph;
+			try {
+				graph = new ControlFlowGraph(code);
+			} catch (CorruptedClassfileException cce) {
+				corrupted++;
+				log.println( label + ": " + cce.getMessage() );
+				return;
+			}
+
+			methods++;
+			LoopNest nest = null;
+			for (int i=0; i<graph.getInstructionCount(); ++i) {
+				int opcode = graph.getInstruction(i).getOpcode();
+				if ( INVOKEVIRTUAL != opcode && INVOKEINTERFACE != opcode ) {
+					continue;
+				}
+
+				String callee = MethodIndex.getReferenceKey( graph.getInstruction(i).getOperands()[0] );
+				if ( null == callee ) {
+					continue;
+				}
+
+				int invoke = ( (INVOKEINTERFACE == opcode) ? 1 : 0 );
+				byte kind = hierarchy.getCallKind(callee);
+				kinds[invoke][kind]++;
+
+				count(callees, callee, 1);
+
+				if ( ClassHierarchy.MEGAMORPHIC == kind ) {
+					if ( null == nest ) {
+						nest = new LoopNest(graph);
+					}
+
+					int depth = nest.getLoopDepthOfInstruction(i);
+					if ( 0 < depth ) {
+						megamorphicInLoops[invoke]++;
+						if ( hot.accepts(depth) ) {
+							hot.add( depth, label + " pc " + graph.getOffset(i) + ": " + ( (1 == invoke) ? "invokeinterface " : "invokevirtual " ) +
+									callee + " (" + hierarchy.getTargets(callee).length + " targets)" );
+						}
+					}
+				}
+			}
+		}// visitCode
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private MethodIndex index;
+	private ClassHierarchy hierarchy;
+	private int top;
+	private boolean listFinal = false;
+	private PrintStream log;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param index the classes of the hierarchy, it should not change later.
+	 * @param top the length of the lists.
+	 * @param log the methods with corrupted code are reported here.
+	 */
+	public DevirtualizationReport(MethodIndex index, int top, PrintStream log) {
+		this.index = index;
+		this.top   = Math.max(0, top);
+		this.log   = log;
+		hierarchy = new ClassHierarchy(index);
+		total = new Counters();
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the class hierarchy of the index. */
+	public ClassHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	// --- Setter methods ------------------------------------------------------------------------------------------------
+
+	/** Sets if the effectively final classes and methods should be listed. */
+	public void setListFinal(boolean listFinal) {
+		this.listFinal = listFinal;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.methods   += counters.methods;
+		total.corrupted += counters.corrupted;
+
+		for (int invoke=0; invoke<2; ++invoke) {
+			for (int kind=0; kind<total.kinds[invoke].length; ++kind) {
+				total.kinds[invoke][kind] += counters.kinds[invoke][kind];
+			}
+			total.megamorphicInLoops[invoke] += counters.megamorphicInLoops[invoke];
+		}
+
+		addCounts(total.callees, counters.callees);
+
+		total.hot.merge(counters.hot);
+	}// merge
+
+	/**
+	 * Returns the sorted names of the effectively final classes of the index.
+	 */
+	public String[] getEffectivelyFinalClasses() {
+		Vector<String> back = new Vector<String>();
+		for (int id=0; id<hierarchy.getTypeCount(); ++id) {
+			if ( hierarchy.isEffectivelyFinal(id) ) {
+				back.add( hierarchy.getName(id) );
+			}
+		}
+
+		String sorted[] = back.toArray( new String[back.size()] );
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Returns the sorted keys of the effectively final methods of the index.
+	 */
+	public String[] getEffectivelyFinalMethods() {
+		Vector<String> back = new Vector<String>();
+		for (MethodIndex.MethodEntry method : index.getMethods()) {
+			if ( hierarchy.isEffectivelyFinal(method) ) {
+				back.add( method.getKey() );
+			}
+		}
+
+		String sorted[] = back.toArray( new String[back.size()] );
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		int classes = 0;
+		int interfaces = 0;
+		int openClasses = 0;
+		for (int id=0; id<hierarchy.getTypeCount(); ++id) {
+			if ( hierarchy.isKnown(id) ) {
+				if ( hierarchy.isInterface(id) ) {
+					interfaces++;
+				} else {
+					classes++;
+					if ( 0 == ( index.getClass( hierarchy.getName(id) ).getAccess() & AccessFlags.ACC_FINAL ) ) {
+						openClasses++;
+					}
+				}
+			}
+		}
+
+		int overridable = 0;
+		for (MethodIndex.MethodEntry method : index.getMethods()) {
+			int id = hierarchy.getId( method.getOwner() );
+			if ( ClassHierarchy.isOverridable(method) && ! hierarchy.isInterface(id) ) {
+				overridable++;
+			}
+		}
+
+		String finalClasses[] = getEffectivelyFinalClasses();
+		String finalMethods[] = getEffectivelyFinalMethods();
+
+		out.println( "Classes: " + classes + ", interfaces: " + interfaces + ", outside the index: " + hierarchy.getExternalCount() );
+		out.println( "Methods with code: " + total.methods + ", corrupted: " + total.corrupted );
+		out.println( "Effectively final classes: " + finalClasses.length + " of " + openClasses + " not final" );
+		out.println( "Effectively final methods: " + finalMethods.length + " of " + overridable + " overridable" );
+
+		out.println();
+		out.println( String.format( "  %-22s %14s %16s", "Call sites", "invokevirtual", "invokeinterface" ) );
+		for (byte kind=ClassHierarchy.MONOMORPHIC; kind<=ClassHierarchy.UNKNOWN; ++kind) {
+			out.println( String.format( "  %-22s %14d %16d", ClassHierarchy.getKindName(kind), total.kinds[0][kind], total.kinds[1][kind] ) );
+		}
+		out.println( String.format( "  %-22s %14d %16d", "megamorphic in loops", total.megamorphicInLoops[0], total.megamorphicInLoops[1] ) );
+
+		if ( 0 < top ) {
+			total.hot.print(out, "Megamorphic calls in the deepest loops (loop depth)", 3);
+
+			TopList polymorphic = new TopList(top);
+			for (Map.Entry<String, long[]> entry : total.callees.entrySet()) {
+				String targets[] = hierarchy.getTargets( entry.getKey() );
+				if ( null != targets && 2 < targets.length ) {
+					polymorphic.add( targets.length, entry.getKey() + " (" + entry.getValue()[0] + " call sites)" );
+				}
+			}
+
+			polymorphic.print(out, "Megamorphic methods with the most targets (number of targets)", 5);
+		}
+
+		if ( listFinal ) {
+			out.println();
+			out.println("Effectively final classes");
+			for (String name : finalClasses) {
+				out.println( "  " + name );
+			}
+
+			out.println();
+			out.println("Effectively final methods");
+			for (String key : finalMethods) {
+				out.println( "  " + key );
+			}
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.flow.DevirtualizationReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 20);
+		options.addFlag("-final");
+		options.addList("-index", "location");
+		options.parseOrExit(args);
+
+		int threads = options.getInt("-threads");
+		File location = new File( options.getArgument(0) );
+		MethodIndex index = collectIndex( location, options.getList("-index"), threads );
+
+		DevirtualizationReport report = new DevirtualizationReport( index, options.getInt("-top"), System.err ); // builds the hierarchy of the index
+		report.setListFinal( options.isSet("-final") );
+		report.run(location, threads);
+	}// main
+
+}// class.DevirtualizationReport
@@ -0,0 +1,705 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import jyzer.analysis.MethodIndex;
+import jyzer.items.ConstantPool;
+import jyzer.items.accessflags.AccessFlags;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>An intraprocedural escape analysis of the objects allocated by the <code>new</code> instructions of a method,
+ * that approximates the escape analysis of the C2 compiler. The allocation sites are followed through the stack
+ * slots and the local variables with a worklist algorithm over the blocks of the control flow graph, and every site
+ * is classified:</p>
+ * <UL>
+ *   <LI><code>NO_ESCAPE</code>: the object doesn't leave the method (it can be scalar replaced if it is not merged
+ *       with other values),
+ *   <LI><code>ARG_ESCAPE</code>: the object is passed to a call that can be inlined (it may be scalar replaced after
+ *       the inlining, if the callee doesn't leak it),
+ *   <LI><code>GLOBAL_ESCAPE</code>: the object is stored into a static field or into a field or an array element of
+ *       an object that escapes, it is returned or thrown, or it is passed to a call that cannot be inlined.
+ * </UL>
+ *
+ * <p>A call can be inlined if the callee is in the index, statically bound (static, private, final, a constructor or
+ * a method of a final class) and not larger than the given inline size. The constructor called on the allocated
+ * object doesn't make it escape if it can be inlined. When different values meet in a slot at a merge point, the
+ * allocation sites involved are marked as merged (not scalar replaceable), and the escapes of the merged value are
+ * added to all of them. A reference loaded from a field or an element of an allocated object is not followed, so the
+ * objects stored into that object are treated as merged: <code>h.v = new Foo(); return h.v;</code> makes the
+ * <code>Foo</code> escape. The constant pool of the method must be the current one.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class EscapeAnalyzer {
+
+	// --- Escape states -------------------------------------------------------------------------------------------------
+
+	/** The object doesn't leave the method. */
+	public static final byte NO_ESCAPE = 0;
+	/** The object is passed to an inlinable call. */
+	public static final byte ARG_ESCAPE = 1;
+	/** The object escapes the method. */
+	public static final byte GLOBAL_ESCAPE = 2;
+
+	private static final String STATES[] = { "NoEscape", "ArgEscape", "GlobalEscape" };
+
+	// --- Values --------------------------------------------------------------------------------------------------------
+
+	/** A reference that is not allocated by the method (a parameter, <code>null</code>, a field, a result). */
+	private static final int OTHER = -1;
+	/** The merge of an allocated object with other values. */
+	private static final int UNKNOWN = -2;
+	/** Not a reference, or not initialized: it cannot be used as a reference, so it doesn't matter at merges. */
+	private static final int EMPTY = -3;
+
+	/** The only constructor that is known without an index. */
+	private static final String OBJECT_INIT = "java.lang.Object.<init>()V";
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ControlFlowGraph graph;
+	private MethodIndex index;
+	private int inlineSize;
+	private int maxStack;
+	private int maxLocals;
+
+	// the allocation sites
+	private int siteCount = 0;
+	private int siteOfInstruction[];
+	private int siteInstructions[];
+	private byte states[];
+	private String reasons[];
+	private boolean merged[];
+	private int containers[];
+	private boolean loadedFrom[];
+	private boolean unknownLoaded = false;
+	private byte unknownState = NO_ESCAPE;
+	private String unknownReason;
+	private boolean analyzed = true;
+
+	// the entry frames of the blocks
+	private int entryDepths[];
+	private int entryStacks[];
+	private int entryLocals[];
+
+	// the current frame
+	private int stack[];
+	private int sp;
+	private int locals[];
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Analyzes the allocations of a method.
+	 *
+	 * @param method the analyzed method.
+	 * @param code the code attribute of the method.
+	 * @param graph the control flow graph of the code.
+	 * @param index the classes known for the inlining decisions, or null if none is known.
+	 * @param inlineSize the largest method that is inlined (<code>MaxInlineSize</code> or <code>FreqInlineSize</code>).
+	 */
+	public EscapeAnalyzer(MethodInfo method, CodeAttribute code, ControlFlowGraph graph, MethodIndex index, int inlineSize) {
+		this.graph      = graph;
+		this.index      = index;
+		this.inlineSize = inlineSize;
+		maxStack        = code.getMaxStack();
+		maxLocals       = code.getMaxLocals();
+
+		int n = graph.getInstructionCount();
+		siteOfInstruction = new int[n];
+		for (int i=0; i<n; ++i) {
+			siteOfInstruction[i] = ( (0xbb == graph.getInstruction(i).getOpcode()) ? siteCount++ : -1 );
+		}
+
+		siteInstructions = new int[siteCount];
+		states           = new byte[siteCount];
+		reasons          = new String[siteCount];
+		merged           = new boolean[siteCount];
+		containers       = new int[siteCount];
+		loadedFrom       = new boolean[siteCount];
+		Arrays.fill(containers, -1);
+		for (int i=0; i<n; ++i) {
+			if ( 0 <= siteOfInstruction[i] ) {
+				siteInstructions[ siteOfInstruction[i] ] = i;
+			}
+		}
+
+		if ( 0 == siteCount ) {
+			return;
+		}
+
+		int blocks = graph.getBlockCount();
+		entryDepths = new int[blocks];
+		entryStacks = new int[blocks * maxStack];
+		entryLocals = new int[blocks * maxLocals];
+		Arrays.fill(entryDepths, -1);
+
+		stack = new int[maxStack + 4];
+		locals = new int[maxLocals];
+		Arrays.fill(locals, EMPTY); // only the parameters are set, the rest is never read before it is written
+		int parameters = StackEffects.getArgumentSlots( method.getDescriptorString() );
+		if ( 0 == ( method.getAccessInt() & AccessFlags.ACC_STATIC ) ) {
+			parameters++;
+		}
+		Arrays.fill( locals, 0, Math.min(parameters, maxLocals), OTHER );
+
+		try {
+			merge(0, 0);
+			run();
+		} catch (IllegalStateException ise) {
+			analyzed = false;
+			for (int s=0; s<siteCount; ++s) {
+				escape(s, GLOBAL_ESCAPE, "not analyzed: " + ise.getMessage());
+			}
+		}
+
+		finishStates();
+	}// EscapeAnalyzer(MethodInfo, CodeAttribute, ControlFlowGraph, MethodIndex, int)
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the control flow graph. */
+	public ControlFlowGraph getGraph() {
+		return graph;
+	}
+
+	/** Returns false if the code could not be analyzed (every site is global escape then). */
+	public boolean isAnalyzed() {
+		return analyzed;
+	}
+
+	/** Returns the number of the allocation sites (<code>new</code> instructions). */
+	public int getSiteCount() {
+		return siteCount;
+	}
+
+	/** Returns the index of the instruction of an allocation site. */
+	public int getSiteInstruction(int site) {
+		return siteInstructions[site];
+	}
+
+	/** Returns the offset of an allocation site. */
+	public int getSiteOffset(int site) {
+		return graph.getOffset( siteInstructions[site] );
+	}
+
+	/** Returns the class allocated at a site. The constant pool of the method must be the current one. */
+	public String getSiteType(int site) {
+		return ConstantPool.getClassName( graph.getInstruction( siteInstructions[site] ).getOperands()[0] );
+	}
+
+	/** Returns the escape state of an allocation site. */
+	public byte getEscapeState(int site) {
+		return states[site];
+	}
+
+	/** Returns why the object of a site escapes, or null if it doesn't. */
+	public String getReason(int site) {
+		return reasons[site];
+	}
+
+	/** Returns true if the object of a site is merged with other values somewhere. */
+	public boolean isMerged(int site) {
+		return merged[site];
+	}
+
+	/** Returns true if the object of a site can likely be scalar replaced: it doesn't escape and it is not merged. */
+	public boolean isScalarReplaceable(int site) {
+		return ( NO_ESCAPE == states[site] && ! merged[site] );
+	}
+
+	/** Returns the name of an escape state. */
+	public static String getStateName(byte state) {
+		return STATES[state];
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Raises the escape state of a value.
+	 */
+	private void escape(int value, byte state, String reason) {
+		if ( 0 <= value ) {
+			if ( state > states[value] ) {
+				states[value] = state;
+				reasons[value] = reason;
+			}
+		} else if ( UNKNOWN == value && state > unknownState ) {
+			unknownState = state;
+			unknownReason = reason;
+		}
+	}
+
+	/**
+	 * Adds the escapes of the merged values to the merged sites, and the escapes of the containers to the objects
+	 * stored into them. The objects stored into an object that a reference is loaded from are merged sites too.
+	 */
+	private void finishStates() {
+		boolean changed = true;
+		while ( changed ) {
+			changed = false;
+			for (int s=0; s<siteCount; ++s) {
+				int container = containers[s];
+				if ( 0 <= container && ! merged[s] && ( loadedFrom[container] || ( unknownLoaded && merged[container] ) ) ) {
+					merged[s] = true;
+					changed = true;
+				}
+			}
+		}
+
+		for (int s=0; s<siteCount; ++s) {
+			if ( merged[s] ) {
+				escape( s, unknownState, ( (null == unknownReason) ? null : unknownReason + " (after a merge)" ) );
+			}
+		}
+
+		changed = true;
+		while ( changed ) {
+			changed = false;
+			for (int s=0; s<siteCount; ++s) {
+				int container = containers[s];
+				if ( 0 <= container && states[container] > states[s] ) {
+					escape( s, states[container], "stored into the object allocated at pc " + getSiteOffset(container) );
+					changed = true;
+				}
+			}
+		}
+	}// finishStates
+
+	/**
+	 * Merges two values of a slot.
+	 */
+	private int join(int a, int b) {
+		if ( a == b || EMPTY == b ) {
+			return a;
+		}
+		if ( EMPTY == a ) {
+			return b;
+		}
+
+		if ( 0 <= a ) {
+			merged[a] = true;
+		}
+		if ( 0 <= b ) {
+			merged[b] = true;
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Merges the current frame (with the given depth) into the entry frame of a block.
+	 *
+	 * @return true if the entry frame was changed.
+	 */
+	private boolean merge(int block, int depth) {
+		int stackBase = block * maxStack;
+		int localsBase = block * maxLocals;
+
+		if ( -1 == entryDepths[block] ) {
+			entryDepths[block] = depth;
+			System.arraycopy(stack, 0, entryStacks, stackBase, depth);
+			System.arraycopy(locals, 0, entryLocals, localsBase, maxLocals);
+			return true;
+		}
+
+		if ( entryDepths[block] != depth ) {
+			throw new IllegalStateException( "inconsistent stack depth at pc " + graph.getStartOffset(block) );
+		}
+
+		boolean changed = false;
+		for (int i=0; i<depth; ++i) {
+			int value = join( entryStacks[stackBase + i], stack[i] );
+			if ( value != entryStacks[stackBase + i] ) {
+				entryStacks[stackBase + i] = value;
+				changed = true;
+			}
+		}
+		for (int i=0; i<maxLocals; ++i) {
+			int value = join( entryLocals[localsBase + i], locals[i] );
+			if ( value != entryLocals[localsBase + i] ) {
+				entryLocals[localsBase + i] = value;
+				changed = true;
+			}
+		}
+
+		return changed;
+	}// merge
+
+	/**
+	 * Merges the local variables into the handlers of a block, with the exception on the stack.
+	 */
+	private void mergeHandlers(int block, int queue[], int queueSize[], BitSet queued) {
+		for (int i=0; i<graph.getSuccessorCount(block); ++i) {
+			if ( ControlFlowGraph.EXCEPTION == graph.getSuccessorKind(block, i) ) {
+				int saved = stack[0];
+				stack[0] = OTHER;
+				enqueue( graph.getSuccessor(block, i), 1, queue, queueSize, queued );
+				stack[0] = saved;
+			}
+		}
+	}
+
+	/**
+	 * Merges the current frame into a block, and puts the block into the queue if its entry was changed.
+	 */
+	private void enqueue(int block, int depth, int queue[], int queueSize[], BitSet queued) {
+		if ( merge(block, depth) && ! queued.get(block) ) {
+			queued.set(block);
+			queue[ queueSize[0]++ ] = block;
+		}
+	}
+
+	/**
+	 * Runs the worklist algorithm until the entry frames don't change.
+	 */
+	private void run() {
+		int blocks = graph.getBlockCount();
+		int queue[] = new int[blocks];
+		int queueSize[] = { 0 };
+		BitSet queued = new BitSet(blocks);
+
+		queue[ queueSize[0]++ ] = 0;
+		queued.set(0);
+
+		while ( 0 < queueSize[0] ) {
+			int block = queue[ --queueSize[0] ];
+			queued.clear(block);
+
+			sp = entryDepths[block];
+			System.arraycopy(entryStacks, block * maxStack, stack, 0, sp);
+			System.arraycopy(entryLocals, block * maxLocals, locals, 0, maxLocals);
+			mergeHandlers(block, queue, queueSize, queued);
+
+			int last = graph.getLastInstruction(block);
+			int depthBefore = sp;
+			for (int i=graph.getFirstInstruction(block); i<=last; ++i) {
+				depthBefore = sp;
+				execute(i);
+
+				int opcode = graph.getInstruction(i).getOpcode();
+				if ( ( 0x36 <= opcode && opcode <= 0x4e ) || Instructions.WIDE == opcode ) {
+					mergeHandlers(block, queue, queueSize, queued);
+				}
+			}
+
+			boolean jsr = Instructions.isJsr( graph.getInstruction(last).getOpcode() );
+			for (int i=0; i<graph.getSuccessorCount(block); ++i) {
+				byte kind = graph.getSuccessorKind(block, i);
+				if ( ControlFlowGraph.EXCEPTION != kind ) {
+					enqueue( graph.getSuccessor(block, i), ( (jsr && ControlFlowGraph.FALLTHROUGH == kind) ? depthBefore : sp ), queue, queueSize, queued );
+				}
+			}
+		}
+	}// run
+
+	/** Pops a slot. */
+	private int pop() {
+		if ( 0 == sp ) {
+			throw new IllegalStateException("stack underflow");
+		}
+		return stack[--sp];
+	}
+
+	/** Pushes a slot. */
+	private void push(int value) {
+		if ( sp == maxStack ) {
+			throw new IllegalStateException("max_stack exceeded");
+		}
+		stack[sp++] = value;
+	}
+
+	/** Checks a local variable index. */
+	private int local(int index, int width) {
+		if ( index + width > maxLocals ) {
+			throw new IllegalStateException("local variable out of max_locals");
+		}
+		return index;
+	}
+
+	/**
+	 * Executes an instruction on the current frame.
+	 */
+	private void execute(int i) {
+		CodeInstruction ci = graph.getInstruction(i);
+		int opcode = ci.getOpcode();
+		int operands[] = ci.getOperands();
+
+		if ( 0xbb == opcode ) {                                           // new
+			push( siteOfInstruction[i] );
+		} else if ( 0x01 == opcode ) {                                    // aconst_null
+			push(OTHER);
+		} else if ( 0x19 == opcode ) {                                    // aload
+			push( locals[ local(operands[0], 1) ] );
+		} else if ( 0x2a <= opcode && opcode <= 0x2d ) {                  // aload_<n>
+			push( locals[ local(opcode - 0x2a, 1) ] );
+		} else if ( 0x3a == opcode ) {                                    // astore
+			store( operands[0], pop() );
+		} else if ( 0x4b <= opcode && opcode <= 0x4e ) {                  // astore_<n>
+			store( opcode - 0x4b, pop() );
+		} else if ( 0x36 <= opcode && opcode <= 0x4a ) {                  // the other stores
+			int slots = StackEffects.getPopCount(ci);
+			popValue(slots);
+			storePrimitive( ( (0x36 <= opcode && opcode <= 0x39) ? operands[0] : (opcode - 0x3b) % 4 ), slots );
+		} else if ( Instructions.WIDE == opcode ) {
+			executeWide(ci, operands);
+		} else if ( 0x57 <= opcode && opcode <= 0x5f ) {                  // pop, dup, swap
+			executeStackInstruction(opcode);
+		} else if ( 0xc0 == opcode ) {                                    // checkcast
+			push( pop() );
+		} else if ( 0xb4 == opcode ) {                                    // getfield
+			int object = pop();
+			String descriptor = StackEffects.getReferenceDescriptor(ci);
+			if ( null == descriptor ) {
+				throw new IllegalStateException("wrong field reference");
+			}
+			char type = descriptor.charAt(0);
+			if ( 'L' == type || '[' == type ) {
+				push( load(object) );
+			} else {
+				for (int p=0; p<StackEffects.getTypeSlots(descriptor, 0); ++p) {
+					push(EMPTY);
+				}
+			}
+		} else if ( 0x32 == opcode ) {                                    // aaload
+			pop();
+			push( load( pop() ) );
+		} else if ( 0xb5 == opcode ) {                                    // putfield
+			int slots = StackEffects.getPopCount(ci) - 1;
+			int value = popValue(slots);
+			int object = pop();
+			storeInto(value, object, "stored into a field");
+		} else if ( 0xb3 == opcode ) {                                    // putstatic
+			escape( popValue( StackEffects.getPopCount(ci) ), GLOBAL_ESCAPE, "stored into a static field" );
+		} else if ( 0x53 == opcode ) {                                    // aastore
+			int value = pop();
+			pop();
+			storeInto(value, pop(), "stored into an array");
+		} else if ( 0xb0 == opcode ) {                                    // areturn
+			escape( pop(), GLOBAL_ESCAPE, "returned" );
+		} else if ( Instructions.ATHROW == opcode ) {
+			escape( pop(), GLOBAL_ESCAPE, "thrown" );
+		} else if ( MethodIndex.isInvoke(opcode) ) {
+			invoke(ci);
+		} else {
+			int pops = StackEffects.getPopCount(ci);
+			int pushes = StackEffects.getPushCount(ci);
+			if ( pops < 0 || pushes < 0 ) {
+				throw new IllegalStateException( "unsupported instruction " + ci.getMnemonic() );
+			}
+
+			for (int p=0; p<pops; ++p) {
+				pop();
+			}
+
+			// the reference results (field loads, array elements, new arrays) are not followed
+			int result = ( isReferenceResult(opcode) ? OTHER : EMPTY );
+			for (int p=0; p<pushes; ++p) {
+				push(result);
+			}
+		}
+	}// execute
+
+	/** Returns true if the instruction pushes a reference that is not followed. */
+	private static boolean isReferenceResult(int opcode) {
+		return ( ( 0x12 <= opcode && opcode <= 0x13 ) || ( 0xb2 <= opcode && opcode <= 0xb3 ) ||
+				( 0xbc <= opcode && opcode <= 0xbd ) || 0xc5 == opcode );
+	}
+
+	/** Pops a value of the given number of slots, returns the value of a reference. */
+	private int popValue(int slots) {
+		int value = pop();
+		for (int p=1; p<slots; ++p) {
+			value = pop();
+		}
+		return ( (1 == slots) ? value : EMPTY );
+	}
+
+	/** Stores a reference into a local variable. */
+	private void store(int index, int value) {
+		storePrimitive(index, 1);
+		locals[index] = value;
+	}
+
+	/** Stores a value that is not followed into local variables. */
+	private void storePrimitive(int index, int slots) {
+		local(index, slots);
+		for (int p=0; p<slots; ++p) {
+			locals[index + p] = EMPTY;
+		}
+	}
+
+	/**
+	 * Returns the value of a reference loaded from a field or an element of an object. It may be any object stored
+	 * into an allocated object, so it is unknown, and the stored objects are merged with it in {@link #finishStates}.
+	 */
+	private int load(int object) {
+		if ( 0 <= object ) {
+			loadedFrom[object] = true;
+			return UNKNOWN;
+		}
+		if ( UNKNOWN == object ) {
+			unknownLoaded = true;
+			return UNKNOWN;
+		}
+		return OTHER;
+	}
+
+	/**
+	 * Handles a value stored into a field or an element of an object.
+	 */
+	private void storeInto(int value, int object, String where) {
+		if ( 0 <= value && 0 <= object ) {
+			if ( -1 == containers[value] || object == containers[value] ) {
+				containers[value] = object;
+			} else {
+				escape(value, GLOBAL_ESCAPE, where + " of more objects");
+			}
+		} else {
+			escape(value, GLOBAL_ESCAPE, where + " of an object that is not allocated here");
+		}
+	}
+
+	/**
+	 * Executes a <code>wide</code> instruction.
+	 */
+	private void executeWide(CodeInstruction ci, int operands[]) {
+		int opcode = operands[0];
+		if ( 0x19 == opcode ) {
+			push( locals[ local(operands[1], 1) ] );
+		} else if ( 0x3a == opcode ) {
+			store( operands[1], pop() );
+		} else if ( 0x36 <= opcode && opcode <= 0x39 ) {
+			int slots = StackEffects.getPopCount(ci);
+			popValue(slots);
+			storePrimitive(operands[1], slots);
+		} else if ( 0x15 <= opcode && opcode <= 0x18 ) {
+			for (int p=0; p<StackEffects.getPushCount(ci); ++p) {
+				push(EMPTY);
+			}
+		}
+	}
+
+	/**
+	 * Executes the <code>pop</code>, <code>dup</code> and <code>swap</code> instructions on the slots.
+	 */
+	private void executeStackInstruction(int opcode) {
+		int count;
+		int skip;
+
+		switch (opcode) {
+			case 0x57: pop(); return;
+			case 0x58: pop(); pop(); return;
+			case 0x59: count = 1; skip = 0; break;
+			case 0x5a: count = 1; skip = 1; break;
+			case 0x5b: count = 1; skip = 2; break;
+			case 0x5c: count = 2; skip = 0; break;
+			case 0x5d: count = 2; skip = 1; break;
+			case 0x5e: count = 2; skip = 2; break;
+			default: {
+				int a = pop();
+				int b = pop();
+				push(a);
+				push(b);
+				return;
+			}
+		}
+
+		if ( sp < count + skip ) {
+			throw new IllegalStateException("stack underflow");
+		}
+		if ( sp + count > maxStack ) {
+			throw new IllegalStateException("max_stack exceeded");
+		}
+
+		for (int i=sp-1; i>=sp-count-skip; --i) {
+			stack[i + count] = stack[i];
+		}
+		for (int i=0; i<count; ++i) {
+			stack[sp - count - skip + i] = stack[sp + i];
+		}
+		sp += count;
+	}// executeStackInstruction
+
+	/**
+	 * Executes an invoke instruction: the arguments escape into the callee.
+	 */
+	private void invoke(CodeInstruction ci) {
+		String key = MethodIndex.getReferenceKey( ci.getOperands()[0] );
+		int pops = StackEffects.getPopCount(ci);
+		int pushes = StackEffects.getPushCount(ci);
+		if ( null == key || pops < 0 || pushes < 0 ) {
+			throw new IllegalStateException("wrong method reference");
+		}
+
+		boolean inlinable = isInlinable( key, ci.getOpcode() );
+		boolean constructor = ( 0xb7 == ci.getOpcode() && 0 < key.indexOf(".<init>(") );
+
+		for (int p=pops-1; p>=0; --p) {
+			int value = pop();
+			if ( constructor && 0 == p && inlinable ) {
+				continue; // the inlined constructor of the object
+			}
+
+			if ( inlinable ) {
+				escape(value, ARG_ESCAPE, "passed to " + key);
+			} else {
+				escape(value, GLOBAL_ESCAPE, "passed to " + key + ", that is not inlinable");
+			}
+		}
+
+		char returnType = key.charAt( key.lastIndexOf(')') + 1 );
+		int result = ( ( 'L' == returnType || '[' == returnType ) ? OTHER : EMPTY );
+		for (int p=0; p<pushes; ++p) {
+			push(result);
+		}
+	}// invoke
+
+	/**
+	 * Returns true if the called method is probably inlined.
+	 */
+	private boolean isInlinable(String key, int opcode) {
+		if ( OBJECT_INIT.equals(key) ) {
+			return true;
+		}
+		if ( null == index ) {
+			return false;
+		}
+
+		MethodIndex.MethodEntry callee = index.resolve(key);
+		if ( null == callee || callee.getCodeLength() < 0 || callee.getCodeLength() > inlineSize ) {
+			return false;
+		}
+
+		if ( 0xb8 == opcode || 0xb7 == opcode ) {
+			return true; // static and special calls are bound statically
+		}
+
+		int bound = AccessFlags.ACC_FINAL | AccessFlags.ACC_PRIVATE;
+		MethodIndex.ClassEntry owner = index.getClass( callee.getOwner() );
+		return ( 0 != ( callee.getAccess() & bound ) || ( null != owner && 0 != ( owner.getAccess() & AccessFlags.ACC_FINAL ) ) );
+	}
+
+}// class.EscapeAnalyzer
@@ -0,0 +1,258 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+import jyzer.ClassFile;
+import jyzer.analysis.InliningReport;
+import jyzer.analysis.MethodIndex;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.TopList;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Runs the escape analysis on every method of a directory or a jar file, and reports which allocations the C2
+ * compiler can likely scalar replace: the ones that don't escape and are not merged with other values, the ones in
+ * the deepest loops first. The ones that are passed only to inlinable calls are candidates too, if the callees don't
+ * leak them. The allocations that escape globally from loops are listed with the reason too. The
+ * location is scanned twice: first the methods are indexed for the inlining decisions, then the methods are
+ * analyzed by the workers of a <code>ClassScanner</code>, every worker counts into its own counters (see
+ * <code>ScanReport</code>).</p>
+ *
+ * <p>The callees that are not in the location are not inlinable, so the allocations passed to the library escape
+ * globally, unless the library is added to the index with the <code>-index</code> option (it can be repeated). This
+ * is only an estimation: C2 decides on the profile, and it inlines virtual calls too if the profile
+ * shows only one receiver type.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.flow.EscapeReport [-threads n] [-top n] [-hot] [-max-inline-size n]
+ * [-index location] &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class EscapeReport extends ScanReport<EscapeReport.Counters> {
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long methods = 0;
+		private long corrupted = 0;
+		private long notAnalyzed = 0;
+		private long sites = 0;
+		private long states[] = new long[3];
+		private long merged = 0;
+		private long replaceable = 0;
+		private long replaceableInLoops = 0;
+		private long afterInlining = 0;
+
+		private Map<String, long[]> reasons = new HashMap<String, long[]>();
+		private TopList candidates = new TopList(top);
+		private TopList escapingInLoops = new TopList(top);
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				if ( null != code ) {
+					visitCode(cf, method, code);
+				}
+			}
+		}
+
+		/**
+		 * Analyzes the allocations of a method.
+		 */
+		private void visitCode(ClassFile cf, MethodInfo method, CodeAttribute code) {
+			String label = cf.getThisClassName() + "." + method.getNameString() + method.getDescriptorString();
+
+			ControlFlowGraph graph;
+			try {
+				graph = new ControlFlowGraph(code);
+			} catch (CorruptedClassfileException cce) {
+				corrupted++;
+				log.println( label + ": " + cce.getMessage() );
+				return;
+			}
+
+			methods++;
+			EscapeAnalyzer analyzer = new EscapeAnalyzer(method, code, graph, index, inlineSize);
+			if ( 0 == analyzer.getSiteCount() ) {
+				return;
+			}
+
+			if ( ! analyzer.isAnalyzed() ) {
+				notAnalyzed++;
+				log.println( label + ": " + analyzer.getReason(0) );
+			}
+
+			LoopNest nest = new LoopNest(graph);
+			for (int s=0; s<analyzer.getSiteCount(); ++s) {
+				byte state = analyzer.getEscapeState(s);
+				int depth = nest.getLoopDepthOfInstruction( analyzer.getSiteInstruction(s) );
+				String site = label + " pc " + analyzer.getSiteOffset(s) + ": " + analyzer.getSiteType(s);
+
+				sites++;
+				states[state]++;
+				if ( analyzer.isMerged(s) ) {
+					merged++;
+				}
+
+				if ( analyzer.isScalarReplaceable(s) ) {
+					replaceable++;
+					if ( 0 < depth ) {
+						replaceableInLoops++;
+					}
+					if ( candidates.accepts(depth) ) {
+						candidates.add(depth, site);
+					}
+				} else if ( EscapeAnalyzer.ARG_ESCAPE == state && ! analyzer.isMerged(s) ) {
+					afterInlining++;
+					if ( candidates.accepts(depth) ) {
+						candidates.add( depth, site + " (if " + analyzer.getReason(s).substring( "passed to ".length() ) + " doesn't leak it)" );
+					}
+				} else if ( EscapeAnalyzer.GLOBAL_ESCAPE == state && 0 < depth && escapingInLoops.accepts(depth) ) {
+					escapingInLoops.add( depth, site + " (" + analyzer.getReason(s) + ")" );
+				}
+
+				if ( null != analyzer.getReason(s) ) {
+					count( reasons, analyzer.getReason(s), 1 );
+				}
+			}
+		}// visitCode
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private MethodIndex index;
+	private int inlineSize;
+	private int top;
+	private PrintStream log;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param index the methods known for the inlining decisions.
+	 * @param inlineSize the largest method that is inlined.
+	 * @param top the length of the lists.
+	 * @param log the methods with corrupted code are reported here.
+	 */
+	public EscapeReport(MethodIndex index, int inlineSize, int top, PrintStream log) {
+		this.index      = index;
+		this.inlineSize = inlineSize;
+		this.top        = Math.max(0, top);
+		this.log        = log;
+		total = new Counters();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.methods            += counters.methods;
+		total.corrupted          += counters.corrupted;
+		total.notAnalyzed        += counters.notAnalyzed;
+		total.sites              += counters.sites;
+		total.merged             += counters.merged;
+		total.replaceable        += counters.replaceable;
+		total.replaceableInLoops += counters.replaceableInLoops;
+		total.afterInlining      += counters.afterInlining;
+
+		for (int i=0; i<total.states.length; ++i) {
+			total.states[i] += counters.states[i];
+		}
+
+		addCounts(total.reasons, counters.reasons);
+
+		total.candidates.merge(counters.candidates);
+		total.escapingInLoops.merge(counters.escapingInLoops);
+	}// merge
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		out.println( "Methods with code: " + total.methods + ", corrupted: " + total.corrupted + ", not analyzed: " + total.notAnalyzed );
+		out.println( "Inline size: " + inlineSize );
+
+		out.println();
+		out.println( "Allocation sites (new):        " + total.sites );
+		for (byte state=EscapeAnalyzer.NO_ESCAPE; state<=EscapeAnalyzer.GLOBAL_ESCAPE; ++state) {
+			out.println( String.format( "  %-28s %8d", EscapeAnalyzer.getStateName(state), total.states[state] ) );
+		}
+		out.println( String.format( "  %-28s %8d", "merged with other values", total.merged ) );
+		out.println( String.format( "  %-28s %8d", "scalar replaceable", total.replaceable ) );
+		out.println( String.format( "  %-28s %8d", "scalar replaceable in loops", total.replaceableInLoops ) );
+		out.println( String.format( "  %-28s %8d", "maybe after inlining", total.afterInlining ) );
+
+		if ( 0 < top ) {
+			TopList reasons = new TopList(top);
+			for (Map.Entry<String, long[]> entry : total.reasons.entrySet()) {
+				reasons.add( entry.getValue()[0], entry.getKey() );
+			}
+			reasons.print(out, "Most frequent reasons of the escapes", 8);
+			total.candidates.print(out, "Scalar replacement candidates in the deepest loops (loop depth)", 3);
+			total.escapingInLoops.print(out, "Allocations escaping globally from the deepest loops (loop depth)", 3);
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.flow.EscapeReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 20);
+		options.addFlag("-hot");
+		options.addInt("-max-inline-size", -1);
+		options.addList("-index", "location");
+		options.parseOrExit(args);
+
+		int threads = options.getInt("-threads");
+		int inlineSize = options.getInt("-max-inline-size");
+		if ( inlineSize < 0 ) {
+			inlineSize = ( options.isSet("-hot") ? InliningReport.FREQ_INLINE_SIZE : InliningReport.MAX_INLINE_SIZE );
+		}
+
+		File location = new File( options.getArgument(0) );
+		MethodIndex index = collectIndex( location, options.getList("-index"), threads );
+		new EscapeReport( index, inlineSize, options.getInt("-top"), System.err ).run(location, threads);
+	}// main
+
+}// class.EscapeReport
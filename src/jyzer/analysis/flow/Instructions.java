@@ -0,0 +1,139 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+
+/**
+ * Classifies the instructions by their effect on the control flow, and decodes their jump targets.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class Instructions {
+
+	// --- Opcodes -------------------------------------------------------------------------------------------------------
+
+	public static final int GOTO         = 0xa7;
+	public static final int JSR          = 0xa8;
+	public static final int RET          = 0xa9;
+	public static final int TABLESWITCH  = 0xaa;
+	public static final int LOOKUPSWITCH = 0xab;
+	public static final int ATHROW       = 0xbf;
+	public static final int WIDE         = 0xc4;
+	public static final int GOTO_W       = 0xc8;
+	public static final int JSR_W        = 0xc9;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * First of all - prevent anyone to create any instance of this class.
+	 */
+	private Instructions() {
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/** Returns true for the <code>if&lt;cond&gt;</code>, <code>if_icmp</code>, <code>if_acmp</code>, <code>ifnull</code> and <code>ifnonnull</code> instructions. */
+	public static boolean isConditionalBranch(int opcode) {
+		return ( ( 0x99 <= opcode && opcode <= 0xa6 ) || 0xc6 == opcode || 0xc7 == opcode );
+	}
+
+	/** Returns true for the <code>goto</code> and <code>goto_w</code> instructions. */
+	public static boolean isGoto(int opcode) {
+		return ( GOTO == opcode || GOTO_W == opcode );
+	}
+
+	/** Returns true for the <code>jsr</code> and <code>jsr_w</code> instructions. */
+	public static boolean isJsr(int opcode) {
+		return ( JSR == opcode || JSR_W == opcode );
+	}
+
+	/** Returns true for the <code>tableswitch</code> and <code>lookupswitch</code> instructions. */
+	public static boolean isSwitch(int opcode) {
+		return ( TABLESWITCH == opcode || LOOKUPSWITCH == opcode );
+	}
+
+	/** Returns true for the <code>&lt;t&gt;return</code> instructions. */
+	public static boolean isReturn(int opcode) {
+		return ( 0xac <= opcode && opcode <= 0xb1 );
+	}
+
+	/** Returns true for the <code>ret</code> and the <code>wide ret</code> instructions. */
+	public static boolean isRet(CodeInstruction ci) {
+		return ( RET == ci.getOpcode() || ( WIDE == ci.getOpcode() && RET == ci.getOperands()[0] ) );
+	}
+
+	/**
+	 * Returns true if the execution never continues with the next instruction after the given one (jumps, switches,
+	 * returns, <code>athrow</code> and <code>ret</code>). The <code>jsr</code> is not one of them: the subroutine
+	 * returns to the next instruction.
+	 */
+	public static boolean isUnconditionalTransfer(CodeInstruction ci) {
+		int opcode = ci.getOpcode();
+		return ( isGoto(opcode) || isSwitch(opcode) || isReturn(opcode) || ATHROW == opcode || isRet(ci) );
+	}
+
+	/**
+	 * Returns true if the block has to end after the given instruction.
+	 */
+	public static boolean endsBlock(CodeInstruction ci) {
+		int opcode = ci.getOpcode();
+		return ( isConditionalBranch(opcode) || isJsr(opcode) || isUnconditionalTransfer(ci) );
+	}
+
+	/**
+	 * Returns the jump target of a branch, <code>goto</code> or <code>jsr</code> instruction (the offsets are stored
+	 * unsigned by the parser, the short ones have to be sign extended).
+	 *
+	 * @param ci a branch instruction.
+	 * @return the offset of the target in the code.
+	 */
+	public static int getBranchTarget(CodeInstruction ci) {
+		int operand = ci.getOperands()[0];
+		int opcode = ci.getOpcode();
+
+		return ci.getOffset() + ( ( GOTO_W == opcode || JSR_W == opcode ) ? operand : (short) operand );
+	}
+
+	/**
+	 * Returns the number of the jump targets of a switch, the default one included.
+	 */
+	public static int getSwitchTargetCount(CodeInstruction ci) {
+		int operands = ci.getOperands().length;
+		return 1 + ( ( TABLESWITCH == ci.getOpcode() ) ? operands : operands / 2 );
+	}
+
+	/**
+	 * Returns a jump target of a switch.
+	 *
+	 * @param ci a <code>tableswitch</code> or <code>lookupswitch</code> instruction.
+	 * @param index 0 for the default target, 1 .. <code>getSwitchTargetCount() - 1</code> for the others.
+	 * @return the offset of the target in the code.
+	 */
+	public static int getSwitchTarget(CodeInstruction ci, int index) {
+		if ( 0 == index ) {
+			return ci.getOffset() + ci.getDefaultOffset();
+		}
+
+		int operands[] = ci.getOperands();
+		return ci.getOffset() + ( ( TABLESWITCH == ci.getOpcode() ) ? operands[index - 1] : operands[2 * index - 1] );
+	}
+
+}// class.Instructions
@@ -0,0 +1,708 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.MethodIndex;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.TopList;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.accessflags.AccessFlags;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantClassInfo;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Reports the usage of the monitors in a directory or a jar file: the synchronized methods and blocks, the objects
+ * they lock on, the calls made while a monitor is held, the order in which the locks are acquired (with the cycles
+ * of the order, that are potential deadlocks), and the writes of the volatile fields.</p>
+ *
+ * <p>The monitors held at every instruction are followed over the control flow graph of the method. The locked
+ * object is recognized from the instruction that pushes it before the <code>monitorenter</code>: <code>this</code>,
+ * a class literal (<code>ldc</code> or the <code>class$</code> field of the older compilers) or a field. Locks of
+ * fields are identified by the field, not by the object, so the locks of different instances of a class are the
+ * same here; the objects in local variables and the results of calls are not identified, they are left out of the
+ * lock order.</p>
+ *
+ * <p>The location is scanned twice: first the methods are indexed for the call edges, then the methods are
+ * analyzed by the workers of a <code>ClassScanner</code>, every worker into its own counters (see
+ * <code>ScanReport</code>). At the end the locks
+ * acquired by the methods are propagated to their callers along the edges of the invoke instructions (the callee is
+ * the method of the referenced class or of its nearest superclass, the overriding methods are not considered), and
+ * a call made while holding a lock adds an edge from that lock to all the locks the callee may acquire.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.flow.LockReport [-threads n] [-top n] &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LockReport extends ScanReport<LockReport.Counters> {
+
+	/** The opcode of <code>monitorenter</code>. */
+	public static final int MONITORENTER = 0xc2;
+	/** The opcode of <code>monitorexit</code>. */
+	public static final int MONITOREXIT = 0xc3;
+
+	/** The labels of the locks that are not identified start with this. */
+	private static final String UNKNOWN = "?";
+
+	/** The state of a method that holds no monitor. */
+	private static final String NOTHING_HELD[] = new String[0];
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long methods = 0;
+		private long corrupted = 0;
+		private long synchronizedMethods = 0;
+		private long staticSynchronizedMethods = 0;
+		private long monitorEnters = 0;
+		private long monitorExits = 0;
+		private long callsUnderLock = 0;
+		private long volatileWrites = 0;
+
+		private Map<String, long[]> locks = new HashMap<String, long[]>();
+		private Map<String, long[]> calleesUnderLock = new HashMap<String, long[]>();
+		private TopList methodsUnderLock = new TopList(top);
+
+		private Map<String, Set<String>> directLocks = new HashMap<String, Set<String>>();
+		private Map<String, String> lockEdges = new HashMap<String, String>();
+		private Vector<String[]> lockedCalls = new Vector<String[]>();
+
+		private Set<String> volatileFields = new HashSet<String>();
+		private Map<String, long[]> fieldWrites = new HashMap<String, long[]>();
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			String name = cf.getThisClassName();
+
+			for (FieldInfo field : cf.getFieldItem().getFields()) {
+				if ( 0 != ( field.getAccessInt() & AccessFlags.ACC_VOLATILE ) ) {
+					volatileFields.add( name + "." + field.getNameString() );
+				}
+			}
+
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				boolean isStatic = ( 0 != ( method.getAccessInt() & AccessFlags.ACC_STATIC ) );
+				String lock = null;
+				if ( 0 != ( method.getAccessInt() & AccessFlags.ACC_SYNCHRONIZED ) ) {
+					lock = ( isStatic ? name + ".class" : name + " (this)" );
+					synchronizedMethods++;
+					if ( isStatic ) {
+						staticSynchronizedMethods++;
+					}
+					count(locks, lock, 1);
+				}
+
+				CodeAttribute code = method.getAttributes().getCode();
+				String key = MethodIndex.getKey( name, method.getNameString(), method.getDescriptorString() );
+				if ( null != lock ) {
+					addDirectLock(key, lock);
+				}
+				if ( null != code ) {
+					visitCode(name, key, isStatic, lock, code);
+				}
+			}
+		}// visitClass
+
+		/** Adds a lock acquired by a method. */
+		private void addDirectLock(String key, String lock) {
+			if ( lock.startsWith(UNKNOWN) ) {
+				return;
+			}
+
+			Set<String> set = directLocks.get(key);
+			if ( null == set ) {
+				directLocks.put( key, set = new HashSet<String>() );
+			}
+			set.add(lock);
+		}
+
+		/**
+		 * Follows the monitors held in a method.
+		 */
+		private void visitCode(String className, String key, boolean isStatic, String methodLock, CodeAttribute code) {
+			ControlFlowGraph graph;
+			try {
+				graph = new ControlFlowGraph(code);
+			} catch (CorruptedClassfileException cce) {
+				corrupted++;
+				log.println( key + ": " + cce.getMessage() );
+				return;
+			}
+
+			methods++;
+			for (int i=0; i<graph.getInstructionCount(); ++i) {
+				CodeInstruction ci = graph.getInstruction(i);
+				if ( 0xb5 == ci.getOpcode() || 0xb3 == ci.getOpcode() ) { // putfield, putstatic
+					count( fieldWrites, getFieldKey( ci.getOperands()[0] ), 1 );
+				}
+			}
+
+			int blocks = graph.getBlockCount();
+			String entries[][] = new String[blocks][];
+			int queue[] = new int[blocks];
+			int queueSize = 0;
+			Map<Integer, Integer> subroutineExits = new HashMap<Integer, Integer>();
+			long calls = 0;
+
+			entries[0] = ( (null == methodLock) ? NOTHING_HELD : new String[] { methodLock } );
+			queue[queueSize++] = 0;
+
+			// every block is processed once: the monitors are structured, so every path brings the same ones
+			while ( 0 < queueSize ) {
+				int block = queue[--queueSize];
+				String held[] = entries[block];
+				String beforeLast[] = held;
+
+				for (int e=0; e<graph.getSuccessorCount(block); ++e) {
+					int successor = graph.getSuccessor(block, e);
+					if ( ControlFlowGraph.EXCEPTION == graph.getSuccessorKind(block, e) && null == entries[successor] ) {
+						entries[successor] = held;
+						queue[queueSize++] = successor;
+					}
+				}
+
+				for (int i=graph.getFirstInstruction(block); i<=graph.getLastInstruction(block); ++i) {
+					CodeInstruction ci = graph.getInstruction(i);
+					int opcode = ci.getOpcode();
+					beforeLast = held;
+
+					if ( MONITORENTER == opcode ) {
+						String lock = getLockLabel(graph, block, i, isStatic, className);
+						monitorEnters++;
+						count(locks, lock, 1);
+						addDirectLock(key, lock);
+
+						if ( ! lock.startsWith(UNKNOWN) ) {
+							for (String outer : held) {
+								if ( ! outer.startsWith(UNKNOWN) && ! outer.equals(lock) ) {
+									addEdge( lockEdges, outer, lock, key + " pc " + ci.getOffset() );
+								}
+							}
+						}
+
+						String next[] = new String[held.length + 1];
+						System.arraycopy(held, 0, next, 0, held.length);
+						next[held.length] = lock;
+						held = next;
+					} else if ( MONITOREXIT == opcode ) {
+						monitorExits++;
+						held = pop(held, 1);
+					} else if ( MethodIndex.isInvoke(opcode) && 0 < held.length ) {
+						String callee = MethodIndex.getReferenceKey( ci.getOperands()[0] );
+						if ( null != callee ) {
+							callsUnderLock++;
+							calls++;
+							count(calleesUnderLock, callee, 1);
+							for (String lock : held) {
+								if ( ! lock.startsWith(UNKNOWN) ) {
+									lockedCalls.add( new String[] { lock, callee, key + " pc " + ci.getOffset() } );
+								}
+							}
+						}
+					}
+				}
+
+				boolean jsr = Instructions.isJsr( graph.getInstruction( graph.getLastInstruction(block) ).getOpcode() );
+				for (int e=0; e<graph.getSuccessorCount(block); ++e) {
+					int successor = graph.getSuccessor(block, e);
+					byte kind = graph.getSuccessorKind(block, e);
+					if ( ControlFlowGraph.EXCEPTION == kind || null != entries[successor] ) {
+						continue;
+					}
+
+					if ( jsr && ControlFlowGraph.FALLTHROUGH == kind ) {
+						// the subroutine of the older compilers releases the monitor before it returns
+						int target = graph.getBlockAt( Instructions.getBranchTarget( graph.getInstruction( graph.getLastInstruction(block) ) ) );
+						entries[successor] = pop( beforeLast, getSubroutineExits(graph, target, subroutineExits) );
+					} else {
+						entries[successor] = held;
+					}
+					queue[queueSize++] = successor;
+				}
+			}
+
+			if ( 0 < calls && methodsUnderLock.accepts(calls) ) {
+				methodsUnderLock.add(calls, key);
+			}
+		}// visitCode
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private MethodIndex index;
+	private int top;
+	private PrintStream log;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param index the methods of the location, for the call edges.
+	 * @param top the length of the lists.
+	 * @param log the methods with corrupted code are reported here.
+	 */
+	public LockReport(MethodIndex index, int top, PrintStream log) {
+		this.index = index;
+		this.top   = Math.max(0, top);
+		this.log   = log;
+		total = new Counters();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/** Adds an edge of the lock order with an example site (the smallest one, so the result doesn't depend on the order). */
+	private static void addEdge(Map<String, String> edges, String from, String to, String site) {
+		String edge = from + "\n" + to;
+		String old = edges.get(edge);
+		if ( null == old || site.compareTo(old) < 0 ) {
+			edges.put(edge, site);
+		}
+	}
+
+	/** Removes the given number of the innermost monitors. */
+	private static String[] pop(String held[], int count) {
+		int length = Math.max(0, held.length - count);
+		if ( length == held.length ) {
+			return held;
+		}
+
+		String back[] = new String[length];
+		System.arraycopy(held, 0, back, 0, length);
+		return back;
+	}
+
+	/**
+	 * Returns the key of the field referenced by the given constant pool index (<code>owner.name</code>).
+	 */
+	private static String getFieldKey(int index) {
+		ConstantPoolInfo info = ConstantPool.getElement(index);
+		if ( ! ( info instanceof AbstractReference ) ) {
+			return UNKNOWN;
+		}
+
+		AbstractReference ref = (AbstractReference) info;
+		ConstantPoolInfo nat = ConstantPool.getElement( ref.getNameAndTypeIndex() );
+		if ( ! ( nat instanceof ConstantNameAndTypeInfo ) ) {
+			return UNKNOWN;
+		}
+
+		return ConstantPool.getClassName( ref.getClassIndex() ) + "." + ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getNameIndex() );
+	}
+
+	/**
+	 * Describes the object pushed by an instruction.
+	 */
+	private static String describe(CodeInstruction ci, boolean isStatic, String className) {
+		int opcode = ci.getOpcode();
+
+		if ( ( 0x2a == opcode || ( 0x19 == opcode && 0 == ci.getOperands()[0] ) ) && ! isStatic ) {
+			return className + " (this)";
+		} else if ( 0x19 == opcode || ( 0x2a <= opcode && opcode <= 0x2d ) ) {
+			return UNKNOWN + " (local variable)";
+		} else if ( 0x12 == opcode || 0x13 == opcode ) {
+			if ( ConstantPool.getElement( ci.getOperands()[0] ) instanceof ConstantClassInfo ) {
+				return ConstantPool.getClassName( ci.getOperands()[0] ) + ".class";
+			}
+		} else if ( 0xb2 <= opcode && opcode <= 0xb4 ) {                 // getstatic, putstatic, getfield
+			String field = getFieldKey( ci.getOperands()[0] );
+			String name = field.substring( field.lastIndexOf('.') + 1 );
+			if ( name.startsWith("class$") ) {                             // Foo.class of the older compilers
+				return name.substring(6).replace('$', '.') + ".class";
+			}
+			return field;
+		} else if ( MethodIndex.isInvoke(opcode) ) {
+			return UNKNOWN + " (method result)";
+		} else if ( 0xbb == opcode ) {
+			return UNKNOWN + " (new object)";
+		}
+
+		return UNKNOWN;
+	}
+
+	/** Returns the index of the instruction before the given one that pushes the object, skipping dup and astore. */
+	private static int skipCopies(ControlFlowGraph graph, int first, int i) {
+		while ( first <= i ) {
+			int opcode = graph.getInstruction(i).getOpcode();
+			if ( 0x59 != opcode && 0x3a != opcode && ( opcode < 0x4b || 0x4e < opcode ) && ! Instructions.isGoto(opcode) ) {
+				break;
+			}
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the label of the object locked by a <code>monitorenter</code>. If it is pushed in the predecessors of the
+	 * block, they must all push the same one.
+	 */
+	private static String getLockLabel(ControlFlowGraph graph, int block, int i, boolean isStatic, String className) {
+		int first = graph.getFirstInstruction(block);
+		int producer = skipCopies(graph, first, i - 1);
+		if ( first <= producer ) {
+			return describe( graph.getInstruction(producer), isStatic, className );
+		}
+
+		String back = null;
+		for (int p=0; p<graph.getPredecessorCount(block); ++p) {
+			int predecessor = graph.getPredecessor(block, p);
+			int from = graph.getFirstInstruction(predecessor);
+			producer = skipCopies( graph, from, graph.getLastInstruction(predecessor) );
+
+			String label = ( (from <= producer) ? describe( graph.getInstruction(producer), isStatic, className ) : UNKNOWN );
+			if ( null != back && ! back.equals(label) ) {
+				return UNKNOWN;
+			}
+			back = label;
+		}
+
+		return ( (null == back) ? UNKNOWN : back );
+	}
+
+	/**
+	 * Returns the number of the <code>monitorexit</code> instructions of a subroutine (the blocks reachable from its
+	 * entry up to the <code>ret</code> instructions).
+	 */
+	private static int getSubroutineExits(ControlFlowGraph graph, int entry, Map<Integer, Integer> cache) {
+		Integer cached = cache.get(entry);
+		if ( null != cached ) {
+			return cached.intValue();
+		}
+
+		int exits = 0;
+		boolean visited[] = new boolean[ graph.getBlockCount() ];
+		int stack[] = new int[ graph.getBlockCount() ];
+		int sp = 0;
+		stack[sp++] = entry;
+		visited[entry] = true;
+
+		while ( 0 < sp ) {
+			int block = stack[--sp];
+			int last = graph.getLastInstruction(block);
+			for (int i=graph.getFirstInstruction(block); i<=last; ++i) {
+				if ( MONITOREXIT == graph.getInstruction(i).getOpcode() ) {
+					exits++;
+				}
+			}
+
+			for (int e=0; e<graph.getSuccessorCount(block); ++e) {
+				int successor = graph.getSuccessor(block, e);
+				if ( ControlFlowGraph.EXCEPTION != graph.getSuccessorKind(block, e) && ! visited[successor] ) {
+					visited[successor] = true;
+					stack[sp++] = successor;
+				}
+			}
+		}
+
+		cache.put( entry, Integer.valueOf(exits) );
+		return exits;
+	}// getSubroutineExits
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.methods                   += counters.methods;
+		total.corrupted                 += counters.corrupted;
+		total.synchronizedMethods       += counters.synchronizedMethods;
+		total.staticSynchronizedMethods += counters.staticSynchronizedMethods;
+		total.monitorEnters             += counters.monitorEnters;
+		total.monitorExits              += counters.monitorExits;
+		total.callsUnderLock            += counters.callsUnderLock;
+
+		addCounts(total.locks, counters.locks);
+		addCounts(total.calleesUnderLock, counters.calleesUnderLock);
+		addCounts(total.fieldWrites, counters.fieldWrites);
+		for (Map.Entry<String, Set<String>> entry : counters.directLocks.entrySet()) {
+			for (String lock : entry.getValue()) {
+				total.addDirectLock( entry.getKey(), lock );
+			}
+		}
+		for (Map.Entry<String, String> entry : counters.lockEdges.entrySet()) {
+			int split = entry.getKey().indexOf('\n');
+			addEdge( total.lockEdges, entry.getKey().substring(0, split), entry.getKey().substring(split + 1), entry.getValue() );
+		}
+
+		total.lockedCalls.addAll(counters.lockedCalls);
+		total.volatileFields.addAll(counters.volatileFields);
+		total.methodsUnderLock.merge(counters.methodsUnderLock);
+	}// merge
+
+	/**
+	 * Returns the locks that may be acquired by the methods, directly or by the methods they call.
+	 */
+	private Map<String, Set<String>> getReachableLocks() {
+		Map<String, Set<String>> callers = new HashMap<String, Set<String>>();
+		for (MethodIndex.MethodEntry method : index.getMethods()) {
+			for (int i=0; i<method.getCallCount(); ++i) {
+				MethodIndex.MethodEntry callee = index.resolve( method.getCallTarget(i) );
+				if ( null != callee ) {
+					Set<String> set = callers.get( callee.getKey() );
+					if ( null == set ) {
+						callers.put( callee.getKey(), set = new HashSet<String>() );
+					}
+					set.add( method.getKey() );
+				}
+			}
+		}
+
+		Map<String, Set<String>> reach = new HashMap<String, Set<String>>();
+		Vector<String> work = new Vector<String>();
+		for (Map.Entry<String, Set<String>> entry : total.directLocks.entrySet()) {
+			reach.put( entry.getKey(), new HashSet<String>( entry.getValue() ) );
+			work.add( entry.getKey() );
+		}
+
+		while ( ! work.isEmpty() ) {
+			String method = work.remove( work.size() - 1 );
+			Set<String> locks = reach.get(method);
+			Set<String> set = callers.get(method);
+			if ( null == set ) {
+				continue;
+			}
+
+			for (String caller : set) {
+				Set<String> callerLocks = reach.get(caller);
+				if ( null == callerLocks ) {
+					reach.put( caller, callerLocks = new HashSet<String>() );
+				}
+				if ( callerLocks.addAll(locks) ) {
+					work.add(caller);
+				}
+			}
+		}
+
+		return reach;
+	}// getReachableLocks
+
+	/**
+	 * Builds the lock order graph: the nested acquisitions, and the locks reachable from the calls made while
+	 * holding a lock.
+	 */
+	private Map<String, Map<String, String>> getLockOrder() {
+		Map<String, String> edges = new HashMap<String, String>(total.lockEdges);
+		Map<String, Set<String>> reach = getReachableLocks();
+
+		for (String call[] : total.lockedCalls) {
+			MethodIndex.MethodEntry callee = index.resolve( call[1] );
+			Set<String> locks = ( (null == callee) ? null : reach.get( callee.getKey() ) );
+			if ( null != locks ) {
+				for (String lock : locks) {
+					if ( ! lock.equals( call[0] ) ) {
+						addEdge( edges, call[0], lock, call[2] + " calls " + call[1] );
+					}
+				}
+			}
+		}
+
+		Map<String, Map<String, String>> graph = new TreeMap<String, Map<String, String>>();
+		for (Map.Entry<String, String> entry : edges.entrySet()) {
+			int split = entry.getKey().indexOf('\n');
+			String from = entry.getKey().substring(0, split);
+			Map<String, String> targets = graph.get(from);
+			if ( null == targets ) {
+				graph.put( from, targets = new TreeMap<String, String>() );
+			}
+			targets.put( entry.getKey().substring(split + 1), entry.getValue() );
+		}
+		return graph;
+	}// getLockOrder
+
+	/**
+	 * Finds the strongly connected components of the lock order with more than one lock (Tarjan's algorithm).
+	 */
+	private static Vector<Set<String>> findCycles(Map<String, Map<String, String>> graph) {
+		Set<String> nodes = new TreeSet<String>( graph.keySet() );
+		for (Map<String, String> targets : graph.values()) {
+			nodes.addAll( targets.keySet() );
+		}
+
+		Map<String, int[]> numbers = new HashMap<String, int[]>(); // index, lowlink, on stack
+		Vector<String> stack = new Vector<String>();
+		Vector<Set<String>> back = new Vector<Set<String>>();
+		int counter[] = { 0 };
+
+		for (String node : nodes) {
+			if ( ! numbers.containsKey(node) ) {
+				connect(node, graph, numbers, stack, back, counter);
+			}
+		}
+		return back;
+	}
+
+	/** The recursive step of Tarjan's algorithm. */
+	private static void connect(String node, Map<String, Map<String, String>> graph, Map<String, int[]> numbers, Vector<String> stack,
+			Vector<Set<String>> components, int counter[]) {
+		int number[] = { counter[0], counter[0], 1 };
+		counter[0]++;
+		numbers.put(node, number);
+		stack.add(node);
+
+		Map<String, String> targets = graph.get(node);
+		if ( null != targets ) {
+			for (String target : targets.keySet()) {
+				int other[] = numbers.get(target);
+				if ( null == other ) {
+					connect(target, graph, numbers, stack, components, counter);
+					number[1] = Math.min( number[1], numbers.get(target)[1] );
+				} else if ( 1 == other[2] ) {
+					number[1] = Math.min( number[1], other[0] );
+				}
+			}
+		}
+
+		if ( number[0] == number[1] ) {
+			Set<String> component = new TreeSet<String>();
+			String member;
+			do {
+				member = stack.remove( stack.size() - 1 );
+				numbers.get(member)[2] = 0;
+				component.add(member);
+			} while ( ! member.equals(node) );
+
+			if ( 1 < component.size() ) {
+				components.add(component);
+			}
+		}
+	}// connect
+
+	/**
+	 * Returns the volatile field declared by the referenced class or by its nearest superclass, or null if the field
+	 * is not volatile.
+	 */
+	private String resolveVolatile(String field) {
+		int dot = field.lastIndexOf('.');
+		String owner = field.substring(0, dot);
+		String name = field.substring(dot);
+
+		while ( null != owner ) {
+			if ( total.volatileFields.contains(owner + name) ) {
+				return owner + name;
+			}
+
+			MethodIndex.ClassEntry entry = index.getClass(owner);
+			owner = ( (null == entry) ? null : entry.getSuperName() );
+		}
+
+		return null;
+	}
+
+	/** Prints the largest counters of a map. */
+	private void printCounts(PrintStream out, String title, Map<String, long[]> counts) {
+		TopList list = new TopList(top);
+		for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+			list.add( entry.getValue()[0], entry.getKey() );
+		}
+		list.print(out, title, 8);
+	}
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		Map<String, long[]> volatileWrites = new HashMap<String, long[]>();
+		long writes = 0;
+		for (Map.Entry<String, long[]> entry : total.fieldWrites.entrySet()) {
+			String field = resolveVolatile( entry.getKey() );
+			if ( null != field ) {
+				count( volatileWrites, field, entry.getValue()[0] );
+				writes += entry.getValue()[0];
+			}
+		}
+
+		Map<String, Map<String, String>> order = getLockOrder();
+		Vector<Set<String>> cycles = findCycles(order);
+		int edges = 0;
+		for (Map<String, String> targets : order.values()) {
+			edges += targets.size();
+		}
+
+		out.println( "Methods with code: " + total.methods + ", corrupted: " + total.corrupted );
+		out.println( "Synchronized methods: " + total.synchronizedMethods + " (static: " + total.staticSynchronizedMethods + ")" );
+		out.println( "Synchronized blocks (monitorenter): " + total.monitorEnters + ", monitorexit: " + total.monitorExits );
+		out.println( "Calls while holding a monitor: " + total.callsUnderLock );
+		out.println( "Lock order edges: " + edges + ", potential deadlock cycles: " + cycles.size() );
+		out.println( "Volatile fields: " + total.volatileFields.size() + ", write sites: " + writes );
+
+		if ( 0 < top ) {
+			printCounts(out, "Most often locked objects (acquisitions)", total.locks);
+			printCounts(out, "Methods called most often while holding a monitor", total.calleesUnderLock);
+			total.methodsUnderLock.print(out, "Methods making the most calls while holding a monitor", 8);
+			printCounts(out, "Volatile fields written at the most sites", volatileWrites);
+		}
+
+		out.println();
+		out.println("Lock order cycles (potential deadlocks)");
+		for (Set<String> cycle : cycles) {
+			out.println( "  " + cycle );
+			for (String from : cycle) {
+				for (Map.Entry<String, String> edge : order.get(from).entrySet()) {
+					if ( cycle.contains( edge.getKey() ) ) {
+						out.println( "    " + from + " -> " + edge.getKey() + ": " + edge.getValue() );
+					}
+				}
+			}
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.flow.LockReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 20);
+		options.parseOrExit(args);
+
+		int threads = options.getInt("-threads");
+		File location = new File( options.getArgument(0) );
+		MethodIndex index = collectIndex( location, new Vector<String>(), threads );
+		new LockReport( index, options.getInt("-top"), System.err ).run(location, threads);
+	}// main
+
+}// class.LockReport
@@ -0,0 +1,377 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.util.BitSet;
+
+/**
+ * <p>The dominator tree and the natural loops of a control flow graph. The immediate dominators are computed with
+ * the iterative algorithm of Cooper, Harvey and Kennedy over the reverse postorder of the blocks. An edge is a back
+ * edge if its target dominates its source and it is not an exception edge (a handler that is covered by its own
+ * range, like the handler of a <code>synchronized</code> block, is not a loop); the body of the loop of a back edge is the header and every block that
+ * reaches the source of the edge without going through the header. The loops with the same header are merged into
+ * one. The nesting depth of a block is the number of the loops that contain it.</p>
+ *
+ * <p>Only the natural loops are found: a cycle that can be entered at more than one block (irreducible control flow,
+ * that is not generated by the Java compilers) is not a loop here.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LoopNest {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ControlFlowGraph graph;
+
+	private int idom[];
+	private int preorder[];
+	private int postorder[];
+
+	private int loopCount = 0;
+	private int backEdgeCount = 0;
+	private int headers[];
+	private BitSet bodies[];
+	private int parents[];
+	private int depths[];
+	private int innermost[];
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Finds the loops of a graph.
+	 *
+	 * @param graph the control flow graph of a method.
+	 */
+	public LoopNest(ControlFlowGraph graph) {
+		this.graph = graph;
+
+		int blocks = graph.getBlockCount();
+		idom      = new int[blocks];
+		preorder  = new int[blocks];
+		postorder = new int[blocks];
+		depths    = new int[blocks];
+		innermost = new int[blocks];
+		java.util.Arrays.fill(idom, -1);
+		java.util.Arrays.fill(innermost, -1);
+
+		if ( 0 < blocks ) {
+			computeDominators();
+			numberDominatorTree();
+			findLoops();
+		}
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the control flow graph. */
+	public ControlFlowGraph getGraph() {
+		return graph;
+	}
+
+	/** Returns the immediate dominator of a block, the entry for the entry block, or -1 for an unreachable block. */
+	public int getImmediateDominator(int block) {
+		return idom[block];
+	}
+
+	/** Returns true if every path from the entry to block <code>b</code> goes through block <code>a</code>. */
+	public boolean dominates(int a, int b) {
+		return ( -1 != idom[a] && -1 != idom[b] && preorder[a] <= preorder[b] && postorder[b] <= postorder[a] );
+	}
+
+	/** Returns true if the block can be reached from the entry. */
+	public boolean isReachable(int block) {
+		return ( -1 != idom[block] );
+	}
+
+	/** Returns the number of the loops. */
+	public int getLoopCount() {
+		return loopCount;
+	}
+
+	/** Returns the number of the back edges. */
+	public int getBackEdgeCount() {
+		return backEdgeCount;
+	}
+
+	/** Returns the header block of a loop. */
+	public int getHeader(int loop) {
+		return headers[loop];
+	}
+
+	/** Returns true if the loop contains the block. */
+	public boolean contains(int loop, int block) {
+		return bodies[loop].get(block);
+	}
+
+	/** Returns the number of the blocks of a loop. */
+	public int getLoopSize(int loop) {
+		return bodies[loop].cardinality();
+	}
+
+	/** Returns the innermost loop that contains the given loop, or -1 for an outermost loop. */
+	public int getParent(int loop) {
+		return parents[loop];
+	}
+
+	/** Returns the innermost loop that contains the block, or -1 if the block is not in a loop. */
+	public int getLoopOfBlock(int block) {
+		return innermost[block];
+	}
+
+	/** Returns the number of the loops that contain the block (0 if it is not in a loop). */
+	public int getLoopDepth(int block) {
+		return depths[block];
+	}
+
+	/** Returns the number of the loops that contain the instruction at the given index. */
+	public int getLoopDepthOfInstruction(int index) {
+		return depths[ graph.getBlockOfInstruction(index) ];
+	}
+
+	/** Returns the largest nesting depth. */
+	public int getMaxLoopDepth() {
+		int back = 0;
+		for (int depth : depths) {
+			back = Math.max(back, depth);
+		}
+
+		return back;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Computes the reverse postorder of the reachable blocks with an explicit stack.
+	 *
+	 * @return the number of the reachable blocks; the order is in <code>order</code>.
+	 */
+	private int reversePostorder(int order[]) {
+		int blocks = graph.getBlockCount();
+		int stack[] = new int[blocks];
+		int next[] = new int[blocks]; // the next successor to visit
+		boolean visited[] = new boolean[blocks];
+		int sp = 0;
+		int count = blocks;
+
+		stack[sp++] = 0;
+		visited[0] = true;
+		while ( 0 < sp ) {
+			int b = stack[sp - 1];
+			if ( next[b] < graph.getSuccessorCount(b) ) {
+				int s = graph.getSuccessor( b, next[b]++ );
+				if ( ! visited[s] ) {
+					visited[s] = true;
+					stack[sp++] = s;
+				}
+			} else {
+				order[--count] = b;
+				sp--;
+			}
+		}
+
+		// the reachable blocks are at the end, move them to the front
+		int reachable = blocks - count;
+		System.arraycopy(order, count, order, 0, reachable);
+		return reachable;
+	}// reversePostorder
+
+	/**
+	 * Computes the immediate dominators.
+	 */
+	private void computeDominators() {
+		int blocks = graph.getBlockCount();
+		int order[] = new int[blocks];
+		int reachable = reversePostorder(order);
+
+		int rpo[] = new int[blocks];
+		for (int i=0; i<reachable; ++i) {
+			rpo[ order[i] ] = i;
+		}
+
+		idom[0] = 0;
+		boolean changed = true;
+		while ( changed ) {
+			changed = false;
+
+			for (int i=1; i<reachable; ++i) {
+				int b = order[i];
+				int newIdom = -1;
+
+				for (int p=0; p<graph.getPredecessorCount(b); ++p) {
+					int pred = graph.getPredecessor(b, p);
+					if ( -1 == idom[pred] ) {
+						continue; // not processed yet, or unreachable
+					}
+
+					newIdom = ( (-1 == newIdom) ? pred : intersect(pred, newIdom, rpo) );
+				}
+
+				if ( idom[b] != newIdom ) {
+					idom[b] = newIdom;
+					changed = true;
+				}
+			}
+		}
+	}// computeDominators
+
+	/**
+	 * Returns the nearest common dominator of two blocks.
+	 */
+	private int intersect(int a, int b, int rpo[]) {
+		while ( a != b ) {
+			while ( rpo[a] > rpo[b] ) {
+				a = idom[a];
+			}
+			while ( rpo[b] > rpo[a] ) {
+				b = idom[b];
+			}
+		}
+
+		return a;
+	}
+
+	/**
+	 * Numbers the dominator tree in preorder and postorder, so the dominance can be checked in constant time.
+	 */
+	private void numberDominatorTree() {
+		int blocks = graph.getBlockCount();
+
+		// the children of the blocks in compressed rows
+		int childStart[] = new int[blocks + 1];
+		for (int b=1; b<blocks; ++b) {
+			if ( -1 != idom[b] ) {
+				childStart[ idom[b] + 1 ]++;
+			}
+		}
+		for (int b=0; b<blocks; ++b) {
+			childStart[b + 1] += childStart[b];
+		}
+		int children[] = new int[ childStart[blocks] ];
+		int fill[] = new int[blocks];
+		System.arraycopy(childStart, 0, fill, 0, blocks);
+		for (int b=1; b<blocks; ++b) {
+			if ( -1 != idom[b] ) {
+				children[ fill[ idom[b] ]++ ] = b;
+			}
+		}
+
+		int stack[] = new int[blocks];
+		int next[] = new int[blocks];
+		int sp = 0;
+		int pre = 0;
+		int post = 0;
+
+		stack[sp++] = 0;
+		preorder[0] = pre++;
+		while ( 0 < sp ) {
+			int b = stack[sp - 1];
+			if ( childStart[b] + next[b] < childStart[b + 1] ) {
+				int child = children[ childStart[b] + next[b]++ ];
+				preorder[child] = pre++;
+				stack[sp++] = child;
+			} else {
+				postorder[b] = post++;
+				sp--;
+			}
+		}
+	}// numberDominatorTree
+
+	/**
+	 * Finds the back edges, and collects the bodies of the loops.
+	 */
+	private void findLoops() {
+		int blocks = graph.getBlockCount();
+		int loopOfHeader[] = new int[blocks];
+		java.util.Arrays.fill(loopOfHeader, -1);
+
+		headers = new int[4];
+		bodies = new BitSet[4];
+		int worklist[] = new int[blocks];
+
+		for (int b=0; b<blocks; ++b) {
+			for (int i=0; i<graph.getSuccessorCount(b); ++i) {
+				int h = graph.getSuccessor(b, i);
+				if ( ControlFlowGraph.EXCEPTION == graph.getSuccessorKind(b, i) || ! dominates(h, b) ) {
+					continue;
+				}
+
+				backEdgeCount++;
+				int loop = loopOfHeader[h];
+				if ( -1 == loop ) {
+					if ( loopCount == headers.length ) {
+						int newHeaders[] = new int[2 * loopCount];
+						BitSet newBodies[] = new BitSet[2 * loopCount];
+						System.arraycopy(headers, 0, newHeaders, 0, loopCount);
+						System.arraycopy(bodies, 0, newBodies, 0, loopCount);
+						headers = newHeaders;
+						bodies = newBodies;
+					}
+
+					loop = loopOfHeader[h] = loopCount++;
+					headers[loop] = h;
+					bodies[loop] = new BitSet(blocks);
+					bodies[loop].set(h);
+				}
+
+				// walk backwards from the source of the back edge until the header
+				BitSet body = bodies[loop];
+				int size = 0;
+				if ( ! body.get(b) ) {
+					body.set(b);
+					worklist[size++] = b;
+				}
+				while ( 0 < size ) {
+					int x = worklist[--size];
+					for (int p=0; p<graph.getPredecessorCount(x); ++p) {
+						int pred = graph.getPredecessor(x, p);
+						if ( isReachable(pred) && ! body.get(pred) ) {
+							body.set(pred);
+							worklist[size++] = pred;
+						}
+					}
+				}
+			}
+		}
+
+		// the nesting: the innermost loop of a block is the smallest loop that contains it
+		int sizes[] = new int[loopCount];
+		for (int loop=0; loop<loopCount; ++loop) {
+			sizes[loop] = bodies[loop].cardinality();
+			for (int b=bodies[loop].nextSetBit(0); b>=0; b=bodies[loop].nextSetBit(b + 1)) {
+				depths[b]++;
+				if ( -1 == innermost[b] || sizes[loop] < sizes[ innermost[b] ] ) {
+					innermost[b] = loop;
+				}
+			}
+		}
+
+		parents = new int[loopCount];
+		for (int loop=0; loop<loopCount; ++loop) {
+			parents[loop] = -1;
+			for (int other=0; other<loopCount; ++other) {
+				if ( other != loop && sizes[other] > sizes[loop] && bodies[other].get( headers[loop] ) &&
+						( -1 == parents[loop] || sizes[other] < sizes[ parents[loop] ] ) ) {
+					parents[loop] = other;
+				}
+			}
+		}
+	}// findLoops
+
+}// class.LoopNest
@@ -0,0 +1,265 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jyzer.ClassFile;
+import jyzer.analysis.MethodIndex;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.TopList;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Finds the loops of every method of a directory or a jar file, and reports the allocations (<code>new</code>,
+ * <code>newarray</code>, <code>anewarray</code>, <code>multianewarray</code>) and the boxing calls
+ * (<code>Integer.valueOf(int)</code> and the others) that are inside loops, the deepest ones first. The classfiles are
+ * processed by the workers of a <code>ClassScanner</code>, every worker counts into its own counters (see
+ * <code>ScanReport</code>).</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.flow.LoopReport [-threads n] [-top n] &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LoopReport extends ScanReport<LoopReport.Counters> {
+
+	/** The nesting depths above this one are counted together. */
+	public static final int MAX_DEPTH = 8;
+
+	/** The boxing methods. */
+	private static final Set<String> BOXING = new HashSet<String>();
+
+	/** The names of the primitive array types of <code>newarray</code>, indexed by <code>atype</code>. */
+	private static final String ARRAY_TYPES[] = { null, null, null, null, "boolean[]", "char[]", "float[]", "double[]", "byte[]", "short[]", "int[]", "long[]" };
+
+	static {
+		String boxes[][] = {
+			{ "Boolean", "Z" }, { "Byte", "B" }, { "Character", "C" }, { "Short", "S" },
+			{ "Integer", "I" }, { "Long", "J" }, { "Float", "F" }, { "Double", "D" }
+		};
+
+		for (String box[] : boxes) {
+			BOXING.add( MethodIndex.getKey( "java.lang." + box[0], "valueOf", "(" + box[1] + ")Ljava/lang/" + box[0] + ";" ) );
+		}
+	}
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long methods = 0;
+		private long methodsWithLoops = 0;
+		private long loops = 0;
+		private long corrupted = 0;
+
+		private long allocations[] = new long[MAX_DEPTH + 1];
+		private long boxings[] = new long[MAX_DEPTH + 1];
+		private Map<String, long[]> types = new HashMap<String, long[]>();
+		private TopList sites = new TopList(top);
+		private TopList deepest = new TopList(top);
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				if ( null != code ) {
+					visitCode(cf, method, code);
+				}
+			}
+		}
+
+		/**
+		 * Finds the loops of a method, and counts the allocations and the boxings.
+		 */
+		private void visitCode(ClassFile cf, MethodInfo method, CodeAttribute code) {
+			String label = cf.getThisClassName() + "." + method.getNameString() + method.getDescriptorString();
+
+			ControlFlowGraph graph;
+			try {
+				graph = new ControlFlowGraph(code);
+			} catch (CorruptedClassfileException cce) {
+				corrupted++;
+				log.println( label + ": " + cce.getMessage() );
+				return;
+			}
+
+			methods++;
+			LoopNest nest = new LoopNest(graph);
+			if ( 0 == nest.getLoopCount() ) {
+				return;
+			}
+
+			methodsWithLoops++;
+			loops += nest.getLoopCount();
+			int maxDepth = nest.getMaxLoopDepth();
+			if ( deepest.accepts(maxDepth) ) {
+				deepest.add( maxDepth, label + ": " + nest.getLoopCount() + " loops" );
+			}
+
+			for (int i=0; i<graph.getInstructionCount(); ++i) {
+				int depth = nest.getLoopDepthOfInstruction(i);
+				if ( 0 == depth ) {
+					continue;
+				}
+
+				CodeInstruction ci = graph.getInstruction(i);
+				String type = getAllocatedType(ci);
+				String kind = "new";
+				if ( null != type ) {
+					allocations[ Math.min(depth, MAX_DEPTH) ]++;
+				} else if ( 0xb8 == ci.getOpcode() && BOXING.contains( type = MethodIndex.getReferenceKey( ci.getOperands()[0] ) ) ) {
+					boxings[ Math.min(depth, MAX_DEPTH) ]++;
+					kind = "boxing";
+				} else {
+					continue;
+				}
+
+				count(types, type, 1);
+
+				if ( sites.accepts(depth) ) {
+					sites.add( depth, String.format( "%-6s %s pc %d: %s", kind, label, ci.getOffset(), type ) );
+				}
+			}
+		}// visitCode
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private int top;
+	private PrintStream log;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param top the length of the lists.
+	 * @param log the methods with corrupted code are reported here.
+	 */
+	public LoopReport(int top, PrintStream log) {
+		this.top = Math.max(0, top);
+		this.log = log;
+		total = new Counters();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the type allocated by an instruction, or null if it is not an allocation. The constant pool of the
+	 * instruction must be the current one.
+	 */
+	public static String getAllocatedType(CodeInstruction ci) {
+		switch ( ci.getOpcode() ) {
+			case 0xbb: // new
+				return ConstantPool.getClassName( ci.getOperands()[0] );
+			case 0xbc: // newarray
+				int atype = ci.getOperands()[0];
+				return ( (atype < ARRAY_TYPES.length && null != ARRAY_TYPES[atype]) ? ARRAY_TYPES[atype] : "?[]" );
+			case 0xbd: // anewarray
+				return ConstantPool.getClassName( ci.getOperands()[0] ) + "[]";
+			case 0xc5: // multianewarray
+				return ConstantPool.getClassName( ci.getOperands()[0] );
+			default:
+				return null;
+		}
+	}
+
+	/** Returns true if the key is the key of a boxing method, like <code>java.lang.Integer.valueOf(I)Ljava/lang/Integer;</code>. */
+	public static boolean isBoxing(String key) {
+		return BOXING.contains(key);
+	}
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.methods          += counters.methods;
+		total.methodsWithLoops += counters.methodsWithLoops;
+		total.loops            += counters.loops;
+		total.corrupted        += counters.corrupted;
+
+		for (int i=0; i<=MAX_DEPTH; ++i) {
+			total.allocations[i] += counters.allocations[i];
+			total.boxings[i]     += counters.boxings[i];
+		}
+
+		addCounts(total.types, counters.types);
+
+		total.sites.merge(counters.sites);
+		total.deepest.merge(counters.deepest);
+	}// merge
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		out.println( "Methods with code: " + total.methods + ", with loops: " + total.methodsWithLoops + ", loops: " + total.loops + ", corrupted: " + total.corrupted );
+
+		out.println();
+		out.println("Loop depth   allocations   boxings");
+		for (int i=1; i<=MAX_DEPTH; ++i) {
+			if ( 0 != total.allocations[i] || 0 != total.boxings[i] ) {
+				out.println( String.format( "  %-8s %13d %9d", ( (MAX_DEPTH == i) ? i + "+" : String.valueOf(i) ), total.allocations[i], total.boxings[i] ) );
+			}
+		}
+
+		if ( 0 < top ) {
+			TopList types = new TopList(top);
+			for (Map.Entry<String, long[]> entry : total.types.entrySet()) {
+				types.add( entry.getValue()[0], entry.getKey() );
+			}
+			types.print(out, "Types allocated or boxed in loops most often", 8);
+			total.sites.print(out, "Allocations and boxings in the deepest loops (depth)", 3);
+			total.deepest.print(out, "Deepest loop nests (depth)", 3);
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.flow.LoopReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 20);
+		options.parseOrExit(args);
+
+		new LoopReport( options.getInt("-top"), System.err ).run( new File( options.getArgument(0) ), options.getInt("-threads") );
+	}// main
+
+}// class.LoopReport
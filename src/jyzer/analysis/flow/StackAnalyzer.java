@@ -0,0 +1,959 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.util.BitSet;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.accessflags.AccessFlags;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Computes the depth and the types of the operand stack and the types of the local variables before every
+ * instruction of a method, with a worklist algorithm over the blocks of its control flow graph. Checks the declared
+ * <code>max_stack</code> and <code>max_locals</code> against the computed ones, and finds the unreachable blocks.</p>
+ *
+ * <p>The frames are arrays of type bytes: a <code>long</code> or a <code>double</code> takes two slots, the second
+ * one is <code>HIGH</code>. The references are not distinguished by their classes. Only the frames at the start of
+ * the blocks are kept, the frame before any other instruction is computed again from the start of its block when it
+ * is asked for (in a scratch frame, so the getters don't change the analyzer and can be called on any thread). Two
+ * frames are merged slot by slot: a slot with different types becomes <code>TOP</code>. The handlers get the merged
+ * local variables of every instruction of the protected blocks. After a <code>jsr</code> the execution continues
+ * with the frame before the <code>jsr</code> (the changes of the subroutine are not followed).</p>
+ *
+ * <p>The problems (stack underflow and overflow, inconsistent stack depths, wrong operand types, local variables out
+ * of <code>max_locals</code>) are collected as messages, the path where the problem was found is not followed. The
+ * current constant pool must be the one of the method, the types of the fields and the methods are read from there.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class StackAnalyzer {
+
+	// --- Types ---------------------------------------------------------------------------------------------------------
+
+	/** Unusable value (the merge of different types). */
+	public static final byte TOP = 0;
+	/** <code>int</code>, <code>short</code>, <code>char</code>, <code>byte</code> or <code>boolean</code>. */
+	public static final byte INT = 1;
+	/** <code>float</code>. */
+	public static final byte FLOAT = 2;
+	/** <code>long</code>, followed by a <code>HIGH</code> slot. */
+	public static final byte LONG = 3;
+	/** <code>double</code>, followed by a <code>HIGH</code> slot. */
+	public static final byte DOUBLE = 4;
+	/** A reference or <code>null</code>. */
+	public static final byte REFERENCE = 5;
+	/** The return address pushed by a <code>jsr</code>. */
+	public static final byte RETURN_ADDRESS = 6;
+	/** The second slot of a <code>long</code> or a <code>double</code>. */
+	public static final byte HIGH = 7;
+
+	/** The one letter codes of the types. */
+	private static final String TYPE_CODES = ".IFJDAR-";
+
+	/** The types of the xload, xstore and xreturn instructions, in the order of the opcodes. */
+	private static final byte LOAD_TYPES[] = { INT, LONG, FLOAT, DOUBLE, REFERENCE };
+	/** The types of the xaload and xastore instructions, in the order of the opcodes. */
+	private static final byte ARRAY_TYPES[] = { INT, LONG, FLOAT, DOUBLE, REFERENCE, INT, INT, INT };
+	/** The source and the result types of the conversions from <code>i2l</code> to <code>i2s</code>. */
+	private static final byte CONVERSIONS[][] = {
+		{ INT, LONG }, { INT, FLOAT }, { INT, DOUBLE }, { LONG, INT }, { LONG, FLOAT }, { LONG, DOUBLE },
+		{ FLOAT, INT }, { FLOAT, LONG }, { FLOAT, DOUBLE }, { DOUBLE, INT }, { DOUBLE, LONG }, { DOUBLE, FLOAT },
+		{ INT, INT }, { INT, INT }, { INT, INT }
+	};
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ControlFlowGraph graph;
+	private int maxStack;
+	private int maxLocals;
+
+	private int computedMaxStack = 0;
+	private int computedMaxLocals = 0;
+	private int unreachableInstructions = 0;
+
+	private int depths[];
+	private int entryDepths[];
+	private byte entryStacks[];
+	private byte entryLocals[];
+
+	private Vector<String> problems = new Vector<String>();
+	private BitSet reported;
+
+	// the frame of the instruction being executed
+	private byte stack[];
+	private int sp;
+	private byte locals[];
+	private boolean failed;
+	private int current;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Analyzes the code of a method.
+	 *
+	 * @param method the method.
+	 * @param code the code attribute of the method.
+	 * @param graph the control flow graph of the code.
+	 */
+	public StackAnalyzer(MethodInfo method, CodeAttribute code, ControlFlowGraph graph) {
+		this.graph = graph;
+		maxStack   = code.getMaxStack();
+		maxLocals  = code.getMaxLocals();
+
+		int n = graph.getInstructionCount();
+		int blocks = graph.getBlockCount();
+
+		depths      = new int[n];
+		entryDepths = new int[blocks];
+		entryStacks = new byte[blocks * maxStack];
+		entryLocals = new byte[blocks * maxLocals];
+		reported    = new BitSet(n);
+		java.util.Arrays.fill(depths, -1);
+		java.util.Arrays.fill(entryDepths, -1);
+
+		stack  = new byte[maxStack + 4];
+		locals = new byte[maxLocals];
+
+		if ( 0 < blocks ) {
+			initParameters(method);
+			if ( ! failed ) {
+				merge(0, stack, 0, locals);
+				run();
+			}
+
+			for (int b=0; b<blocks; ++b) {
+				if ( -1 == entryDepths[b] ) {
+					unreachableInstructions += graph.getLastInstruction(b) - graph.getFirstInstruction(b) + 1;
+				}
+			}
+		}
+	}// StackAnalyzer(MethodInfo, CodeAttribute, ControlFlowGraph)
+
+	/**
+	 * Creates a scratch frame for replaying the instructions of an analyzed method. It shares the entry frames of the
+	 * analyzer (they are only read), the problems and the maximums found during the replay are its own.
+	 *
+	 * @param analyzed the analyzer of the method.
+	 */
+	private StackAnalyzer(StackAnalyzer analyzed) {
+		graph       = analyzed.graph;
+		maxStack    = analyzed.maxStack;
+		maxLocals   = analyzed.maxLocals;
+		depths      = analyzed.depths;
+		entryDepths = analyzed.entryDepths;
+		entryStacks = analyzed.entryStacks;
+		entryLocals = analyzed.entryLocals;
+		reported    = new BitSet( graph.getInstructionCount() );
+
+		stack  = new byte[maxStack + 4];
+		locals = new byte[maxLocals];
+	}// StackAnalyzer(StackAnalyzer)
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the control flow graph of the code. */
+	public ControlFlowGraph getGraph() {
+		return graph;
+	}
+
+	/** Returns the declared <code>max_stack</code>. */
+	public int getMaxStack() {
+		return maxStack;
+	}
+
+	/** Returns the declared <code>max_locals</code>. */
+	public int getMaxLocals() {
+		return maxLocals;
+	}
+
+	/** Returns the largest stack depth reached (larger than <code>max_stack</code> if it was exceeded). */
+	public int getComputedMaxStack() {
+		return computedMaxStack;
+	}
+
+	/** Returns the number of the local variable slots used (the parameters included). */
+	public int getComputedMaxLocals() {
+		return computedMaxLocals;
+	}
+
+	/** Returns the number of the instructions that can never be executed. */
+	public int getUnreachableInstructionCount() {
+		return unreachableInstructions;
+	}
+
+	/** Returns the problems found, one message for each. */
+	public Vector<String> getProblems() {
+		return problems;
+	}
+
+	/** Returns true if no problem was found, and the computed maximums don't exceed the declared ones. */
+	public boolean isValid() {
+		return ( problems.isEmpty() && computedMaxStack <= maxStack && computedMaxLocals <= maxLocals );
+	}
+
+	/** Returns true if the instruction at the given index can be executed. */
+	public boolean isReachable(int index) {
+		return ( -1 != depths[index] );
+	}
+
+	/** Returns the stack depth (in slots) before the instruction at the given index, or -1 if it is unreachable. */
+	public int getDepth(int index) {
+		return depths[index];
+	}
+
+	/**
+	 * Returns the types of the stack slots before the instruction at the given index (the bottom first), or null if
+	 * the instruction is unreachable.
+	 */
+	public byte[] getStackTypes(int index) {
+		StackAnalyzer frame = replay(index);
+		if ( null == frame ) {
+			return null;
+		}
+
+		byte back[] = new byte[frame.sp];
+		System.arraycopy(frame.stack, 0, back, 0, frame.sp);
+		return back;
+	}
+
+	/**
+	 * Returns the types of the local variables before the instruction at the given index, or null if the instruction
+	 * is unreachable.
+	 */
+	public byte[] getLocalTypes(int index) {
+		StackAnalyzer frame = replay(index);
+		return ( (null == frame) ? null : frame.locals );
+	}
+
+	/**
+	 * Returns the frame before the instruction at the given index as a string: the codes of the local variables and
+	 * of the stack, like <code>[AI.|IJ-]</code>.
+	 */
+	public String getFrameString(int index) {
+		StackAnalyzer frame = replay(index);
+		if ( null == frame ) {
+			return "unreachable";
+		}
+
+		StringBuilder sb = new StringBuilder("[");
+		for (byte type : frame.locals) {
+			sb.append( getTypeCode(type) );
+		}
+		sb.append('|');
+		for (int i=0; i<frame.sp; ++i) {
+			sb.append( getTypeCode( frame.stack[i] ) );
+		}
+
+		return sb.append(']').toString();
+	}
+
+	/** Returns the one letter code of a type: <code>.IFJDAR-</code> for TOP, INT, ..., HIGH. */
+	public static char getTypeCode(byte type) {
+		return TYPE_CODES.charAt(type);
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Records a problem at the current instruction (only the first one of an instruction), and stops the path.
+	 */
+	private void fail(String message) {
+		failed = true;
+		if ( ! reported.get(current) ) {
+			reported.set(current);
+			problems.add( "pc " + graph.getOffset(current) + ": " + message );
+		}
+	}
+
+	/**
+	 * Returns the type of a field descriptor or of the first type in a method descriptor at the given position.
+	 */
+	private static byte typeOf(char c) {
+		switch (c) {
+			case 'B': case 'C': case 'I': case 'S': case 'Z':
+				return INT;
+			case 'F':
+				return FLOAT;
+			case 'J':
+				return LONG;
+			case 'D':
+				return DOUBLE;
+			case 'V':
+				return TOP;
+			default:
+				return REFERENCE;
+		}
+	}
+
+	/**
+	 * Returns the position after the type at the given position of a descriptor.
+	 */
+	private static int skipType(String descriptor, int pos) {
+		while ( '[' == descriptor.charAt(pos) ) {
+			pos++;
+		}
+		if ( 'L' == descriptor.charAt(pos) ) {
+			pos = descriptor.indexOf(';', pos);
+		}
+
+		return pos + 1;
+	}
+
+	/** Returns the number of the slots of a type. */
+	private static int width(byte type) {
+		return ( (LONG == type || DOUBLE == type) ? 2 : 1 );
+	}
+
+	/**
+	 * Puts <code>this</code> and the parameters into the local variables.
+	 */
+	private void initParameters(MethodInfo method) {
+		int index = 0;
+		if ( 0 == ( method.getAccessInt() & AccessFlags.ACC_STATIC ) ) {
+			store(index++, REFERENCE);
+		}
+
+		String descriptor = method.getDescriptorString();
+		for (int pos=1; ! failed && ')' != descriptor.charAt(pos); pos=skipType(descriptor, pos)) {
+			byte type = typeOf( descriptor.charAt(pos) );
+			store(index, type);
+			index += width(type);
+		}
+	}
+
+	// --- Frame operations ----------------------------------------------------------------------------------------------
+
+	/** Pushes a value. */
+	private void push(byte type) {
+		if ( TOP == type ) {
+			return; // void
+		}
+
+		stack[sp++] = type;
+		if ( 2 == width(type) ) {
+			stack[sp++] = HIGH;
+		}
+	}
+
+	/** Pops a value of the given type. */
+	private void pop(byte type) {
+		int width = width(type);
+		if ( sp < width ) {
+			fail("stack underflow");
+			return;
+		}
+
+		sp -= width;
+		byte found = stack[sp];
+		if ( found != type && TOP != found && ( REFERENCE != type || RETURN_ADDRESS != found ) ) {
+			fail( "expected " + getTypeCode(type) + " on the stack, found " + getTypeCode(found) );
+		}
+	}
+
+	/** Pops the given number of slots of any type. */
+	private void popSlots(int count) {
+		if ( sp < count ) {
+			fail("stack underflow");
+			return;
+		}
+
+		sp -= count;
+	}
+
+	/**
+	 * Duplicates the top <code>count</code> slots, and inserts the copy below the <code>skip</code> slots under them.
+	 */
+	private void dup(int count, int skip) {
+		if ( sp < count + skip ) {
+			fail("stack underflow");
+			return;
+		}
+
+		for (int i=sp-1; i>=sp-count-skip; --i) {
+			stack[i + count] = stack[i];
+		}
+		for (int i=0; i<count; ++i) {
+			stack[sp - count - skip + i] = stack[sp + i];
+		}
+		sp += count;
+	}
+
+	/** Checks that the local variable slots from <code>index</code> exist. */
+	private boolean checkLocal(int index, int width) {
+		computedMaxLocals = Math.max(computedMaxLocals, index + width);
+		if ( index + width > maxLocals ) {
+			fail( "local variable " + index + " is out of max_locals (" + maxLocals + ")" );
+			return false;
+		}
+
+		return true;
+	}
+
+	/** Loads a local variable of the given type onto the stack. */
+	private void load(int index, byte type) {
+		if ( checkLocal( index, width(type) ) ) {
+			byte found = locals[index];
+			if ( found != type && TOP != found ) {
+				fail( "expected " + getTypeCode(type) + " in local variable " + index + ", found " + getTypeCode(found) );
+				return;
+			}
+			push(type);
+		}
+	}
+
+	/** Stores a value of the given type into a local variable. */
+	private void store(int index, byte type) {
+		int width = width(type);
+		if ( ! checkLocal(index, width) ) {
+			return;
+		}
+
+		// a long or a double is destroyed if any of its slots is overwritten
+		if ( 0 < index && 2 == width( locals[index - 1] ) ) {
+			locals[index - 1] = TOP;
+		}
+		if ( index + width < maxLocals && HIGH == locals[index + width] ) {
+			locals[index + width] = TOP;
+		}
+
+		locals[index] = type;
+		if ( 2 == width ) {
+			locals[index + 1] = HIGH;
+		}
+	}
+
+	/** Pops the value of a store instruction, and stores it. */
+	private void popAndStore(int index, byte type) {
+		if ( REFERENCE == type && 0 < sp && RETURN_ADDRESS == stack[sp - 1] ) {
+			type = RETURN_ADDRESS; // astore can store the return address of a jsr
+		}
+
+		pop(type);
+		if ( ! failed ) {
+			store(index, type);
+		}
+	}
+
+	/**
+	 * Returns the descriptor of the field or method referenced by the given constant pool index, or null if the
+	 * entry is not a reference.
+	 */
+	private String getReferenceDescriptor(int index) {
+		ConstantPoolInfo info = ConstantPool.getElement(index);
+		if ( info instanceof AbstractReference ) {
+			ConstantPoolInfo nat = ConstantPool.getElement( ( (AbstractReference) info ).getNameAndTypeIndex() );
+			if ( nat instanceof ConstantNameAndTypeInfo ) {
+				return ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getDescriptorIndex() );
+			}
+		}
+
+		fail("the constant pool entry " + index + " is not a field or method reference");
+		return null;
+	}
+
+	/**
+	 * Pops the arguments (and the receiver), and pushes the result of an invoke instruction.
+	 */
+	private void invoke(int index, boolean hasReceiver) {
+		String descriptor = getReferenceDescriptor(index);
+		if ( null == descriptor ) {
+			return;
+		}
+
+		int end = descriptor.indexOf(')');
+		popArguments(descriptor, 1, end);
+		if ( hasReceiver && ! failed ) {
+			pop(REFERENCE);
+		}
+		if ( ! failed ) {
+			push( typeOf( descriptor.charAt(end + 1) ) );
+		}
+	}
+
+	/**
+	 * Pops the arguments of the descriptor from <code>pos</code> to <code>end</code>, the last one first.
+	 */
+	private void popArguments(String descriptor, int pos, int end) {
+		if ( pos < end ) {
+			byte type = typeOf( descriptor.charAt(pos) );
+			popArguments( descriptor, skipType(descriptor, pos), end );
+			if ( ! failed ) {
+				pop(type);
+			}
+		}
+	}
+
+	/**
+	 * Returns the type of the constant loaded by an <code>ldc</code> instruction.
+	 */
+	private static byte getConstantType(int index) {
+		switch ( ConstantPool.getElement(index).getTag() ) {
+			case ConstantPoolInfo.CONSTANT_Integer: return INT;
+			case ConstantPoolInfo.CONSTANT_Float:   return FLOAT;
+			case ConstantPoolInfo.CONSTANT_Long:    return LONG;
+			case ConstantPoolInfo.CONSTANT_Double:  return DOUBLE;
+			default:                                return REFERENCE;
+		}
+	}
+
+	// --- Execution -----------------------------------------------------------------------------------------------------
+
+	/**
+	 * Executes the instruction at the given index on the current frame.
+	 */
+	private void execute(int index) {
+		CodeInstruction ci = graph.getInstruction(index);
+		int opcode = ci.getOpcode();
+		int operands[] = ci.getOperands();
+		current = index;
+
+		if ( 0x01 == opcode ) {                                     // aconst_null
+			push(REFERENCE);
+		} else if ( 0x02 <= opcode && opcode <= 0x08 ) {            // iconst_<i>
+			push(INT);
+		} else if ( 0x09 <= opcode && opcode <= 0x0a ) {            // lconst_<l>
+			push(LONG);
+		} else if ( 0x0b <= opcode && opcode <= 0x0d ) {            // fconst_<f>
+			push(FLOAT);
+		} else if ( 0x0e <= opcode && opcode <= 0x0f ) {            // dconst_<d>
+			push(DOUBLE);
+		} else if ( 0x10 <= opcode && opcode <= 0x11 ) {            // bipush, sipush
+			push(INT);
+		} else if ( 0x12 <= opcode && opcode <= 0x14 ) {            // ldc, ldc_w, ldc2_w
+			push( getConstantType( operands[0] ) );
+		} else if ( 0x15 <= opcode && opcode <= 0x19 ) {            // <t>load
+			load( operands[0], LOAD_TYPES[opcode - 0x15] );
+		} else if ( 0x1a <= opcode && opcode <= 0x2d ) {            // <t>load_<n>
+			load( (opcode - 0x1a) % 4, LOAD_TYPES[ (opcode - 0x1a) / 4 ] );
+		} else if ( 0x2e <= opcode && opcode <= 0x35 ) {            // <t>aload
+			pop(INT);
+			pop(REFERENCE);
+			push( ARRAY_TYPES[opcode - 0x2e] );
+		} else if ( 0x36 <= opcode && opcode <= 0x3a ) {            // <t>store
+			popAndStore( operands[0], LOAD_TYPES[opcode - 0x36] );
+		} else if ( 0x3b <= opcode && opcode <= 0x4e ) {            // <t>store_<n>
+			popAndStore( (opcode - 0x3b) % 4, LOAD_TYPES[ (opcode - 0x3b) / 4 ] );
+		} else if ( 0x4f <= opcode && opcode <= 0x56 ) {            // <t>astore
+			pop( ARRAY_TYPES[opcode - 0x4f] );
+			pop(INT);
+			pop(REFERENCE);
+		} else if ( 0x57 <= opcode && opcode <= 0x5f ) {            // pop, dup, swap
+			executeStackInstruction(opcode);
+		} else if ( 0x60 <= opcode && opcode <= 0x73 ) {            // add, sub, mul, div, rem
+			byte type = LOAD_TYPES[ (opcode - 0x60) % 4 ];
+			pop(type);
+			pop(type);
+			push(type);
+		} else if ( 0x74 <= opcode && opcode <= 0x77 ) {            // <t>neg
+			byte type = LOAD_TYPES[opcode - 0x74];
+			pop(type);
+			push(type);
+		} else if ( 0x78 <= opcode && opcode <= 0x7d ) {            // shifts
+			byte type = ( (0 == opcode % 2) ? INT : LONG );
+			pop(INT);
+			pop(type);
+			push(type);
+		} else if ( 0x7e <= opcode && opcode <= 0x83 ) {            // and, or, xor
+			byte type = ( (0 == opcode % 2) ? INT : LONG );
+			pop(type);
+			pop(type);
+			push(type);
+		} else if ( 0x84 == opcode ) {                              // iinc
+			load( operands[0], INT );
+			popSlots(1);
+		} else if ( 0x85 <= opcode && opcode <= 0x93 ) {            // conversions
+			pop( CONVERSIONS[opcode - 0x85][0] );
+			push( CONVERSIONS[opcode - 0x85][1] );
+		} else if ( 0x94 <= opcode && opcode <= 0x98 ) {            // lcmp, fcmp<op>, dcmp<op>
+			byte type = ( (0x94 == opcode) ? LONG : ( (opcode <= 0x96) ? FLOAT : DOUBLE ) );
+			pop(type);
+			pop(type);
+			push(INT);
+		} else if ( 0x99 <= opcode && opcode <= 0x9e ) {            // if<cond>
+			pop(INT);
+		} else if ( 0x9f <= opcode && opcode <= 0xa4 ) {            // if_icmp<cond>
+			pop(INT);
+			pop(INT);
+		} else if ( 0xa5 <= opcode && opcode <= 0xa6 ) {            // if_acmp<cond>
+			pop(REFERENCE);
+			pop(REFERENCE);
+		} else if ( Instructions.isGoto(opcode) ) {
+			// nothing to do
+		} else if ( Instructions.isJsr(opcode) ) {
+			push(RETURN_ADDRESS);
+		} else if ( Instructions.RET == opcode ) {
+			ret( operands[0] );
+		} else if ( Instructions.isSwitch(opcode) ) {
+			pop(INT);
+		} else if ( 0xac <= opcode && opcode <= 0xb0 ) {            // <t>return
+			pop( LOAD_TYPES[opcode - 0xac] );
+		} else if ( 0xb1 == opcode ) {                              // return
+			// nothing to do
+		} else if ( 0xb2 <= opcode && opcode <= 0xb5 ) {            // getstatic, putstatic, getfield, putfield
+			executeFieldInstruction( opcode, operands[0] );
+		} else if ( 0xb6 <= opcode && opcode <= 0xb9 ) {            // invoke<kind>
+			invoke( operands[0], 0xb8 != opcode );
+		} else if ( 0xbb == opcode ) {                              // new
+			push(REFERENCE);
+		} else if ( 0xbc <= opcode && opcode <= 0xbd ) {            // newarray, anewarray
+			pop(INT);
+			push(REFERENCE);
+		} else if ( 0xbe == opcode ) {                              // arraylength
+			pop(REFERENCE);
+			push(INT);
+		} else if ( Instructions.ATHROW == opcode || ( 0xc2 <= opcode && opcode <= 0xc3 ) ) { // athrow, monitor<op>
+			pop(REFERENCE);
+		} else if ( 0xc0 == opcode ) {                              // checkcast
+			pop(REFERENCE);
+			push(REFERENCE);
+		} else if ( 0xc1 == opcode ) {                              // instanceof
+			pop(REFERENCE);
+			push(INT);
+		} else if ( Instructions.WIDE == opcode ) {
+			executeWide(operands);
+		} else if ( 0xc5 == opcode ) {                              // multianewarray
+			for (int i=0; i<operands[1] && ! failed; ++i) {
+				pop(INT);
+			}
+			push(REFERENCE);
+		} else if ( 0xc6 <= opcode && opcode <= 0xc7 ) {            // ifnull, ifnonnull
+			pop(REFERENCE);
+		} else if ( 0x00 != opcode ) {                              // nop is the only one left
+			fail( "unsupported instruction " + ci.getMnemonic() );
+		}
+
+		computedMaxStack = Math.max(computedMaxStack, sp);
+		if ( sp > maxStack && ! failed ) {
+			fail( "max_stack (" + maxStack + ") exceeded" );
+		}
+	}// execute
+
+	/**
+	 * Executes the <code>pop</code>, <code>dup</code> and <code>swap</code> instructions, that work on slots.
+	 */
+	private void executeStackInstruction(int opcode) {
+		switch (opcode) {
+			case 0x57: popSlots(1); break;  // pop
+			case 0x58: popSlots(2); break;  // pop2
+			case 0x59: dup(1, 0); break;    // dup
+			case 0x5a: dup(1, 1); break;    // dup_x1
+			case 0x5b: dup(1, 2); break;    // dup_x2
+			case 0x5c: dup(2, 0); break;    // dup2
+			case 0x5d: dup(2, 1); break;    // dup2_x1
+			case 0x5e: dup(2, 2); break;    // dup2_x2
+			default:                        // swap
+				if ( sp < 2 ) {
+					fail("stack underflow");
+				} else {
+					byte top = stack[sp - 1];
+					stack[sp - 1] = stack[sp - 2];
+					stack[sp - 2] = top;
+				}
+		}
+	}
+
+	/**
+	 * Executes a field instruction.
+	 */
+	private void executeFieldInstruction(int opcode, int index) {
+		String descriptor = getReferenceDescriptor(index);
+		if ( null == descriptor ) {
+			return;
+		}
+
+		byte type = typeOf( descriptor.charAt(0) );
+		switch (opcode) {
+			case 0xb2: push(type); break;                     // getstatic
+			case 0xb3: pop(type); break;                      // putstatic
+			case 0xb4: pop(REFERENCE); push(type); break;     // getfield
+			default:   pop(type); pop(REFERENCE); break;      // putfield
+		}
+	}
+
+	/**
+	 * Executes a <code>wide</code> instruction.
+	 */
+	private void executeWide(int operands[]) {
+		int opcode = operands[0];
+		int index = operands[1];
+
+		if ( 0x15 <= opcode && opcode <= 0x19 ) {
+			load( index, LOAD_TYPES[opcode - 0x15] );
+		} else if ( 0x36 <= opcode && opcode <= 0x3a ) {
+			popAndStore( index, LOAD_TYPES[opcode - 0x36] );
+		} else if ( 0x84 == opcode ) {
+			load(index, INT);
+			popSlots(1);
+		} else if ( Instructions.RET == opcode ) {
+			ret(index);
+		} else {
+			fail("wrong wide instruction");
+		}
+	}
+
+	/**
+	 * Checks the local variable of a <code>ret</code>.
+	 */
+	private void ret(int index) {
+		if ( checkLocal(index, 1) && RETURN_ADDRESS != locals[index] && TOP != locals[index] ) {
+			fail( "expected R in local variable " + index + ", found " + getTypeCode( locals[index] ) );
+		}
+	}
+
+	// --- Dataflow ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Merges a frame into the entry frame of a block.
+	 *
+	 * @return true if the entry frame was changed.
+	 */
+	private boolean merge(int block, byte frameStack[], int depth, byte frameLocals[]) {
+		int stackBase = block * maxStack;
+		int localsBase = block * maxLocals;
+
+		if ( -1 == entryDepths[block] ) {
+			entryDepths[block] = depth;
+			System.arraycopy(frameStack, 0, entryStacks, stackBase, depth);
+			System.arraycopy(frameLocals, 0, entryLocals, localsBase, maxLocals);
+			return true;
+		}
+
+		if ( entryDepths[block] != depth ) {
+			fail( "inconsistent stack depth at pc " + graph.getStartOffset(block) + ": " + entryDepths[block] + " and " + depth );
+			return false;
+		}
+
+		boolean changed = false;
+		for (int i=0; i<depth; ++i) {
+			if ( TOP != entryStacks[stackBase + i] && entryStacks[stackBase + i] != frameStack[i] ) {
+				entryStacks[stackBase + i] = TOP;
+				changed = true;
+			}
+		}
+		for (int i=0; i<maxLocals; ++i) {
+			if ( TOP != entryLocals[localsBase + i] && entryLocals[localsBase + i] != frameLocals[i] ) {
+				entryLocals[localsBase + i] = TOP;
+				changed = true;
+			}
+		}
+
+		return changed;
+	}// merge
+
+	/**
+	 * Loads the entry frame of a block into the current frame.
+	 */
+	private void loadEntry(int block) {
+		sp = entryDepths[block];
+		System.arraycopy(entryStacks, block * maxStack, stack, 0, sp);
+		System.arraycopy(entryLocals, block * maxLocals, locals, 0, maxLocals);
+		failed = false;
+	}
+
+	/**
+	 * Merges the current local variables into the handlers of a block (the stack of a handler is the exception).
+	 */
+	private boolean mergeHandlers(int block, byte exception[], BitSet queued, int queue[], int queueSize[]) {
+		for (int i=0; i<graph.getSuccessorCount(block); ++i) {
+			if ( ControlFlowGraph.EXCEPTION == graph.getSuccessorKind(block, i) ) {
+				if ( maxStack < 1 ) {
+					fail("max_stack (0) has no place for the exception of a handler");
+					return false;
+				}
+
+				int handler = graph.getSuccessor(block, i);
+				if ( merge(handler, exception, 1, locals) && ! queued.get(handler) ) {
+					queued.set(handler);
+					queue[ queueSize[0]++ ] = handler;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Runs the worklist algorithm until the entry frames don't change.
+	 */
+	private void run() {
+		int blocks = graph.getBlockCount();
+		int queue[] = new int[blocks];
+		int queueSize[] = { 0 };
+		BitSet queued = new BitSet(blocks);
+		byte exception[] = { REFERENCE };
+
+		queue[ queueSize[0]++ ] = 0;
+		queued.set(0);
+
+		while ( 0 < queueSize[0] ) {
+			int block = queue[ --queueSize[0] ];
+			queued.clear(block);
+			loadEntry(block);
+
+			int first = graph.getFirstInstruction(block);
+			int last = graph.getLastInstruction(block);
+			current = first;
+
+			if ( ! mergeHandlers(block, exception, queued, queue, queueSize) ) {
+				continue;
+			}
+
+			int depthBefore = sp;
+			for (int i=first; i<=last && ! failed; ++i) {
+				depths[i] = depthBefore = sp;
+				execute(i);
+
+				// only the stores change the local variables
+				if ( ! failed && isStore( graph.getInstruction(i) ) ) {
+					mergeHandlers(block, exception, queued, queue, queueSize);
+				}
+			}
+			if ( failed ) {
+				continue;
+			}
+
+			boolean jsr = Instructions.isJsr( graph.getInstruction(last).getOpcode() );
+			for (int i=0; i<graph.getSuccessorCount(block); ++i) {
+				byte kind = graph.getSuccessorKind(block, i);
+				if ( ControlFlowGraph.EXCEPTION == kind ) {
+					continue;
+				}
+
+				int target = graph.getSuccessor(block, i);
+				current = last;
+				int depth = ( (jsr && ControlFlowGraph.FALLTHROUGH == kind) ? depthBefore : sp );
+				if ( merge(target, stack, depth, locals) && ! queued.get(target) ) {
+					queued.set(target);
+					queue[ queueSize[0]++ ] = target;
+				}
+			}
+		}
+	}// run
+
+	/** Returns true if the instruction writes a local variable. */
+	private static boolean isStore(CodeInstruction ci) {
+		int opcode = ci.getOpcode();
+		return ( ( 0x36 <= opcode && opcode <= 0x4e ) || 0x84 == opcode || Instructions.WIDE == opcode );
+	}
+
+	/**
+	 * Computes the frame before the instruction at the given index again from the start of its block, in a scratch
+	 * frame.
+	 *
+	 * @return the scratch frame, or null if the instruction is unreachable.
+	 */
+	private StackAnalyzer replay(int index) {
+		if ( -1 == depths[index] ) {
+			return null;
+		}
+
+		StackAnalyzer frame = new StackAnalyzer(this);
+		int block = graph.getBlockOfInstruction(index);
+		frame.loadEntry(block);
+		for (int i=graph.getFirstInstruction(block); i<index && ! frame.failed; ++i) {
+			frame.execute(i);
+		}
+
+		return frame;
+	}
+
+	/**
+	 * Analyzes the methods of a class. The methods are processed in parallel by the given executor, every task uses
+	 * the constant pool of the class.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param executor runs the analyses, or null to analyze the methods on the calling thread.
+	 * @return the analyzers in the order of the methods, null for the methods without code.
+	 * @throws CorruptedClassfileException if the code of a method is corrupted.
+	 * @throws InterruptedException if the calling thread was interrupted while waiting.
+	 */
+	public static StackAnalyzer[] analyzeAll(final ClassFile cf, ExecutorService executor) throws CorruptedClassfileException, InterruptedException {
+		MethodInfo methods[] = cf.getMethodItem().getMethods();
+		StackAnalyzer back[] = new StackAnalyzer[methods.length];
+
+		if ( null == executor ) {
+			ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+			try {
+				for (int i=0; i<methods.length; ++i) {
+					back[i] = analyze( methods[i] );
+				}
+			} finally {
+				ConstantPool.setCurrent(previous);
+			}
+			return back;
+		}
+
+		Vector<Future<StackAnalyzer>> futures = new Vector<Future<StackAnalyzer>>(methods.length);
+		for (final MethodInfo method : methods) {
+			futures.add( executor.submit( new Callable<StackAnalyzer>() {
+				public StackAnalyzer call() throws CorruptedClassfileException {
+					ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+					try {
+						return analyze(method);
+					} finally {
+						ConstantPool.setCurrent(previous);
+					}
+				}
+			}));
+		}
+
+		try {
+			for (int i=0; i<methods.length; ++i) {
+				back[i] = futures.get(i).get();
+			}
+		} catch (ExecutionException ee) {
+			for (Future<StackAnalyzer> future : futures) {
+				future.cancel(false);
+			}
+
+			Throwable cause = ee.getCause();
+			if ( cause instanceof CorruptedClassfileException ) {
+				throw (CorruptedClassfileException) cause;
+			} else if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+
+		return back;
+	}// analyzeAll
+
+	/**
+	 * Builds the graph of a method and analyzes it, returns null if the method has no code.
+	 */
+	public static StackAnalyzer analyze(MethodInfo method) throws CorruptedClassfileException {
+		CodeAttribute code = method.getAttributes().getCode();
+		return ( (null == code) ? null : new StackAnalyzer( method, code, new ControlFlowGraph(code) ) );
+	}
+
+}// class.StackAnalyzer
@@ -0,0 +1,263 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+
+/**
+ * The number of the operand stack slots popped and pushed by the instructions. The effects of the field and invoke
+ * instructions depend on their descriptors, so the constant pool of the instruction must be the current one.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class StackEffects {
+
+	/** The popped slots of the instructions with a fixed effect, -1 for the others. */
+	private static final byte POPS[] = new byte[256];
+	/** The pushed slots of the instructions with a fixed effect. */
+	private static final byte PUSHES[] = new byte[256];
+
+	static {
+		java.util.Arrays.fill(POPS, (byte) -1);
+
+		set(0x00, 0x00, 0, 0);                      // nop
+		set(0x01, 0x08, 0, 1);                      // aconst_null, iconst_<i>
+		set(0x09, 0x0a, 0, 2);                      // lconst_<l>
+		set(0x0b, 0x0d, 0, 1);                      // fconst_<f>
+		set(0x0e, 0x0f, 0, 2);                      // dconst_<d>
+		set(0x10, 0x13, 0, 1);                      // bipush, sipush, ldc, ldc_w
+		set(0x14, 0x14, 0, 2);                      // ldc2_w
+		setTyped(0x15, 1, 0, 1);                    // <t>load
+		setTyped(0x1a, 4, 0, 1);                    // <t>load_<n>
+		set(0x2e, 0x35, 2, 1);                      // <t>aload
+		set(0x2f, 0x2f, 2, 2);                      // laload
+		set(0x31, 0x31, 2, 2);                      // daload
+		setTyped(0x36, 1, 1, 0);                    // <t>store
+		setTyped(0x3b, 4, 1, 0);                    // <t>store_<n>
+		set(0x4f, 0x56, 3, 0);                      // <t>astore
+		set(0x50, 0x50, 4, 0);                      // lastore
+		set(0x52, 0x52, 4, 0);                      // dastore
+		set(0x57, 0x57, 1, 0);                      // pop
+		set(0x58, 0x58, 2, 0);                      // pop2
+		set(0x59, 0x59, 1, 2);                      // dup
+		set(0x5a, 0x5a, 2, 3);                      // dup_x1
+		set(0x5b, 0x5b, 3, 4);                      // dup_x2
+		set(0x5c, 0x5c, 2, 4);                      // dup2
+		set(0x5d, 0x5d, 3, 5);                      // dup2_x1
+		set(0x5e, 0x5e, 4, 6);                      // dup2_x2
+		set(0x5f, 0x5f, 2, 2);                      // swap
+		for (int op=0x60; op<=0x73; ++op) {         // add, sub, mul, div, rem
+			int w = ( (1 == op % 2) ? 2 : 1 );
+			set(op, op, 2 * w, w);
+		}
+		for (int op=0x74; op<=0x77; ++op) {         // neg
+			int w = ( (1 == op % 2) ? 2 : 1 );
+			set(op, op, w, w);
+		}
+		for (int op=0x78; op<=0x7d; ++op) {         // shifts
+			int w = ( (1 == op % 2) ? 2 : 1 );
+			set(op, op, w + 1, w);
+		}
+		for (int op=0x7e; op<=0x83; ++op) {         // and, or, xor
+			int w = ( (1 == op % 2) ? 2 : 1 );
+			set(op, op, 2 * w, w);
+		}
+		set(0x84, 0x84, 0, 0);                      // iinc
+		int conversions[][] = {                     // i2l .. i2s
+			{ 1, 2 }, { 1, 1 }, { 1, 2 }, { 2, 1 }, { 2, 1 }, { 2, 2 }, { 1, 1 }, { 1, 2 },
+			{ 1, 2 }, { 2, 1 }, { 2, 2 }, { 2, 1 }, { 1, 1 }, { 1, 1 }, { 1, 1 }
+		};
+		for (int i=0; i<conversions.length; ++i) {
+			set(0x85 + i, 0x85 + i, conversions[i][0], conversions[i][1]);
+		}
+		set(0x94, 0x94, 4, 1);                      // lcmp
+		set(0x95, 0x96, 2, 1);                      // fcmp<op>
+		set(0x97, 0x98, 4, 1);                      // dcmp<op>
+		set(0x99, 0x9e, 1, 0);                      // if<cond>
+		set(0x9f, 0xa6, 2, 0);                      // if_icmp<cond>, if_acmp<cond>
+		set(0xa7, 0xa7, 0, 0);                      // goto
+		set(0xa8, 0xa8, 0, 1);                      // jsr
+		set(0xa9, 0xa9, 0, 0);                      // ret
+		set(0xaa, 0xab, 1, 0);                      // switches
+		setTyped(0xac, 1, 1, 0);                    // <t>return
+		set(0xb1, 0xb1, 0, 0);                      // return
+		set(0xbb, 0xbb, 0, 1);                      // new
+		set(0xbc, 0xbe, 1, 1);                      // newarray, anewarray, arraylength
+		set(0xbf, 0xbf, 1, 0);                      // athrow
+		set(0xc0, 0xc1, 1, 1);                      // checkcast, instanceof
+		set(0xc2, 0xc3, 1, 0);                      // monitorenter, monitorexit
+		set(0xc6, 0xc7, 1, 0);                      // ifnull, ifnonnull
+		set(0xc8, 0xc8, 0, 0);                      // goto_w
+		set(0xc9, 0xc9, 0, 1);                      // jsr_w
+	}
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * First of all - prevent anyone to create any instance of this class.
+	 */
+	private StackEffects() {
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/** Sets the effect of the opcodes from <code>from</code> to <code>to</code>. */
+	private static void set(int from, int to, int pops, int pushes) {
+		for (int op=from; op<=to; ++op) {
+			POPS[op] = (byte) pops;
+			PUSHES[op] = (byte) pushes;
+		}
+	}
+
+	/**
+	 * Sets the effect of the typed instructions (int, long, float, double, reference), that follow each other from
+	 * <code>first</code> in groups of <code>group</code> opcodes. The long and double variants move two slots.
+	 *
+	 * @param pops 1 if the instructions pop a value, 0 otherwise.
+	 * @param pushes 1 if the instructions push a value, 0 otherwise.
+	 */
+	private static void setTyped(int first, int group, int pops, int pushes) {
+		for (int t=0; t<5; ++t) {
+			int w = ( (1 == t || 3 == t) ? 2 : 1 );
+			set(first + group * t, first + group * t + group - 1, pops * w, pushes * w);
+		}
+	}
+
+	/**
+	 * Returns the number of the slots of the parameters of a method descriptor.
+	 */
+	public static int getArgumentSlots(String descriptor) {
+		int slots = 0;
+		int pos = 1;
+
+		while ( ')' != descriptor.charAt(pos) ) {
+			char c = descriptor.charAt(pos);
+			slots += ( ('J' == c || 'D' == c) ? 2 : 1 );
+
+			while ( '[' == descriptor.charAt(pos) ) {
+				pos++;
+			}
+			pos = ( ('L' == descriptor.charAt(pos)) ? descriptor.indexOf(';', pos) : pos ) + 1;
+		}
+
+		return slots;
+	}
+
+	/**
+	 * Returns the number of the slots of a type descriptor starting at the given position (0 for void).
+	 */
+	public static int getTypeSlots(String descriptor, int pos) {
+		char c = descriptor.charAt(pos);
+		return ( ('V' == c) ? 0 : ( ('J' == c || 'D' == c) ? 2 : 1 ) );
+	}
+
+	/**
+	 * Returns the number of the slots popped by the instruction, or -1 if it is unknown (a wrong constant pool
+	 * reference or an unsupported instruction).
+	 */
+	public static int getPopCount(CodeInstruction ci) {
+		int opcode = ci.getOpcode();
+		if ( -1 != POPS[opcode] ) {
+			return POPS[opcode];
+		}
+
+		switch (opcode) {
+			case 0xb2: case 0xb3: case 0xb4: case 0xb5: { // getstatic, putstatic, getfield, putfield
+				String descriptor = getReferenceDescriptor(ci);
+				if ( null == descriptor ) {
+					return -1;
+				}
+				int w = getTypeSlots(descriptor, 0);
+				return ( (0xb2 == opcode) ? 0 : ( (0xb3 == opcode) ? w : ( (0xb4 == opcode) ? 1 : w + 1 ) ) );
+			}
+			case 0xb6: case 0xb7: case 0xb8: case 0xb9: { // invoke<kind>
+				String descriptor = getReferenceDescriptor(ci);
+				if ( null == descriptor ) {
+					return -1;
+				}
+				return getArgumentSlots(descriptor) + ( (0xb8 == opcode) ? 0 : 1 );
+			}
+			case 0xc4: { // wide
+				int modified = ci.getOperands()[0];
+				return ( ( 0x36 <= modified && modified <= 0x3a ) ? POPS[modified] : 0 );
+			}
+			case 0xc5: // multianewarray
+				return ci.getOperands()[1];
+			default:
+				return -1;
+		}
+	}// getPopCount
+
+	/**
+	 * Returns the number of the slots pushed by the instruction, or -1 if it is unknown.
+	 */
+	public static int getPushCount(CodeInstruction ci) {
+		int opcode = ci.getOpcode();
+		if ( -1 != POPS[opcode] ) {
+			return PUSHES[opcode];
+		}
+
+		switch (opcode) {
+			case 0xb2: case 0xb3: case 0xb4: case 0xb5: {
+				String descriptor = getReferenceDescriptor(ci);
+				if ( null == descriptor ) {
+					return -1;
+				}
+				return ( ( 0xb2 == opcode || 0xb4 == opcode ) ? getTypeSlots(descriptor, 0) : 0 );
+			}
+			case 0xb6: case 0xb7: case 0xb8: case 0xb9: {
+				String descriptor = getReferenceDescriptor(ci);
+				if ( null == descriptor ) {
+					return -1;
+				}
+				return getTypeSlots( descriptor, descriptor.indexOf(')') + 1 );
+			}
+			case 0xc4: {
+				int modified = ci.getOperands()[0];
+				return ( ( 0x15 <= modified && modified <= 0x19 ) ? PUSHES[modified] : 0 );
+			}
+			case 0xc5:
+				return 1;
+			default:
+				return -1;
+		}
+	}// getPushCount
+
+	/**
+	 * Returns the descriptor of the field or method referenced by the instruction, or null if the operand is not a
+	 * reference.
+	 */
+	public static String getReferenceDescriptor(CodeInstruction ci) {
+		ConstantPoolInfo info = ConstantPool.getElement( ci.getOperands()[0] );
+		if ( info instanceof AbstractReference ) {
+			ConstantPoolInfo nat = ConstantPool.getElement( ( (AbstractReference) info ).getNameAndTypeIndex() );
+			if ( nat instanceof ConstantNameAndTypeInfo ) {
+				return ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getDescriptorIndex() );
+			}
+		}
+
+		return null;
+	}
+
+}// class.StackEffects
@@ -0,0 +1,243 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.flow;
+
+import java.io.*;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Runs the stack analysis on every method of a directory or a jar file, and reports how the declared
+ * <code>max_stack</code> and <code>max_locals</code> values relate to the computed ones, the methods with unreachable
+ * code, and the problems found. The classfiles are processed by the workers of a <code>ClassScanner</code>, every
+ * worker counts into its own counters (see <code>ScanReport</code>).</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.flow.StackReport [-threads n] [-top n] &lt;classfile|directory|jar&gt;</code>,
+ * where <code>-top</code> limits the number of the methods listed in each section.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class StackReport extends ScanReport<StackReport.Counters> {
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long methods = 0;
+		private long corrupted = 0;
+		private long instructions = 0;
+
+		private long stackExact = 0;
+		private long stackOver = 0;
+		private long stackUnder = 0;
+		private long stackWasted = 0;
+		private long localsExact = 0;
+		private long localsOver = 0;
+		private long localsUnder = 0;
+
+		private long unreachableMethods = 0;
+		private long unreachableInstructions = 0;
+		private long invalidMethods = 0;
+
+		private Vector<String> invalid = new Vector<String>();
+		private Vector<String> unreachable = new Vector<String>();
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				if ( null != code ) {
+					visitCode(cf, method, code);
+				}
+			}
+		}
+
+		/**
+		 * Analyzes and counts a method.
+		 */
+		private void visitCode(ClassFile cf, MethodInfo method, CodeAttribute code) {
+			String label = cf.getThisClassName() + "." + method.getNameString() + method.getDescriptorString();
+
+			StackAnalyzer analyzer;
+			try {
+				analyzer = new StackAnalyzer( method, code, new ControlFlowGraph(code) );
+			} catch (CorruptedClassfileException cce) {
+				corrupted++;
+				log.println( label + ": " + cce.getMessage() );
+				return;
+			}
+
+			methods++;
+			instructions += analyzer.getGraph().getInstructionCount();
+
+			int computed = analyzer.getComputedMaxStack();
+			if ( computed == analyzer.getMaxStack() ) {
+				stackExact++;
+			} else if ( computed < analyzer.getMaxStack() ) {
+				stackOver++;
+				stackWasted += analyzer.getMaxStack() - computed;
+			} else {
+				stackUnder++;
+			}
+
+			computed = analyzer.getComputedMaxLocals();
+			if ( computed == analyzer.getMaxLocals() ) {
+				localsExact++;
+			} else if ( computed < analyzer.getMaxLocals() ) {
+				localsOver++;
+			} else {
+				localsUnder++;
+			}
+
+			if ( 0 < analyzer.getUnreachableInstructionCount() ) {
+				unreachableMethods++;
+				unreachableInstructions += analyzer.getUnreachableInstructionCount();
+				if ( unreachable.size() < top ) {
+					unreachable.add( label + ": " + analyzer.getUnreachableInstructionCount() + " instructions" );
+				}
+			}
+
+			if ( ! analyzer.isValid() ) {
+				invalidMethods++;
+				if ( invalid.size() < top ) {
+					StringBuilder sb = new StringBuilder(label);
+					sb.append(" (max_stack ").append( analyzer.getMaxStack() ).append(", computed ").append( analyzer.getComputedMaxStack() );
+					sb.append("; max_locals ").append( analyzer.getMaxLocals() ).append(", computed ").append( analyzer.getComputedMaxLocals() ).append(')');
+					for (String problem : analyzer.getProblems()) {
+						sb.append("\n      ").append(problem);
+					}
+					invalid.add( sb.toString() );
+				}
+			}
+		}// visitCode
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private int top;
+	private PrintStream log;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param top the number of the methods listed in each section.
+	 * @param log the methods with corrupted code are reported here.
+	 */
+	public StackReport(int top, PrintStream log) {
+		this.top = Math.max(0, top);
+		this.log = log;
+		total = new Counters();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.methods                 += counters.methods;
+		total.corrupted               += counters.corrupted;
+		total.instructions            += counters.instructions;
+		total.stackExact              += counters.stackExact;
+		total.stackOver               += counters.stackOver;
+		total.stackUnder              += counters.stackUnder;
+		total.stackWasted             += counters.stackWasted;
+		total.localsExact             += counters.localsExact;
+		total.localsOver              += counters.localsOver;
+		total.localsUnder             += counters.localsUnder;
+		total.unreachableMethods      += counters.unreachableMethods;
+		total.unreachableInstructions += counters.unreachableInstructions;
+		total.invalidMethods          += counters.invalidMethods;
+
+		for (int i=0; i<counters.invalid.size() && total.invalid.size() < top; ++i) {
+			total.invalid.add( counters.invalid.get(i) );
+		}
+		for (int i=0; i<counters.unreachable.size() && total.unreachable.size() < top; ++i) {
+			total.unreachable.add( counters.unreachable.get(i) );
+		}
+	}// merge
+
+	/**
+	 * Adds the time of the run to the summary.
+	 */
+	protected String getRunSummary(ClassScanner scanner, long millis) {
+		return super.getRunSummary(scanner, millis) + " in " + millis + " ms";
+	}
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		out.println( "Methods with code: " + total.methods + ", instructions: " + total.instructions + ", corrupted: " + total.corrupted );
+
+		out.println();
+		out.println( String.format( "max_stack   exact: %d, larger than needed: %d (%d slots), too small: %d", total.stackExact, total.stackOver, total.stackWasted, total.stackUnder ) );
+		out.println( String.format( "max_locals  exact: %d, larger than needed: %d, too small: %d", total.localsExact, total.localsOver, total.localsUnder ) );
+		out.println( String.format( "Unreachable code: %d methods, %d instructions", total.unreachableMethods, total.unreachableInstructions ) );
+		out.println( String.format( "Methods with problems: %d", total.invalidMethods ) );
+
+		if ( ! total.unreachable.isEmpty() ) {
+			out.println();
+			out.println("Methods with unreachable code");
+			for (String line : total.unreachable) {
+				out.println("  " + line);
+			}
+		}
+
+		if ( ! total.invalid.isEmpty() ) {
+			out.println();
+			out.println("Methods with problems");
+			for (String line : total.invalid) {
+				out.println("  " + line);
+			}
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.flow.StackReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 10);
+		options.parseOrExit(args);
+
+		new StackReport( options.getInt("-top"), System.err ).run( new File( options.getArgument(0) ), options.getInt("-threads") );
+	}// main
+
+}// class.StackReport
@@ -0,0 +1,396 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.layout;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.MethodIndex;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.classpath.ClassPath;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.accessflags.AccessFlags;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantClassInfo;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+import jyzer.items.constantpool.types.ConstantStringInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Finds the classes whose contended fields are likely to share a cache line: the volatile fields written outside
+ * of the constructors, and the fields updated through an <code>AtomicIntegerFieldUpdater</code>,
+ * <code>AtomicLongFieldUpdater</code>, <code>AtomicReferenceFieldUpdater</code> or a <code>VarHandle</code> (found
+ * from the constant pool references: the class and the field name constants loaded before
+ * <code>newUpdater()</code> and <code>findVarHandle()</code>). Two contended fields closer than a cache line to each
+ * other are reported, and so are the contended fields that are close to read-mostly fields (fields read in the
+ * methods, but written only in the constructors), whose readers get cache misses at every write.</p>
+ *
+ * <p>The offsets come from the <code>LayoutEstimator</code>. The objects are aligned only to 8 bytes, so two fields
+ * closer than a cache line may share it, depending on the address of the object; the report suggests a
+ * <code>@Contended</code> group for every contended field, or padding. Padding fields of the same class are
+ * reordered by the virtual machine, so the padding has to be put into superclasses and subclasses.</p>
+ *
+ * <p>The location is scanned once by the workers of a <code>ClassScanner</code>: they count the accesses of the
+ * fields, find the updaters and estimate the layouts into their own counters (see <code>ScanReport</code>); the
+ * fields are matched at the end.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.layout.FalseSharingReport [-threads n] [-cp path] [-uncompressed] [-line n]
+ * &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class FalseSharingReport extends ScanReport<FalseSharingReport.Counters> {
+
+	/** The default size of a cache line. */
+	public static final int CACHE_LINE = 64;
+
+	/** The number of the instructions before an updater factory searched for its constants. */
+	private static final int WINDOW = 8;
+
+	/** The kinds of the counted accesses of a field. */
+	private static final int WRITES = 0;
+	private static final int CONSTRUCTOR_WRITES = 1;
+	private static final int READS = 2;
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private Map<String, int[]> accesses = new HashMap<String, int[]>();
+		private Map<String, String> updated = new HashMap<String, String>();
+		private Vector<String> classes = new Vector<String>();
+
+		public void visitClass(ClassFile cf, byte bytes[]) throws IOException {
+			String name = cf.getThisClassName();
+			if ( ! cf.isInterface() ) {
+				estimator.getLayout(cf);
+				classes.add(name);
+			}
+
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				if ( null == code || null == code.getDisassembledCode() ) {
+					continue;
+				}
+
+				boolean constructor = "<init>".equals( method.getNameString() );
+				Vector<CodeInstruction> instructions = code.getDisassembledCode();
+				for (int i=0; i<instructions.size(); ++i) {
+					CodeInstruction ci = instructions.get(i);
+					switch ( ci.getOpcode() ) {
+						case 0xb5: // putfield
+							count( getFieldKey( ci.getOperands()[0] ), ( constructor ? CONSTRUCTOR_WRITES : WRITES ) );
+							break;
+						case 0xb4: // getfield
+							count( getFieldKey( ci.getOperands()[0] ), READS );
+							break;
+						case 0xb6: // invokevirtual
+						case 0xb8: // invokestatic
+							findUpdater(name, instructions, i);
+							break;
+					}
+				}
+			}
+		}// visitClass
+
+		/** Counts an access of a field. */
+		private void count(String field, int kind) {
+			int count[] = accesses.get(field);
+			if ( null == count ) {
+				accesses.put( field, count = new int[3] );
+			}
+			count[kind]++;
+		}
+
+		/**
+		 * Records the field of an updater or a variable handle created by the instruction.
+		 */
+		private void findUpdater(String className, Vector<CodeInstruction> instructions, int i) {
+			String callee = MethodIndex.getReferenceKey( instructions.get(i).getOperands()[0] );
+			if ( null == callee ) {
+				return;
+			}
+
+			String kind;
+			boolean referenceUpdater = callee.startsWith("java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater(");
+			if ( referenceUpdater || callee.startsWith("java.util.concurrent.atomic.AtomicIntegerFieldUpdater.newUpdater(") ||
+					callee.startsWith("java.util.concurrent.atomic.AtomicLongFieldUpdater.newUpdater(") ) {
+				kind = callee.substring( "java.util.concurrent.atomic.".length(), callee.indexOf(".newUpdater(") );
+			} else if ( callee.startsWith("java.lang.invoke.MethodHandles$Lookup.findVarHandle(") ) {
+				kind = "VarHandle";
+			} else {
+				return;
+			}
+
+			// the field name is the nearest string constant, the class is before it (the reference updater has the type between)
+			String field = null;
+			Vector<String> owners = new Vector<String>();
+			for (int j=i-1; j>=0 && i-j<=WINDOW; --j) {
+				CodeInstruction ci = instructions.get(j);
+				if ( 0x12 != ci.getOpcode() && 0x13 != ci.getOpcode() ) {
+					continue;
+				}
+
+				ConstantPoolInfo info = ConstantPool.getElement( ci.getOperands()[0] );
+				if ( null == field && info instanceof ConstantStringInfo ) {
+					field = ( (ConstantStringInfo) info ).getValue();
+				} else if ( null != field && info instanceof ConstantClassInfo ) {
+					owners.add( ConstantPool.getClassName( ci.getOperands()[0] ) );
+				}
+			}
+
+			if ( null != field ) {
+				int index = ( referenceUpdater ? 1 : 0 );
+				String owner = ( (index < owners.size()) ? owners.get(index) : className );
+				updated.put( owner + "." + field, kind );
+			}
+		}// findUpdater
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private LayoutEstimator estimator;
+	private int cacheLine;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param estimator estimates the layouts of the classes.
+	 * @param cacheLine the size of a cache line in bytes.
+	 */
+	public FalseSharingReport(LayoutEstimator estimator, int cacheLine) {
+		this.estimator = estimator;
+		this.cacheLine = cacheLine;
+		total = new Counters();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the key of the field referenced by the given constant pool index (<code>owner.name</code>).
+	 */
+	private static String getFieldKey(int index) {
+		ConstantPoolInfo info = ConstantPool.getElement(index);
+		if ( ! ( info instanceof AbstractReference ) ) {
+			return "?";
+		}
+
+		AbstractReference ref = (AbstractReference) info;
+		ConstantPoolInfo nat = ConstantPool.getElement( ref.getNameAndTypeIndex() );
+		if ( ! ( nat instanceof ConstantNameAndTypeInfo ) ) {
+			return "?";
+		}
+
+		return ConstantPool.getClassName( ref.getClassIndex() ) + "." + ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nat ).getNameIndex() );
+	}
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		for (Map.Entry<String, int[]> entry : counters.accesses.entrySet()) {
+			int count[] = total.accesses.get( entry.getKey() );
+			if ( null == count ) {
+				total.accesses.put( entry.getKey(), count = new int[3] );
+			}
+			for (int k=0; k<count.length; ++k) {
+				count[k] += entry.getValue()[k];
+			}
+		}
+
+		total.updated.putAll(counters.updated);
+		total.classes.addAll(counters.classes);
+	}
+
+	/**
+	 * Returns the accesses of a field of a layout: the ones through the declaring class and through the class of the layout.
+	 */
+	private int[] getAccesses(ObjectLayout layout, int f) {
+		int back[] = new int[3];
+		Set<String> keys = new HashSet<String>();
+		keys.add( layout.getDeclaringClass(f) + "." + layout.getFieldName(f) );
+		keys.add( layout.getClassName() + "." + layout.getFieldName(f) );
+
+		for (String key : keys) {
+			int count[] = total.accesses.get(key);
+			if ( null != count ) {
+				for (int k=0; k<back.length; ++k) {
+					back[k] += count[k];
+				}
+			}
+		}
+		return back;
+	}
+
+	/**
+	 * Returns why a field is contended, or null if it is not.
+	 */
+	private String getContention(ObjectLayout layout, int f, int accesses[]) {
+		String updater = total.updated.get( layout.getDeclaringClass(f) + "." + layout.getFieldName(f) );
+		if ( null != updater ) {
+			return "updated by " + updater;
+		}
+		if ( 0 != ( layout.getFieldAccess(f) & AccessFlags.ACC_VOLATILE ) && 0 < accesses[WRITES] ) {
+			return "volatile, write sites: " + accesses[WRITES];
+		}
+		return null;
+	}
+
+	/** Describes a field of a layout. */
+	private static String describe(ObjectLayout layout, int f) {
+		return layout.getFieldType(f) + " " + layout.getDeclaringClass(f) + "." + layout.getFieldName(f) + " @" + layout.getFieldOffset(f);
+	}
+
+	/**
+	 * Checks the fields of a class, returns the number of the problems found.
+	 */
+	private int check(ObjectLayout layout, PrintStream out) {
+		int count = layout.getFieldCount();
+		String contention[] = new String[count];
+		boolean readMostly[] = new boolean[count];
+
+		for (int f=0; f<count; ++f) {
+			int accesses[] = getAccesses(layout, f);
+			contention[f] = getContention(layout, f, accesses);
+			readMostly[f] = ( null == contention[f] && 0 < accesses[READS] && 0 == accesses[WRITES] );
+		}
+
+		Vector<String> problems = new Vector<String>();
+		Set<String> groups = new TreeSet<String>();
+		String name = layout.getClassName();
+
+		for (int f=0; f<count; ++f) {
+			if ( null == contention[f] ) {
+				continue;
+			}
+
+			for (int g=0; g<count; ++g) {
+				if ( g == f || ! ( null != contention[g] && f < g || readMostly[g] ) ) {
+					continue;
+				}
+
+				// the pairs of the inherited fields are reported at the superclass
+				if ( ! name.equals( layout.getDeclaringClass(f) ) && ! name.equals( layout.getDeclaringClass(g) ) ) {
+					continue;
+				}
+
+				int distance = Math.abs( layout.getFieldOffset(g) - layout.getFieldOffset(f) );
+				if ( distance < cacheLine ) {
+					problems.add( describe(layout, f) + " (" + contention[f] + ") and " + describe(layout, g) + " (" +
+							( (null == contention[g]) ? "read-mostly" : contention[g] ) + "): " + distance + " bytes apart" );
+					groups.add( layout.getFieldName(f) );
+					if ( null != contention[g] ) {
+						groups.add( layout.getFieldName(g) );
+					}
+				}
+			}
+		}
+
+		if ( problems.isEmpty() ) {
+			return 0;
+		}
+
+		out.println( name + " (" + layout.getInstanceSize() + " bytes)" );
+		for (String problem : problems) {
+			out.println( "  " + problem );
+		}
+
+		StringBuilder suggestion = new StringBuilder();
+		for (String field : groups) {
+			suggestion.append(" @Contended(\"").append(field).append("\") ").append(field).append(';');
+		}
+		out.println( "  suggestion:" + suggestion + " or " + cacheLine + " bytes of padding around each of them (in super- and subclasses)" );
+		out.println();
+
+		return problems.size();
+	}// check
+
+	/**
+	 * Prints the classes with possible false sharing.
+	 *
+	 * @param out the report is printed here.
+	 * @throws IOException if a classfile cannot be read.
+	 */
+	public synchronized void print(PrintStream out) throws IOException {
+		Set<String> classes = new TreeSet<String>(total.classes);
+		int problems = 0;
+		int affected = 0;
+
+		for (String name : classes) {
+			int found = check( estimator.getLayout(name), out );
+			problems += found;
+			affected += ( (0 < found) ? 1 : 0 );
+		}
+
+		out.println( "Classes: " + classes.size() + ", with possible false sharing: " + affected + ", field pairs: " + problems );
+		out.println( "Fields updated by updaters or variable handles: " + total.updated.size() + ", cache line: " + cacheLine +
+				" bytes, " + ( estimator.isCompressedOops() ? "compressed" : "uncompressed" ) + " oops" );
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.layout.FalseSharingReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addString("-cp", "path", null);
+		options.addFlag("-uncompressed");
+		options.addInt("-line", CACHE_LINE);
+		options.parseOrExit(args);
+
+		File location = new File( options.getArgument(0) );
+		ClassPath classPath = new ClassPath();
+		classPath.add(location);
+		if ( null != options.getString("-cp") ) {
+			for (File entry : new ClassPath( options.getString("-cp") ).getLocations()) {
+				classPath.add(entry);
+			}
+		}
+
+		try {
+			LayoutEstimator estimator = new LayoutEstimator( classPath, ! options.isSet("-uncompressed") );
+			new FalseSharingReport( estimator, options.getInt("-line") ).run( location, options.getInt("-threads") );
+		} finally {
+			classPath.close();
+		}
+	}// main
+
+}// class.FalseSharingReport
@@ -0,0 +1,331 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.layout;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.classpath.ClassPath;
+import jyzer.items.ConstantPool;
+import jyzer.items.accessflags.AccessFlags;
+import jyzer.items.fields.FieldInfo;
+
+/**
+ * <p>Estimates the layout of the instances like the HotSpot virtual machine of Java 6 to 14 does it (the default
+ * field allocation style, with compact fields). The fields of the superclasses come first, then the fields of the
+ * class are grouped by their sizes: <code>long</code>s and <code>double</code>s, <code>int</code>s and
+ * <code>float</code>s, <code>short</code>s and <code>char</code>s, <code>byte</code>s and <code>boolean</code>s,
+ * and at last the references. Within a group the order of the declaration is kept. If the <code>long</code>s would
+ * leave a gap before them for the alignment, the gap is filled with the first smaller fields. The end of the fields
+ * is aligned to the size of a reference, the instance size to 8 bytes. Java 15 and later pack the fields of a
+ * subclass into the gaps of the superclass too, so they may give smaller instances.</p>
+ *
+ * <p>The header is 12 bytes with compressed oops (and compressed class pointers), 16 bytes without them; the
+ * references are 4 and 8 bytes. The fields injected by the virtual machine into some system classes are not
+ * known here.</p>
+ *
+ * <p>The superclasses are found on a <code>ClassPath</code>, the layouts are cached. An estimator can be used by
+ * more threads at the same time.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LayoutEstimator {
+
+	/** The objects are aligned to this. */
+	public static final int OBJECT_ALIGNMENT = 8;
+
+	/** The size of the header with compressed class pointers. */
+	public static final int COMPRESSED_HEADER = 12;
+	/** The size of the header without compressed class pointers. */
+	public static final int HEADER = 16;
+
+	/** The name of the root class. */
+	private static final String OBJECT = "java.lang.Object";
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ClassPath classPath;
+	private boolean compressedOops;
+	private int oopSize;
+	private Map<String, ObjectLayout> cache = new HashMap<String, ObjectLayout>();
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new estimator.
+	 *
+	 * @param classPath the superclasses are found here.
+	 * @param compressedOops true for 4 byte references and a 12 byte header, false for 8 byte references and a 16 byte header.
+	 */
+	public LayoutEstimator(ClassPath classPath, boolean compressedOops) {
+		this.classPath      = classPath;
+		this.compressedOops = compressedOops;
+		oopSize = ( compressedOops ? 4 : 8 );
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns true if the layouts are estimated with compressed oops. */
+	public boolean isCompressedOops() {
+		return compressedOops;
+	}
+
+	/** Returns the size of a reference. */
+	public int getOopSize() {
+		return oopSize;
+	}
+
+	/** Returns the size of the object header. */
+	public int getHeaderSize() {
+		return ( compressedOops ? COMPRESSED_HEADER : HEADER );
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/** Aligns a value up. */
+	private static int align(int value, int alignment) {
+		return ( (value + alignment - 1) / alignment ) * alignment;
+	}
+
+	/**
+	 * Returns the size of a field by the first character of its descriptor.
+	 */
+	public int getFieldSize(char type) {
+		switch (type) {
+			case 'J': case 'D': return 8;
+			case 'I': case 'F': return 4;
+			case 'S': case 'C': return 2;
+			case 'B': case 'Z': return 1;
+			default: return oopSize;
+		}
+	}
+
+	/**
+	 * Returns the layout of a class found on the class path.
+	 *
+	 * @param name the name of the class with dots.
+	 * @return the layout, or null if the class is not on the class path (except <code>java.lang.Object</code>, that
+	 *         is known without its classfile).
+	 * @throws IOException if the classfile cannot be read.
+	 */
+	public ObjectLayout getLayout(String name) throws IOException {
+		synchronized (cache) {
+			ObjectLayout back = cache.get(name);
+			if ( null != back ) {
+				return back;
+			}
+		}
+
+		ClassFile cf = classPath.getClass(name);
+		if ( null == cf ) {
+			return ( OBJECT.equals(name) ? getRootLayout(null) : null );
+		}
+
+		ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+		try {
+			return getLayout(cf);
+		} finally {
+			ConstantPool.setCurrent(previous);
+		}
+	}// getLayout(String)
+
+	/**
+	 * Returns the layout of a parsed class. The constant pool of the classfile must be the current one.
+	 *
+	 * @param cf the classfile of the class.
+	 * @return the layout; it is incomplete (see <code>ObjectLayout.getMissingClass()</code>) if a superclass is not
+	 *         found or cannot be read.
+	 */
+	public ObjectLayout getLayout(ClassFile cf) {
+		String name = cf.getThisClassName();
+		synchronized (cache) {
+			ObjectLayout back = cache.get(name);
+			if ( null != back ) {
+				return back;
+			}
+		}
+
+		// the fields are read before the superclasses, their layouts are built with their own pools
+		Vector<FieldInfo> fields = new Vector<FieldInfo>();
+		Vector<String> descriptors = new Vector<String>();
+		Vector<String> names = new Vector<String>();
+		Vector<String> types = new Vector<String>();
+		for (FieldInfo field : cf.getFieldItem().getFields()) {
+			if ( 0 == ( field.getAccessInt() & AccessFlags.ACC_STATIC ) ) {
+				fields.add(field);
+				descriptors.add( ConstantPool.getUtf8String( field.getDescriptorIndex() ) );
+				names.add( field.getNameString() );
+				types.add( field.getDescriptorString() );
+			}
+		}
+
+		String superName = cf.getSuperClassName();
+		ObjectLayout parent;
+		if ( null == superName || 0 == superName.length() || OBJECT.equals(name) ) {
+			parent = null;
+		} else {
+			try {
+				parent = getLayout(superName);
+			} catch (IOException ioe) { // an unreadable superclass is treated like a missing one
+				parent = null;
+			}
+			if ( null == parent ) {
+				parent = getRootLayout(superName);
+			}
+		}
+
+		ObjectLayout back = layout(name, parent, fields, descriptors, names, types);
+		synchronized (cache) {
+			cache.put(name, back);
+		}
+		return back;
+	}// getLayout(ClassFile)
+
+	/**
+	 * Returns the layout of <code>java.lang.Object</code>: only the header.
+	 *
+	 * @param missingClass the superclass that was not found, the root is used instead of it.
+	 */
+	private ObjectLayout getRootLayout(String missingClass) {
+		int header = getHeaderSize();
+		return new ObjectLayout( ( (null == missingClass) ? OBJECT : missingClass ), compressedOops, header, header, align(header, OBJECT_ALIGNMENT),
+				missingClass, new String[0], new String[0], new String[0], new int[0], new int[0], new int[0] );
+	}
+
+	/**
+	 * Places the instance fields of a class after the fields of the superclass.
+	 */
+	private ObjectLayout layout(String name, ObjectLayout parent, Vector<FieldInfo> fields, Vector<String> descriptors,
+			Vector<String> names, Vector<String> types) {
+		int header = getHeaderSize();
+		int inherited = ( (null == parent) ? 0 : parent.getFieldCount() );
+		int count = inherited + fields.size();
+
+		String fieldNames[] = new String[count];
+		String fieldTypes[] = new String[count];
+		String declaringClasses[] = new String[count];
+		int fieldSizes[] = new int[count];
+		int fieldOffsets[] = new int[count];
+		int fieldAccess[] = new int[count];
+
+		for (int i=0; i<inherited; ++i) {
+			fieldNames[i]       = parent.getFieldName(i);
+			fieldTypes[i]       = parent.getFieldType(i);
+			declaringClasses[i] = parent.getDeclaringClass(i);
+			fieldSizes[i]       = parent.getFieldSize(i);
+			fieldOffsets[i]     = parent.getFieldOffset(i);
+			fieldAccess[i]      = parent.getFieldAccess(i);
+		}
+
+		// the groups by size: 8, 4, 2, 1 bytes and the references
+		int groupCounts[] = new int[5];
+		int groups[] = new int[ fields.size() ];
+		for (int f=0; f<fields.size(); ++f) {
+			char type = descriptors.get(f).charAt(0);
+			int size = getFieldSize(type);
+			groups[f] = ( ('L' == type || '[' == type) ? 4 : ( (8 == size) ? 0 : ( (4 == size) ? 1 : ( (2 == size) ? 2 : 3 ) ) ) );
+			groupCounts[ groups[f] ]++;
+
+			int i = inherited + f;
+			fieldNames[i]       = names.get(f);
+			fieldTypes[i]       = types.get(f);
+			declaringClasses[i] = name;
+			fieldSizes[i]       = size;
+			fieldAccess[i]      = fields.get(f).getAccessInt();
+		}
+
+		int start = ( (null == parent) ? header : parent.getFieldEnd() );
+		int next[] = new int[5];       // the next offset in a group
+		int gapCounts[] = new int[5];  // the number of the first fields of a group placed into the gap
+		int gapNext[] = new int[5];    // the next offset in the gap
+
+		int offset = start;
+		int doubleOffset = align(start, 8);
+		if ( 0 < groupCounts[0] && offset != doubleOffset ) {
+			int length = doubleOffset - offset;
+			int sizes[] = { 8, 4, 2, 1, oopSize };
+
+			for (int g=1; g<=4 && 0 < length; ++g) {
+				if ( 4 == g && ( 0 != gapCounts[1] + gapCounts[2] + gapCounts[3] ) ) {
+					break; // a reference goes into the gap only if nothing else does
+				}
+
+				gapNext[g] = offset;
+				while ( sizes[g] <= length && gapCounts[g] < groupCounts[g] && ( 1 != g && 4 != g || 0 == gapCounts[g] ) ) {
+					gapCounts[g]++;
+					length -= sizes[g];
+					offset += sizes[g];
+				}
+			}
+		}
+
+		next[0] = doubleOffset;
+		if ( 0 == groupCounts[0] ) {
+			next[0] = start;
+		}
+		next[1] = next[0] + 8 * groupCounts[0];
+		next[2] = next[1] + 4 * ( groupCounts[1] - gapCounts[1] );
+		next[3] = next[2] + 2 * ( groupCounts[2] - gapCounts[2] );
+		int padded = next[3] + ( groupCounts[3] - gapCounts[3] );
+		next[4] = ( (0 < groupCounts[4] - gapCounts[4]) ? align(padded, oopSize) : padded );
+		padded = next[4] + oopSize * ( groupCounts[4] - gapCounts[4] );
+
+		int used[] = new int[5];
+		for (int f=0; f<fields.size(); ++f) {
+			int g = groups[f];
+			int size = fieldSizes[inherited + f];
+
+			if ( used[g] < gapCounts[g] ) {
+				fieldOffsets[inherited + f] = gapNext[g];
+				gapNext[g] += size;
+			} else {
+				fieldOffsets[inherited + f] = next[g];
+				next[g] += size;
+			}
+			used[g]++;
+		}
+
+		sortByOffset(inherited, fieldNames, fieldTypes, declaringClasses, fieldSizes, fieldOffsets, fieldAccess);
+
+		int end = align(padded, oopSize);
+		return new ObjectLayout( name, compressedOops, header, end, align(end, OBJECT_ALIGNMENT), ( (null == parent) ? null : parent.getMissingClass() ),
+				fieldNames, fieldTypes, declaringClasses, fieldSizes, fieldOffsets, fieldAccess );
+	}// layout
+
+	/**
+	 * Sorts the fields of the class (after the inherited ones) by their offsets (insertion sort, there are only a few).
+	 */
+	private static void sortByOffset(int from, String names[], String types[], String classes[], int sizes[], int offsets[], int access[]) {
+		for (int i=from+1; i<offsets.length; ++i) {
+			for (int j=i; from<j && offsets[j] < offsets[j - 1]; --j) {
+				String name = names[j];   names[j] = names[j - 1];     names[j - 1] = name;
+				String type = types[j];   types[j] = types[j - 1];     types[j - 1] = type;
+				String owner = classes[j]; classes[j] = classes[j - 1]; classes[j - 1] = owner;
+				int size = sizes[j];      sizes[j] = sizes[j - 1];     sizes[j - 1] = size;
+				int offset = offsets[j];  offsets[j] = offsets[j - 1]; offsets[j - 1] = offset;
+				int flags = access[j];    access[j] = access[j - 1];   access[j - 1] = flags;
+			}
+		}
+	}
+
+}// class.LayoutEstimator
@@ -0,0 +1,226 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.layout;
+
+import java.io.*;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.TopList;
+import jyzer.classpath.ClassPath;
+import jyzer.classpath.ClassScanner;
+
+/**
+ * <p>Estimates the instance layouts of the classes of a directory or a jar file with and without compressed oops,
+ * and ranks the classes by their instance sizes and by the bytes lost to the gaps and the padding. The layouts of
+ * the chosen classes (or all of them) are printed field by field. The superclasses are looked up on the location
+ * and on the given class path (for example the <code>rt.jar</code> of the JDK); the classes whose superclass chain
+ * is not complete are counted, their layouts lack the fields of the missing classes. The classes are processed by
+ * the workers of a <code>ClassScanner</code> into their own counters (see <code>ScanReport</code>), the estimators
+ * are shared by them.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.layout.LayoutReport [-threads n] [-top n] [-cp path] [-class name]... [-all]
+ * &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LayoutReport extends ScanReport<LayoutReport.Counters> {
+
+	// --- Counters ------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The counters of a worker.
+	 */
+	final class Counters implements ScanReport.Counters {
+
+		private long classes = 0;
+		private long interfaces = 0;
+		private long incomplete = 0;
+		private long bytes[] = new long[2];
+		private long padding[] = new long[2];
+		private Map<Integer, long[]> sizes = new TreeMap<Integer, long[]>();
+
+		private TopList largest = new TopList(top);
+		private TopList wasteful = new TopList(top);
+		private TopList oopSensitive = new TopList(top);
+		private Map<String, ObjectLayout[]> printed = new TreeMap<String, ObjectLayout[]>();
+
+		public void visitClass(ClassFile cf, byte bytes[]) throws IOException {
+			if ( cf.isInterface() ) {
+				interfaces++;
+				return;
+			}
+
+			ObjectLayout compressed = estimators[0].getLayout(cf);
+			ObjectLayout uncompressed = estimators[1].getLayout(cf);
+			String name = cf.getThisClassName();
+
+			classes++;
+			if ( null != compressed.getMissingClass() ) {
+				incomplete++;
+			}
+
+			ObjectLayout layouts[] = { compressed, uncompressed };
+			for (int i=0; i<2; ++i) {
+				this.bytes[i] += layouts[i].getInstanceSize();
+				padding[i] += layouts[i].getPaddingBytes();
+			}
+
+			count( sizes, compressed.getInstanceSize(), 1 );
+
+			String label = name + " (" + compressed.getFieldCount() + " fields" + ( (null == compressed.getMissingClass()) ? "" : ", incomplete" ) + ")";
+			if ( largest.accepts( compressed.getInstanceSize() ) ) {
+				largest.add( compressed.getInstanceSize(), label );
+			}
+			if ( wasteful.accepts( compressed.getPaddingBytes() ) && 0 < compressed.getPaddingBytes() ) {
+				wasteful.add( compressed.getPaddingBytes(), label + ", " + compressed.getInstanceSize() + " bytes" );
+			}
+			int growth = uncompressed.getInstanceSize() - compressed.getInstanceSize();
+			if ( oopSensitive.accepts(growth) && 0 < growth ) {
+				oopSensitive.add( growth, label + ": " + compressed.getInstanceSize() + " -> " + uncompressed.getInstanceSize() + " bytes" );
+			}
+
+			if ( all || selected.contains(name) ) {
+				printed.put(name, layouts);
+			}
+		}// visitClass
+
+	}// class.Counters
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private LayoutEstimator estimators[];
+	private int top;
+	private boolean all;
+	private Vector<String> selected;
+	private Counters total;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty report.
+	 *
+	 * @param classPath the superclasses are found here (the scanned location should be on it too).
+	 * @param top the length of the rankings.
+	 * @param selected the names of the classes whose layout is printed.
+	 * @param all true if the layout of every class is printed.
+	 */
+	public LayoutReport(ClassPath classPath, int top, Vector<String> selected, boolean all) {
+		this.top      = Math.max(0, top);
+		this.selected = selected;
+		this.all      = all;
+		estimators = new LayoutEstimator[] { new LayoutEstimator(classPath, true), new LayoutEstimator(classPath, false) };
+		total = new Counters();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	protected Counters newCounters() {
+		return new Counters();
+	}
+
+	protected void merge(Counters counters) {
+		total.classes    += counters.classes;
+		total.interfaces += counters.interfaces;
+		total.incomplete += counters.incomplete;
+
+		for (int i=0; i<2; ++i) {
+			total.bytes[i]   += counters.bytes[i];
+			total.padding[i] += counters.padding[i];
+		}
+
+		addCounts(total.sizes, counters.sizes);
+
+		total.largest.merge(counters.largest);
+		total.wasteful.merge(counters.wasteful);
+		total.oopSensitive.merge(counters.oopSensitive);
+		total.printed.putAll(counters.printed);
+	}// merge
+
+	/**
+	 * Prints the report as plain text.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		for (ObjectLayout layouts[] : total.printed.values()) {
+			for (ObjectLayout layout : layouts) {
+				layout.print(out);
+			}
+			out.println();
+		}
+
+		out.println( "Classes: " + total.classes + ", interfaces: " + total.interfaces + ", with missing superclasses: " + total.incomplete );
+		out.println("                         compressed oops   uncompressed oops");
+		out.println( String.format( "  Sum of instance sizes %15d %19d", total.bytes[0], total.bytes[1] ) );
+		out.println( String.format( "  Sum of padding        %15d %19d", total.padding[0], total.padding[1] ) );
+		if ( 0 < total.classes ) {
+			out.println( String.format( "  Average instance size %15.1f %19.1f", (double) total.bytes[0] / total.classes, (double) total.bytes[1] / total.classes ) );
+		}
+
+		out.println();
+		out.println("Instance sizes with compressed oops (bytes: classes)");
+		for (Map.Entry<Integer, long[]> entry : total.sizes.entrySet()) {
+			out.println( String.format( "  %6d: %d", entry.getKey(), entry.getValue()[0] ) );
+		}
+
+		if ( 0 < top ) {
+			total.largest.print(out, "Largest instances with compressed oops (bytes)", 6);
+			total.wasteful.print(out, "Most bytes lost to gaps and padding with compressed oops", 6);
+			total.oopSensitive.print(out, "Largest growth without compressed oops (bytes)", 6);
+		}
+	}// print
+
+	/**
+	 * Entry point of the report.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.analysis.layout.LayoutReport", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 20);
+		options.addString("-cp", "path", null);
+		options.addList("-class", "name");
+		options.addFlag("-all");
+		options.parseOrExit(args);
+
+		File location = new File( options.getArgument(0) );
+		ClassPath classPath = new ClassPath();
+		classPath.add(location);
+		if ( null != options.getString("-cp") ) {
+			for (File entry : new ClassPath( options.getString("-cp") ).getLocations()) {
+				classPath.add(entry);
+			}
+		}
+
+		try {
+			LayoutReport report = new LayoutReport( classPath, options.getInt("-top"), options.getList("-class"), options.isSet("-all") );
+			report.run( location, options.getInt("-threads") );
+		} finally {
+			classPath.close();
+		}
+	}// main
+
+}// class.LayoutReport
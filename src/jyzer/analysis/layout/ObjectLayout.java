@@ -0,0 +1,189 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.layout;
+
+import java.io.PrintStream;
+
+/**
+ * <p>The estimated layout of the instances of a class: the object header, the instance fields of the class and its
+ * superclasses with their offsets, and the instance size. The fields are ordered by their offsets. A layout is
+ * immutable, so it can be shared by threads.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ObjectLayout {
+
+	private String className;
+	private boolean compressedOops;
+	private int headerSize;
+	private int fieldEnd;
+	private int instanceSize;
+	private String missingClass;
+
+	private String fieldNames[];
+	private String fieldTypes[];
+	private String declaringClasses[];
+	private int fieldSizes[];
+	private int fieldOffsets[];
+	private int fieldAccess[];
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a layout. The arrays are not copied.
+	 */
+	ObjectLayout(String className, boolean compressedOops, int headerSize, int fieldEnd, int instanceSize, String missingClass,
+			String fieldNames[], String fieldTypes[], String declaringClasses[], int fieldSizes[], int fieldOffsets[], int fieldAccess[]) {
+		this.className        = className;
+		this.compressedOops   = compressedOops;
+		this.headerSize       = headerSize;
+		this.fieldEnd         = fieldEnd;
+		this.instanceSize     = instanceSize;
+		this.missingClass     = missingClass;
+		this.fieldNames       = fieldNames;
+		this.fieldTypes       = fieldTypes;
+		this.declaringClasses = declaringClasses;
+		this.fieldSizes       = fieldSizes;
+		this.fieldOffsets     = fieldOffsets;
+		this.fieldAccess      = fieldAccess;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the name of the class. */
+	public String getClassName() {
+		return className;
+	}
+
+	/** Returns true if the layout is estimated with compressed oops. */
+	public boolean isCompressedOops() {
+		return compressedOops;
+	}
+
+	/** Returns the size of the object header. */
+	public int getHeaderSize() {
+		return headerSize;
+	}
+
+	/** Returns the end of the fields, where the fields of a subclass start (aligned to the size of a reference). */
+	public int getFieldEnd() {
+		return fieldEnd;
+	}
+
+	/** Returns the estimated size of an instance in bytes (aligned to 8 bytes). */
+	public int getInstanceSize() {
+		return instanceSize;
+	}
+
+	/**
+	 * Returns the first superclass that was not found on the class path, or null if the whole chain was found. If a
+	 * superclass is missing, its fields (and the fields of its superclasses) are not in the layout.
+	 */
+	public String getMissingClass() {
+		return missingClass;
+	}
+
+	/** Returns the number of the instance fields (the inherited ones too). */
+	public int getFieldCount() {
+		return fieldNames.length;
+	}
+
+	/** Returns the name of a field. */
+	public String getFieldName(int i) {
+		return fieldNames[i];
+	}
+
+	/** Returns the type of a field as in the source (<code>int</code>, <code>java.lang.String[]</code>). */
+	public String getFieldType(int i) {
+		return fieldTypes[i];
+	}
+
+	/** Returns the name of the class that declares a field. */
+	public String getDeclaringClass(int i) {
+		return declaringClasses[i];
+	}
+
+	/** Returns the size of a field in bytes. */
+	public int getFieldSize(int i) {
+		return fieldSizes[i];
+	}
+
+	/** Returns the offset of a field in the object. */
+	public int getFieldOffset(int i) {
+		return fieldOffsets[i];
+	}
+
+	/** Returns the access flags of a field. */
+	public int getFieldAccess(int i) {
+		return fieldAccess[i];
+	}
+
+	/** Returns the number of the bytes used by the fields. */
+	public int getFieldBytes() {
+		int back = 0;
+		for (int size : fieldSizes) {
+			back += size;
+		}
+		return back;
+	}
+
+	/** Returns the number of the bytes lost in the gaps between the fields and in the padding at the end. */
+	public int getPaddingBytes() {
+		return instanceSize - headerSize - getFieldBytes();
+	}
+
+	/** Returns the index of a field declared by the given class, or -1 if there's no such field. */
+	public int findField(String declaringClass, String name) {
+		for (int i=0; i<fieldNames.length; ++i) {
+			if ( fieldNames[i].equals(name) && declaringClasses[i].equals(declaringClass) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Prints the layout as a table: the header, the fields and the gaps with their offsets.
+	 *
+	 * @param out the layout is printed here.
+	 */
+	public void print(PrintStream out) {
+		out.println( className + ": " + instanceSize + " bytes with " + ( compressedOops ? "compressed" : "uncompressed" ) + " oops" +
+				( (null == missingClass) ? "" : " (without the fields of " + missingClass + ", not found)" ) );
+		out.println("    offset  size  field");
+		out.println( String.format( "  %8d  %4d  (object header)", 0, headerSize ) );
+
+		int position = headerSize;
+		for (int i=0; i<fieldNames.length; ++i) {
+			if ( position < fieldOffsets[i] ) {
+				out.println( String.format( "  %8d  %4d  (gap)", position, fieldOffsets[i] - position ) );
+			}
+			out.println( String.format( "  %8d  %4d  %s %s.%s", fieldOffsets[i], fieldSizes[i], fieldTypes[i], declaringClasses[i], fieldNames[i] ) );
+			position = fieldOffsets[i] + fieldSizes[i];
+		}
+
+		if ( position < instanceSize ) {
+			out.println( String.format( "  %8d  %4d  (padding)", position, instanceSize - position ) );
+		}
+	}// print
+
+}// class.ObjectLayout
@@ -0,0 +1,67 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.helpers.ExceptionTable;
+import jyzer.items.attributes.types.helpers.ExceptionTableEntry;
+
+/**
+ * <p>Finds the exceptions used for control flow: an <code>athrow</code> inside a range that is protected by a handler
+ * of the same method catching a specific type, so the exception is probably thrown only to jump to the handler.
+ * Creating an exception fills in its stack trace, which is much slower than a jump. The handlers that catch
+ * everything (<code>finally</code> and <code>synchronized</code>) are not considered, they only rethrow.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ExceptionControlFlowRule implements LintRule {
+
+	public String getName() {
+		return "exception-control-flow";
+	}
+
+	public String getDescription() {
+		return "Exceptions thrown and caught in the same method";
+	}
+
+	public void check(LintContext context) {
+		ExceptionTable table = context.getCode().getExceptionTable();
+		if ( 0 == table.getExceptionTableLength() ) {
+			return;
+		}
+
+		for (int i=0; i<context.getInstructionCount(); ++i) {
+			if ( 0xbf != context.getInstruction(i).getOpcode() ) { // athrow
+				continue;
+			}
+
+			int offset = context.getGraph().getOffset(i);
+			for (int e=0; e<table.getExceptionTableLength(); ++e) {
+				ExceptionTableEntry entry = table.getEntry(e);
+				if ( 0 != entry.getCatchType() && entry.getStartPc() <= offset && offset < entry.getEndPc() ) {
+					context.report( this, i, "thrown inside a block that catches " + ConstantPool.getClassName( entry.getCatchType() ) +
+							" (handler at pc " + entry.getHandlerPc() + ")" );
+					break;
+				}
+			}
+		}
+	}
+
+}// class.ExceptionControlFlowRule
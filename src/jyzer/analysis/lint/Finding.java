@@ -0,0 +1,99 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+/**
+ * A problem found by a rule at an instruction of a method.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class Finding implements Comparable<Finding> {
+
+	private String rule;
+	private String method;
+	private int offset;
+	private int line;
+	private String message;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new finding.
+	 *
+	 * @param rule the name of the rule.
+	 * @param method the key of the method (<code>owner.name(descriptor)</code>).
+	 * @param offset the offset of the instruction.
+	 * @param line the source line of the instruction, or -1 if it is not known.
+	 * @param message the description of the problem.
+	 */
+	public Finding(String rule, String method, int offset, int line, String message) {
+		this.rule    = rule;
+		this.method  = method;
+		this.offset  = offset;
+		this.line    = line;
+		this.message = message;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the name of the rule. */
+	public String getRule() {
+		return rule;
+	}
+
+	/** Returns the key of the method. */
+	public String getMethod() {
+		return method;
+	}
+
+	/** Returns the offset of the instruction. */
+	public int getOffset() {
+		return offset;
+	}
+
+	/** Returns the source line, or -1 if it is not known. */
+	public int getLine() {
+		return line;
+	}
+
+	/** Returns the description of the problem. */
+	public String getMessage() {
+		return message;
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	/** The findings are ordered by the method, the offset and the rule. */
+	public int compareTo(Finding other) {
+		int back = method.compareTo(other.method);
+		if ( 0 == back ) {
+			back = offset - other.offset;
+		}
+		if ( 0 == back ) {
+			back = rule.compareTo(other.rule);
+		}
+		return back;
+	}
+
+	public String toString() {
+		return method + " " + ( (-1 == line) ? "" : "line " + line + " " ) + "(pc " + offset + ") [" + rule + "] " + message;
+	}
+
+}// class.Finding
@@ -0,0 +1,71 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+/**
+ * <p>Finds the messages formatted by <code>String.format()</code> or <code>MessageFormat.format()</code> that are
+ * passed directly to a logging call. The message is formatted even if the level is disabled; the logging frameworks
+ * can take the parameters and format only when the message is written.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class FormatInLoggingRule implements LintRule {
+
+	/** The formatting methods, as <code>owner.name(</code>. */
+	private static final String FORMATS[] = { "java.lang.String.format(", "java.text.MessageFormat.format(" };
+
+	public String getName() {
+		return "format-in-logging";
+	}
+
+	public String getDescription() {
+		return "Messages formatted eagerly for a logging call";
+	}
+
+	/** Returns true if the class is a logger of a known logging framework, or its name ends like one. */
+	private static boolean isLogger(String className) {
+		return ( className.startsWith("java.util.logging.") || className.startsWith("org.apache.log4j.") ||
+				className.startsWith("org.apache.commons.logging.") || className.startsWith("org.slf4j.") ||
+				className.endsWith("Logger") || className.endsWith("Log") );
+	}
+
+	public void check(LintContext context) {
+		for (int i=0; i<context.getInstructionCount(); ++i) {
+			String callee = context.getCallee(i);
+			if ( null == callee || ! ( callee.startsWith( FORMATS[0] ) || callee.startsWith( FORMATS[1] ) ) ) {
+				continue;
+			}
+
+			// the next call of the block is the one that gets the message
+			int last = context.getGraph().getLastInstruction( context.getGraph().getBlockOfInstruction(i) );
+			for (int j=i+1; j<=last; ++j) {
+				String next = context.getCallee(j);
+				if ( null != next ) {
+					String owner = next.substring( 0, next.lastIndexOf( '.', next.indexOf('(') ) );
+					if ( isLogger(owner) ) {
+						context.report( this, i, callee.substring( 0, callee.indexOf('(') ) + "() result passed to " + next.substring( 0, next.indexOf('(') ) + "()" );
+					}
+					break;
+				}
+			}
+		}
+	}
+
+}// class.FormatInLoggingRule
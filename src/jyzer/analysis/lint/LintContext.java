@@ -0,0 +1,159 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+import java.util.Vector;
+
+import jyzer.analysis.MethodIndex;
+import jyzer.analysis.flow.ControlFlowGraph;
+import jyzer.analysis.flow.LoopNest;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>The method checked by the rules: the decoded instructions and the control flow graph of the code, the loop
+ * nest (built when it is asked for first), the resolved references of the invoke instructions and the source lines.
+ * The constant pool of the method is the current one while the rules run. The findings of the rules are collected
+ * here.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LintContext {
+
+	private String className;
+	private String key;
+	private MethodInfo method;
+	private CodeAttribute code;
+	private ControlFlowGraph graph;
+	private LoopNest loops;
+	private String references[];
+	private Vector<Finding> findings;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates the context of a method.
+	 *
+	 * @param className the name of the class of the method.
+	 * @param method the method.
+	 * @param code the code of the method.
+	 * @param graph the control flow graph of the code.
+	 * @param findings the findings are added to this.
+	 */
+	public LintContext(String className, MethodInfo method, CodeAttribute code, ControlFlowGraph graph, Vector<Finding> findings) {
+		this.className = className;
+		this.method    = method;
+		this.code      = code;
+		this.graph     = graph;
+		this.findings  = findings;
+		key = MethodIndex.getKey( className, method.getNameString(), method.getDescriptorString() );
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the name of the class. */
+	public String getClassName() {
+		return className;
+	}
+
+	/** Returns the key of the method (<code>owner.name(descriptor)</code>). */
+	public String getKey() {
+		return key;
+	}
+
+	/** Returns the method. */
+	public MethodInfo getMethod() {
+		return method;
+	}
+
+	/** Returns the code of the method. */
+	public CodeAttribute getCode() {
+		return code;
+	}
+
+	/** Returns the control flow graph of the code. */
+	public ControlFlowGraph getGraph() {
+		return graph;
+	}
+
+	/** Returns the loops of the method. */
+	public LoopNest getLoops() {
+		if ( null == loops ) {
+			loops = new LoopNest(graph);
+		}
+		return loops;
+	}
+
+	/** Returns the number of the instructions. */
+	public int getInstructionCount() {
+		return graph.getInstructionCount();
+	}
+
+	/** Returns an instruction. */
+	public CodeInstruction getInstruction(int i) {
+		return graph.getInstruction(i);
+	}
+
+	/** Returns the loop depth of an instruction (0 if it is not in a loop). */
+	public int getLoopDepth(int i) {
+		return getLoops().getLoopDepthOfInstruction(i);
+	}
+
+	/**
+	 * Returns the key of the method called by an invoke instruction (<code>owner.name(descriptor)</code>), or null if
+	 * the instruction is not an invoke.
+	 */
+	public String getCallee(int i) {
+		if ( null == references ) {
+			references = new String[ graph.getInstructionCount() ];
+		}
+
+		if ( null == references[i] && MethodIndex.isInvoke( graph.getInstruction(i).getOpcode() ) ) {
+			references[i] = MethodIndex.getReferenceKey( graph.getInstruction(i).getOperands()[0] );
+		}
+		return references[i];
+	}
+
+	/** Returns the name of the class referenced by an instruction (<code>new</code>, <code>checkcast</code> ...). */
+	public String getClassReference(int i) {
+		return ConstantPool.getClassName( graph.getInstruction(i).getOperands()[0] );
+	}
+
+	/** Returns the source line of an instruction, or -1 if it is not known. */
+	public int getLineNumber(int i) {
+		return code.getLineNumber( graph.getOffset(i) );
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Reports a problem found at an instruction.
+	 *
+	 * @param rule the rule that found the problem.
+	 * @param i the index of the instruction.
+	 * @param message the description of the problem.
+	 */
+	public void report(LintRule rule, int i, String message) {
+		findings.add( new Finding( rule.getName(), key, graph.getOffset(i), getLineNumber(i), message ) );
+	}
+
+}// class.LintContext
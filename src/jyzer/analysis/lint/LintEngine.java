@@ -0,0 +1,223 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.ScanReport;
+import jyzer.analysis.flow.ControlFlowGraph;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.exceptions.CorruptedClassfileException;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Runs the lint rules over every method of a directory or a jar file. The methods are checked by the workers of
+ * a <code>ClassScanner</code>: every worker builds the control flow graph of the methods of its classes, runs all the
+ * rules on them, and collects the findings into its own list (see <code>ScanReport</code>). The findings are printed
+ * ordered by the method and the offset, with the source lines if the classfiles have line number tables.</p>
+ *
+ * <p>Usage: <code>java jyzer.analysis.lint.LintEngine [-threads n] [-rules name,...] [-list]
+ * &lt;classfile|directory|jar&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LintEngine extends ScanReport<LintEngine.Checker> {
+
+	// --- Checker -------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Checks the methods of the classes of a worker.
+	 */
+	final class Checker implements ScanReport.Counters {
+
+		private Vector<Finding> findings = new Vector<Finding>();
+		private long methods = 0;
+		private long corrupted = 0;
+
+		public void visitClass(ClassFile cf, byte bytes[]) {
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				if ( null == code ) {
+					continue;
+				}
+
+				ControlFlowGraph graph;
+				try {
+					graph = new ControlFlowGraph(code);
+				} catch (CorruptedClassfileException cce) {
+					corrupted++;
+					log.println( cf.getThisClassName() + "." + method.getNameString() + method.getDescriptorString() + ": " + cce.getMessage() );
+					continue;
+				}
+
+				methods++;
+				LintContext context = new LintContext( cf.getThisClassName(), method, code, graph, findings );
+				for (LintRule rule : rules) {
+					rule.check(context);
+				}
+			}
+		}
+
+	}// class.Checker
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private Vector<LintRule> rules = new Vector<LintRule>();
+	private PrintStream log;
+	private Vector<Finding> findings = new Vector<Finding>();
+	private long methods = 0;
+	private long corrupted = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an engine without rules.
+	 *
+	 * @param log the methods with corrupted code are reported here.
+	 */
+	public LintEngine(PrintStream log) {
+		this.log = log;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the rules of the engine. */
+	public Vector<LintRule> getRules() {
+		return rules;
+	}
+
+	/** Returns the findings, ordered by the method and the offset. */
+	public synchronized Vector<Finding> getFindings() {
+		Collections.sort(findings);
+		return findings;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns new instances of the rules shipped with the engine.
+	 */
+	public static Vector<LintRule> createDefaultRules() {
+		Vector<LintRule> back = new Vector<LintRule>();
+		back.add( new StringConcatenationInLoopRule() );
+		back.add( new ReflectionInLoopRule() );
+		back.add( new ExceptionControlFlowRule() );
+		back.add( new LookupswitchRule() );
+		back.add( new FormatInLoggingRule() );
+		return back;
+	}
+
+	/**
+	 * Adds a rule. The rules must be added before the scanning.
+	 */
+	public void addRule(LintRule rule) {
+		rules.add(rule);
+	}
+
+	protected Checker newCounters() {
+		return new Checker();
+	}
+
+	protected void merge(Checker checker) {
+		findings.addAll(checker.findings);
+		methods += checker.methods;
+		corrupted += checker.corrupted;
+	}
+
+	/**
+	 * Checks the methods of a single parsed classfile, without adding the findings to the totals. Can be called on
+	 * any thread, the constant pool of the classfile is used even if other classfiles were parsed since then.
+	 *
+	 * @param cf a parsed classfile.
+	 * @return the findings, ordered by the method and the offset.
+	 */
+	public Vector<Finding> check(ClassFile cf) {
+		Checker checker = new Checker();
+		ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+		try {
+			checker.visitClass(cf, null);
+		} finally {
+			ConstantPool.setCurrent(previous);
+		}
+
+		Collections.sort(checker.findings);
+		return checker.findings;
+	}
+
+	/**
+	 * Prints the findings and the number of the findings of every rule.
+	 *
+	 * @param out the report is printed here.
+	 */
+	public synchronized void print(PrintStream out) {
+		for (Finding finding : getFindings()) {
+			out.println(finding);
+		}
+
+		out.println();
+		out.println( "Methods checked: " + methods + ", corrupted: " + corrupted );
+		for (LintRule rule : rules) {
+			int count = 0;
+			for (Finding finding : findings) {
+				if ( finding.getRule().equals( rule.getName() ) ) {
+					count++;
+				}
+			}
+			out.println( String.format( "  %-28s %6d", rule.getName(), count ) );
+		}
+	}// print
+
+	/**
+	 * Entry point of the lint engine.
+	 *
+	 * @param args the options and the location.
+	 */
+	public static void main(String args[]) {
+		if ( 1 == args.length && "-list".equals( args[0] ) ) {
+			for (LintRule rule : createDefaultRules()) {
+				System.out.println( String.format( "%-28s %s", rule.getName(), rule.getDescription() ) );
+			}
+			return;
+		}
+
+		OptionParser options = new OptionParser("jyzer.analysis.lint.LintEngine", "<classfile|directory|jar>", 1, 1);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addString("-rules", "name,...", null);
+		options.addUsage("-list");
+		options.parseOrExit(args);
+
+		String selected = ( options.isSet("-rules") ? "," + options.getString("-rules") + "," : null );
+		LintEngine engine = new LintEngine(System.err);
+		for (LintRule rule : createDefaultRules()) {
+			if ( null == selected || selected.contains( "," + rule.getName() + "," ) ) {
+				engine.addRule(rule);
+			}
+		}
+
+		engine.run( new File( options.getArgument(0) ), options.getInt("-threads") );
+	}// main
+
+}// class.LintEngine
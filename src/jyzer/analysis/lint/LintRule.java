@@ -0,0 +1,48 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+/**
+ * <p>A rule of the lint engine. The engine calls <code>check()</code> for every method with code, and the rule
+ * reports its findings through the context of the method. The same rule object is used by all the workers of the
+ * engine at the same time, so a rule must not keep state between the calls.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public interface LintRule {
+
+	/**
+	 * Returns the short name of the rule, used in the findings and on the command line.
+	 */
+	String getName();
+
+	/**
+	 * Returns a one sentence description of the problem the rule looks for.
+	 */
+	String getDescription();
+
+	/**
+	 * Checks a method.
+	 *
+	 * @param context the method, its instructions, control flow graph and references; the findings are reported here.
+	 */
+	void check(LintContext context);
+
+}// interface.LintRule
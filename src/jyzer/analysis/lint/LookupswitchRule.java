@@ -0,0 +1,72 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+
+/**
+ * <p>Finds the <code>lookupswitch</code> instructions with keys dense enough for a <code>tableswitch</code>. A
+ * <code>lookupswitch</code> is a binary search, a <code>tableswitch</code> is an indexed jump. The decision is the
+ * same as the one of <code>javac</code>: the table is chosen if its space cost plus three times its time cost is not
+ * larger than the ones of the lookup; other compilers and bytecode generators don't always do this.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class LookupswitchRule implements LintRule {
+
+	public String getName() {
+		return "lookupswitch-as-tableswitch";
+	}
+
+	public String getDescription() {
+		return "lookupswitch instructions that would be smaller and faster as tableswitch";
+	}
+
+	public void check(LintContext context) {
+		for (int i=0; i<context.getInstructionCount(); ++i) {
+			CodeInstruction ci = context.getInstruction(i);
+			if ( 0xab != ci.getOpcode() ) { // lookupswitch
+				continue;
+			}
+
+			int operands[] = ci.getOperands();
+			long pairs = operands.length / 2;
+			if ( 0 == pairs ) {
+				continue;
+			}
+
+			long low = operands[0];
+			long high = operands[0];
+			for (int p=0; p<pairs; ++p) {
+				low = Math.min( low, operands[2 * p] );
+				high = Math.max( high, operands[2 * p] );
+			}
+
+			long tableSpace = 4 + ( high - low + 1 );
+			long tableTime = 3;
+			long lookupSpace = 3 + 2 * pairs;
+			long lookupTime = pairs;
+			if ( tableSpace + 3 * tableTime <= lookupSpace + 3 * lookupTime ) {
+				context.report( this, i, pairs + " keys from " + low + " to " + high + " would fit a tableswitch" );
+			}
+		}
+	}
+
+}// class.LookupswitchRule
@@ -0,0 +1,78 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+/**
+ * <p>Finds the reflective calls in loops (the loops are taken as the hot paths of the method):
+ * <code>Class.forName()</code>, the lookups of the members (<code>getMethod()</code> and the others), and the
+ * reflective invocations (<code>Method.invoke()</code>, <code>Constructor.newInstance()</code>,
+ * <code>Class.newInstance()</code>). The lookups should be cached outside of the loop, the invocations are slow
+ * until they are inflated into generated accessors, and they cannot be inlined.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ReflectionInLoopRule implements LintRule {
+
+	/** The reflective methods, as <code>owner.name(</code>. */
+	private static final String METHODS[] = {
+		"java.lang.Class.forName(",
+		"java.lang.Class.newInstance(",
+		"java.lang.Class.getMethod(",
+		"java.lang.Class.getDeclaredMethod(",
+		"java.lang.Class.getMethods(",
+		"java.lang.Class.getDeclaredMethods(",
+		"java.lang.Class.getField(",
+		"java.lang.Class.getDeclaredField(",
+		"java.lang.Class.getConstructor(",
+		"java.lang.Class.getDeclaredConstructor(",
+		"java.lang.reflect.Method.invoke(",
+		"java.lang.reflect.Constructor.newInstance(",
+		"java.lang.reflect.Field.get(",
+		"java.lang.reflect.Field.set("
+	};
+
+	public String getName() {
+		return "reflection-in-loop";
+	}
+
+	public String getDescription() {
+		return "Class.forName(), member lookups and reflective invocations inside loops";
+	}
+
+	public void check(LintContext context) {
+		for (int i=0; i<context.getInstructionCount(); ++i) {
+			String callee = context.getCallee(i);
+			if ( null == callee ) {
+				continue;
+			}
+
+			for (String method : METHODS) {
+				if ( callee.startsWith(method) ) {
+					int depth = context.getLoopDepth(i);
+					if ( 0 < depth ) {
+						context.report( this, i, callee.substring( 0, callee.indexOf('(') ) + "() called in a loop (depth " + depth + ")" );
+					}
+					break;
+				}
+			}
+		}
+	}
+
+}// class.ReflectionInLoopRule
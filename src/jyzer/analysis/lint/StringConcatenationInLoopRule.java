@@ -0,0 +1,92 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.analysis.lint;
+
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+
+/**
+ * <p>Finds the string concatenations in loops that append to the result of the previous iteration
+ * (<code>s += x</code>): the compiler creates a new <code>StringBuilder</code> (or <code>StringBuffer</code>) in every
+ * iteration, copies the string into it, and stores the result of <code>toString()</code> into the same local
+ * variable, so the loop is quadratic. The builder should be created before the loop.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class StringConcatenationInLoopRule implements LintRule {
+
+	public String getName() {
+		return "string-concat-in-loop";
+	}
+
+	public String getDescription() {
+		return "String concatenation with a new StringBuilder in every iteration of a loop";
+	}
+
+	/** Returns true for the builder classes used by the compilers. */
+	private static boolean isBuilder(String className) {
+		return ( "java.lang.StringBuilder".equals(className) || "java.lang.StringBuffer".equals(className) );
+	}
+
+	/** Returns the local variable index of an <code>aload</code> or <code>astore</code>, or -1 for other instructions. */
+	private static int getLocal(CodeInstruction ci, int opcode, int shortForm) {
+		if ( opcode == ci.getOpcode() ) {
+			return ci.getOperands()[0];
+		}
+		if ( shortForm <= ci.getOpcode() && ci.getOpcode() <= shortForm + 3 ) {
+			return ci.getOpcode() - shortForm;
+		}
+		return -1;
+	}
+
+	public void check(LintContext context) {
+		for (int i=0; i+1<context.getInstructionCount(); ++i) {
+			String callee = context.getCallee(i);
+			if ( null == callee || ! callee.endsWith(".toString()Ljava/lang/String;") || 0 == context.getLoopDepth(i) ||
+					! isBuilder( callee.substring( 0, callee.lastIndexOf('.') ) ) ) {
+				continue;
+			}
+
+			int local = getLocal( context.getInstruction(i + 1), 0x3a, 0x4b ); // astore
+			if ( -1 == local ) {
+				continue;
+			}
+
+			// the builder of the concatenation, in the same block or an earlier one of the same loop
+			int loop = context.getLoops().getLoopOfBlock( context.getGraph().getBlockOfInstruction(i) );
+			boolean loaded = false;
+			for (int j=i-1; j>=0; --j) {
+				CodeInstruction ci = context.getInstruction(j);
+				if ( context.getLoops().getLoopOfBlock( context.getGraph().getBlockOfInstruction(j) ) != loop ) {
+					break;
+				}
+
+				loaded |= ( local == getLocal(ci, 0x19, 0x2a) ); // aload
+				if ( 0xbb == ci.getOpcode() && isBuilder( context.getClassReference(j) ) ) {
+					if ( loaded ) {
+						context.report( this, j, "the string in local variable " + local + " is copied into a new " +
+								context.getClassReference(j) + " in every iteration of the loop" );
+					}
+					break;
+				}
+			}
+		}
+	}// check
+
+}// class.StringConcatenationInLoopRule
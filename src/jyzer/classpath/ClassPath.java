@@ -0,0 +1,338 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.classpath;
+
+import java.io.*;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.Vector;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.exceptions.ParsingException;
+
+/**
+ * <p>Finds classes by their names on a list of directories, jar files and single classfiles, like the class path of
+ * the virtual machine: the first location that contains the class wins. The classfiles are parsed when they are asked
+ * for first, and kept in a cache (the missing ones too), so the superclass chains of many classes can be walked
+ * without reading anything twice. The jar files are kept open until <code>close()</code> is called.</p>
+ *
+ * <p>The classes are found by an index (the name of the class and its location) that is built lazily: a location is
+ * indexed only when a class is asked for that is not in the locations before it. So a lookup reads the list of the
+ * entries of a jar file once, instead of probing every location again and again. The classes that are created in an
+ * indexed directory later are not found.</p>
+ *
+ * <p>A class path can be used by more threads at the same time. The parsing doesn't change the current constant
+ * pool of the calling thread: to describe a returned classfile, its pool has to be set with
+ * <code>ConstantPool.setCurrent()</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ClassPath {
+
+	/** Marks the missing classes in the cache. */
+	private static final ClassFile MISSING = new ClassFile("");
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private Vector<File> locations = new Vector<File>();
+	private Map<File, ZipFile> archives = new HashMap<File, ZipFile>();
+	private Map<String, ClassFile> cache = new HashMap<String, ClassFile>();
+
+	/** The indexed classes and their first location; the first <code>indexed</code> locations are indexed. */
+	private Map<String, File> index = new HashMap<String, File>();
+	private int indexed = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty class path.
+	 */
+	public ClassPath() {
+	}
+
+	/**
+	 * Creates a class path from a list of locations separated by the path separator of the platform.
+	 *
+	 * @param path the directories, jar files and classfiles, for example <code>lib/a.jar:classes</code>.
+	 */
+	public ClassPath(String path) {
+		StringTokenizer st = new StringTokenizer(path, File.pathSeparator);
+		while ( st.hasMoreTokens() ) {
+			add( new File( st.nextToken() ) );
+		}
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the locations of the class path, in the order of the search. */
+	public synchronized Vector<File> getLocations() {
+		return new Vector<File>(locations);
+	}
+
+	/** Returns the number of the classes indexed so far. */
+	public synchronized int getIndexSize() {
+		return index.size();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Adds a location to the end of the class path. The classes that were not found before may be found now. The
+	 * index stays valid, because the classes of the earlier locations hide the ones of the new location.
+	 *
+	 * @param location a directory or a jar file.
+	 */
+	public synchronized void add(File location) {
+		locations.add(location);
+
+		for (Map.Entry<String, ClassFile> entry : new Vector<Map.Entry<String, ClassFile>>( cache.entrySet() )) {
+			if ( MISSING == entry.getValue() ) {
+				cache.remove( entry.getKey() );
+			}
+		}
+	}
+
+	/**
+	 * Returns the parsed classfile of a class.
+	 *
+	 * @param name the name of the class with dots (<code>java.lang.Object</code>).
+	 * @return the classfile, or null if it is not on the class path.
+	 * @throws IOException if the classfile cannot be read or parsed.
+	 */
+	public synchronized ClassFile getClass(String name) throws IOException {
+		ClassFile back = cache.get(name);
+		if ( null == back ) {
+			back = load(name);
+			cache.put( name, ( (null == back) ? MISSING : back ) );
+		}
+
+		return ( (MISSING == back) ? null : back );
+	}
+
+	/**
+	 * Returns the path of the classfile of a class: the path of the file in a directory, or the path of the jar file
+	 * and the name of the entry separated by <code>ClassFile.ENTRY_SEPARATOR</code>. The classfile is not parsed.
+	 *
+	 * @param name the name of the class with dots (<code>java.lang.Object</code>).
+	 * @return the path, or null if the class is not on the class path.
+	 * @throws IOException if a location cannot be indexed.
+	 */
+	public synchronized String getPath(String name) throws IOException {
+		File location = findLocation(name);
+		if ( null == location ) {
+			return null;
+		}
+
+		String entry = toEntryName(name);
+		if ( location.isDirectory() ) {
+			return new File( location, entry.replace('/', File.separatorChar) ).getPath();
+		} else if ( isClassFile(location) ) {
+			return location.getPath();
+		}
+
+		return location.getPath() + ClassFile.ENTRY_SEPARATOR + entry;
+	}// getPath
+
+	/**
+	 * Indexes every location that is not indexed yet. Can be called on a background thread to make the first lookups
+	 * fast.
+	 *
+	 * @throws IOException if a location cannot be indexed (the other locations are indexed anyway).
+	 */
+	public synchronized void buildIndex() throws IOException {
+		IOException failed = null;
+
+		while ( indexed < locations.size() ) {
+			try {
+				index( locations.get(indexed++) );
+			} catch (IOException ioe) {
+				failed = ioe;
+			}
+		}
+
+		if ( null != failed ) {
+			throw failed;
+		}
+	}// buildIndex
+
+	/**
+	 * Returns the first location that contains the class. The locations are indexed one by one until the class is
+	 * found.
+	 */
+	private File findLocation(String name) throws IOException {
+		File back = index.get(name);
+
+		while ( null == back && indexed < locations.size() ) {
+			index( locations.get(indexed++) ); // a location that cannot be read is not tried again
+			back = index.get(name);
+		}
+
+		return back;
+	}// findLocation
+
+	/**
+	 * Adds the classes of a location to the index, the ones that are already in it (in an earlier location) are kept.
+	 */
+	private void index(File location) throws IOException {
+		if ( location.isDirectory() ) {
+			indexDirectory(location, location, "");
+		} else if ( isClassFile(location) ) { // the name of the class is known only from the classfile
+			ClassFile cf = parse( location.getPath(), new FileInputStream(location) );
+			ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+			try {
+				String name = cf.getThisClassName();
+				addToIndex(name, location);
+				if ( location == index.get(name) && ! cache.containsKey(name) ) {
+					cache.put(name, cf);
+				}
+			} finally {
+				ConstantPool.setCurrent(previous);
+			}
+		} else if ( location.isFile() ) {
+			for (Enumeration<? extends ZipEntry> entries = getArchive(location).entries(); entries.hasMoreElements(); ) {
+				String entry = entries.nextElement().getName();
+				if ( entry.endsWith(".class") ) {
+					addToIndex( entry.substring( 0, entry.length() - 6 ).replace('/', '.'), location );
+				}
+			}
+		}
+	}// index
+
+	/**
+	 * Adds the classes of a directory and its subdirectories to the index.
+	 */
+	private void indexDirectory(File location, File directory, String packagePrefix) {
+		File files[] = directory.listFiles();
+		if ( null == files ) {
+			return;
+		}
+
+		for (File file : files) {
+			String name = file.getName();
+			if ( file.isDirectory() ) {
+				indexDirectory( location, file, packagePrefix + name + "." );
+			} else if ( name.endsWith(".class") ) {
+				addToIndex( packagePrefix + name.substring( 0, name.length() - 6 ), location );
+			}
+		}
+	}// indexDirectory
+
+	/**
+	 * Adds a class to the index, unless it was found in an earlier location.
+	 */
+	private void addToIndex(String name, File location) {
+		if ( ! index.containsKey(name) ) {
+			index.put(name, location);
+		}
+	}
+
+	/**
+	 * Returns true if the location is a single classfile (every other file is taken for a jar file).
+	 */
+	private static boolean isClassFile(File location) {
+		return ( location.isFile() && location.getName().endsWith(".class") );
+	}
+
+	/**
+	 * Returns the opened jar file of a location.
+	 */
+	private ZipFile getArchive(File location) throws IOException {
+		ZipFile zip = archives.get(location);
+		if ( null == zip ) {
+			archives.put( location, zip = new ZipFile(location) );
+		}
+
+		return zip;
+	}
+
+	/**
+	 * Returns the name of the classfile of a class in its location (<code>java/lang/Object.class</code>).
+	 */
+	private static String toEntryName(String name) {
+		return name.replace('.', '/') + ".class";
+	}
+
+	/**
+	 * Finds and parses a classfile.
+	 */
+	private ClassFile load(String name) throws IOException {
+		File location = findLocation(name);
+		if ( null == location ) {
+			return null;
+		}
+
+		String path = toEntryName(name);
+		InputStream in;
+
+		if ( location.isDirectory() ) {
+			in = new FileInputStream( new File( location, path.replace('/', File.separatorChar) ) );
+		} else if ( isClassFile(location) ) {
+			in = new FileInputStream(location);
+		} else {
+			ZipFile zip = getArchive(location);
+			ZipEntry entry = zip.getEntry(path);
+			if ( null == entry ) { // the jar file was changed since it was indexed
+				return null;
+			}
+			in = zip.getInputStream(entry);
+		}
+
+		return parse(path, in);
+	}// load
+
+	/**
+	 * Parses a classfile without changing the current constant pool of the thread.
+	 */
+	private static ClassFile parse(String path, InputStream in) throws IOException {
+		ConstantPool previous = ConstantPool.setCurrent(null);
+		try {
+			ClassFile cf = new ClassFile(path, in);
+			cf.parse();
+			return cf;
+		} catch (ParsingException pe) {
+			throw new IOException( "Cannot parse " + path + ": " + pe.getMessage() );
+		} catch (RuntimeException re) { // a corrupted classfile
+			throw new IOException( "Cannot parse " + path + ": " + re );
+		} finally {
+			ConstantPool.setCurrent(previous);
+			in.close();
+		}
+	}
+
+	/**
+	 * Closes the jar files. The class path can still be used, the jar files are opened again if needed.
+	 */
+	public synchronized void close() {
+		for (ZipFile zip : archives.values()) {
+			try {
+				zip.close();
+			} catch (IOException ioe) {
+				// nothing was written, nothing is lost
+			}
+		}
+		archives.clear();
+	}
+
+}// class.ClassPath
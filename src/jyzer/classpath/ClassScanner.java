@@ -0,0 +1,311 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.classpath;
+
+import java.io.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jyzer.ClassFile;
+
+/**
+ * <p>Parses every classfile of a location (a classfile, a directory or a jar file) on more threads. The calling thread
+ * reads the classfiles one by one, and hands them over to the worker threads through a bounded queue, so only a
+ * few classfiles are in the memory at the same time. Every worker has its own <code>Visitor</code>: a visitor is
+ * called only from its own thread, so it doesn't have to be thread-safe, and can write its own output (for example
+ * its own chunk of a table).</p>
+ *
+ * <p>The classfiles that cannot be parsed are reported to the log, and skipped.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ClassScanner {
+
+	/**
+	 * Receives the parsed classfiles of a worker thread.
+	 */
+	public interface Visitor {
+
+		/**
+		 * Called for every classfile parsed by the worker. The constant pool of the classfile is the current one.
+		 *
+		 * @param cf the parsed classfile (its file name is the path in the location).
+		 * @param bytes the contents of the classfile.
+		 * @throws IOException if the classfile cannot be processed, stops the scanning.
+		 */
+		void visitClass(ClassFile cf, byte bytes[]) throws IOException;
+
+		/**
+		 * Called once, when there are no more classfiles (even if the scanning was stopped by an error).
+		 *
+		 * @throws IOException if the results cannot be written.
+		 */
+		void finish() throws IOException;
+
+	}// interface.Visitor
+
+	/**
+	 * Creates the visitors of the workers.
+	 */
+	public interface VisitorFactory {
+
+		/**
+		 * Creates the visitor of a worker. Called on the scanning thread before the workers are started.
+		 *
+		 * @param worker the index of the worker, from 0 to the number of the threads - 1.
+		 * @return the visitor of the worker.
+		 * @throws IOException if the visitor cannot be created.
+		 */
+		Visitor newVisitor(int worker) throws IOException;
+
+	}// interface.VisitorFactory
+
+	/**
+	 * A classfile read by the scanning thread, waiting for a worker.
+	 */
+	private static final class Entry {
+
+		private String name;
+		private byte bytes[];
+
+		Entry(String name, byte bytes[]) {
+			this.name  = name;
+			this.bytes = bytes;
+		}
+
+	}// class.Entry
+
+	/**
+	 * A worker thread: takes the classfiles from the queue until the end mark arrives.
+	 */
+	private final class Worker extends Thread {
+
+		private Visitor visitor;
+
+		Worker(int index, Visitor visitor) {
+			super("JYzer scanner " + index);
+			this.visitor = visitor;
+		}
+
+		public void run() {
+			try {
+				Entry entry;
+				while ( END != ( entry = queue.take() ) ) {
+					if ( null == failure ) {
+						process(entry);
+					}
+				}
+			} catch (InterruptedException ie) {
+				fail( new InterruptedIOException("Scanning interrupted") );
+			} catch (IOException ioe) {
+				fail(ioe);
+			} catch (Throwable t) { // a runtime exception or an error of the visitor must not strand the reading thread
+				fail(t);
+			} finally {
+				try {
+					visitor.finish();
+				} catch (Throwable t) {
+					fail(t);
+				}
+			}
+		}
+
+		/**
+		 * Parses a classfile and gives it to the visitor.
+		 */
+		private void process(Entry entry) throws IOException {
+			ClassFile cf = new ClassFile( entry.name, new ByteArrayInputStream(entry.bytes) );
+
+			try {
+				cf.parse();
+			} catch (Exception e) {
+				failed.incrementAndGet();
+				if ( null != log ) {
+					log.println( "Skipped " + entry.name + ": " + e );
+				}
+				return;
+			}
+
+			visitor.visitClass(cf, entry.bytes);
+			scanned.incrementAndGet();
+		}
+
+	}// class.Worker
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	/** Marks the end of the classfiles in the queue. */
+	private static final Entry END = new Entry(null, null);
+
+	private int threads;
+	private PrintStream log;
+
+	private BlockingQueue<Entry> queue;
+	private AtomicInteger scanned = new AtomicInteger();
+	private AtomicInteger failed = new AtomicInteger();
+	private volatile Throwable failure;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new scanner.
+	 *
+	 * @param threads the number of the worker threads.
+	 * @param log the classfiles that cannot be parsed are reported here, or null if they are only counted.
+	 */
+	public ClassScanner(int threads, PrintStream log) {
+		this.threads = Math.max(1, threads);
+		this.log = log;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the classfiles that were parsed and visited. */
+	public int getScannedCount() {
+		return scanned.get();
+	}
+
+	/** Returns the number of the classfiles that could not be parsed. */
+	public int getFailedCount() {
+		return failed.get();
+	}
+
+	/** Returns the default number of the threads: the number of the processors. */
+	public static int getDefaultThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Records the first failure of the workers, the later classfiles are skipped.
+	 */
+	private void fail(Throwable t) {
+		if ( null == failure ) {
+			failure = t;
+		}
+	}
+
+	/**
+	 * Hands an entry over to the workers. Doesn't block forever: a worker that failed exits, so the queue may never
+	 * be emptied again. After a failure the classfiles are not handed over any more, and the queue is cleared to make
+	 * room for the end marks of the workers that are still running.
+	 *
+	 * @return false if the entry was dropped (the scanning failed, or there's no worker left).
+	 */
+	private boolean offer(Entry entry, Worker workers[]) throws InterruptedException {
+		while ( ! queue.offer(entry, 100, TimeUnit.MILLISECONDS) ) {
+			if ( null != failure ) {
+				if ( END != entry ) {
+					return false;
+				}
+				queue.clear();
+			}
+
+			boolean alive = false;
+			for (Worker worker : workers) {
+				alive |= worker.isAlive();
+			}
+			if ( ! alive ) {
+				return false;
+			}
+		}
+
+		return true;
+	}// offer
+
+	/**
+	 * Reads the whole stream.
+	 */
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 * 1024);
+		byte buffer[] = new byte[8 * 1024];
+
+		int read;
+		while ( -1 != ( read = in.read(buffer) ) ) {
+			bytes.write(buffer, 0, read);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Parses every classfile of the given location, and returns when all of them were visited, and all the visitors
+	 * were finished.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param factory creates the visitors of the workers.
+	 * @throws IOException if the location cannot be read, or a visitor failed.
+	 */
+	public void scan(File location, VisitorFactory factory) throws IOException {
+		queue = new ArrayBlockingQueue<Entry>(4 * threads);
+		failure = null;
+
+		final Worker workers[] = new Worker[threads];
+		for (int i=0; i<threads; ++i) {
+			workers[i] = new Worker( i, factory.newVisitor(i) );
+		}
+		for (Worker worker : workers) {
+			worker.start();
+		}
+
+		try {
+			new ClassSource(location).forEachClass( new ClassSource.Handler() {
+				public void handle(String name, InputStream in) throws IOException {
+					if ( null != failure ) {
+						return;
+					}
+
+					try {
+						offer( new Entry( name, readFully(in) ), workers );
+					} catch (InterruptedException ie) {
+						throw new InterruptedIOException("Scanning interrupted");
+					}
+				}
+			});
+		} catch (IOException ioe) {
+			fail(ioe);
+		} finally {
+			try {
+				for (int i=0; i<threads; ++i) {
+					if ( ! offer(END, workers) ) {
+						break; // every worker is gone
+					}
+				}
+				for (Worker worker : workers) {
+					worker.join();
+				}
+			} catch (InterruptedException ie) {
+				fail( new InterruptedIOException("Scanning interrupted") );
+			}
+		}
+
+		if ( failure instanceof IOException ) {
+			throw (IOException) failure;
+		} else if ( failure instanceof RuntimeException ) {
+			throw (RuntimeException) failure;
+		} else if ( failure instanceof Error ) {
+			throw (Error) failure;
+		}
+	}// scan
+
+}// class.ClassScanner
@@ -0,0 +1,167 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.classpath;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Enumerates the classfiles of a location: a single classfile, a directory (recursively) or a jar (zip) file. The
+ * classfiles are handed over one by one as streams, so nothing is extracted and only one classfile is open at a time.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ClassSource {
+
+	/**
+	 * Receives the classfiles of a location.
+	 */
+	public interface Handler {
+
+		/**
+		 * Called for every classfile of the location. The stream is closed after the call.
+		 *
+		 * @param name the path of the classfile relative to the location (for example <code>java/lang/Object.class</code>).
+		 * @param in the contents of the classfile.
+		 * @throws IOException if the classfile cannot be processed.
+		 */
+		void handle(String name, InputStream in) throws IOException;
+
+	}// interface.Handler
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private File location;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new source.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 */
+	public ClassSource(File location) {
+		this.location = location;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns if the given file name is a jar (or zip) file.
+	 */
+	public static boolean isArchive(String fileName) {
+		String lower = fileName.toLowerCase();
+		return ( lower.endsWith(".jar") || lower.endsWith(".zip") );
+	}
+
+	/**
+	 * Returns if the given file name is a classfile.
+	 */
+	public static boolean isClassFile(String fileName) {
+		return fileName.toLowerCase().endsWith(".class");
+	}
+
+	/**
+	 * Returns the location of the classfiles.
+	 */
+	public File getLocation() {
+		return location;
+	}
+
+	/**
+	 * Hands over every classfile of the location to the given handler.
+	 *
+	 * @param handler the receiver of the classfiles.
+	 * @throws IOException if the location cannot be read, or the handler failed.
+	 */
+	public void forEachClass(Handler handler) throws IOException {
+		if ( location.isDirectory() ) {
+			forEachClass(location, "", handler);
+		} else if ( isArchive( location.getName() ) ) {
+			forEachArchiveEntry(handler);
+		} else {
+			handleFile(location, location.getName(), handler);
+		}
+	}
+
+	/**
+	 * Walks a directory recursively. The entries are sorted, so the order doesn't depend on the file system.
+	 */
+	private void forEachClass(File directory, String prefix, Handler handler) throws IOException {
+		String names[] = directory.list();
+		if ( null == names ) {
+			throw new IOException("Cannot list directory: " + directory);
+		}
+
+		Arrays.sort(names);
+		for (String name : names) {
+			File file = new File(directory, name);
+
+			if ( file.isDirectory() ) {
+				forEachClass(file, prefix + name + "/", handler);
+			} else if ( isClassFile(name) ) {
+				handleFile(file, prefix + name, handler);
+			}
+		}
+	}
+
+	/**
+	 * Hands over the classfile entries of the archive.
+	 */
+	private void forEachArchiveEntry(Handler handler) throws IOException {
+		ZipFile zip = new ZipFile(location);
+
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while ( entries.hasMoreElements() ) {
+				ZipEntry entry = entries.nextElement();
+
+				if ( entry.isDirectory() || ! isClassFile( entry.getName() ) ) {
+					continue;
+				}
+
+				InputStream in = zip.getInputStream(entry);
+				try {
+					handler.handle( entry.getName(), in );
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			zip.close();
+		}
+	}// forEachArchiveEntry
+
+	/**
+	 * Hands over a single classfile.
+	 */
+	private static void handleFile(File file, String name, Handler handler) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			handler.handle(name, in);
+		} finally {
+			in.close();
+		}
+	}
+
+}// class.ClassSource
@@ -0,0 +1,421 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.cli;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+import jyzer.ClassFile;
+import jyzer.Disassembler;
+import jyzer.analysis.BytecodeStatistics;
+import jyzer.analysis.OptionParser;
+import jyzer.classpath.ClassScanner;
+import jyzer.classpath.ClassSource;
+import jyzer.report.TextReportWriter;
+
+/**
+ * <p>The command line front end, similar to <code>javap</code>: prints the disassembled source, the code, the verbose
+ * description or a one-line summary of the classfiles of files, directories and jars, and the bytecode statistics of
+ * all of them. The arguments can be patterns (see <code>Glob</code>).</p>
+ *
+ * <p>The classfiles are read in order by the main thread, parsed and printed into a buffer by the worker threads, and
+ * the buffers are written out in the original order, so the output doesn't depend on the number of the threads.
+ * Only a few classfiles are in the memory at the same time. Nothing of the AWT or Swing is used, so the tool starts
+ * fast and runs on headless machines.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class CommandLine {
+
+	/** The declarations of the class (the default). */
+	public static final int SOURCE  = 0;
+	/** The declarations and the disassembled code (<code>-c</code>). */
+	public static final int CODE    = 1;
+	/** The constant pool, the fields and the methods with their code (<code>-v</code>). */
+	public static final int VERBOSE = 2;
+	/** A line per classfile (<code>-summary</code>). */
+	public static final int SUMMARY = 3;
+	/** Nothing per classfile, only the statistics (<code>-stats</code> alone). */
+	public static final int NONE    = 4;
+
+	/**
+	 * A classfile read by the main thread. The worker replaces the contents with the output.
+	 */
+	private static final class Entry {
+
+		private long sequence;
+		private String label;
+		private byte bytes[];
+
+		private String output;
+		private String error;
+
+		Entry(long sequence, String label, byte bytes[]) {
+			this.sequence = sequence;
+			this.label    = label;
+			this.bytes    = bytes;
+		}
+
+	}// class.Entry
+
+	/**
+	 * A worker thread: parses and formats the classfiles until the end mark arrives.
+	 */
+	private final class Worker extends Thread {
+
+		private ClassScanner.Visitor counters;
+
+		Worker(int index) {
+			super("JYzer cli " + index);
+			counters = ( (null == statistics) ? null : statistics.newVisitor() );
+		}
+
+		public void run() {
+			try {
+				Entry entry;
+				while ( END != ( entry = queue.take() ) ) {
+					process(entry);
+					done(entry);
+				}
+			} catch (InterruptedException ie) {
+				// the main thread is gone, nothing to print to
+			} finally {
+				if ( null != counters ) {
+					try { counters.finish(); } catch (IOException ioe) { ioe.printStackTrace(); }
+				}
+			}
+		}
+
+		/**
+		 * Parses and formats a classfile.
+		 */
+		private void process(Entry entry) {
+			ClassFile cf = new ClassFile( entry.label, new ByteArrayInputStream(entry.bytes) );
+
+			try {
+				cf.parse();
+
+				StringBuilder sb = new StringBuilder();
+				format(cf, entry, sb);
+				entry.output = sb.toString();
+
+				if ( null != counters ) {
+					counters.visitClass(cf, entry.bytes);
+				}
+			} catch (Exception e) {
+				entry.error = "Skipped " + entry.label + ": " + e;
+			}
+
+			entry.bytes = null;
+		}
+
+	}// class.Worker
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	/** Marks the end of the classfiles in the queue. */
+	private static final Entry END = new Entry(-1, null, null);
+
+	private int format;
+	private int threads;
+	private Pattern include;
+	private BytecodeStatistics statistics;
+
+	private PrintStream out;
+	private PrintStream log;
+
+	private BlockingQueue<Entry> queue;
+	private Semaphore pending;
+	private Map<Long, Entry> finished = new HashMap<Long, Entry>();
+	private long next = 0;
+
+	private int printed = 0;
+	private int skipped = 0;
+	private int errors = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new front end.
+	 *
+	 * @param format the output format of the classfiles (<code>SOURCE</code>, <code>CODE</code>, ...).
+	 * @param threads the number of the worker threads.
+	 * @param include only the classfiles whose path in the location matches this pattern are printed (null: all).
+	 * @param statistics the statistics of the classfiles are collected here (null: none).
+	 * @param out the destination of the output.
+	 * @param log the errors are reported here.
+	 */
+	public CommandLine(int format, int threads, Pattern include, BytecodeStatistics statistics, PrintStream out, PrintStream log) {
+		this.format     = format;
+		this.threads    = Math.max(1, threads);
+		this.include    = include;
+		this.statistics = statistics;
+		this.out        = out;
+		this.log        = log;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the classfiles that were printed. */
+	public synchronized int getPrintedCount() {
+		return printed;
+	}
+
+	/** Returns the number of the classfiles that could not be parsed. */
+	public synchronized int getSkippedCount() {
+		return skipped;
+	}
+
+	/** Returns the number of the locations that could not be read. */
+	public int getErrorCount() {
+		return errors;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Formats a parsed classfile. Called on a worker thread, the constant pool of the classfile is the current one.
+	 */
+	private void format(ClassFile cf, Entry entry, StringBuilder sb) throws IOException {
+		switch (format) {
+			case SOURCE:
+			case CODE:
+				sb.append("Classfile ").append(entry.label).append('\n');
+				Disassembler disassembler = new Disassembler();
+				disassembler.setShowHeader(false);
+				disassembler.setShowDisassembledCode( CODE == format );
+				disassembler.disassemble(cf, sb);
+				break;
+			case VERBOSE:
+				sb.append("Classfile ").append(entry.label).append('\n');
+				new TextReportWriter().write(cf, sb);
+				sb.append('\n');
+				break;
+			case SUMMARY:
+				sb.append( String.format( "%8d %6s %6d %6d %7d  %s\n", entry.bytes.length,
+						cf.getMajorVersion() + "." + cf.getMinorVersion(), cf.getConstantPoolCount(),
+						cf.getFieldItem().getFields().length, cf.getMethodItem().getMethods().length, cf.getThisClassName() ) );
+				break;
+		}
+	}// format
+
+	/**
+	 * Called by the workers when an entry is formatted. Prints the entries that are next in the order.
+	 */
+	private synchronized void done(Entry entry) {
+		finished.put( entry.sequence, entry );
+
+		Entry head;
+		while ( null != ( head = finished.remove(next) ) ) {
+			if ( null != head.error ) {
+				out.flush();
+				log.println(head.error);
+				++skipped;
+			} else {
+				out.print(head.output);
+				++printed;
+			}
+
+			++next;
+			pending.release();
+		}
+	}// done
+
+	/**
+	 * Reads the whole stream.
+	 */
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 * 1024);
+		byte buffer[] = new byte[8 * 1024];
+
+		int read;
+		while ( -1 != ( read = in.read(buffer) ) ) {
+			bytes.write(buffer, 0, read);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Prints the classfiles of the given locations, and returns when all of them are printed. A location that cannot
+	 * be read is reported to the log, and the next one is processed.
+	 *
+	 * @param locations classfiles, directories and jar files.
+	 * @throws InterruptedException if the thread was interrupted.
+	 */
+	public void run(List<File> locations) throws InterruptedException {
+		queue   = new ArrayBlockingQueue<Entry>(4 * threads);
+		pending = new Semaphore(16 * threads); // the read, but not yet printed entries
+
+		if ( SUMMARY == format ) {
+			out.println( String.format( "%8s %6s %6s %6s %7s  %s", "size", "version", "pool", "fields", "methods", "class" ) );
+		}
+
+		Worker workers[] = new Worker[threads];
+		for (int i=0; i<threads; ++i) {
+			workers[i] = new Worker(i);
+			workers[i].start();
+		}
+
+		long sequence = 0;
+		try {
+			for (final File location : locations) {
+				final boolean single = ! location.isDirectory() && ! ClassSource.isArchive( location.getName() );
+				final long sequences[] = { sequence };
+
+				try {
+					new ClassSource(location).forEachClass( new ClassSource.Handler() {
+						public void handle(String name, InputStream in) throws IOException {
+							if ( ! single && null != include && ! include.matcher(name).matches() ) {
+								return;
+							}
+
+							String label;
+							if ( single ) {
+								label = location.getPath();
+							} else if ( location.isDirectory() ) {
+								label = new File(location, name).getPath();
+							} else {
+								label = location.getPath() + "!/" + name;
+							}
+
+							try {
+								pending.acquire();
+								queue.put( new Entry( sequences[0]++, label, readFully(in) ) );
+							} catch (InterruptedException ie) {
+								throw new InterruptedIOException("Interrupted");
+							}
+						}
+					});
+				} catch (InterruptedIOException iioe) {
+					throw new InterruptedException( iioe.getMessage() );
+				} catch (IOException ioe) {
+					synchronized (this) {
+						out.flush();
+						log.println( "Error: " + location + ": " + ioe.getMessage() );
+					}
+					++errors;
+				}
+
+				sequence = sequences[0];
+			}
+		} finally {
+			for (int i=0; i<threads; ++i) {
+				queue.put(END);
+			}
+			for (Worker worker : workers) {
+				worker.join();
+			}
+			out.flush();
+		}
+	}// run
+
+	/**
+	 * Expands the patterns of the command line.
+	 *
+	 * @param args the arguments (file names or patterns).
+	 * @param log the patterns without any match are reported here.
+	 * @return the files, or null if a pattern had no match.
+	 */
+	private static List<File> expand(String args[], PrintStream log) {
+		List<File> locations = new Vector<File>();
+		boolean ok = true;
+
+		for (int i=0; i<args.length; ++i) {
+			if ( Glob.hasWildcards( args[i] ) ) {
+				List<File> matches = Glob.expand( args[i] );
+				if ( matches.isEmpty() ) {
+					log.println( "No match: " + args[i] );
+					ok = false;
+				}
+				locations.addAll(matches);
+			} else {
+				locations.add( new File( args[i] ) );
+			}
+		}
+
+		return ( ok ? locations : null );
+	}// expand
+
+	/**
+	 * Prints the classfiles given on the command line.
+	 * <code>[-c] [-v] [-summary] [-stats] [-threads n] [-top n] [-include pattern] &lt;classfile|directory|jar|pattern&gt;...</code>
+	 * The exit code is 1 if a location could not be read or a classfile could not be parsed.
+	 *
+	 * @param args the command line arguments.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.cli.CommandLine", "<classfile|directory|jar|pattern>...", 1, -1);
+		options.addFlag("-c");
+		options.addFlag("-v", "-verbose", "-summary");
+		options.addFlag("-stats");
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-top", 10);
+		options.addString("-include", "pattern", null);
+		options.parseOrExit(args);
+
+		boolean stats = options.isSet("-stats");
+		String detail = options.getLast("-v", "-verbose", "-summary"); // -c is overridden by these
+		int format;
+		if ( null != detail ) {
+			format = ( "-summary".equals(detail) ? SUMMARY : VERBOSE );
+		} else if ( options.isSet("-c") ) {
+			format = CODE;
+		} else {
+			format = ( stats ? NONE : SOURCE );
+		}
+		Pattern include = ( options.isSet("-include") ? Glob.toPattern( options.getString("-include") ) : null );
+
+		List<File> locations = expand( options.getArguments(), System.err );
+		if ( null == locations ) {
+			System.exit(1);
+		}
+
+		PrintStream out = new PrintStream( new BufferedOutputStream( new FileOutputStream(FileDescriptor.out), 64 * 1024 ), false );
+		BytecodeStatistics statistics = ( stats ? new BytecodeStatistics( options.getInt("-top") ) : null );
+		CommandLine cli = new CommandLine( format, options.getInt("-threads"), include, statistics, out, System.err );
+
+		try {
+			cli.run(locations);
+		} catch (InterruptedException ie) {
+			System.err.println("Error: interrupted");
+			System.exit(1);
+		}
+
+		if ( null != statistics ) {
+			if ( NONE != format ) {
+				out.println();
+			}
+			statistics.print(out);
+		}
+		out.flush();
+
+		System.err.println( "Printed: " + cli.getPrintedCount() + ", skipped: " + cli.getSkippedCount() );
+		System.exit( ( 0 == cli.getSkippedCount() && 0 == cli.getErrorCount() ) ? 0 : 1 );
+	}// main
+
+}// class.CommandLine
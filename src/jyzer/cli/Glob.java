@@ -0,0 +1,160 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Expands file name patterns, so the patterns work the same way on every shell (and can be quoted to avoid the limit of
+ * the length of the command line). In a pattern <code>*</code> matches any characters except the separator,
+ * <code>?</code> matches a single character except the separator and <code>**</code> matches any number of
+ * directories (for example <code>build/**&#47;*.class</code> or <code>lib/*.jar</code>).
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class Glob {
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * First of all - prevent anyone to create any instance of this class.
+	 */
+	private Glob() {
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns if the given string contains a wildcard.
+	 */
+	public static boolean hasWildcards(String pattern) {
+		return ( 0 <= pattern.indexOf('*') || 0 <= pattern.indexOf('?') );
+	}
+
+	/**
+	 * Converts a pattern to a regular expression. The separator is <code>/</code>.
+	 *
+	 * @param glob the pattern.
+	 * @return the compiled regular expression that matches the whole string.
+	 */
+	public static Pattern toPattern(String glob) {
+		StringBuilder regex = new StringBuilder();
+
+		for (int i=0; i<glob.length(); ++i) {
+			char c = glob.charAt(i);
+
+			if ( '*' == c ) {
+				if ( i + 1 < glob.length() && '*' == glob.charAt(i + 1) ) {
+					++i;
+					if ( i + 1 < glob.length() && '/' == glob.charAt(i + 1) ) {
+						++i;
+						regex.append("(?:.*/)?"); // any number of directories, even none
+					} else {
+						regex.append(".*");
+					}
+				} else {
+					regex.append("[^/]*");
+				}
+			} else if ( '?' == c ) {
+				regex.append("[^/]");
+			} else if ( Character.isLetterOrDigit(c) ) {
+				regex.append(c);
+			} else {
+				regex.append('\\').append(c);
+			}
+		}
+
+		return Pattern.compile( regex.toString() );
+	}// toPattern
+
+	/**
+	 * Returns the files and directories that match the given pattern, sorted by their paths.
+	 *
+	 * @param glob the pattern, the separator can be <code>/</code> or the separator of the platform.
+	 * @return the matching files (an empty list if nothing matches).
+	 */
+	public static List<File> expand(String glob) {
+		String segments[] = glob.replace(File.separatorChar, '/').split("/", -1);
+
+		// the directory before the first wildcard is the root of the search
+		int first = 0;
+		StringBuilder base = new StringBuilder();
+		for ( ; first < segments.length && ! hasWildcards( segments[first] ); ++first) {
+			base.append( segments[first] ).append('/');
+		}
+
+		StringBuilder rest = new StringBuilder();
+		int depth = 0;
+		for (int i=first; i<segments.length; ++i) {
+			if ( i > first ) {
+				rest.append('/');
+			}
+			rest.append( segments[i] );
+			++depth;
+		}
+
+		List<File> matches = new ArrayList<File>();
+		if ( 0 == depth ) { // no wildcards
+			File file = new File(glob);
+			if ( file.exists() ) {
+				matches.add(file);
+			}
+			return matches;
+		}
+
+		File root = new File( ( 0 == base.length() ) ? "." : base.toString() );
+		String prefix = base.toString();
+		if ( 0 <= rest.indexOf("**") ) {
+			depth = Integer.MAX_VALUE;
+		}
+
+		walk( root, prefix, "", depth, toPattern( rest.toString() ), matches );
+		Collections.sort(matches);
+		return matches;
+	}// expand
+
+	/**
+	 * Collects the matching entries of a directory recursively.
+	 */
+	private static void walk(File directory, String prefix, String relative, int depth, Pattern pattern, List<File> matches) {
+		String names[] = directory.list();
+		if ( null == names ) {
+			return;
+		}
+
+		for (String name : names) {
+			String path = relative + name;
+			File file = new File(directory, name);
+
+			if ( pattern.matcher(path).matches() ) {
+				matches.add( new File(prefix + path) );
+			}
+
+			if ( 1 < depth && file.isDirectory() ) {
+				walk(file, prefix, path + "/", depth - 1, pattern, matches);
+			}
+		}
+	}// walk
+
+}// class.Glob
@@ -0,0 +1,668 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.daemon;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jyzer.ClassFile;
+import jyzer.analysis.OptionParser;
+import jyzer.analysis.lint.Finding;
+import jyzer.analysis.lint.LintEngine;
+import jyzer.analysis.lint.LintRule;
+import jyzer.classpath.ClassScanner;
+import jyzer.classpath.ClassSource;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+import jyzer.report.HTMLReportWriter;
+import jyzer.report.JSONModelWriter;
+import jyzer.report.ModelWriter;
+import jyzer.report.ReportWriter;
+import jyzer.report.SourceReportWriter;
+import jyzer.report.TextReportWriter;
+
+/**
+ * <p>A long running analysis server. It listens on a port of the loopback interface (so it can be reached only from
+ * the local machine), and answers simple HTTP <code>GET</code> requests, so every HTTP client (<code>curl</code>, the
+ * build tools, the editors) can use it. The requests with a <code>Host</code> header other than the loopback address
+ * or <code>localhost</code> are rejected, so a web page cannot reach the daemon through the browser with a rebound
+ * DNS name. The requests are handled by a pool of threads, a connection is kept open for
+ * more requests if the client asks for it. The parsed classfiles are kept in a <code>ModelCache</code>, and the JIT
+ * compiled code of the parser stays warm, so a request costs only the work of the request: no startup of the virtual
+ * machine, no Swing and no JavaHelp.</p>
+ *
+ * <p>The requests (<code>file</code> is a classfile, a directory or a jar file, <code>class</code> is the name of a
+ * class in a directory or a jar file):</p>
+ * <ul>
+ *   <li><code>/report?file=..&amp;class=..&amp;format=text|html|source|json</code> - the report of a classfile</li>
+ *   <li><code>/summary?file=..&amp;class=..</code> - the header, the fields and the methods, one per line</li>
+ *   <li><code>/lint?file=..&amp;class=..</code> - the findings of the lint rules</li>
+ *   <li><code>/stats</code> - the counters of the daemon and of the cache</li>
+ *   <li><code>/shutdown?token=..</code> - stops the daemon, it must be a <code>POST</code> request with the token that
+ *       is generated at the start (see {@link #getToken()})</li>
+ * </ul>
+ *
+ * <p>Usage: <code>java jyzer.daemon.AnalysisDaemon [-port n] [-threads n] [-cache n] [-preload location]
+ * [-token-file file]</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class AnalysisDaemon {
+
+	/** The default port of the daemon. */
+	public static final int DEFAULT_PORT = 7331;
+
+	/** The default number of the cached models. */
+	public static final int DEFAULT_CACHE_SIZE = 4096;
+
+	/** An idle connection is closed after this many milliseconds. */
+	public static final int IDLE_TIMEOUT = 10000;
+
+	/** The longest line (the request line or a header) and the longest body of a request. */
+	public static final int MAX_LINE_LENGTH = 8192;
+
+	private static final String ENCODING = "UTF-8";
+
+	// --- Connection ----------------------------------------------------------------------------------------------------
+
+	/**
+	 * Handles the requests of a connection, one after the other.
+	 */
+	private final class Connection implements Runnable {
+
+		private Socket socket;
+
+		Connection(Socket socket) {
+			this.socket = socket;
+		}
+
+		public void run() {
+			try {
+				socket.setSoTimeout(IDLE_TIMEOUT);
+				socket.setTcpNoDelay(true);
+				InputStream in = new BufferedInputStream( socket.getInputStream() );
+				OutputStream out = new BufferedOutputStream( socket.getOutputStream() );
+
+				boolean keepAlive = true;
+				while ( keepAlive ) {
+					String requestLine;
+					String host = null;
+					String content = null;
+
+					try {
+						requestLine = readLine(in, 414);
+						if ( null == requestLine ) {
+							break;
+						}
+
+						keepAlive = requestLine.endsWith("HTTP/1.1");
+						int contentLength = 0;
+						String header;
+						while ( null != ( header = readLine(in, 431) ) && 0 < header.length() ) {
+							String lower = header.toLowerCase();
+							if ( lower.startsWith("connection:") ) {
+								keepAlive = ( lower.indexOf("keep-alive") >= 0 || ( keepAlive && lower.indexOf("close") < 0 ) );
+							} else if ( lower.startsWith("host:") ) {
+								host = lower.substring(5).trim();
+							} else if ( lower.startsWith("content-length:") ) {
+								contentLength = parseContentLength( lower.substring(15).trim() );
+							}
+						}
+						if ( 0 < contentLength ) {
+							content = readContent(in, contentLength);
+						}
+					} catch (RequestException re) { // the rest of the request cannot be skipped safely
+						respond( out, re.getStatus(), null, errorBody(re), false );
+						out.flush();
+						break;
+					}
+
+					keepAlive &= serve(requestLine, host, content, out, keepAlive);
+					out.flush();
+				}
+			} catch (SocketTimeoutException ste) { // an idle connection
+			} catch (SocketException se) {         // closed by the client
+			} catch (IOException ioe) {
+				log.println( "Connection failed: " + ioe.getMessage() );
+			} finally {
+				try {
+					socket.close();
+				} catch (IOException ioe) {
+				}
+			}
+		}// run
+
+	}// class.Connection
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ModelCache cache;
+	private int threads;
+	private PrintStream log;
+	private ServerSocket server;
+	private ExecutorService executor;
+	private LintEngine lint;
+	private String token;
+
+	private long started = System.currentTimeMillis();
+	private long requests = 0;
+	private long failures = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a daemon. It doesn't listen until <code>serve()</code> is called.
+	 *
+	 * @param cache the cache of the parsed models.
+	 * @param threads the number of the threads that handle the connections.
+	 * @param log the errors are reported here.
+	 */
+	public AnalysisDaemon(ModelCache cache, int threads, PrintStream log) {
+		this.cache   = cache;
+		this.threads = Math.max(1, threads);
+		this.log     = log;
+
+		lint = new LintEngine(log);
+		for (LintRule rule : LintEngine.createDefaultRules()) {
+			lint.addRule(rule);
+		}
+
+		byte random[] = new byte[16];
+		new SecureRandom().nextBytes(random);
+		StringBuilder sb = new StringBuilder();
+		for (byte b : random) {
+			sb.append( Character.forDigit( ( b >> 4 ) & 0x0f, 16 ) ).append( Character.forDigit( b & 0x0f, 16 ) );
+		}
+		token = sb.toString();
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the cache of the parsed models. */
+	public ModelCache getCache() {
+		return cache;
+	}
+
+	/** Returns the token of the <code>/shutdown</code> request, it is generated randomly for every daemon. */
+	public String getToken() {
+		return token;
+	}
+
+	/** Returns the port the daemon listens on, or -1 if it is not listening. */
+	public int getPort() {
+		return ( (null == server) ? -1 : server.getLocalPort() );
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Parses every classfile of a location into the cache, on more threads. It also warms up the parser.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param scanner the scanner that parses the classfiles.
+	 * @throws IOException if the location cannot be read.
+	 */
+	public void preload(final File location, ClassScanner scanner) throws IOException {
+		final boolean single = location.isFile() && ! ClassSource.isArchive( location.getName() );
+		scanner.scan( location, new ClassScanner.VisitorFactory() {
+			public ClassScanner.Visitor newVisitor(int worker) {
+				return new ClassScanner.Visitor() {
+					public void visitClass(ClassFile cf, byte bytes[]) {
+						cache.put( location, ( single ? null : cf.getFileName() ), cf );
+					}
+
+					public void finish() {
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Binds the port on the loopback interface, and accepts the connections until the daemon is stopped.
+	 *
+	 * @param port the port, 0 for any free port.
+	 * @throws IOException if the port cannot be bound.
+	 */
+	public void serve(int port) throws IOException {
+		synchronized (this) {
+			server = new ServerSocket( port, 50, InetAddress.getByName("127.0.0.1") );
+			executor = Executors.newFixedThreadPool(threads);
+			notifyAll();
+		}
+		log.println( "Listening on 127.0.0.1:" + server.getLocalPort() );
+
+		try {
+			while ( ! server.isClosed() ) {
+				Socket socket;
+				try {
+					socket = server.accept();
+				} catch (SocketException se) { // closed by stop()
+					break;
+				}
+				executor.execute( new Connection(socket) );
+			}
+		} finally {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}// serve
+
+	/**
+	 * Waits until the daemon listens, and returns its port.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while it waits.
+	 */
+	public synchronized int waitForPort() throws InterruptedException {
+		while ( null == server ) {
+			wait();
+		}
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting the connections. The requests being handled are finished.
+	 */
+	public synchronized void stop() {
+		if ( null != server ) {
+			try {
+				server.close();
+			} catch (IOException ioe) {
+				log.println( "Cannot close the server socket: " + ioe.getMessage() );
+			}
+		}
+	}
+
+	/**
+	 * Reads a line of the request, without the line terminator.
+	 *
+	 * @param status the status of the answer if the line is longer than <code>MAX_LINE_LENGTH</code>.
+	 * @return the line, or null at the end of the stream.
+	 * @throws RequestException if the line is too long.
+	 */
+	private static String readLine(InputStream in, int status) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c;
+		while ( '\n' != ( c = in.read() ) ) {
+			if ( c < 0 ) {
+				return ( (0 == sb.length()) ? null : sb.toString() );
+			}
+			if ( '\r' != c ) {
+				if ( MAX_LINE_LENGTH == sb.length() ) {
+					throw new RequestException(status, "Line too long (the limit is " + MAX_LINE_LENGTH + " characters)");
+				}
+				sb.append( (char) c );
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Parses the value of a <code>Content-Length</code> header.
+	 */
+	private static int parseContentLength(String value) throws RequestException {
+		int length;
+		try {
+			length = Integer.parseInt(value);
+		} catch (NumberFormatException nfe) {
+			throw new RequestException(400, "Wrong Content-Length: " + value);
+		}
+
+		if ( length < 0 ) {
+			throw new RequestException(400, "Wrong Content-Length: " + value);
+		}
+		if ( length > MAX_LINE_LENGTH ) {
+			throw new RequestException(413, "Body too long (the limit is " + MAX_LINE_LENGTH + " bytes)");
+		}
+		return length;
+	}
+
+	/**
+	 * Reads the body of a request (URL encoded parameters are expected).
+	 */
+	private static String readContent(InputStream in, int length) throws IOException {
+		byte content[] = new byte[length];
+		int read = 0;
+		while ( read < length ) {
+			int n = in.read(content, read, length - read);
+			if ( n < 0 ) {
+				throw new RequestException(400, "Truncated body");
+			}
+			read += n;
+		}
+		return new String(content, "ISO-8859-1");
+	}
+
+	/**
+	 * Returns true if the <code>Host</code> header of a request names the loopback interface (the port is not checked).
+	 * A request without the header is accepted (HTTP/1.0).
+	 */
+	private static boolean isLocalHost(String host) {
+		if ( null == host ) {
+			return true;
+		}
+
+		String name = host;
+		if ( name.startsWith("[") ) {
+			name = name.substring( 0, name.indexOf(']') + 1 );
+		} else if ( name.indexOf(':') >= 0 ) {
+			name = name.substring( 0, name.indexOf(':') );
+		}
+		return ( "127.0.0.1".equals(name) || "localhost".equals(name) || "[::1]".equals(name) );
+	}
+
+	/**
+	 * Returns true if the token of a shutdown request is right.
+	 */
+	private boolean isToken(String value) throws UnsupportedEncodingException {
+		return ( null != value && MessageDigest.isEqual( token.getBytes(ENCODING), value.getBytes(ENCODING) ) );
+	}
+
+	/**
+	 * Answers a request.
+	 *
+	 * @param requestLine the first line of the request: <code>GET /path?query HTTP/1.1</code>.
+	 * @param host the value of the <code>Host</code> header, or null if there is none.
+	 * @param content the body of the request, or null if there is none.
+	 * @param out the response is written here.
+	 * @param keepAlive true if the client wants to keep the connection.
+	 * @return false if the connection has to be closed.
+	 */
+	private boolean serve(String requestLine, String host, String content, OutputStream out, boolean keepAlive) throws IOException {
+		synchronized (this) {
+			requests++;
+		}
+
+		String parts[] = requestLine.split(" ");
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		int status = 200;
+		String type = "text/plain";
+		boolean shutdown = false;
+
+		try {
+			if ( ! isLocalHost(host) ) {
+				throw new RequestException(403, "Wrong Host header: " + host);
+			}
+			if ( parts.length < 2 || ! ( "GET".equals( parts[0] ) || "POST".equals( parts[0] ) ) ) {
+				throw new RequestException(405, "Only GET and POST requests are supported");
+			}
+
+			int question = parts[1].indexOf('?');
+			String path = ( (question < 0) ? parts[1] : parts[1].substring(0, question) );
+			Map<String, String> params = parseQuery( (question < 0) ? "" : parts[1].substring(question + 1) );
+			if ( null != content ) {
+				params.putAll( parseQuery(content) );
+			}
+
+			if ( "/shutdown".equals(path) != "POST".equals( parts[0] ) ) {
+				throw new RequestException(405, "/shutdown must be a POST request, the others GET requests");
+			}
+
+			if ( "/report".equals(path) ) {
+				type = report( getClass(params), params.get("format"), body );
+			} else if ( "/summary".equals(path) ) {
+				summary( getClass(params), body );
+			} else if ( "/lint".equals(path) ) {
+				lint( getClass(params), body );
+			} else if ( "/stats".equals(path) ) {
+				stats(body);
+			} else if ( "/shutdown".equals(path) ) {
+				if ( ! isToken( params.get("token") ) ) {
+					throw new RequestException(403, "Wrong or missing token");
+				}
+				body.write( "Stopping\n".getBytes(ENCODING) );
+				shutdown = true;
+			} else {
+				throw new RequestException(404, "Unknown request: " + path);
+			}
+		} catch (RequestException re) {
+			status = re.getStatus();
+			body = errorBody(re);
+		} catch (IOException ioe) {
+			status = 500;
+			body = errorBody(ioe);
+		} catch (RuntimeException re) { // a bug of an analysis must not kill the connection without an answer
+			log.println( "Request failed: " + requestLine + ": " + re );
+			status = 500;
+			body = errorBody(re);
+		}
+
+		keepAlive &= ! shutdown;
+		respond(out, status, type, body, keepAlive);
+
+		if ( shutdown ) {
+			out.flush();
+			stop();
+		}
+		return keepAlive;
+	}// serve
+
+	/**
+	 * Returns the body of an error answer: the message of the exception.
+	 */
+	private static ByteArrayOutputStream errorBody(Exception e) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		body.write( ( ( (null == e.getMessage()) ? e.toString() : e.getMessage() ) + "\n" ).getBytes(ENCODING) );
+		return body;
+	}
+
+	/**
+	 * Writes an answer.
+	 *
+	 * @param status the HTTP status, the answers other than 200 are counted as failures and sent as plain text.
+	 * @param type the content type of the body.
+	 */
+	private void respond(OutputStream out, int status, String type, ByteArrayOutputStream body, boolean keepAlive) throws IOException {
+		if ( 200 != status ) {
+			synchronized (this) {
+				failures++;
+			}
+			type = "text/plain";
+		}
+
+		String head = "HTTP/1.1 " + status + " " + ( (200 == status) ? "OK" : "Error" ) + "\r\n" +
+				"Content-Type: " + type + "; charset=" + ENCODING + "\r\n" +
+				"Content-Length: " + body.size() + "\r\n" +
+				"Connection: " + ( keepAlive ? "keep-alive" : "close" ) + "\r\n\r\n";
+		out.write( head.getBytes("ISO-8859-1") );
+		body.writeTo(out);
+	}
+
+	/**
+	 * Decodes the parameters of a query string.
+	 */
+	private static Map<String, String> parseQuery(String query) throws RequestException {
+		Map<String, String> back = new HashMap<String, String>();
+		try {
+			for (String pair : query.split("&")) {
+				int equals = pair.indexOf('=');
+				if ( 0 < equals ) {
+					back.put( URLDecoder.decode( pair.substring(0, equals), ENCODING ), URLDecoder.decode( pair.substring(equals + 1), ENCODING ) );
+				}
+			}
+		} catch (IllegalArgumentException iae) {
+			throw new RequestException(400, "Wrong query string: " + query);
+		} catch (UnsupportedEncodingException uee) {
+			throw new RequestException(500, uee.getMessage());
+		}
+		return back;
+	}
+
+	/**
+	 * Returns the model of the classfile of a request.
+	 */
+	private ClassFile getClass(Map<String, String> params) throws IOException {
+		String file = params.get("file");
+		if ( null == file ) {
+			throw new RequestException(400, "Missing parameter: file");
+		}
+
+		String className = params.get("class");
+		ClassFile cf = cache.get( new File(file), ( (null == className) ? null : ModelCache.getPath(className) ) );
+		if ( null == cf ) {
+			throw new RequestException(404, "Not found: " + file + ( (null == className) ? "" : " " + className ) );
+		}
+		return cf;
+	}
+
+	/**
+	 * Writes the report of a classfile.
+	 *
+	 * @return the content type of the report.
+	 */
+	private String report(ClassFile cf, String format, ByteArrayOutputStream body) throws IOException {
+		if ( "json".equals(format) ) {
+			ModelWriter writer = new JSONModelWriter(body);
+			writer.write(cf);
+			writer.close();
+			return "application/json";
+		}
+
+		ReportWriter writer;
+		if ( null == format || "text".equals(format) ) {
+			writer = new TextReportWriter();
+		} else if ( "html".equals(format) ) {
+			writer = new HTMLReportWriter();
+		} else if ( "source".equals(format) ) {
+			writer = new SourceReportWriter();
+		} else {
+			throw new RequestException(400, "Unknown format: " + format);
+		}
+
+		writer.write(cf, body);
+		return ( "html".equals(format) ? "text/html" : "text/plain" );
+	}
+
+	/**
+	 * Writes the header, the fields and the methods of a classfile, one per line.
+	 */
+	private static void summary(ClassFile cf, ByteArrayOutputStream body) throws IOException {
+		PrintStream out = new PrintStream(body, false, ENCODING);
+		ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+		try {
+			out.println( "class " + cf.getThisClassName() + " " + cf.getAccessInt() + " " + cf.getMajorVersion() + "." + cf.getMinorVersion() );
+			if ( 0 != cf.getSuperClassIndex() ) {
+				out.println( "super " + cf.getSuperClassName() );
+			}
+			for (String iface : cf.getInterfaceNames()) {
+				out.println( "interface " + iface );
+			}
+			for (FieldInfo field : cf.getFieldItem().getFields()) {
+				out.println( "field " + field.getAccessInt() + " " + field.getNameString() + " " + ConstantPool.getUtf8String( field.getDescriptorIndex() ) );
+			}
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				CodeAttribute code = method.getAttributes().getCode();
+				out.println( "method " + method.getAccessInt() + " " + method.getNameString() + method.getDescriptorString() + " " +
+						( (null == code) ? -1 : code.getCode().getCodeLength() ) );
+			}
+		} finally {
+			ConstantPool.setCurrent(previous);
+		}
+		out.flush();
+	}// summary
+
+	/**
+	 * Writes the lint findings of a classfile.
+	 */
+	private void lint(ClassFile cf, ByteArrayOutputStream body) throws IOException {
+		PrintStream out = new PrintStream(body, false, ENCODING);
+		for (Finding finding : lint.check(cf)) {
+			out.println(finding);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes the counters of the daemon.
+	 */
+	private synchronized void stats(ByteArrayOutputStream body) throws IOException {
+		PrintStream out = new PrintStream(body, false, ENCODING);
+		out.println( "uptime " + ( System.currentTimeMillis() - started ) );
+		out.println( "requests " + requests );
+		out.println( "failures " + failures );
+		out.println( "threads " + threads );
+		out.println( "cached " + cache.getSize() );
+		out.println( "hits " + cache.getHitCount() );
+		out.println( "misses " + cache.getMissCount() );
+		out.flush();
+	}
+
+	/**
+	 * Entry point of the daemon.
+	 *
+	 * @param args the options.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.daemon.AnalysisDaemon", "", 0, 0);
+		options.addInt("-port", DEFAULT_PORT);
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.addInt("-cache", DEFAULT_CACHE_SIZE);
+		options.addList("-preload", "location");
+		options.addString("-token-file", "file", null);
+		options.parseOrExit(args);
+
+		int threads = options.getInt("-threads");
+		AnalysisDaemon daemon = new AnalysisDaemon( new ModelCache( options.getInt("-cache") ), threads, System.err );
+		try {
+			if ( ! options.isSet("-token-file") ) {
+				System.err.println( "Shutdown token: " + daemon.getToken() );
+			} else {
+				Writer writer = new OutputStreamWriter( new FileOutputStream( options.getString("-token-file") ), ENCODING );
+				try {
+					writer.write( daemon.getToken() + "\n" );
+				} finally {
+					writer.close();
+				}
+			}
+
+			ClassScanner scanner = new ClassScanner(threads, System.err);
+			for (String location : options.getList("-preload")) {
+				daemon.preload( new File(location), scanner );
+			}
+			if ( ! options.getList("-preload").isEmpty() ) {
+				System.err.println( "Preloaded: " + scanner.getScannedCount() + ", skipped: " + scanner.getFailedCount() );
+			}
+
+			daemon.serve( options.getInt("-port") );
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		}
+	}// main
+
+}// class.AnalysisDaemon
@@ -0,0 +1,235 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.daemon;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import jyzer.ClassFile;
+import jyzer.classpath.ClassSource;
+import jyzer.items.ConstantPool;
+import jyzer.items.exceptions.ParsingException;
+
+/**
+ * <p>Keeps the parsed models of the recently requested classfiles. A classfile is identified by its location (a
+ * classfile, a directory or a jar file) and its path in the location (<code>java/lang/Object.class</code>), the least
+ * recently used one is dropped if there's more than the maximal number of models. A model is parsed again if its file
+ * (the classfile or the jar file) was modified since it was parsed.</p>
+ *
+ * <p>The cache can be used by more threads at the same time. The classfiles are parsed outside the lock, so a slow
+ * parse does not block the other requests (two threads may parse the same classfile at the same time, the later one
+ * wins). The parsing doesn't change the current constant pool of the calling thread.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ModelCache {
+
+	/**
+	 * A cached model with the state of its file when it was parsed.
+	 */
+	private static final class CachedModel {
+
+		private ClassFile cf;
+		private long lastModified;
+		private long length;
+
+		CachedModel(ClassFile cf, File file) {
+			this.cf = cf;
+			lastModified = file.lastModified();
+			length = file.length();
+		}
+
+		/** Returns true if the file was not modified since the model was parsed. */
+		boolean isFresh(File file) {
+			return ( file.lastModified() == lastModified && file.length() == length );
+		}
+
+	}// class.CachedModel
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private Map<String, CachedModel> entries;
+	private long hits = 0;
+	private long misses = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param size the maximal number of the kept models.
+	 */
+	public ModelCache(final int size) {
+		entries = new LinkedHashMap<String, CachedModel>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, CachedModel> eldest) {
+				return ( size() > size );
+			}
+		};
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the cached models. */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/** Returns the number of the requests that were answered from the cache. */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/** Returns the number of the requests that needed parsing. */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the key of a classfile.
+	 */
+	private static String getKey(File location, String path) {
+		return location.getAbsolutePath() + "!" + ( (null == path) ? "" : path );
+	}
+
+	/**
+	 * Returns the file whose modification invalidates the model: the classfile itself, or the jar file.
+	 */
+	private static File getStampFile(File location, String path) {
+		if ( location.isDirectory() ) {
+			return new File( location, path.replace('/', File.separatorChar) );
+		}
+
+		return location;
+	}
+
+	/**
+	 * Returns the path of a class in a location.
+	 *
+	 * @param className the name of the class with dots (<code>java.lang.Object</code>).
+	 */
+	public static String getPath(String className) {
+		return className.replace('.', '/') + ".class";
+	}
+
+	/**
+	 * Returns the parsed model of a classfile, from the cache if it was not modified since it was parsed.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param path the path of the classfile in a directory or a jar file (ignored if the location is a classfile).
+	 * @return the model, or null if there's no such classfile.
+	 * @throws IOException if the classfile cannot be read or parsed.
+	 */
+	public ClassFile get(File location, String path) throws IOException {
+		boolean archive = ClassSource.isArchive( location.getName() );
+		if ( ! location.exists() || ( ( location.isDirectory() || archive ) && null == path ) ) {
+			return null;
+		}
+		if ( location.isFile() && ! archive ) {
+			path = null;
+		}
+
+		String key = getKey(location, path);
+		File stamp = getStampFile(location, path);
+
+		synchronized (this) {
+			CachedModel entry = entries.get(key);
+			if ( null != entry && entry.isFresh(stamp) ) {
+				hits++;
+				return entry.cf;
+			}
+			misses++;
+		}
+
+		ClassFile cf = load(location, path);
+		if ( null != cf ) {
+			put(location, path, cf);
+		}
+
+		return cf;
+	}// get
+
+	/**
+	 * Adds a parsed model to the cache.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param path the path of the classfile in a directory or a jar file (null if the location is a classfile).
+	 * @param cf the parsed model of the classfile.
+	 */
+	public void put(File location, String path, ClassFile cf) {
+		CachedModel entry = new CachedModel( cf, getStampFile(location, path) );
+		synchronized (this) {
+			entries.put( getKey(location, path), entry );
+		}
+	}
+
+	/**
+	 * Removes every model.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Reads and parses a classfile.
+	 */
+	private static ClassFile load(File location, String path) throws IOException {
+		if ( null == path ) {
+			return parse( location.getPath(), new FileInputStream(location) );
+		}
+
+		if ( location.isDirectory() ) {
+			File file = getStampFile(location, path);
+			return ( file.isFile() ? parse( path, new FileInputStream(file) ) : null );
+		}
+
+		ZipFile zip = new ZipFile(location);
+		try {
+			ZipEntry entry = zip.getEntry(path);
+			return ( (null == entry) ? null : parse( path, zip.getInputStream(entry) ) );
+		} finally {
+			zip.close();
+		}
+	}// load
+
+	/**
+	 * Parses a classfile without changing the current constant pool of the thread. The stream is closed.
+	 */
+	private static ClassFile parse(String path, InputStream in) throws IOException {
+		ConstantPool previous = ConstantPool.setCurrent(null);
+		try {
+			ClassFile cf = new ClassFile(path, in);
+			cf.parse();
+			return cf;
+		} catch (ParsingException pe) {
+			throw new IOException( "Cannot parse " + path + ": " + pe.getMessage() );
+		} catch (RuntimeException re) { // a corrupted classfile
+			throw new IOException( "Cannot parse " + path + ": " + re );
+		} finally {
+			ConstantPool.setCurrent(previous);
+			in.close();
+		}
+	}
+
+}// class.ModelCache
@@ -0,0 +1,49 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.daemon;
+
+import java.io.IOException;
+
+/**
+ * A request that cannot be answered, with the HTTP status of the answer.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class RequestException extends IOException {
+
+	private int status;
+
+	/**
+	 * Creates a new exception.
+	 *
+	 * @param status the HTTP status of the answer (for example 404).
+	 * @param message the text of the answer.
+	 */
+	public RequestException(int status, String message) {
+		super(message);
+		this.status = status;
+	}
+
+	/** Returns the HTTP status of the answer. */
+	public int getStatus() {
+		return status;
+	}
+
+}// class.RequestException
@@ -26,6 +26,8 @@ import javax.swing.event.*;
 import javax.swing.table.*;
 
 import jyzer.gui.guihelpers.ConstantPoolTableModel;
+import jyzer.gui.guihelpers.NavigationListener;
+import jyzer.gui.guihelpers.NavigationTarget;
 import jyzer.items.ConstantPool;
 
 import edu.lro.gui.NumberTextField;
@@ -53,6 +55,9 @@ public class ConstantPoolPane extends JComponent {
 	private int actIndex = 0;
 	private boolean matchCase = false;
 
+	/** Receives the double clicked class and member references (null: none). */
+	private NavigationListener navigationListener = null;
+
 	// -- Constructors ------------------------------------------------------------------------------
 
 	/**
@@ -155,6 +160,16 @@ public class ConstantPoolPane extends JComponent {
 				filterData();
 			}
 		});
+
+		// a double click on a class or a member reference opens its definition
+		table.addMouseListener(new MouseAdapter() {
+			public void mouseClicked(MouseEvent me) {
+				int row = table.rowAtPoint( me.getPoint() );
+				if ( 2 == me.getClickCount() && 0 <= row ) {
+					navigate(row);
+				}
+			}
+		});
 	}// buildUpGUI
 
 	/**
@@ -169,6 +184,7 @@ public class ConstantPoolPane extends JComponent {
 		findPanel.setToolTipText("<HTML><B>Search String:</B><BR>To find a string in the Constant Pool entries.</HTML>");
 		gotoPanel.setToolTipText("<HTML><B>Jump to index:</B><BR>To jump to the given index of the Constant Pool.</HTML>");
 		filterPanel.setToolTipText("<HTML><B>Filtering:</B><BR>To filter the displayed Constant Pool entries.</HTML>");
+		table.setToolTipText("<HTML>Double click a class, field or method reference to open its definition.</HTML>");
 	}// setDefaultValues
 
 	// --- GUI helper methods ---------------------------------------------------------------------------------------------
@@ -207,6 +223,28 @@ public class ConstantPoolPane extends JComponent {
 		refresh();
 	}
 
+	/**
+	 * Sets the listener that is notified when a class or a member reference is double clicked (null: none).
+	 */
+	public void setNavigationListener(NavigationListener navigationListener) {
+		this.navigationListener = navigationListener;
+	}
+
+	/**
+	 * Navigates to the entry of the given row, if it is a class or a member reference.
+	 */
+	private void navigate(int row) {
+		if ( null == navigationListener ) {
+			return;
+		}
+
+		int index = Integer.parseInt( table.getModel().getValueAt(row, 0).toString() );
+		NavigationTarget target = NavigationTarget.forEntry(index);
+		if ( null != target ) {
+			navigationListener.navigate(target);
+		}
+	}// navigate
+
 	/**
 	 * Finds the next occurance of the given string in the 3rd column of the table.
 	 * Starts the search from the 1st entry, cause the 0th is not used.
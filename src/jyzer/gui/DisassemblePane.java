@@ -26,28 +26,45 @@
  *			was so irritating to have more spaces between the keywords! So a new
  *			StringBuilder was used to create the string and then a regexp is used
  *			to clear those nasty whitespaces!
+ *
+ * 1.02 setClassFile
+ *			The source generation was moved to jyzer.Disassembler and runs on a
+ *			worker thread now, the text is published to the document in chunks.
+ *			The line numbers are painted by a LineNumberGutter instead of being
+ *			appended to a second text component one by one.
  */
 
 package jyzer.gui;
 
 import java.awt.*;
-import java.awt.event.*;
-import java.util.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.util.concurrent.*;
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
 
 import jyzer.ClassFile;
-import jyzer.items.attributes.types.helpers.CodeInstruction;
-import jyzer.items.attributes.types.helpers.InnerClass;
-import jyzer.items.fields.FieldInfo;
-import jyzer.items.methods.MethodInfo;
-import jyzer.gui.guihelpers.*;
-import jyzer.JYzer;
+import jyzer.Disassembler;
+import jyzer.items.ConstantPool;
+import jyzer.gui.guihelpers.LineNumberGutter;
+import jyzer.gui.guihelpers.NavigationListener;
+import jyzer.gui.guihelpers.NavigationTarget;
 
 /**
  * This class cares for the disassemble pane. Creates and displays the disassembled source. I've a lot of work in it,
  * but don't know if it works perfectly. I've tested it on ower 50+ classfiles, and given a good output. So I hope it
  * works fine.
  *
+ * <p>The source is created by a <code>Disassembler</code> on a background thread, and it is appended to the document
+ * in chunks on the event dispatch thread, so the GUI stays responsive while a huge classfile is rendered. Setting a new
+ * classfile (or clearing the pane) cancels the rendering that is in progress.</p>
+ *
+ * <p>A ctrl + click or a double click on a class name or on a constant pool index (<code>#12</code>) is passed to the
+ * navigation listener, that opens the definition of the referenced class or member.</p>
+ *
  * <p>TODO: make the syntax highlighting work.</p>
  *
  * @author Legendi Richard Oliver
@@ -57,18 +74,112 @@ public class DisassemblePane extends JComponent {
 
 	// --- Own variables -----------------------------------------
 
-	private int lineNumber = 0;
-	private RelatedClasses relatedClasses = null;
-	private String inset = "";
-	private static final String INCREASE = "    ";
+	/** The number of characters collected before a chunk is published to the document. */
+	private static final int CHUNK_SIZE = 32 * 1024;
+
+	/** The worker thread that makes the disassembling. */
+	private static final ExecutorService RENDERER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "JYzer disassembler");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** Incremented by each new rendering, so the outdated chunks can be dropped. */
+	private volatile int generation = 0;
+
+	/**
+	 * Receives the whole disassembled source when a rendering is done, so it can be kept for later.
+	 */
+	public interface RenderListener {
+
+		/**
+		 * Called on the event dispatch thread when the whole source of a classfile is on the pane.
+		 *
+		 * @param cf the classfile that was disassembled.
+		 * @param text the disassembled source.
+		 */
+		void rendered(ClassFile cf, String text);
+
+	}// interface.RenderListener
+
+	private RenderListener renderListener = null;
+
+	/** Receives the followed references (null: none). */
+	private NavigationListener navigationListener = null;
+
+	/**
+	 * An <code>Appendable</code> that collects the disassembled source, and publishes it to the document when the
+	 * collected text reaches the <code>CHUNK_SIZE</code>. Stops the disassembling if the rendering is outdated.
+	 */
+	private class ChunkPublisher implements Appendable {
+
+		private final int myGeneration;
+		private StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+		private boolean first = true;
+
+		ChunkPublisher(int myGeneration) {
+			this.myGeneration = myGeneration;
+		}
+
+		public Appendable append(CharSequence csq) throws IOException {
+			chunk.append(csq);
+			check();
+			return this;
+		}
+
+		public Appendable append(CharSequence csq, int start, int end) throws IOException {
+			chunk.append(csq, start, end);
+			check();
+			return this;
+		}
+
+		public Appendable append(char c) throws IOException {
+			chunk.append(c);
+			check();
+			return this;
+		}
+
+		/** Publishes the chunk if it is big enough. */
+		private void check() {
+			if ( chunk.length() >= CHUNK_SIZE ) {
+				flush();
+			}
+		}
+
+		/** Publishes the collected text to the document on the event dispatch thread. */
+		void flush() {
+			if ( myGeneration != generation ) {
+				throw new CancellationException();
+			}
 
-	private boolean showBridge = true;
-	private boolean showSynthetic = true;
-	private boolean showDisassembledCode = true;
-	private boolean showAnonymusInnerClasses = true;
+			final String text = chunk.toString();
+			final boolean scrollToTop = first;
+			chunk = new StringBuilder(CHUNK_SIZE);
+			first = false;
+
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if ( myGeneration != generation ) {
+						return;
+					}
+
+					Document doc = ta.getDocument();
+					try {
+						doc.insertString(doc.getLength(), text, null);
+					} catch (BadLocationException ble) {
+						ble.printStackTrace();
+					}
+
+					if (scrollToTop) {
+						ta.setCaretPosition(0);
+					}
+				}
+			});
+		}
 
-	/** Had a little workaround to prevent the flickering of the screen. */
-	private StringBuilder content = new StringBuilder();
+	}// class.ChunkPublisher
 
 	// --- Constructors ------------------------------------------
 
@@ -88,14 +199,21 @@ public class DisassemblePane extends JComponent {
 	private void buildUpGUI() {
 		setLayout( new BorderLayout() );
 
-		JScrollPane scrollPane = new JScrollPane(mainPanel);
+		JScrollPane scrollPane = new JScrollPane(ta);
 		scrollPane.getVerticalScrollBar().setUnitIncrement(25);
 		scrollPane.getHorizontalScrollBar().setUnitIncrement(25);
+		scrollPane.setRowHeaderView(lineGutter);
 		add(scrollPane);
 
-		mainPanel.setLayout( new BorderLayout() );
-		mainPanel.add(ta);
-		mainPanel.add(lineLabel, BorderLayout.WEST);
+		// a ctrl + click or a double click on a class name or a constant pool index opens its definition
+		ta.addMouseListener(new MouseAdapter() {
+			@SuppressWarnings("deprecation") // viewToModel2D() needs Java 9, the sources are kept at Java 5
+			public void mouseClicked(MouseEvent me) {
+				if ( me.isControlDown() || 2 == me.getClickCount() ) {
+					navigate( ta.viewToModel( me.getPoint() ) );
+				}
+			}
+		});
 
 /*
 		// Syntax highlighting 'll like something like this ...
@@ -116,37 +234,42 @@ public class DisassemblePane extends JComponent {
 		ta.setFont(font);
 		ta.setEditable(false);
 
-		lineLabel.setEditable(false);
-		lineLabel.setFont(font);
+		// appending the chunks must not move the view
+		( (DefaultCaret) ta.getCaret() ).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
 
-		lineLabel.setBorder( BorderFactory.createEmptyBorder(0, 3, 0, 3) );
-		lineLabel.setBackground( new Color(204, 204, 255) );
+		lineGutter.setFont(font);
+		lineGutter.setBackground( new Color(204, 204, 255) );
 	}// setDefaultValues
 
 	// --- Helper methods -------------------------------------------------
 
 	/**
-	 * Clears the displayed data on the pane.
+	 * Clears the displayed data on the pane, and stops the rendering in progress (if any).
 	 */
 	public void clear() {
-		inset = "";
-		ta.setText("");
-		lineLabel.setText("0");
-		lineNumber = 0;
-	}
-
-	/**
-	 * Increases the actual insets with the constant defined in the header (by default it equals to 4 space).
-	 */
-	private void increaseInset() {
-		inset += INCREASE;
+		generation++;
+
+		runOnEventDispatchThread(new Runnable() {
+			public void run() {
+				Document doc = ta.getDocument();
+				try {
+					doc.remove( 0, doc.getLength() );
+				} catch (BadLocationException ble) {
+					ble.printStackTrace();
+				}
+			}
+		});
 	}
 
 	/**
-	 * Decreases the actual insets with the constant defined in the header (by default it equals to 4 space).
+	 * Runs the given task on the event dispatch thread: immediately if called from there, later otherwise.
 	 */
-	private void decreaseInset() {
-		inset = inset.substring( 0, inset.length() - 4 );
+	private static void runOnEventDispatchThread(Runnable task) {
+		if ( SwingUtilities.isEventDispatchThread() ) {
+			task.run();
+		} else {
+			SwingUtilities.invokeLater(task);
+		}
 	}
 
 	/**
@@ -157,266 +280,119 @@ public class DisassemblePane extends JComponent {
 	}
 
 	/**
-	 * Adds a new line to the end of the content & the line label.
-	 */
-	private void newLine() {
-		content.append('\n');
-		lineLabel.append( "" + ++lineNumber + '\n');
-	}
-
-	/**
-	 * Appends the given string to the end of the contents.
-	 *
-	 * @param str the string that has to be appended.
+	 * Sets the listener that receives the rendered sources (null: none). Called on the event dispatch thread.
 	 */
-	private void append(String str) {
-		content.append(str);
+	public void setRenderListener(RenderListener renderListener) {
+		this.renderListener = renderListener;
 	}
 
 	/**
-	 * Appends the given string to the end of the contents, and terminates the actual line.
-	 *
-	 * @param str the string that has to be appended.
+	 * Sets the listener that is notified when a reference is followed (null: none). Called on the event dispatch
+	 * thread.
 	 */
-	private void addLine(String line) {
-		content.append(inset + line + '\n');
-		lineLabel.append( "" + ++lineNumber + '\n');
+	public void setNavigationListener(NavigationListener navigationListener) {
+		this.navigationListener = navigationListener;
 	}
 
 	/**
-	 * Truncates the given field's name to just the name, and drops away the remaining (the package name, ...)
-	 *
-	 * @param fieldDescriptor the descriptor of the field.
-	 * @return the truncated name.
+	 * Navigates to the class or the constant pool entry named by the word at the given position of the text.
 	 */
-	private String getDescriptorString(String fieldDescriptor) {
-		if ( fieldDescriptor.contains(".") ) { // class descriptor
-			return fieldDescriptor.substring( fieldDescriptor.lastIndexOf(".") + 1 );
+	private void navigate(int position) {
+		if ( null == navigationListener || position < 0 ) {
+			return;
 		}
 
-		return fieldDescriptor;
-	}// getDescriptorString
-
-	/**
-	 * This method makes the disassembling.
-	 *
-	 * @param cf the classfile that has to be disassemled.
-	 */
-	public void setClassFile( ClassFile cf ) {
-		content = new StringBuilder();
-		clear();
-		lineLabel.setText("");
-		relatedClasses = new RelatedClasses( cf.getThisClassName() );
-
-		addLine("/*");
-		addLine(" * This file was disassembled by JYzer v" + JYzer.VERSION);
-		addLine(" * Copyright(C) 2005 Legendi Richard Oliver");
-		addLine(" * Come to http://leriaat.web.elte.hu/ for more Java programs!");
-		addLine(" *");
-		addLine(" * This program is distributed in the hope that it will be useful,");
-    	addLine(" * but WITHOUT ANY WARRANTY; without even the implied warranty of");
-    	addLine(" * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the");
-    	addLine(" * GNU General Public License for more details. ");
-		addLine(" */");
-
-		String thisClassName = cf.getThisClassName();
-
-		//package ...
-		if ( cf.getThisClassName().contains(".") ) {
-			addLine("package " + cf.getThisClassName().substring( 0, cf.getThisClassName().lastIndexOf('.') ) + ";");
-			thisClassName = cf.getThisClassName().substring( cf.getThisClassName().lastIndexOf('.') + 1);
+		String text = ta.getText();
+		int start = position;
+		int end   = position;
+		while ( 0 < start && isWordPart( text.charAt(start - 1) ) ) {
+			--start;
 		}
-
-		addLine("");
-
-
-		// import ...
-		Vector<String> relatedClassNames = relatedClasses.getRelatedClassNames();
-		for (int i=0; i<relatedClassNames.size(); ++i) {
-			addLine("import " + relatedClassNames.get(i) + ";");
-			if (relatedClassNames.size() == i+1) addLine("");
-		}
-
-		// class header
-		// -- modifiers + classname
-		StringBuilder header = new StringBuilder();;
-		if ( cf.isInterface() ) {
-			header.append(cf.getAccessString() + "interface " + thisClassName);
-		} else {
-			header.append(cf.getAccessString() + cf.getRealModifierString() + "class "+ thisClassName);
+		while ( end < text.length() && isWordPart( text.charAt(end) ) ) {
+			++end;
 		}
-
-		// -- super classname
-		if ( ! cf.getSuperClassName().equals("java.lang.Object") ) {
-			header.append( " extends " + getDescriptorString( cf.getSuperClassName() ) );
+		if ( 0 < start && '#' == text.charAt(start - 1) ) { // an operand that is a constant pool index
+			--start;
 		}
-
-		// -- interfaces (if any)
-		if ( cf.hasInterfaces() ) {
-			header.append(" implements ");
-			String names[] = cf.getInterfaceNames();
-
-			for ( int i=0; i<names.length; ++i) {
-				header.append( getDescriptorString( names[i] ) + "");
-				if (i+1 != names.length) header.append(", ");
-			}
+		while ( start < end && '.' == text.charAt(end - 1) ) { // the end of a sentence
+			--end;
 		}
 
-		append( header.toString().replaceAll("\\s+"," ") );
-		addLine(" {");
-		addLine("");
-		increaseInset();
-
-		// fields
-		FieldInfo fields[] = cf.getFieldItem().getFields();
-		for (int i=0; i<fields.length; ++i) {
-			String constantValue = "";
-			String variableName  = getDescriptorString( fields[i].getDescriptorString() );
-
-			if ( fields[i].hasConstantValue() ) {
-				constantValue = " = " + fields[i].getConstantValueString();
-			}
-
-			if ( fields[i].hasSynthetic() ) {
-				addLine("/* SYNTHETIC field - not present in the source");
-			} else if ( variableName.contains("$") ) { // Inner class variable type (?)
-				variableName = variableName.substring( variableName.lastIndexOf('$') + 1);
-			}
-
-			addLine( fields[i].getAccessString() + fields[i].getRealModifierString() +
-					 variableName + " " + fields[i].getNameString() + constantValue + ";" );
-
-			if ( fields[i].hasSynthetic() ) {
-				addLine("*/");
-			}
-
-			if (fields.length == i+1) addLine("");
+		NavigationTarget target = NavigationTarget.forWord( text.substring(start, end) );
+		if ( null != target ) {
+			navigationListener.navigate(target);
 		}
+	}// navigate
 
-		// inner classes
-		if ( cf.hasInnerClasses() ) {
-			InnerClass innerClasses[] = cf.getInnerClasses();
-
-			for (int i=0; i<innerClasses.length; ++i) {
-				String innerClassName = "";
-
-				if ( innerClasses[i].isAnonymus() && showAnonymusInnerClasses ) {
-					addLine("/* ANONYMUS inner class");
-					innerClassName = innerClasses[i].getInnerClassInfo();
-				} else if ( innerClasses[i].isAnonymus() && ! showAnonymusInnerClasses ) {
-					continue;
-				} else {
-					innerClassName = innerClasses[i].getClassName();
-				}
-
-				addLine( innerClasses[i].getAccessString() + innerClasses[i].getRealModifierString() + "class "+ innerClassName + " {");
-				addLine( "}" );
-
-				if ( innerClasses[i].isAnonymus() && showAnonymusInnerClasses ) {
-					addLine("*/");
-				}
-
-				addLine( ""  );
+	/**
+	 * Returns true if the character can be in a name (a qualified one too) or in a number.
+	 */
+	private static boolean isWordPart(char c) {
+		return ( Character.isJavaIdentifierPart(c) || '.' == c );
+	}
 
-				/*
-					No hope to make them work :-(
-					// -- super classname
-					// -- interfaces (if any)
-					// ...
-				 */
+	/**
+	 * Displays a disassembled source that was rendered before, the rendering in progress (if any) is stopped. Called on
+	 * the event dispatch thread.
+	 *
+	 * @param text the disassembled source.
+	 */
+	public void setText(String text) {
+		clear();
 
-			}
+		Document doc = ta.getDocument();
+		try {
+			doc.insertString(0, text, null);
+		} catch (BadLocationException ble) {
+			ble.printStackTrace();
 		}
+		ta.setCaretPosition(0);
+	}
 
-		// methods
-		MethodInfo methods[] = cf.getMethodItem().getMethods();
-		for (int i=0; i<methods.length; ++i) {
-
-			if ( methods[i].isBridge() && showBridge ) {
-				addLine("/* BRIDGE method - created by the compiler");
-				addLine("");
-			} else if ( methods[i].isSynthetic() && showSynthetic ) {
-				addLine("/* SYNTHETIC method - not present in the source");
-				addLine("");
-			} else if ( ( methods[i].isBridge()    && ! showBridge ) ||
-						( methods[i].isSynthetic() && ! showSynthetic) ) {
-				continue;
-			}
-
-			if ( methods[i].isClassInitializer() ) {
-				addLine("/**");
-				addLine(" * Class initializer.");
-				addLine(" */");
-			}
-
-			append( inset + "" + methods[i].getPureSignature(thisClassName) );
-			if ( methods[i].hasExceptions() ) {
-				append(" throws ");
-
-				String exceptionNames[] = methods[i].getPureExceptionNames(thisClassName);
-				for (int j=0; j<exceptionNames.length; ++j) {
-					append( exceptionNames[j] );
-					if (j+1<exceptionNames.length) append(", ");
-				}
-			}
-			append(" {");
-			newLine();
-
-			increaseInset();
-
-			// local variables
-			if ( methods[i].hasTheCodeLocalVariables() ) {
-				addLine("// Local variables");
-				for ( String locVar : methods[i].getTheCodeLocalVariablesString() ) {
-					addLine(locVar);
-				}
-
-				if (showDisassembledCode) {
-					addLine("");
-				}
-			}
-
-			// disassembled code
-			if ( showDisassembledCode ) {
-				if ( ! methods[i].isBridge() && ! methods[i].isSynthetic() ) {
-					addLine("/*");
-				}
-
-				addLine("Disassembled Code:");
+	/**
+	 * This method starts the disassembling on the worker thread, the result appears gradually on the pane.
+	 *
+	 * @param cf the classfile that has to be disassemled.
+	 */
+	public void setClassFile(final ClassFile cf) {
+		clear();
+		final int myGeneration = generation;
 
-				Vector<CodeInstruction> code = methods[i].getDisassembledCode();
-				for (CodeInstruction ci : code) {
-					addLine( ci.toString() );
+		RENDERER.execute(new Runnable() {
+			public void run() {
+				if ( myGeneration != generation ) {
+					return;
 				}
 
-				if ( ! methods[i].isBridge() && ! methods[i].isSynthetic() ) {
-					addLine("*/");
+				ChunkPublisher publisher = new ChunkPublisher(myGeneration);
+				ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+				try {
+					new Disassembler().disassemble(cf, publisher);
+					publisher.flush();
+
+					// after the last chunk is inserted
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							if ( myGeneration == generation && null != renderListener ) {
+								renderListener.rendered( cf, ta.getText() );
+							}
+						}
+					});
+				} catch (CancellationException ce) {
+					// a newer classfile was set, or the pane was cleared
+				} catch (Exception e) {
+					System.err.println( "Error: " + e.getMessage() );
+					e.printStackTrace();
+				} finally {
+					ConstantPool.setCurrent(previous);
 				}
 			}
-
-			decreaseInset();
-
-			addLine( "}" );
-			addLine( " ");
-
-			if ( methods[i].isBridge() || methods[i].isSynthetic() ) {
-				addLine("*/");
-			}
-		}
-
-		// end :-)
-		decreaseInset();
-		addLine("}");
-		addLine("");
-
-		ta.setText( content.toString() );
-		ta.setCaretPosition(0);
+		});
 	}// setClassFile
 
 	// --- GUI variables --------------------------------------------------------------
 
-	private JPanel mainPanel = new JPanel();
 	private JEditorPane ta = new JEditorPane();
-	private JTextArea lineLabel = new JTextArea("0");
+	private LineNumberGutter lineGutter = new LineNumberGutter(ta);
 
 }// class.DisassemblePane
@@ -27,6 +27,7 @@ import javax.swing.table.*;
 
 import jyzer.gui.guihelpers.AttribDialog;
 import jyzer.gui.guihelpers.FieldsTableModel;
+import jyzer.items.ConstantPool;
 import jyzer.items.fields.FieldInfo;
 
 /**
@@ -203,6 +204,30 @@ public class FieldsPane extends JComponent {
 		refresh();
 	}
 
+	/**
+	 * Selects the field with the given name and descriptor, and scrolls to it. Used by the navigation to a
+	 * referenced field.
+	 *
+	 * @param name the name of the field.
+	 * @param descriptor the descriptor of the field as it is in the classfile (null: the first field with the name).
+	 * @return true if the field was found.
+	 */
+	public boolean selectField(String name, String descriptor) {
+		FieldsTableModel model = ( (FieldsTableModel) table.getModel() );
+
+		for (int i=0; i<model.getRowCount(); ++i) {
+			FieldInfo info = model.getField(i);
+			if ( info.getNameString().equals(name) &&
+				 ( null == descriptor || descriptor.equals( ConstantPool.getUtf8String( info.getDescriptorIndex() ) ) ) ) {
+				table.changeSelection(i, 0, false, false);
+				actIndex = i;
+				return true;
+			}
+		}
+
+		return false;
+	}// selectField
+
 	/**
 	 * Finds the next occurance of the given string in the 2nd (name) and the 3rd (value) column of the table.
 	 * Starts the search from the 0st entry.
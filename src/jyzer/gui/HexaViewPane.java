@@ -146,6 +146,14 @@ public class HexaViewPane extends JComponent {
 		refresh();
 	}
 
+	/**
+	 * Setting the information displayed in the table from the contents of a file (for example of an entry in a jar file).
+	 */
+	public void setData(byte contents[]) {
+		table.setModel( new HexaViewTableModel(contents) );
+		refresh();
+	}
+
 	// --- GUI things ----------------------------------------------------------------
 
 	private JPanel mainPanel = new JPanel();
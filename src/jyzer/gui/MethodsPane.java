@@ -27,6 +27,7 @@ import javax.swing.table.*;
 
 import jyzer.gui.guihelpers.AttribDialog;
 import jyzer.gui.guihelpers.MethodsTableModel;
+import jyzer.items.ConstantPool;
 import jyzer.items.methods.MethodInfo;
 
 /**
@@ -203,6 +204,30 @@ public class MethodsPane extends JComponent {
 		refresh();
 	}
 
+	/**
+	 * Selects the method with the given name and descriptor, and scrolls to it. Used by the navigation to a
+	 * referenced method.
+	 *
+	 * @param name the name of the method.
+	 * @param descriptor the descriptor of the method as it is in the classfile (null: the first method with the name).
+	 * @return true if the method was found.
+	 */
+	public boolean selectMethod(String name, String descriptor) {
+		MethodsTableModel model = ( (MethodsTableModel) table.getModel() );
+
+		for (int i=0; i<model.getRowCount(); ++i) {
+			MethodInfo info = model.getMethod(i);
+			if ( info.getNameString().equals(name) &&
+				 ( null == descriptor || descriptor.equals( ConstantPool.getUtf8String( info.getDescriptorIndex() ) ) ) ) {
+				table.changeSelection(i, 0, false, false);
+				actIndex = i;
+				return true;
+			}
+		}
+
+		return false;
+	}// selectMethod
+
 	/**
 	 * Finds the next occurance of the given string in the 2nd (name) and the 3rd (value) column of the table.
 	 * Starts the search from the 0st entry.
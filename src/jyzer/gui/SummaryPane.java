@@ -19,53 +19,35 @@
 package jyzer.gui;
 
 import java.awt.*;
-import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.event.*;
-import javax.swing.text.*;
-import javax.swing.text.html.*;
+import javax.swing.tree.*;
+
+import jyzer.ClassFile;
+import jyzer.gui.guihelpers.SummaryTreeBuilder;
+import jyzer.gui.guihelpers.SummaryTreeNode;
 
 /**
- * This component is used to display general information about the analyzed classfile, that is fancy a bit & can be saved into a file.
+ * This component is used to display general information about the analyzed classfile. The structure of the classfile
+ * is displayed as a tree, and only the description of the selected node is rendered as html. The nodes are created
+ * when they are expanded, so huge classfiles don't have to be rendered as one (giant) document.
  *
- * <p>TODO: make a navbar at the bottom of the page.</p>
+ * <p>The whole description (that can be saved into a file) is still available through
+ * <code>ClassFile.getHTMLDescription()</code>.</p>
  *
  * @author Legendi Richard Oliver
- * @version 1.0
+ * @version 1.1
  */
 public class SummaryPane extends JComponent {
 
-	/**
-	 * This 'll be used for the navigation in the future.
-	 */
-	class Hyperactive implements HyperlinkListener {
-		public void hyperlinkUpdate(HyperlinkEvent e) {
-			if (e.getEventType() == HyperlinkEvent.EventType.ACTIVATED) {
-				JEditorPane pane = (JEditorPane) e.getSource();
-				if (e instanceof HTMLFrameHyperlinkEvent) {
-					HTMLFrameHyperlinkEvent  evt = (HTMLFrameHyperlinkEvent)e;
-					HTMLDocument doc = (HTMLDocument)pane.getDocument();
-					doc.processHTMLFrameHyperlinkEvent(evt);
-				} else {
-					try {
-						 pane.setPage(e.getURL());
-					} catch (Throwable t) {
-						 t.printStackTrace();
-					}
-				}
-			}
-		}
-	}// class.Hyperactive
-
 	// --- Constructors ------------------------------------------
 
 	/**
-	 * Creates a new instance of SummaryPane with an empty document.
+	 * Creates a new instance of SummaryPane with an empty tree.
 	 */
 	public SummaryPane() {
 		buildUpGUI();
 		setDefaultValues();
-		//summaryEditorPane.addHyperlinkListener( new Hyperactive() );
 	}
 
 	// --- GUI building ------------------------------------------
@@ -75,7 +57,17 @@ public class SummaryPane extends JComponent {
 	 */
 	private void buildUpGUI() {
 		setLayout( new BorderLayout() );
-		add(new JScrollPane( summaryEditorPane) );
+
+		JSplitPane splitPane = new JSplitPane( JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(summaryTree), new JScrollPane(summaryEditorPane) );
+		splitPane.setDividerLocation(300);
+		splitPane.setResizeWeight(0.3);
+		add(splitPane);
+
+		summaryTree.addTreeSelectionListener( new TreeSelectionListener() {
+			public void valueChanged(TreeSelectionEvent e) {
+				showDescription();
+			}
+		});
 	}
 
 	/**
@@ -84,39 +76,80 @@ public class SummaryPane extends JComponent {
 	private void setDefaultValues() {
 		summaryEditorPane.setContentType("text/html; charset=iso-8859-2");
 		summaryEditorPane.setEditable(false);
+
+		treeModel.setAsksAllowsChildren(true);
+		summaryTree.setModel(treeModel);
+		summaryTree.setRootVisible(true);
+		summaryTree.setShowsRootHandles(true);
+		summaryTree.getSelectionModel().setSelectionMode(TreeSelectionModel.SINGLE_TREE_SELECTION);
+
+		// fixed row heights, so the tree doesn't have to measure every row of an expanded huge list
+		summaryTree.setLargeModel(true);
+		summaryTree.setRowHeight( summaryTree.getFontMetrics( summaryTree.getFont() ).getHeight() + 2 );
 	}
 
 	// --- Helper methods -------------------------------------------------
 
 	/**
-	 * Clears the displayed data on the pane.
+	 * Renders the description of the selected node.
 	 */
-	public void clear() {
+	private void showDescription() {
+		Object selected = summaryTree.getLastSelectedPathComponent();
+
+		if ( ! ( selected instanceof SummaryTreeNode ) ) {
+			clearDescription();
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder("<HTML><BODY>");
+		( (SummaryTreeNode) selected ).getHTMLDescription(sb);
+		sb.append("</BODY></HTML>");
+
+		clearDescription();
+		summaryEditorPane.setText( sb.toString() );
+		summaryEditorPane.setCaretPosition(0);
+	}
+
+	/**
+	 * Clears the detail pane.
+	 */
+	private void clearDescription() {
 		// setText() is buggy due html formatting :-(
 		// need this little workaround
 		summaryEditorPane.setDocument( summaryEditorPane.getEditorKit().createDefaultDocument() );
 	}
 
 	/**
-	 * Gives the description.
-	 *
-	 * @return the text of the editorpane.
+	 * Clears the displayed data on the pane.
 	 */
-	public String getText() {
-		return summaryEditorPane.getText();
+	public void clear() {
+		treeModel.setRoot(null);
+		clearDescription();
 	}
 
 	/**
-	 * Sets the text that is displayed at the editorpane.
+	 * Sets the classfile whose structure is displayed. Only the main sections are created here, so it's cheap
+	 * even for huge classfiles.
+	 *
+	 * @param cf a parsed classfile.
 	 */
-	public void setText(final String text) {
-		clear();
-		summaryEditorPane.setText(text);
-		summaryEditorPane.setCaretPosition(0);
+	public void setClassFile(final ClassFile cf) {
+		final SummaryTreeNode root = SummaryTreeBuilder.createRoot(cf);
+
+		SwingUtilities.invokeLater( new Runnable() {
+			public void run() {
+				clearDescription();
+				treeModel.setRoot(root);
+				summaryTree.expandPath( new TreePath(root) );
+				summaryTree.setSelectionPath( new TreePath(root) );
+			}
+		});
 	}
 
 	// --- GUI variables --------------------------------------------------------------
 
+	private DefaultTreeModel treeModel = new DefaultTreeModel(null);
+	private JTree summaryTree = new JTree();
 	private JEditorPane summaryEditorPane = new JEditorPane();
 
 }// class.SummaryPane
@@ -21,6 +21,8 @@ package jyzer.gui.guihelpers;
 import java.io.*;
 import javax.swing.table.*;
 
+import jyzer.ClassFile;
+
 /**
  * The table model that is used by the hexaview pane.
  *
@@ -43,20 +45,27 @@ public class HexaViewTableModel extends AbstractTableModel {
 
 	/**
 	 * Creates a new model with the given data in it. The <code>File</code>
-	 * is needed because this method re-opens the file, and reads its contents
-	 * with a <code>DataInputStream</code>.
+	 * is needed because this method re-opens the file, and reads its contents.
 	 *
 	 * @param file the file that has to be processed.
 	 * @throws IOException if an I/O error occurs.
 	 */
 	public HexaViewTableModel( File file ) throws IOException {
-		DataInputStream dis = new DataInputStream( new FileInputStream(file) );
+		this( ClassFile.readFile( file.getPath() ) );
+	}// constr.HexaViewTableModel(File)
 
-		final int size = ( (int) (file.length() / 16) ) + 1;
+	/**
+	 * Creates a new model with the given contents in it (for example the contents of a classfile in a jar file).
+	 *
+	 * @param contents the bytes that has to be displayed.
+	 */
+	public HexaViewTableModel( byte contents[] ) {
+		final int length = contents.length;
+		final int size = ( length / 16 ) + 1;
 		data = new Object[size][1 + 16 + 16];
 
 		int lineNum = 0;
-		int neededZeros = Long.toHexString( file.length() ).length();
+		int neededZeros = Integer.toHexString(length).length();
 
 		// Printing line numbers nicely
 		for (int i=0; i<size; ++i) {
@@ -74,7 +83,11 @@ public class HexaViewTableModel extends AbstractTableModel {
 		// Filling in the dump
 		outer : for (int i=0; i<size; ++i) {
 			for (int j=1; j<17; ++j) {
-				int actVal = dis.readUnsignedByte();
+				if ( length == i * 16 + j - 1 ) {
+					break outer;
+				}
+
+				int actVal = contents[i * 16 + j - 1] & 0xFF;
 				String act = Integer.toHexString( actVal ).toUpperCase();
 
 				data[i][j] = ( act.length() < 2 ) ? "0" + act : act;
@@ -86,16 +99,9 @@ public class HexaViewTableModel extends AbstractTableModel {
 				} else {
 					data[i][j+16] = actChar;
 				}
-
-				if ( file.length() == ( (long) i ) * 16 + j ) {
-					break outer;
-				}
-
 			}
 		}
-
-		dis.close();
-	}// constr.HexaViewTableModel
+	}// constr.HexaViewTableModel(byte[])
 
 	// --- Super methods --------------------------
 
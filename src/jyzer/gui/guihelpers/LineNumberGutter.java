@@ -0,0 +1,150 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+import java.awt.*;
+import javax.swing.JComponent;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+
+/**
+ * A line number gutter for a text component, should be used as the row header of its scrollpane. The numbers
+ * are not stored anywhere: only the visible ones are painted, calculated from the lines (root elements) of
+ * the document. Was needed because the old <code>JTextArea</code> label was appended once per line, and that
+ * was terribly slow with huge classfiles.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class LineNumberGutter extends JComponent implements DocumentListener {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private static final int MARGIN = 3;
+
+	private JTextComponent text;
+	private int digits = 1;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new gutter for the given text component.
+	 *
+	 * @param text the component whose lines are numbered.
+	 */
+	public LineNumberGutter(JTextComponent text) {
+		this.text = text;
+		text.getDocument().addDocumentListener(this);
+
+		setOpaque(true);
+		setFont( text.getFont() );
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the number of the lines to display. The empty line after the last line terminator is not counted.
+	 */
+	private int getLineCount() {
+		Document doc = text.getDocument();
+		Element root = doc.getDefaultRootElement();
+		int count    = root.getElementCount();
+
+		if ( count > 1 && root.getElement(count - 1).getStartOffset() == doc.getLength() ) {
+			count--;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Recalculates the width of the gutter if the number of digits has changed, otherwise just repaints it.
+	 */
+	private void update() {
+		int newDigits = String.valueOf( getLineCount() ).length();
+
+		if ( newDigits != digits ) {
+			digits = newDigits;
+			revalidate();
+		}
+
+		repaint();
+	}
+
+	/**
+	 * The width depends on the number of the digits of the last line, the height follows the text component.
+	 */
+	public Dimension getPreferredSize() {
+		FontMetrics fm = getFontMetrics( getFont() );
+		int width = 2 * MARGIN + fm.charWidth('0') * Math.max(digits, 2);
+
+		return new Dimension( width, text.getPreferredSize().height );
+	}
+
+	/**
+	 * Paints only the line numbers that are in the clip.
+	 */
+	@SuppressWarnings("deprecation") // viewToModel2D() and modelToView2D() need Java 9, the sources are kept at Java 5
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		g.setColor( getBackground() );
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		Element root   = text.getDocument().getDefaultRootElement();
+		int lineCount  = getLineCount();
+		FontMetrics fm = g.getFontMetrics( getFont() );
+		int width      = getWidth();
+
+		g.setFont( getFont() );
+		g.setColor( getForeground() );
+
+		int line = root.getElementIndex( text.viewToModel( new Point(0, clip.y) ) );
+		try {
+			for ( ; line < lineCount; ++line) {
+				Rectangle r = text.modelToView( root.getElement(line).getStartOffset() );
+				if ( null == r || r.y > clip.y + clip.height ) {
+					break;
+				}
+
+				String number = String.valueOf(line + 1);
+				g.drawString(number, width - MARGIN - fm.stringWidth(number), r.y + fm.getAscent() );
+			}
+		} catch (BadLocationException ble) {
+			// the document has changed while painting, the next repaint will be fine
+		}
+	}
+
+	// --- Implementation of DocumentListener ----------------------------------------------------------------------------
+
+	public void insertUpdate(DocumentEvent de) {
+		update();
+	}
+
+	public void removeUpdate(DocumentEvent de) {
+		update();
+	}
+
+	public void changedUpdate(DocumentEvent de) {
+	}
+
+}// class.LineNumberGutter
@@ -0,0 +1,36 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+/**
+ * Receives the requests of the panes to navigate to the definition of a referenced class, field or method.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public interface NavigationListener {
+
+	/**
+	 * Called on the event dispatch thread when the user follows a reference.
+	 *
+	 * @param target the referenced class or member.
+	 */
+	void navigate(NavigationTarget target);
+
+}// interface.NavigationListener
@@ -0,0 +1,182 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+import jyzer.items.ConstantPool;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantClassInfo;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+
+/**
+ * A class, or a field or method of a class that can be navigated to from the panes: the definition of the class is
+ * opened, and the member is selected in it. The targets are created from the entries of the current constant pool,
+ * or from the words of the disassembled source.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class NavigationTarget {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private String className;
+	private String memberName;
+	private String descriptor;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a target.
+	 *
+	 * @param className the name of the class with dots (<code>java.lang.Object</code>).
+	 * @param memberName the name of a field or method (null: the class itself).
+	 * @param descriptor the descriptor of the member as it is in the classfile (null: not known).
+	 */
+	public NavigationTarget(String className, String memberName, String descriptor) {
+		this.className  = className;
+		this.memberName = memberName;
+		this.descriptor = descriptor;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the name of the class with dots. */
+	public String getClassName() {
+		return className;
+	}
+
+	/** Returns the name of the member, or null if the target is the class. */
+	public String getMemberName() {
+		return memberName;
+	}
+
+	/** Returns the descriptor of the member, or null if it is not known. */
+	public String getDescriptor() {
+		return descriptor;
+	}
+
+	/** Returns true if the target is a method (or may be one, if the descriptor is not known). */
+	public boolean isMethod() {
+		return ( null != memberName && ( null == descriptor || descriptor.startsWith("(") ) );
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the target of an entry of the current constant pool.
+	 *
+	 * @param index the index of a <code>CONSTANT_Class_info</code> or a field or method reference.
+	 * @return the target, or null if the entry cannot be navigated to (an other kind of entry, or an array of
+	 *         primitives).
+	 */
+	public static NavigationTarget forEntry(int index) {
+		if ( index <= 0 || ConstantPool.getConstantPoolCount() <= index ) {
+			return null;
+		}
+
+		ConstantPoolInfo info = ConstantPool.getElement(index);
+
+		if ( info instanceof ConstantClassInfo ) {
+			String name = toClassName( ( (ConstantClassInfo) info ).getNameString() );
+			return ( (null == name) ? null : new NavigationTarget(name, null, null) );
+		}
+
+		if ( info instanceof AbstractReference ) {
+			AbstractReference reference = (AbstractReference) info;
+			String name = toClassName( ConstantPool.getClassName( reference.getClassIndex() ) );
+			ConstantPoolInfo nameAndType = ConstantPool.getElement( reference.getNameAndTypeIndex() );
+
+			if ( null == name || ! ( nameAndType instanceof ConstantNameAndTypeInfo ) ) {
+				return null;
+			}
+
+			return new NavigationTarget(
+				name,
+				ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nameAndType ).getNameIndex() ),
+				ConstantPool.getUtf8String( ( (ConstantNameAndTypeInfo) nameAndType ).getDescriptorIndex() )
+			);
+		}
+
+		return null;
+	}// forEntry
+
+	/**
+	 * Returns the target of a word of the disassembled source. The word is either a constant pool index
+	 * (<code>#12</code>), a qualified name (<code>java.io.PrintStream</code>, or a member of a resolved operand like
+	 * <code>java.io.PrintStream.println</code>), or a simple class name that is looked
+	 * up among the classes of the current constant pool (the disassembler imports the classes).
+	 *
+	 * @param word the word.
+	 * @return the target, or null if the word is not a name.
+	 */
+	public static NavigationTarget forWord(String word) {
+		if ( word.startsWith("#") ) {
+			try {
+				return forEntry( Integer.parseInt( word.substring(1) ) );
+			} catch (NumberFormatException nfe) {
+				return null;
+			}
+		}
+
+		if ( 0 == word.length() || ! Character.isJavaIdentifierStart( word.charAt(0) ) ) {
+			return null;
+		}
+
+		if ( word.contains(".") ) { // it may be the name of a member too, that is decided when it is looked up
+			return new NavigationTarget(word, null, null);
+		}
+
+		for (int i=1; i<ConstantPool.getConstantPoolCount(); ++i) {
+			if ( ConstantPool.getElement(i).isClassInfo() ) {
+				String name = toClassName( ConstantPool.getClassName(i) );
+				if ( null != name && ( name.endsWith("." + word) || name.endsWith("$" + word) || name.equals(word) ) ) {
+					return new NavigationTarget(name, null, null);
+				}
+			}
+		}
+
+		return null;
+	}// forWord
+
+	/**
+	 * Returns the name of the class of an array's elements, or the given name if it is not an array. Returns null for
+	 * the arrays of primitives.
+	 */
+	private static String toClassName(String name) {
+		if ( null == name || ! name.startsWith("[") ) {
+			return name;
+		}
+
+		int start = name.lastIndexOf('[') + 1;
+		if ( 'L' == name.charAt(start) && name.endsWith(";") ) {
+			return name.substring( start + 1, name.length() - 1 );
+		}
+
+		return null;
+	}// toClassName
+
+	/**
+	 * Returns the target with the name of the class, and the name of the member (if any).
+	 */
+	public String toString() {
+		return ( (null == memberName) ? className : className + "." + memberName );
+	}
+
+}// class.NavigationTarget
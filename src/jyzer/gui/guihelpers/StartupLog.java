@@ -0,0 +1,67 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Logs the phases of the startup of the application with the time elapsed since the virtual machine was started. The
+ * log is written to the standard error only if the <code>jyzer.startup.log</code> system property is set to
+ * <code>true</code> (for example <code>java -Djyzer.startup.log=true jyzer.JYzer</code>).
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class StartupLog {
+
+	/** The name of the system property that turns on the log. */
+	public static final String PROPERTY = "jyzer.startup.log";
+
+	private static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * First of all - prevent anyone to create any instance of this class.
+	 */
+	private StartupLog() {
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns true if the log is turned on.
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Logs that a phase of the startup is done.
+	 *
+	 * @param phase the name of the phase.
+	 */
+	public static void mark(String phase) {
+		if ( ENABLED ) {
+			long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+			System.err.println( String.format("startup: %6d ms  [%s] %s", uptime, Thread.currentThread().getName(), phase) );
+		}
+	}
+
+}// class.StartupLog
@@ -0,0 +1,330 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.HTMLDescribable;
+import jyzer.items.attributes.Attributes;
+import jyzer.items.attributes.types.AttributeInfo;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+import edu.lro.web.HTMLFilter;
+
+/**
+ * Creates the summary tree of a classfile. Only the root and the main sections are created here, every other node
+ * is created by its parent when it is expanded.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class SummaryTreeBuilder {
+
+	// --- Node types ----------------------------------------------------------------------------------------------------
+
+	/**
+	 * A leaf that displays the description of a structure of the classfile.
+	 */
+	private static final class ItemNode extends SummaryTreeNode {
+
+		private HTMLDescribable item;
+
+		ItemNode(String label, HTMLDescribable item) {
+			super(label, false);
+			this.item = item;
+		}
+
+		public void getHTMLDescription(StringBuilder sb) {
+			item.getHTMLDescription(sb);
+		}
+
+	}// class.ItemNode
+
+	/**
+	 * A node with a list of children. If there's more than <code>GROUP_SIZE</code> children, they are grouped into
+	 * ranges, and only the range that is expanded creates its children.
+	 */
+	private static abstract class ListNode extends SummaryTreeNode {
+
+		private String title;
+
+		ListNode(String title) {
+			super(title, true);
+			this.title = title;
+		}
+
+		/** Returns the number of the items in the list. */
+		abstract int size();
+
+		/** Creates the node of the item at the given index. */
+		abstract SummaryTreeNode createChild(int index);
+
+		protected void loadChildren() {
+			int size = size();
+
+			if ( size <= GROUP_SIZE ) {
+				for (int i=0; i<size; ++i) {
+					add( createChild(i) );
+				}
+			} else {
+				for (int from=0; from<size; from += GROUP_SIZE) {
+					add( new RangeNode(this, from, Math.min(from + GROUP_SIZE, size) ) );
+				}
+			}
+		}
+
+		/** The label shows the number of the items too. */
+		public String toString() {
+			return title + " (" + size() + ")";
+		}
+
+		public void getHTMLDescription(StringBuilder sb) {
+			sb.append("<UL><LI>").append(title).append(" count: ").append( size() ).append("</UL>");
+		}
+
+	}// class.ListNode
+
+	/**
+	 * A range of the children of a <code>ListNode</code>.
+	 */
+	private static final class RangeNode extends SummaryTreeNode {
+
+		private ListNode list;
+		private int from;
+		private int to;
+
+		RangeNode(ListNode list, int from, int to) {
+			super("[" + from + " .. " + (to - 1) + "]", true);
+			this.list = list;
+			this.from = from;
+			this.to   = to;
+		}
+
+		protected void loadChildren() {
+			for (int i=from; i<to; ++i) {
+				add( list.createChild(i) );
+			}
+		}
+
+		public void getHTMLDescription(StringBuilder sb) {
+			sb.append("<UL><LI>Items from ").append(from).append(" to ").append(to - 1).append("</UL>");
+		}
+
+	}// class.RangeNode
+
+	/**
+	 * The node of a set of attributes.
+	 */
+	private static final class AttributesNode extends ListNode {
+
+		private Attributes attributes;
+
+		AttributesNode(String title, Attributes attributes) {
+			super(title);
+			this.attributes = attributes;
+		}
+
+		int size() {
+			return ( (null == attributes) ? 0 : attributes.getAttributesCount() );
+		}
+
+		SummaryTreeNode createChild(int index) {
+			return createAttributeNode( attributes.getAttribute(index) );
+		}
+
+	}// class.AttributesNode
+
+	/**
+	 * A method: the header is described by this node, the attributes (the code) are the children.
+	 */
+	private static final class MethodNode extends SummaryTreeNode {
+
+		private MethodInfo method;
+
+		MethodNode(MethodInfo method) {
+			super(method.getNameString() + method.getDescriptorString(), true);
+			this.method = method;
+		}
+
+		protected void loadChildren() {
+			Attributes attributes = method.getAttributes();
+			for (int i=0; i<attributes.getAttributesCount(); ++i) {
+				add( createAttributeNode( attributes.getAttribute(i) ) );
+			}
+		}
+
+		public void getHTMLDescription(StringBuilder sb) {
+			method.getHeaderHTMLDescription(sb);
+			sb.append("Attributes Count: ").append( method.getAttributesCount() );
+		}
+
+	}// class.MethodNode
+
+	/**
+	 * The code of a method: the instructions, the exception table and the attributes of the code are the children.
+	 */
+	private static final class CodeNode extends SummaryTreeNode {
+
+		private CodeAttribute code;
+
+		CodeNode(CodeAttribute code) {
+			super(code.getNameString(), true);
+			this.code = code;
+		}
+
+		protected void loadChildren() {
+			final Vector<CodeInstruction> instructions = code.getDisassembledCode();
+
+			add( new ListNode("Instructions") {
+				int size() {
+					return ( (null == instructions) ? 0 : instructions.size() );
+				}
+
+				SummaryTreeNode createChild(int index) {
+					CodeInstruction ci = instructions.get(index);
+					return new ItemNode( ci.toString(), ci );
+				}
+			});
+
+			add( new ItemNode("Exception Table (" + code.getExceptionTable().getExceptionTableLength() + ")", code.getExceptionTable() ) );
+
+			Attributes attributes = code.getAttributes();
+			for (int i=0; i<attributes.getAttributesCount(); ++i) {
+				add( createAttributeNode( attributes.getAttribute(i) ) );
+			}
+		}
+
+		public void getHTMLDescription(StringBuilder sb) {
+			sb.append("<B>Code Attribute:</B><BR>");
+			sb.append("Max Stack: ").append( code.getMaxStack() ).append("<BR>");
+			sb.append("Max Locals: ").append( code.getMaxLocals() ).append("<BR>");
+			sb.append("Code Length: ").append( code.getCode().getCodeLength() ).append("<BR>");
+		}
+
+	}// class.CodeNode
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * First of all - prevent anyone to create any instance of this class.
+	 */
+	private SummaryTreeBuilder() {
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates the node of an attribute. The code attribute can be expanded, the others are leaves.
+	 */
+	private static SummaryTreeNode createAttributeNode(AttributeInfo attribute) {
+		if ( attribute instanceof CodeAttribute ) {
+			return new CodeNode( (CodeAttribute) attribute );
+		}
+
+		return new ItemNode( attribute.getNameString(), attribute );
+	}
+
+	/**
+	 * Creates the root of the summary tree of the given classfile with the main sections below it.
+	 *
+	 * @param cf a parsed classfile.
+	 * @return the root node.
+	 */
+	public static SummaryTreeNode createRoot(final ClassFile cf) {
+		SummaryTreeNode root = new SummaryTreeNode( cf.getThisClassName(), true ) {
+			public void getHTMLDescription(StringBuilder sb) {
+				sb.append("<H1>").append( HTMLFilter.filter( cf.getThisClassName() ) ).append("</H1>");
+				cf.getGeneralInfoHTMLDescription(sb);
+			}
+		};
+
+		root.add( new SummaryTreeNode("General Info", false) {
+			public void getHTMLDescription(StringBuilder sb) {
+				cf.getGeneralInfoHTMLDescription(sb);
+			}
+		});
+
+		root.add( new AttributesNode("Class Attributes", cf.getClassAttributes() ) );
+
+		root.add( new ListNode("Constant Pool") {
+			int size() {
+				return cf.getConstantPoolCount() - 1; // the entry 0 is not in the classfile
+			}
+
+			SummaryTreeNode createChild(int index) {
+				// the children are created on expanding, when an other classfile's pool may be the current one
+				ConstantPool pool = cf.getConstantPoolItem();
+				ConstantPoolInfo info = pool.get(index + 1);
+				ConstantPool previous = ConstantPool.setCurrent(pool);
+				try {
+					return new ItemNode( "[" + ( index + 1 ) + "] " + info.getDescription() + ": " + info, info );
+				} finally {
+					ConstantPool.setCurrent(previous);
+				}
+			}
+		});
+
+		final String interfaceNames[] = cf.getInterfaceNames();
+		root.add( new ListNode("Interfaces") {
+			int size() {
+				return interfaceNames.length;
+			}
+
+			SummaryTreeNode createChild(int index) {
+				final String name = interfaceNames[index];
+
+				return new SummaryTreeNode(name, false) {
+					public void getHTMLDescription(StringBuilder sb) {
+						sb.append("Interface: <FONT color=\"blue\">").append( HTMLFilter.filter(name) ).append("</FONT>");
+					}
+				};
+			}
+		});
+
+		root.add( new ListNode("Fields") {
+			int size() {
+				return cf.getFieldItem().getFields().length;
+			}
+
+			SummaryTreeNode createChild(int index) {
+				FieldInfo field = cf.getFieldItem().getFields()[index];
+				return new ItemNode( field.getDescriptorString() + " " + field.getNameString(), field );
+			}
+		});
+
+		root.add( new ListNode("Methods") {
+			int size() {
+				return cf.getMethodItem().getMethods().length;
+			}
+
+			SummaryTreeNode createChild(int index) {
+				return new MethodNode( cf.getMethodItem().getMethods()[index] );
+			}
+		});
+
+		return root;
+	}// createRoot
+
+}// class.SummaryTreeBuilder
@@ -0,0 +1,107 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+
+import jyzer.items.HTMLDescribable;
+
+/**
+ * A node of the summary tree. The children of a node are created only when they are asked for the first time (that is
+ * when the node is expanded), and the description of the node is generated only when it is displayed. So the memory
+ * usage of the tree is proportional to what was opened by the user, not to the size of the classfile.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public abstract class SummaryTreeNode extends DefaultMutableTreeNode implements HTMLDescribable {
+
+	/** The children of a list are grouped into ranges of this size if there's more of them. */
+	public static final int GROUP_SIZE = 256;
+
+	/** The maximal length of a label displayed in the tree. */
+	public static final int MAX_LABEL_LENGTH = 120;
+
+	private boolean loaded = false;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new node.
+	 *
+	 * @param label the text displayed in the tree.
+	 * @param allowsChildren false if the node is a leaf.
+	 */
+	protected SummaryTreeNode(String label, boolean allowsChildren) {
+		super( truncate(label), allowsChildren );
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Cuts the given label to a displayable length, and removes the line terminators.
+	 */
+	private static String truncate(String label) {
+		String back = label.replace('\n', ' ');
+
+		if ( MAX_LABEL_LENGTH < back.length() ) {
+			back = back.substring(0, MAX_LABEL_LENGTH) + "...";
+		}
+
+		return back;
+	}
+
+	/**
+	 * Creates the children of this node if they were not created yet.
+	 */
+	public void ensureLoaded() {
+		if ( ! loaded ) {
+			loaded = true;
+			loadChildren();
+		}
+	}
+
+	/**
+	 * Creates the children of this node. Called only once, when the children are needed at first. Leaves don't have
+	 * to override it.
+	 */
+	protected void loadChildren() {
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	/** A node is a leaf if it cannot have children (an unexpanded node has no children yet). */
+	public boolean isLeaf() {
+		return ! getAllowsChildren();
+	}
+
+	/** Loads the children if needed. */
+	public int getChildCount() {
+		ensureLoaded();
+		return super.getChildCount();
+	}
+
+	/** Loads the children if needed. */
+	public TreeNode getChildAt(int index) {
+		ensureLoaded();
+		return super.getChildAt(index);
+	}
+
+}// class.SummaryTreeNode
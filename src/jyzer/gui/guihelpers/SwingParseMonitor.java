@@ -0,0 +1,110 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+import java.lang.reflect.InvocationTargetException;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+
+import jyzer.ParseMonitor;
+
+/**
+ * Follows the parsing of a classfile opened in the GUI: shows the progress on a progress bar, asks the user if the
+ * version of the classfile is not supported, and can be cancelled. A new monitor is created for every parsing.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class SwingParseMonitor implements ParseMonitor {
+
+	private JFrame owner;
+	private JProgressBar progressBar;
+	private volatile boolean cancelled = false;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new monitor.
+	 *
+	 * @param owner the frame that opened the classfile.
+	 * @param progressBar the progress is shown here.
+	 */
+	public SwingParseMonitor(JFrame owner, JProgressBar progressBar) {
+		this.owner = owner;
+		this.progressBar = progressBar;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Cancels the parsing, it stops at the next section of the classfile. The progress bar is not updated any more.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public void progress(String section, final int position, final int length) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				if ( ! cancelled ) {
+					progressBar.setIndeterminate(false);
+					progressBar.setMaximum(length);
+					progressBar.setValue(position);
+				}
+			}
+		});
+	}
+
+	public boolean acceptVersion(final String fileName, final int majorVersion, final int minorVersion) {
+		final boolean accepted[] = { false };
+
+		try {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+					if ( cancelled ) {
+						return;
+					}
+
+					int back = JOptionPane.showConfirmDialog(
+								owner,
+								"Not a supported classfile version (" + majorVersion + "." + minorVersion + ")!\n" +
+								"There could be some errors, proceed although?",
+								"Warning:",
+								JOptionPane.YES_NO_OPTION
+							   );
+					accepted[0] = ( JOptionPane.YES_OPTION == back );
+				}
+			});
+		} catch (InterruptedException ie) {
+			return false;
+		} catch (InvocationTargetException ite) {
+			ite.printStackTrace();
+			return false;
+		}
+
+		return accepted[0];
+	}
+
+}// class.SwingParseMonitor
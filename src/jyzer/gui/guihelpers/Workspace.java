@@ -0,0 +1,287 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.gui.guihelpers;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.items.constantpool.SymbolTable;
+
+/**
+ * <p>The classfiles open in the GUI at the same time. Every document keeps its parsed classfile (the model) and the
+ * rendered disassembled source, so switching between the documents doesn't need any parsing. The strings of the
+ * constant pools are shared by the documents through a <code>SymbolTable</code>.</p>
+ *
+ * <p>The memory used by the documents is estimated, and if it goes above the budget, the least recently used inactive
+ * documents give up their data: first the rendered texts, then the models. What is given up is still held softly, so
+ * it is only lost if the memory is really needed; a document whose model was lost has to be parsed again. The active
+ * document is never evicted. The budget is 64 MB by default, it can be set in megabytes with the
+ * <code>jyzer.workspace.budget</code> system property.</p>
+ *
+ * <p>Used on the event dispatch thread only, except <code>getSymbols()</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class Workspace {
+
+	/** The estimated size of a parsed classfile in the memory, relative to the size of its file. */
+	public static final int MODEL_FACTOR = 10;
+
+	/**
+	 * An open classfile.
+	 */
+	public static final class Document {
+
+		private String path;
+		private String name;
+		private long fileLength;
+
+		private ClassFile model;
+		private SoftReference<ClassFile> softModel;
+		private String text;
+		private SoftReference<String> softText;
+
+		Document(String path) {
+			this.path  = path;
+			name       = path.substring( Math.max( path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar) ) + 1 );
+			fileLength = ClassFile.getFileLength(path); // the path may name an entry of a jar file
+		}
+
+		/** Returns the path of the classfile. */
+		public String getPath() {
+			return path;
+		}
+
+		/** Returns the name of the classfile. */
+		public String getName() {
+			return name;
+		}
+
+		/** Returns the parsed classfile, or null if it was not parsed yet or it was lost. */
+		public ClassFile getModel() {
+			if ( null != model ) {
+				return model;
+			}
+			return ( (null == softModel) ? null : softModel.get() );
+		}
+
+		/** Returns the rendered disassembled source, or null if it was not rendered yet or it was lost. */
+		public String getRenderedText() {
+			if ( null != text ) {
+				return text;
+			}
+			return ( (null == softText) ? null : softText.get() );
+		}
+
+		/** Returns if the document holds its model strongly. */
+		public boolean isModelHeld() {
+			return ( null != model );
+		}
+
+		/** Returns if the document holds its rendered text strongly. */
+		public boolean isTextHeld() {
+			return ( null != text );
+		}
+
+		/** Holds strongly what was not lost yet. */
+		void promote() {
+			model = getModel();
+			text  = getRenderedText();
+		}
+
+		/** Returns the estimated memory usage of the strongly held model. */
+		long getModelSize() {
+			return ( (null == model) ? 0 : MODEL_FACTOR * fileLength );
+		}
+
+		/** Returns the estimated memory usage of the strongly held text. */
+		long getTextSize() {
+			return ( (null == text) ? 0 : 2L * text.length() );
+		}
+
+		/** Returns the name, so the documents can be displayed in a list. */
+		public String toString() {
+			return name;
+		}
+
+	}// class.Document
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private SymbolTable symbols = new SymbolTable();
+	private long budget;
+
+	/** The documents by their paths, the least recently used first. */
+	private LinkedHashMap<String, Document> documents = new LinkedHashMap<String, Document>(16, 0.75f, true);
+	private Document active = null;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty workspace with the budget given by the <code>jyzer.workspace.budget</code> property.
+	 */
+	public Workspace() {
+		this( Long.getLong("jyzer.workspace.budget", 64).longValue() * 1024 * 1024 );
+	}
+
+	/**
+	 * Creates an empty workspace.
+	 *
+	 * @param budget the memory the documents may use (estimated) in bytes.
+	 */
+	public Workspace(long budget) {
+		this.budget = budget;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the strings shared by the documents. Can be used on any thread. */
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	/** Returns the document of the given classfile, or null if it is not open. */
+	public Document get(String path) {
+		return documents.get(path);
+	}
+
+	/** Returns the active document (null if none). */
+	public Document getActive() {
+		return active;
+	}
+
+	/** Returns the number of the open documents. */
+	public int size() {
+		return documents.size();
+	}
+
+	/** Returns the estimated memory usage of the strongly held data of the documents. */
+	public long getEstimatedSize() {
+		long size = 0;
+		for (Document document : documents.values()) {
+			size += document.getModelSize() + document.getTextSize();
+		}
+		return size;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the document of the given classfile, a new one is created if it was not open yet.
+	 *
+	 * @param path the path of the classfile.
+	 * @return the document (its model may be missing).
+	 */
+	public Document open(String path) {
+		Document document = documents.get(path);
+
+		if ( null == document ) {
+			document = new Document(path);
+			documents.put(path, document);
+		}
+
+		return document;
+	}// open
+
+	/**
+	 * Sets the parsed classfile of a document. The strings of its constant pool should already be shared.
+	 *
+	 * @param document an open document.
+	 * @param model the parsed classfile.
+	 */
+	public void setModel(Document document, ClassFile model) {
+		document.model     = model;
+		document.softModel = new SoftReference<ClassFile>(model);
+		evict();
+	}// setModel
+
+	/**
+	 * Sets the rendered disassembled source of a document.
+	 *
+	 * @param document an open document.
+	 * @param text the disassembled source.
+	 */
+	public void setRenderedText(Document document, String text) {
+		document.text     = text;
+		document.softText = new SoftReference<String>(text);
+		evict();
+	}// setRenderedText
+
+	/**
+	 * Makes a document the active one: what it has not lost yet is held strongly again.
+	 *
+	 * @param document an open document.
+	 */
+	public void activate(Document document) {
+		documents.get( document.getPath() ); // the most recently used now
+		document.promote();
+		active = document;
+		evict();
+	}// activate
+
+	/**
+	 * Closes a document.
+	 *
+	 * @param document an open document.
+	 */
+	public void close(Document document) {
+		documents.remove( document.getPath() );
+
+		if ( active == document ) {
+			active = null;
+		}
+	}// close
+
+	/**
+	 * Returns the open documents in the order they were used, the least recently used first.
+	 */
+	public Vector<Document> getDocuments() {
+		return new Vector<Document>( documents.values() );
+	}
+
+	/**
+	 * Gives up the strongly held data of the least recently used inactive documents while the workspace is over the
+	 * budget: first the rendered texts, then the models.
+	 */
+	private void evict() {
+		long size = getEstimatedSize();
+
+		for (Iterator<Document> it = documents.values().iterator(); it.hasNext() && size > budget; ) {
+			Document document = it.next();
+			if ( active != document ) {
+				size -= document.getTextSize();
+				document.text = null;
+			}
+		}
+
+		for (Iterator<Document> it = documents.values().iterator(); it.hasNext() && size > budget; ) {
+			Document document = it.next();
+			if ( active != document ) {
+				size -= document.getModelSize();
+				document.model = null;
+			}
+		}
+	}// evict
+
+}// class.Workspace
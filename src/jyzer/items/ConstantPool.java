@@ -23,6 +23,8 @@ import java.io.IOException;
 
 import jyzer.items.factories.ConstantPoolInfoFactory;
 import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.ResolutionTable;
+import jyzer.items.constantpool.SymbolTable;
 import jyzer.items.constantpool.types.*;
 
 /**
@@ -32,6 +34,11 @@ import jyzer.items.constantpool.types.*;
  * of each entry is indicated by its first "tag" byte.<br>
  * The pool is indexed from 1 to <code>constant_pool_count</code>-1.</p>
  *
+ * <p>The static getters work on the <i>current</i> pool: the one that was read last on the calling thread, or if
+ * no pool was read on the calling thread, the one that was read last by anyone. So more classfiles can be parsed
+ * (and described) at the same time on different threads. A thread that works with a classfile parsed elsewhere
+ * should call <code>setCurrent()</code> first.</p>
+ *
  * <p>TODO: find a better datastructure for improve access/creation efficency.</p>
  * <p>TODO: implement the logging if a wrong index is given to the static getters.</p>
  *
@@ -42,16 +49,45 @@ public final class ConstantPool {
 
 	// --- Structure -----------------------------------------------------------------------------------
 
-	private static int constantPoolCount;
-	private static ConstantPoolInfo constantPool[];
+	private int constantPoolCount;
+	private ConstantPoolInfo constantPool[];
+
+	/** The symbolic renderings of the operands, created when the instructions are described at first. */
+	private ResolutionTable resolutions = null;
+
+	/** The pool read last on the actual thread. */
+	private static final ThreadLocal<ConstantPool> threadPool = new ThreadLocal<ConstantPool>();
+	/** The pool read last by anyone. */
+	private static volatile ConstantPool sharedPool;
 
 	// --- Static interface ----------------------------------------------------------------------------
 
+	/**
+	 * Returns the current pool of the calling thread (see the description of the class).
+	 */
+	public static ConstantPool getCurrent() {
+		ConstantPool back = threadPool.get();
+		return ( (null != back) ? back : sharedPool );
+	}
+
+	/**
+	 * Sets the current pool of the calling thread. Needed when a classfile is described on an other thread than the
+	 * one that parsed it, and other classfiles may have been parsed since then.
+	 *
+	 * @param pool the constant pool of the classfile (<code>null</code> resets the thread to the shared pool).
+	 * @return the previous pool of the thread (possibly <code>null</code>), to be restored when the work is done.
+	 */
+	public static ConstantPool setCurrent(ConstantPool pool) {
+		ConstantPool back = threadPool.get();
+		threadPool.set(pool);
+		return back;
+	}
+
 	/**
 	 * Returns the <code>constant_pool_count</code>.
 	 */
 	public static int getConstantPoolCount() {
-		return constantPoolCount;
+		return getCurrent().constantPoolCount;
 	}
 
 	/**
@@ -62,9 +98,10 @@ public final class ConstantPool {
 	 */
 	public static String getUtf8String(int index) {// LOG OTHERWISE !!!
 		String back = null;
+		ConstantPoolInfo info = getElement(index);
 
-		if (constantPool[index] instanceof ConstantUtf8Info) {
-			back = ( (ConstantUtf8Info) constantPool[index] ).getUtf8String();
+		if (info instanceof ConstantUtf8Info) {
+			back = ( (ConstantUtf8Info) info ).getUtf8String();
 		}
 
 		return back;
@@ -78,9 +115,10 @@ public final class ConstantPool {
 	 */
 	public static String getMethodReturnString(int index) {
 		String back = null;
+		ConstantPoolInfo info = getElement(index);
 
-		if (constantPool[index] instanceof ConstantUtf8Info) {
-			back = ( (ConstantUtf8Info) constantPool[index] ).getMethodReturnString();
+		if (info instanceof ConstantUtf8Info) {
+			back = ( (ConstantUtf8Info) info ).getMethodReturnString();
 		}
 
 		return back;
@@ -97,9 +135,10 @@ public final class ConstantPool {
 	 */
 	public static String getMethodName(int index, String enclosingClass) {
 		String back = null;
+		ConstantPoolInfo info = getElement(index);
 
-		if (constantPool[index] instanceof ConstantUtf8Info) {
-			back = ( (ConstantUtf8Info) constantPool[index] ).getUtf8String();
+		if (info instanceof ConstantUtf8Info) {
+			back = ( (ConstantUtf8Info) info ).getUtf8String();
 
 			if ( back.equals("<init>") ) {
 				back = new String( enclosingClass );
@@ -117,9 +156,10 @@ public final class ConstantPool {
 	 */
 	public static String getMethodParamsString(int index) {
 		String back = null;
+		ConstantPoolInfo info = getElement(index);
 
-		if (constantPool[index] instanceof ConstantUtf8Info) {
-			back = ( (ConstantUtf8Info) constantPool[index] ).getMethodParamsString();
+		if (info instanceof ConstantUtf8Info) {
+			back = ( (ConstantUtf8Info) info ).getMethodParamsString();
 		}
 
 		return back;
@@ -135,9 +175,10 @@ public final class ConstantPool {
 	 */
 	public static String getSignatureString(int index) {
 		String back = null;
+		ConstantPoolInfo info = getElement(index);
 
-		if (constantPool[index] instanceof ConstantNameAndTypeInfo) {
-			back = ( (ConstantNameAndTypeInfo) constantPool[index] ).getSignatureString();
+		if (info instanceof ConstantNameAndTypeInfo) {
+			back = ( (ConstantNameAndTypeInfo) info ).getSignatureString();
 		}
 
 		return back;
@@ -151,9 +192,10 @@ public final class ConstantPool {
 	 */
 	public static String getDescriptorString(int index) {
 		String back = null;
+		ConstantPoolInfo info = getElement(index);
 
-		if (constantPool[index] instanceof ConstantUtf8Info) {
-			back = ( (ConstantUtf8Info) constantPool[index] ).getDescriptorString();
+		if (info instanceof ConstantUtf8Info) {
+			back = ( (ConstantUtf8Info) info ).getDescriptorString();
 		}
 
 		return back;
@@ -167,9 +209,10 @@ public final class ConstantPool {
 	 */
 	public static String getClassName(int index) {
 		String back = null;
+		ConstantPoolInfo info = getElement(index);
 
-		if (constantPool[index] instanceof ConstantClassInfo) {
-			back = ( (ConstantClassInfo) constantPool[index] ).getNameString();
+		if (info instanceof ConstantClassInfo) {
+			back = ( (ConstantClassInfo) info ).getNameString();
 		}
 
 		return back;
@@ -185,28 +228,42 @@ public final class ConstantPool {
 	 */
 	public static String getValueString(int index) {
 		String back = null;
-
-		if (constantPool[index] instanceof ConstantLongInfo) {
-			back = String.valueOf( ( (ConstantLongInfo) constantPool[index] ).getValue() );
-		} else if (constantPool[index] instanceof ConstantFloatInfo) {
-			back = String.valueOf( ( (ConstantFloatInfo) constantPool[index] ).getValue() );
-		} else if (constantPool[index] instanceof ConstantDoubleInfo) {
-			back = String.valueOf( ( (ConstantDoubleInfo) constantPool[index] ).getValue() );
-		} else if (constantPool[index] instanceof ConstantIntegerInfo) {
-			back = String.valueOf( ( (ConstantIntegerInfo) constantPool[index] ).getValue() );
-		} else if (constantPool[index] instanceof ConstantStringInfo) {
-			back = "\"" + String.valueOf( ( (ConstantStringInfo) constantPool[index] ).getValue() ) + "\"";
+		ConstantPoolInfo info = getElement(index);
+
+		if (info instanceof ConstantLongInfo) {
+			back = String.valueOf( ( (ConstantLongInfo) info ).getValue() );
+		} else if (info instanceof ConstantFloatInfo) {
+			back = String.valueOf( ( (ConstantFloatInfo) info ).getValue() );
+		} else if (info instanceof ConstantDoubleInfo) {
+			back = String.valueOf( ( (ConstantDoubleInfo) info ).getValue() );
+		} else if (info instanceof ConstantIntegerInfo) {
+			back = String.valueOf( ( (ConstantIntegerInfo) info ).getValue() );
+		} else if (info instanceof ConstantStringInfo) {
+			back = "\"" + String.valueOf( ( (ConstantStringInfo) info ).getValue() ) + "\"";
 		}
 
 		return back;
 	}// getValueString
 
 
+	/**
+	 * Returns the symbolic rendering of a constant pool index that is an operand of an instruction (for example
+	 * <code>java.io.PrintStream.println(String)</code>). The entries are rendered once per pool.
+	 *
+	 * @param index the index of an entry of the current pool.
+	 * @return the rendering, or <code>#index</code> if there's no current pool or the entry cannot be rendered.
+	 * @see ResolutionTable
+	 */
+	public static String getOperandString(int index) {
+		ConstantPool pool = getCurrent();
+		return ( (null == pool) ? "#" + index : pool.getResolutions().resolve(index) );
+	}
+
 	/**
 	 * Returns the element at the given index of the <code>constant_pool</code>.
 	 */
 	public static ConstantPoolInfo getElement(int index) {
-		return constantPool[index];
+		return getCurrent().constantPool[index];
 	}
 
 	// --- Constructors -----------------------------------------------------------------------------
@@ -239,10 +296,52 @@ public final class ConstantPool {
 			}
 		}
 
+		// the rest of the classfile refers to this pool
+		threadPool.set(this);
+		sharedPool = this;
+
 	}// ConstantPool(DataInput)
 
 	// --- Own methods -------------------------------------------------------------------------------
 
+	/**
+	 * Returns the <code>constant_pool_count</code> of this pool (that is not necessarily the current one).
+	 */
+	public int size() {
+		return constantPoolCount;
+	}
+
+	/**
+	 * Returns the element at the given index of this pool (that is not necessarily the current one).
+	 */
+	public ConstantPoolInfo get(int index) {
+		return constantPool[index];
+	}
+
+	/**
+	 * Returns the symbolic renderings of the entries of this pool (that is not necessarily the current one).
+	 */
+	public synchronized ResolutionTable getResolutions() {
+		if ( null == resolutions ) {
+			resolutions = new ResolutionTable(this);
+		}
+
+		return resolutions;
+	}
+
+	/**
+	 * Replaces the strings of this pool with their canonical instances (see <code>SymbolTable</code>).
+	 *
+	 * @param symbols the strings shared by the open classfiles.
+	 */
+	public void shareSymbols(SymbolTable symbols) {
+		for (int i=1; i<constantPoolCount; ++i) {
+			if ( constantPool[i] instanceof ConstantUtf8Info ) {
+				( (ConstantUtf8Info) constantPool[i] ).share(symbols);
+			}
+		}
+	}// shareSymbols
+
 	/**
 	 * To get the information to the Constant Pool pane, to fill up the table.
 	 *
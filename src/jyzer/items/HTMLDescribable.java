@@ -0,0 +1,38 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.items;
+
+/**
+ * <p> Implemented by the structures of the classfile that can describe themselves as a html text. Makes it possible to
+ * handle the parts of the classfile uniformly when only one piece of the description is needed (for example when
+ * a single node of the summary tree is displayed). </p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public interface HTMLDescribable {
+
+	/**
+	 * Concatenates a HTML string that represents this object to the end of the given <code>StringBiulder</code>.
+	 *
+	 * @param sb a <code>StringBuilder<code> that contains the string representation.
+	 */
+	void getHTMLDescription(StringBuilder sb);
+
+}// interface.HTMLDescribable
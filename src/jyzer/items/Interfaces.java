@@ -88,6 +88,16 @@ public class Interfaces {
 		return interfacesCount;
 	}
 
+	/**
+	 * Returns the constant pool index of the interface at the given position.
+	 *
+	 * @param index the position of the interface, between 0 and <code>interfaces_count</code>.
+	 * @return the index of the <code>CONSTANT_Class</code> entry of the interface.
+	 */
+	public int getInterfaceIndex(int index) {
+		return interfaces[index];
+	}
+
 	/**
 	 * Returns the name of the interfaces in an array of Strings, in left-to-right order as they were written
 	 * in the original sourcefile.
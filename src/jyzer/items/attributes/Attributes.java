@@ -155,6 +155,28 @@ public class Attributes {
 		return attributesCount;
 	}
 
+	/**
+	 * Returns the attribute at the given index.
+	 *
+	 * @param index the index of the attribute (0 &lt;= index &lt; <code>attributes_count</code>).
+	 */
+	public AttributeInfo getAttribute(int index) {
+		return attributes[index];
+	}
+
+	/**
+	 * Returns the <code>CodeAttribute</code>; returns null if there's no <code>CodeAttribute</code>.
+	 */
+	public CodeAttribute getCode() {
+		for (int i=0; i<attributesCount; ++i) {
+			if ( attributes[i] instanceof CodeAttribute ) {
+				return (CodeAttribute) attributes[i];
+			}
+		}
+
+		return null;
+	}
+
 	/**
 	 * Returns the constant value as astring; returns null if there's no <code>ConstantValueAttribute</code>.
 	 */
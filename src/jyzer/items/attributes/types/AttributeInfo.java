@@ -21,6 +21,9 @@ package jyzer.items.attributes.types;
 import java.io.DataInputStream;
 import java.io.IOException;
 
+import jyzer.items.ConstantPool;
+import jyzer.items.HTMLDescribable;
+
 /**
  * <p> The superclass of the attributes. All attributes have the following general format:</p>
  *
@@ -35,7 +38,7 @@ import java.io.IOException;
  * @author Legendi Richard Oliver
  * @version 1.0, 2005. nov. 12.
  */
-public abstract class AttributeInfo {
+public abstract class AttributeInfo implements HTMLDescribable {
 
 	// u2
 	protected int attributeNameIndex;
@@ -60,6 +63,27 @@ public abstract class AttributeInfo {
 		this.attributeLength    = attributeLength;
 	}
 
+	/**
+	 * Returns the <code>attribute_name_index</code> (0 if the attribute was not read from the classfile).
+	 */
+	public int getNameIndex() {
+		return attributeNameIndex;
+	}
+
+	/**
+	 * Returns the name of the attribute (as it is stored in the <code>constant_pool</code>).
+	 */
+	public String getNameString() {
+		return ( (0 != attributeNameIndex) ? ConstantPool.getUtf8String(attributeNameIndex) : "Unknown" );
+	}
+
+	/**
+	 * Returns the <code>attribute_length</code>.
+	 */
+	public int getAttributeLength() {
+		return attributeLength;
+	}
+
 	/**
 	 * Concatenates a HTML string that represents this class ( looks cool! ) to the end of
 	 * the given <code>StringBiulder</code> object. Using this method for improve efficiency,
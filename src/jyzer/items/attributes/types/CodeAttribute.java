@@ -69,6 +69,26 @@ public final class CodeAttribute extends AttributeInfo {
 		attributesOfCode = new Attributes(di);
 	}
 
+	/** Returns the maximum depth of the operand stack. */
+	public int getMaxStack() {
+		return maxStack;
+	}
+
+	/** Returns the number of local variables (including the parameters). */
+	public int getMaxLocals() {
+		return maxLocals;
+	}
+
+	/** Returns the bytecodes. */
+	public Code getCode() {
+		return code;
+	}
+
+	/** Returns the exception table of the code. */
+	public ExceptionTable getExceptionTable() {
+		return exceptionTable;
+	}
+
 	/** Tests if the code has a <code>LocalVariableTable</code>. */
 	public boolean hasLocalVariableTable() {
 		return attributesOfCode.hasLocalVariableTable();
@@ -81,6 +101,24 @@ public final class CodeAttribute extends AttributeInfo {
 		return attributesOfCode.getLocalVariablesString();
 	}
 
+	/**
+	 * Returns the source line of the instruction at the given offset, from the <code>LineNumberTable</code> attributes
+	 * of the code (there can be more of them); returns -1 if the line is not known.
+	 */
+	public int getLineNumber(int pc) {
+		for (int i=0; i<attributesOfCode.getAttributesCount(); ++i) {
+			AttributeInfo attribute = attributesOfCode.getAttribute(i);
+			if ( attribute instanceof LineNumberTableAttribute ) {
+				int line = ( (LineNumberTableAttribute) attribute ).getLineNumber(pc);
+				if ( -1 != line ) {
+					return line;
+				}
+			}
+		}
+
+		return -1;
+	}
+
 	/**
 	 * Returns the attributes of the code.
 	 */
@@ -42,6 +42,22 @@ public final class DummyAttribute extends AttributeInfo {
 		this.message = message;
 	}
 
+	/**
+	 * Creates an unknown attribute, and skips its contents, so the next structures can be read properly.
+	 *
+	 * @param di an opened input positioned after the <code>attribute_length</code>.
+	 * @param attributeNameIndex the index of the name of the attribute.
+	 * @param attributeLength the length of the attribute.
+	 * @param message the descriptor message (at your own will).
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public DummyAttribute(DataInput di, int attributeNameIndex, int attributeLength, String message) throws IOException {
+		super(attributeNameIndex, attributeLength);
+		this.message = message;
+
+		di.readFully( new byte[attributeLength] );
+	}
+
 	/**
 	 * Concatenates a HTML string that represents this class ( looks cool! ) to the end of
 	 * the given <code>StringBiulder</code> object. Using this method for improve efficiency,
@@ -57,6 +57,34 @@ public final class LineNumberTableAttribute extends AttributeInfo {
 		}
 	}
 
+	/** Returns the <code>line_number_table_length</code>. */
+	public int getLineNumberTableLength() {
+		return lineNumberTableLength;
+	}
+
+	/** Returns the entry at the given index. */
+	public LineNumberTableEntry getEntry(int index) {
+		return lineNumberTable[index];
+	}
+
+	/**
+	 * Returns the line of the instruction at the given offset: the line of the entry with the largest start that is not
+	 * after the offset, or -1 if there's no such entry in this table.
+	 */
+	public int getLineNumber(int pc) {
+		int back = -1;
+		int start = -1;
+
+		for (LineNumberTableEntry entry : lineNumberTable) {
+			if ( entry.getStartPc() <= pc && start < entry.getStartPc() ) {
+				start = entry.getStartPc();
+				back = entry.getLineNumber();
+			}
+		}
+
+		return back;
+	}
+
 
 	/**
 	 * Concatenates a HTML string that represents this class ( looks cool! ) to the end of
@@ -50,6 +50,11 @@ public final class Code {
 		}
 	}
 
+	/** Returns the <code>code_length</code> (the length of the bytecodes in bytes). */
+	public int getCodeLength() {
+		return codeLength;
+	}
+
 	/** Returns the disassembled code. */
 	public Vector<CodeInstruction> getDisassembledCode() {
 		return code;
@@ -21,13 +21,18 @@ package jyzer.items.attributes.types.helpers;
 import java.io.DataInput;
 import java.io.IOException;
 
+import jyzer.items.ConstantPool;
+import jyzer.items.HTMLDescribable;
+
+import edu.lro.web.HTMLFilter;
+
 /**
  * <p> A class reprecenting an opcode. </p>
  *
  * @author Legendi Richard Oliver
  * @version 1.0, 2005. nov. 16.
  */
-public class CodeInstruction {
+public class CodeInstruction implements HTMLDescribable {
 
 	public static final String INSTRUCTIONS[];
 
@@ -271,13 +276,6 @@ public class CodeInstruction {
 	// optional info
 	int paddingLength, defaultInt, lowInt, highInt, npairs;
 
-	private static int counter = 0;
-	private int offset;
-	// To determine the instruction offset (ie. for lookupswitch)
-	{
-		offset = counter++;
-	}
-
 	/**
 	 * This constructor reads the needed information from the given input, and creates the object.
 	 * Needs severe testing ;-)
@@ -493,7 +491,13 @@ public class CodeInstruction {
 
 			// SEVERE: need testing !!!
 			case (0xab) : // lookupswitch
-				paddingLength = offset % 4;
+				// the padding aligns the operands to 4 bytes from the start of the code, just like at tableswitch
+				paddingLength = (index+1) % 4;
+
+				if (paddingLength > 0) {
+					paddingLength = 4-paddingLength;
+				}
+
 				// TODO: correct exception-handling ... :-)
 				if ( paddingLength != di.skipBytes(paddingLength) ) {
 					System.err.println("CodeInstruction [ab]--- eeeeeeeeeeeeeeeeeeeeeeeeeeeeeeror!");
@@ -564,6 +568,63 @@ public class CodeInstruction {
 
 	}// CodeInstruction
 
+	/** Returns the offset of the instruction in the code. */
+	public int getOffset() {
+		return index;
+	}
+
+	/** Returns the opcode of the instruction. */
+	public int getOpcode() {
+		return instruction;
+	}
+
+	/** Returns the mnemonic of the instruction. */
+	public String getMnemonic() {
+		return INSTRUCTIONS[instruction];
+	}
+
+	/**
+	 * Returns the operands of the instruction as they were read (an empty array if there's none). The
+	 * <code>tableswitch</code> has the jump offsets here, the <code>lookupswitch</code> has the match - offset
+	 * pairs, the <code>wide</code> has the modified opcode first.
+	 */
+	public int[] getOperands() {
+		return ( (null == params) ? new int[0] : params );
+	}
+
+	/** Returns the default jump offset of a <code>tableswitch</code> or a <code>lookupswitch</code>. */
+	public int getDefaultOffset() {
+		return defaultInt;
+	}
+
+	/** Returns the lowest key of a <code>tableswitch</code>. */
+	public int getLow() {
+		return lowInt;
+	}
+
+	/** Returns the highest key of a <code>tableswitch</code>. */
+	public int getHigh() {
+		return highInt;
+	}
+
+	/** Returns the length of the instruction in bytes (the opcode and the operands). */
+	public int getLength() {
+		return 1 + additionalDataLength;
+	}
+
+	/**
+	 * Returns true if the first operand of the instruction is a constant pool index: <code>ldc</code>,
+	 * <code>ldc_w</code>, <code>ldc2_w</code>, the field accesses, the invokes, <code>new</code>,
+	 * <code>anewarray</code>, <code>checkcast</code>, <code>instanceof</code> and <code>multianewarray</code>.
+	 *
+	 * @param opcode the opcode of an instruction.
+	 */
+	public static boolean hasConstantPoolOperand(int opcode) {
+		return ( ( 0x12 <= opcode && opcode <= 0x14 ) ||
+				( 0xb2 <= opcode && opcode <= 0xbb ) ||
+				0xbd == opcode || 0xc0 == opcode || 0xc1 == opcode || 0xc5 == opcode );
+	}
+
 	/** Returns the additional data lenght. */
 	public int getAdditionalDataLength() {
 		return additionalDataLength;
@@ -580,8 +641,12 @@ public class CodeInstruction {
 		sb.append( "[").append(index).append("] ").append( INSTRUCTIONS[instruction] );
 
 		if (params != null && 0xaa != instruction && 0xab != instruction ) {
-			for (int param : params) {
-				sb.append(" #").append(param);
+			for (int i=0; i<params.length; ++i) {
+				if ( 0 == i && hasConstantPoolOperand(instruction) ) { // resolved once per pool
+					sb.append(" <FONT color=\"blue\">").append( HTMLFilter.filter( ConstantPool.getOperandString( params[0] ) ) ).append("</FONT>");
+				} else {
+					sb.append(" #").append( params[i] );
+				}
 			}
 		}
 
@@ -626,8 +691,12 @@ public class CodeInstruction {
 
 		sb.append( "[" + index + "] " + INSTRUCTIONS[instruction] );
 		if (params != null && 0xab != instruction ) {
-			for (int param : params) {
-				sb.append(" #" + param);
+			for (int i=0; i<params.length; ++i) {
+				if ( 0 == i && hasConstantPoolOperand(instruction) ) { // resolved once per pool
+					sb.append(' ').append( ConstantPool.getOperandString( params[0] ) );
+				} else {
+					sb.append(" #").append( params[i] );
+				}
 			}
 		}
 
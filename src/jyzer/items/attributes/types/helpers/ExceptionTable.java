@@ -21,13 +21,15 @@ package jyzer.items.attributes.types.helpers;
 import java.io.DataInput;
 import java.io.IOException;
 
+import jyzer.items.HTMLDescribable;
+
 /**
  * <p> A table of exceptions that can be thrown by methods. </p>
  *
  * @author Legendi Richard Oliver
  * @version 1.0, 2005. nov. 16.
  */
-public final class ExceptionTable {
+public final class ExceptionTable implements HTMLDescribable {
 
 	// u2
 	private int exceptionTableLength;
@@ -50,6 +52,16 @@ public final class ExceptionTable {
 		}
 	}
 
+	/** Returns the <code>exception_table_length</code>. */
+	public int getExceptionTableLength() {
+		return exceptionTableLength;
+	}
+
+	/** Returns the entry at the given index. */
+	public ExceptionTableEntry getEntry(int index) {
+		return exceptionTable[index];
+	}
+
 	/**
 	 * Concatenates a HTML string that represents this class ( looks cool! ) to the end of
 	 * the given <code>StringBiulder</code> object. Using this method for improve efficiency,
@@ -54,8 +54,28 @@ public final class ExceptionTableEntry {
 		catchType = di.readUnsignedShort();
 	}
 
+	/** Returns the start of the range (inclusive) where the handler is active. */
+	public int getStartPc() {
+		return startPc;
+	}
+
+	/** Returns the end of the range (exclusive) where the handler is active. */
+	public int getEndPc() {
+		return endPc;
+	}
+
+	/** Returns the start of the exception handler. */
+	public int getHandlerPc() {
+		return handlerPc;
+	}
+
+	/** Returns the constant pool index of the caught class, or 0 if it catches everything. */
+	public int getCatchType() {
+		return catchType;
+	}
+
 	/** Returns the catch type of this exception entry. */
-	private String getCatchTypeString() {
+	public String getCatchTypeString() {
 		if ( 0 == catchType ) {
 			return "ALL/finally";
 		}
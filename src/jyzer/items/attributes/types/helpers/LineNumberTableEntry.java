@@ -46,6 +46,16 @@ public final class LineNumberTableEntry {
 		lineNumber = di.readUnsignedShort();
 	}
 
+	/** Returns the offset of the first instruction of the line. */
+	public int getStartPc() {
+		return startPc;
+	}
+
+	/** Returns the line number in the source file. */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
 	/**
 	 * Concatenates a HTML string that represents this class ( looks cool! ) to the end of
 	 * the given <code>StringBiulder</code> object. Using this method for improve efficiency,
@@ -21,6 +21,8 @@ package jyzer.items.constantpool;
 import java.io.DataInput;
 import java.io.IOException;
 
+import jyzer.items.HTMLDescribable;
+
 /**
  * <p> An abstract superclass for all of the <code>constant_pool</code> entries. Unknown
  * entries are handled with <code>CONSTANT_Dummy</code>.</p>
@@ -86,7 +88,7 @@ import java.io.IOException;
  * @author Legendi Richard Oliver
  * @version 1.0, 2005 nov 4.
  */
-public abstract class ConstantPoolInfo {
+public abstract class ConstantPoolInfo implements HTMLDescribable {
 
 	// --- Static Constants -------------------------------------------------------------
 
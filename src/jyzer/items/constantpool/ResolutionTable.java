@@ -0,0 +1,252 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.items.constantpool;
+
+import jyzer.items.ConstantPool;
+import jyzer.items.constantpool.types.*;
+
+/**
+ * The symbolic renderings of the entries of a constant pool, as they are printed in place of the constant pool
+ * indices in the operands of the instructions: <code>java.io.PrintStream.println(String)</code> for a method,
+ * <code>java.lang.System.out:PrintStream</code> for a field, the qualified name for a class, and the value for a
+ * literal. An entry is rendered when it is asked for at first, and the rendering is kept, so the instructions that
+ * refer to the same entry cost only an array lookup.
+ *
+ * <p>The table reads its own pool, not the current one. It may be used by more threads: at worst an entry is
+ * rendered twice, to the same string.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ResolutionTable {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ConstantPool pool;
+	private String renderings[];
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates an empty table.
+	 *
+	 * @param pool the constant pool whose entries are rendered.
+	 */
+	public ResolutionTable(ConstantPool pool) {
+		this.pool  = pool;
+		renderings = new String[ pool.size() ];
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the symbolic rendering of an entry.
+	 *
+	 * @param index a constant pool index.
+	 * @return the rendering, or <code>#index</code> if the entry cannot be rendered (a wrong index, or an entry that
+	 *         is not referred to by the instructions).
+	 */
+	public String resolve(int index) {
+		if ( index <= 0 || renderings.length <= index ) {
+			return "#" + index;
+		}
+
+		String back = renderings[index];
+		if ( null == back ) {
+			renderings[index] = back = render(index);
+		}
+
+		return back;
+	}// resolve
+
+	/**
+	 * Renders an entry.
+	 */
+	private String render(int index) {
+		ConstantPoolInfo info = pool.get(index);
+
+		try {
+			if ( info instanceof ConstantClassInfo ) {
+				return getClassName( (ConstantClassInfo) info );
+			}
+
+			if ( info instanceof AbstractReference ) {
+				AbstractReference reference = (AbstractReference) info;
+				ConstantNameAndTypeInfo nameAndType = (ConstantNameAndTypeInfo) pool.get( reference.getNameAndTypeIndex() );
+				String descriptor = getUtf8( nameAndType.getDescriptorIndex() );
+
+				StringBuilder sb = new StringBuilder();
+				sb.append( getClassName( (ConstantClassInfo) pool.get( reference.getClassIndex() ) ) );
+				sb.append('.').append( getUtf8( nameAndType.getNameIndex() ) );
+
+				if ( descriptor.startsWith("(") ) {
+					sb.append('(');
+					for (int i=1; ')' != descriptor.charAt(i); ) {
+						if ( 1 < i ) {
+							sb.append(", ");
+						}
+						i = appendType(sb, descriptor, i, false);
+					}
+					sb.append(')');
+				} else {
+					sb.append(':');
+					appendType(sb, descriptor, 0, false);
+				}
+
+				return sb.toString();
+			}
+
+			if ( info instanceof ConstantStringInfo ) {
+				return quote( getUtf8( ( (ConstantStringInfo) info ).getStringIndex() ) );
+			} else if ( info instanceof ConstantIntegerInfo ) {
+				return String.valueOf( ( (ConstantIntegerInfo) info ).getValue() );
+			} else if ( info instanceof ConstantLongInfo ) {
+				return ( (ConstantLongInfo) info ).getValue() + "L";
+			} else if ( info instanceof ConstantFloatInfo ) {
+				return renderFloat( ( (ConstantFloatInfo) info ).getValue() );
+			} else if ( info instanceof ConstantDoubleInfo ) {
+				return renderDouble( ( (ConstantDoubleInfo) info ).getValue() );
+			}
+		} catch (RuntimeException re) { // a corrupted entry, or a malformed descriptor
+		}
+
+		return "#" + index;
+	}// render
+
+	/**
+	 * Renders a float constant as a literal; NaN and the infinities have no literal, they are written as the constants
+	 * of <code>Float</code>.
+	 */
+	private static String renderFloat(float value) {
+		if ( Float.isNaN(value) ) {
+			return "Float.NaN";
+		} else if ( Float.isInfinite(value) ) {
+			return ( (0 < value) ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY" );
+		}
+		return value + "f";
+	}
+
+	/**
+	 * Renders a double constant as a literal; NaN and the infinities are written as the constants of
+	 * <code>Double</code>.
+	 */
+	private static String renderDouble(double value) {
+		if ( Double.isNaN(value) ) {
+			return "Double.NaN";
+		} else if ( Double.isInfinite(value) ) {
+			return ( (0 < value) ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY" );
+		}
+		return value + "d";
+	}
+
+	/**
+	 * Returns the value of an Utf8 entry of the pool.
+	 */
+	private String getUtf8(int index) {
+		return ( (ConstantUtf8Info) pool.get(index) ).getUtf8String();
+	}
+
+	/**
+	 * Returns the qualified name of a class, the arrays are written like in the source (<code>java.lang.String[]</code>).
+	 */
+	private String getClassName(ConstantClassInfo info) {
+		String name = getUtf8( info.getNameIndex() );
+
+		if ( name.startsWith("[") ) {
+			StringBuilder sb = new StringBuilder();
+			appendType(sb, name, 0, true);
+			return sb.toString();
+		}
+
+		return name.replace('/', '.');
+	}// getClassName
+
+	/**
+	 * Appends the type that starts at the given position of a descriptor.
+	 *
+	 * @param sb the rendering.
+	 * @param descriptor a field or a method descriptor.
+	 * @param start the position of the type in the descriptor.
+	 * @param qualified true if the name of a class is written with its package.
+	 * @return the position after the type.
+	 */
+	private static int appendType(StringBuilder sb, String descriptor, int start, boolean qualified) {
+		int i = start;
+		while ( '[' == descriptor.charAt(i) ) {
+			i++;
+		}
+		int dimensions = i - start;
+
+		switch ( descriptor.charAt(i) ) {
+			case ('B') : sb.append("byte"); break;
+			case ('C') : sb.append("char"); break;
+			case ('D') : sb.append("double"); break;
+			case ('F') : sb.append("float"); break;
+			case ('I') : sb.append("int"); break;
+			case ('J') : sb.append("long"); break;
+			case ('S') : sb.append("short"); break;
+			case ('Z') : sb.append("boolean"); break;
+			case ('V') : sb.append("void"); break;
+
+			case ('L') : {
+				int end = descriptor.indexOf(';', i);
+				String name = descriptor.substring(i + 1, end).replace('/', '.');
+				sb.append( qualified ? name : name.substring( name.lastIndexOf('.') + 1 ) );
+				i = end;
+				break;
+			}
+
+			default : throw new IllegalArgumentException(descriptor);
+		}
+
+		for (int d=0; d<dimensions; ++d) {
+			sb.append("[]");
+		}
+
+		return i + 1;
+	}// appendType
+
+	/**
+	 * Returns a string literal as it is written in the source, so it fits in one line.
+	 */
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder( value.length() + 2 );
+		sb.append('"');
+
+		for (int i=0; i<value.length(); ++i) {
+			char c = value.charAt(i);
+			switch (c) {
+				case ('"')  : sb.append("\\\""); break;
+				case ('\\') : sb.append("\\\\"); break;
+				case ('\n') : sb.append("\\n"); break;
+				case ('\r') : sb.append("\\r"); break;
+				case ('\t') : sb.append("\\t"); break;
+				default :
+					if ( c < ' ' ) {
+						sb.append( String.format("\\u%04x", (int) c) );
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+
+		return sb.append('"').toString();
+	}// quote
+
+}// class.ResolutionTable
@@ -0,0 +1,78 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.items.constantpool;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical instances of the strings of the constant pools (names and descriptors), shared by the classfiles that are
+ * open at the same time. The classes of a library refer to the same names and descriptors over and over again, so
+ * keeping only one instance of them saves a lot of memory. A string is kept only as long as a classfile uses it.
+ * Thread-safe.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class SymbolTable {
+
+	private WeakHashMap<String, WeakReference<String>> symbols = new WeakHashMap<String, WeakReference<String>>();
+	private long lookups = 0;
+	private long hits = 0;
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the kept strings. */
+	public synchronized int size() {
+		return symbols.size();
+	}
+
+	/** Returns the number of the strings given to the table. */
+	public synchronized long getLookupCount() {
+		return lookups;
+	}
+
+	/** Returns the number of the strings that were replaced by an already kept instance. */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the canonical instance of the given string.
+	 *
+	 * @param symbol a string.
+	 * @return the kept instance that equals to the string, or the string itself if it was not kept yet.
+	 */
+	public synchronized String intern(String symbol) {
+		++lookups;
+
+		WeakReference<String> ref = symbols.get(symbol);
+		String back = ( (null == ref) ? null : ref.get() );
+		if ( null != back ) {
+			++hits;
+			return back;
+		}
+
+		symbols.put( symbol, new WeakReference<String>(symbol) );
+		return symbol;
+	}// intern
+
+}// class.SymbolTable
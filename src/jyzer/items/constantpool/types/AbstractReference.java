@@ -65,6 +65,20 @@ public abstract class AbstractReference extends ConstantPoolInfo {
 		nameAndTypeIndex = di.readUnsignedShort();
 	}
 
+	/**
+	 * Returns the <code>class_index</code> of this entry.
+	 */
+	public int getClassIndex() {
+		return classIndex;
+	}
+
+	/**
+	 * Returns the <code>name_and_type_index</code> of this entry.
+	 */
+	public int getNameAndTypeIndex() {
+		return nameAndTypeIndex;
+	}
+
 	/**
 	 * Concatenates a HTML string that represents this class ( looks cool! ) to the end of
 	 * the given <code>StringBiulder</code> object. Using this method for improve efficiency,
@@ -66,6 +66,20 @@ public final class ConstantNameAndTypeInfo extends ConstantPoolInfo {
 		descriptorIndex = di.readUnsignedShort();
 	}
 
+	/**
+	 * Returns the <code>name_index</code> of this entry.
+	 */
+	public int getNameIndex() {
+		return nameIndex;
+	}
+
+	/**
+	 * Returns the <code>descriptor_index</code> of this entry.
+	 */
+	public int getDescriptorIndex() {
+		return descriptorIndex;
+	}
+
 	/**
 	 * Used to determine the return type. WILL BE GENERALISED SOON !!!
 	 */
@@ -59,6 +59,13 @@ public final class ConstantStringInfo extends ConstantPoolInfo {
 		stringIndex = di.readUnsignedShort();
 	}
 
+	/**
+	 * Returns the <code>string_index</code> of this entry.
+	 */
+	public int getStringIndex() {
+		return stringIndex;
+	}
+
 	/**
 	 * Returns the string stored in this entry.
 	 */
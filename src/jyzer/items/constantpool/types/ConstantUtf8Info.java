@@ -22,6 +22,7 @@ import java.io.DataInput;
 import java.io.IOException;
 
 import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.SymbolTable;
 
 import edu.lro.web.HTMLFilter;
 
@@ -203,6 +204,16 @@ public final class ConstantUtf8Info extends ConstantPoolInfo {
 		return value;
 	}
 
+	/**
+	 * Replaces the value with its canonical instance from the given table, so the classfiles open at the same time
+	 * share their names and descriptors.
+	 *
+	 * @param symbols the shared strings.
+	 */
+	public void share(SymbolTable symbols) {
+		value = symbols.intern(value);
+	}
+
 	/**
 	 * Concatenates a HTML string that represents this class ( looks cool! ) to the end of
 	 * the given <code>StringBiulder</code> object. Using this method for improve efficiency,
@@ -0,0 +1,48 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.items.exceptions;
+
+/**
+ * Thrown when the parsing of a classfile was cancelled through its <code>ParseMonitor</code> (for example an other
+ * file was opened meanwhile).
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class ParsingCancelledException extends ParsingException {
+
+	/**
+	 * The constructor. Just calls super.
+	 *
+	 * @param where the name of the last section that was parsed.
+	 */
+	public ParsingCancelledException(String where) {
+		super(where, "The parsing was cancelled.");
+	}
+
+	/**
+	 * Returns the detail message string of this throwable.
+	 *
+	 * @return the detail message string of this Throwable instance (not null).
+	 */
+	public String getMessage() {
+		return "The parsing was cancelled after " + where + ".";
+	}
+
+}// class.ParsingCancelledException
@@ -178,7 +178,7 @@ public class AttributeFactory {
 
 		// Unknown tag - for compatibility in the future
 		} else {
-			back = new DummyAttribute("<< UNIDENTIFIED TAG: [" + attributeNameIndex + "] >>");
+			back = new DummyAttribute(di, attributeNameIndex, attributeLength, "<< UNIDENTIFIED TAG: [" + attributeNameIndex + "] >>");
 		}
 
 		return back;
@@ -25,6 +25,7 @@ import jyzer.items.accessflags.AccessFlags;
 import jyzer.items.attributes.Attributes;
 import jyzer.items.attributes.types.AttributeInfo;
 import jyzer.items.ConstantPool;
+import jyzer.items.HTMLDescribable;
 import jyzer.items.factories.AttributeFactory;
 import jyzer.items.exceptions.CorruptedClassfileException;
 
@@ -143,7 +144,7 @@ import jyzer.items.exceptions.CorruptedClassfileException;
  * @author Legendi Richard Oliver
  * @version 1.0, 2005 nov 3.
  */
-public class FieldInfo {
+public class FieldInfo implements HTMLDescribable {
 
 
 	// --- Structure -----------------------------------------------------------------------------
@@ -207,6 +208,21 @@ public class FieldInfo {
 		return accessFlags.getAccessString();
 	}
 
+	/** Returns the access flags of this field as an integer. */
+	public int getAccessInt() {
+		return accessFlags.getAccessInt();
+	}
+
+	/** Returns the <code>name_index</code> of this field. */
+	public int getNameIndex() {
+		return nameIndex;
+	}
+
+	/** Returns the <code>descriptor_index</code> of this field. */
+	public int getDescriptorIndex() {
+		return descriptorIndex;
+	}
+
 	/** Returns the full access string. */
 	public String getFullAccessString() {
 		String afi = Integer.toHexString( accessFlags.getAccessInt() );
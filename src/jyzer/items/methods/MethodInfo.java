@@ -26,6 +26,7 @@ import jyzer.items.attributes.Attributes;
 import jyzer.items.attributes.types.AttributeInfo;
 import jyzer.items.attributes.types.helpers.CodeInstruction;
 import jyzer.items.ConstantPool;
+import jyzer.items.HTMLDescribable;
 import jyzer.items.exceptions.CorruptedClassfileException;
 import jyzer.items.factories.AttributeFactory;
 
@@ -50,7 +51,7 @@ import edu.lro.web.HTMLFilter;
  * @author Legendi Richard Oliver
  * @version 1.0, 2005 nov 3.
  */
-public final class MethodInfo {
+public final class MethodInfo implements HTMLDescribable {
 
 	// --- Structure -----------------------------------------------------------------------------
 
@@ -132,6 +133,21 @@ public final class MethodInfo {
 		return methodAttributes.getDisassembledCode();
 	}
 
+	/** Returns the access flags of this method as an integer. */
+	public int getAccessInt() {
+		return accessFlags.getAccessInt();
+	}
+
+	/** Returns the <code>name_index</code> of this method. */
+	public int getNameIndex() {
+		return nameIndex;
+	}
+
+	/** Returns the <code>descriptor_index</code> of this method. */
+	public int getDescriptorIndex() {
+		return descriptorIndex;
+	}
+
 	/** Returns the full access string of this component. */
 	public String getFullAccessString() {
 		String afi = Integer.toHexString( accessFlags.getAccessInt() );
@@ -243,6 +259,17 @@ public final class MethodInfo {
 	 * @param sb a <code>StringBuilder<code> that contains the string representation of the full classfile.
 	 */
 	public void getHTMLDescription(StringBuilder sb) {
+		getHeaderHTMLDescription(sb);
+		methodAttributes.getHTMLDescription(sb);
+	}
+
+	/**
+	 * Concatenates the HTML description of the method without its attributes (so without the code). Used when only
+	 * the header of the method is displayed.
+	 *
+	 * @param sb a <code>StringBuilder<code> that contains the string representation.
+	 */
+	public void getHeaderHTMLDescription(StringBuilder sb) {
 		sb.append("Access Flags: ");
 		accessFlags.getHTMLDescription(sb);
 		sb.append("<BR>");
@@ -252,8 +279,6 @@ public final class MethodInfo {
 
 		sb.append("Descriptor Index: ").append(descriptorIndex);
 		sb.append(" <FONT color=\"blue\">// ").append( ConstantPool.getUtf8String(descriptorIndex) ).append("</FONT><BR>");
-
-		methodAttributes.getHTMLDescription(sb);
 	}
 
 	// --- Super methods ----------------------------------------------------------------------------
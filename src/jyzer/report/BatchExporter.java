@@ -0,0 +1,161 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+
+import jyzer.ClassFile;
+import jyzer.classpath.ClassSource;
+
+/**
+ * Exports the reports of every classfile of a directory or a jar file into an output directory. The classfiles are
+ * parsed and written one by one, and each report is streamed into its own file, so the memory usage doesn't depend
+ * on the size of the jar. A classfile that cannot be parsed is reported and skipped.
+ *
+ * <p>Usage: <code>java jyzer.report.BatchExporter [-html|-text|-source] &lt;classfile|directory|jar&gt; &lt;output directory&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class BatchExporter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ReportWriter writer;
+	private File outputDirectory;
+	private PrintStream log;
+
+	private int exported = 0;
+	private int failed = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new exporter.
+	 *
+	 * @param writer the writer of the reports.
+	 * @param outputDirectory the reports are written here, in the directory structure of the packages.
+	 * @param log the failures are reported here.
+	 */
+	public BatchExporter(ReportWriter writer, File outputDirectory, PrintStream log) {
+		this.writer = writer;
+		this.outputDirectory = outputDirectory;
+		this.log = log;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the exported classfiles. */
+	public int getExportedCount() {
+		return exported;
+	}
+
+	/** Returns the number of the classfiles that could not be exported. */
+	public int getFailedCount() {
+		return failed;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Exports the reports of every classfile of the given location.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @throws IOException if the location cannot be read or the output cannot be written.
+	 */
+	public void export(File location) throws IOException {
+		new ClassSource(location).forEachClass( new ClassSource.Handler() {
+			public void handle(String name, InputStream in) throws IOException {
+				export(name, in);
+			}
+		});
+	}
+
+	/**
+	 * Parses a single classfile, and writes its report.
+	 */
+	private void export(String name, InputStream in) throws IOException {
+		ClassFile cf = new ClassFile(name, in);
+
+		try {
+			cf.parse();
+		} catch (Exception e) {
+			failed++;
+			log.println( "Skipped " + name + ": " + e );
+			return;
+		}
+
+		String baseName = name.substring( 0, name.length() - ".class".length() );
+		File file = new File( outputDirectory, baseName.replace('/', File.separatorChar) + "." + writer.getExtension() );
+
+		File parent = file.getParentFile();
+		if ( ! parent.isDirectory() && ! parent.mkdirs() ) {
+			throw new IOException("Cannot create directory: " + parent);
+		}
+
+		writer.write(cf, file);
+		exported++;
+	}// export
+
+	/**
+	 * Returns the writer that belongs to the given command line option, or <code>null</code> if it's unknown.
+	 */
+	private static ReportWriter getWriter(String option) {
+		if ( "-html".equals(option) ) {
+			return new HTMLReportWriter();
+		} else if ( "-text".equals(option) ) {
+			return new TextReportWriter();
+		} else if ( "-source".equals(option) ) {
+			return new SourceReportWriter();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Entry point of the batch export.
+	 *
+	 * @param args the format (optional, html by default), the location and the output directory.
+	 */
+	public static void main(String args[]) {
+		ReportWriter writer = new HTMLReportWriter();
+		int first = 0;
+
+		if ( 3 == args.length ) {
+			writer = getWriter(args[0]);
+			first = 1;
+		}
+
+		if ( null == writer || args.length - first != 2 ) {
+			System.err.println("Usage: java jyzer.report.BatchExporter [-html|-text|-source] <classfile|directory|jar> <output directory>");
+			System.exit(2);
+		}
+
+		BatchExporter exporter = new BatchExporter( writer, new File(args[first + 1]), System.err );
+		try {
+			exporter.export( new File(args[first]) );
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		}
+
+		System.err.println( "Exported: " + exporter.getExportedCount() + ", skipped: " + exporter.getFailedCount() );
+	}// main
+
+}// class.BatchExporter
@@ -0,0 +1,281 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.Attributes;
+import jyzer.items.attributes.types.AttributeInfo;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.attributes.types.helpers.ExceptionTable;
+import jyzer.items.attributes.types.helpers.ExceptionTableEntry;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.*;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Writes the model of the classfiles in a compact binary format. The structure is the same as the one of the
+ * JSON format, but the numbers are written as variable length integers (7 bits per byte, the lowest group first,
+ * signed values zigzag encoded), and the keys are left out: the order of the values is fixed.</p>
+ *
+ * <p>Every classfile is a record that starts with its length, so a reader can skip the classfiles it is not
+ * interested in. The format is described in <code>doc/model-format.txt</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class BinaryModelWriter extends ModelWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	/** The first bytes of the output. */
+	public static final byte MAGIC[] = { 'J', 'Y', 'Z', 'M' };
+
+	/** The version of the format, written after the magic. */
+	public static final int FORMAT_VERSION = 1;
+
+	/** The kind of an attribute that is exported only with its name and length. */
+	public static final int ATTRIBUTE_OPAQUE = 0;
+	/** The kind of a code attribute, followed by its contents. */
+	public static final int ATTRIBUTE_CODE = 1;
+
+	private OutputStream out;
+
+	/** The actual record is collected here, because its length has to be written first. */
+	private ByteArrayOutputStream record = new ByteArrayOutputStream(64 * 1024);
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new writer, and writes the header of the format.
+	 *
+	 * @param os the destination of the model.
+	 * @throws IOException if the output cannot be written.
+	 */
+	public BinaryModelWriter(OutputStream os) throws IOException {
+		out = new BufferedOutputStream(os, ReportWriter.BUFFER_SIZE);
+		out.write(MAGIC);
+		writeVarint(out, FORMAT_VERSION);
+	}
+
+	// --- Helper methods ------------------------------------------------------------------------------------------------
+
+	/**
+	 * Writes an unsigned variable length integer: 7 bits per byte, the lowest group first, the highest bit of a byte
+	 * is set if more bytes follow.
+	 */
+	private static void writeVarint(OutputStream os, long value) throws IOException {
+		while ( 0 != (value & ~0x7FL) ) {
+			os.write( (int) ( (value & 0x7F) | 0x80 ) );
+			value >>>= 7;
+		}
+
+		os.write( (int) value );
+	}
+
+	/**
+	 * Writes an unsigned variable length integer into the record.
+	 */
+	private void writeVarint(long value) throws IOException {
+		writeVarint(record, value);
+	}
+
+	/**
+	 * Writes a signed variable length integer into the record. The value is zigzag encoded first, so the small
+	 * negative values are short too.
+	 */
+	private void writeSignedVarint(long value) throws IOException {
+		writeVarint(record, (value << 1) ^ (value >> 63) );
+	}
+
+	/**
+	 * Writes a fixed length big-endian number into the record.
+	 */
+	private void writeFixed(long value, int bytes) {
+		for (int shift = 8 * (bytes - 1); shift >= 0; shift -= 8) {
+			record.write( (int) (value >>> shift) );
+		}
+	}
+
+	/**
+	 * Writes a string into the record: the length of its UTF-8 form, then the bytes.
+	 */
+	private void writeString(String str) throws IOException {
+		byte bytes[] = str.getBytes(ReportWriter.ENCODING);
+		writeVarint(bytes.length);
+		record.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes a constant pool entry: the tag, then the values of the entry.
+	 */
+	private void writeConstant(ConstantPoolInfo info) throws IOException {
+		record.write( info.getTag() );
+
+		if ( info instanceof ConstantUtf8Info ) {
+			writeString( ( (ConstantUtf8Info) info ).getUtf8String() );
+		} else if ( info instanceof ConstantIntegerInfo ) {
+			writeSignedVarint( ( (ConstantIntegerInfo) info ).getValue() );
+		} else if ( info instanceof ConstantLongInfo ) {
+			writeSignedVarint( ( (ConstantLongInfo) info ).getValue() );
+		} else if ( info instanceof ConstantFloatInfo ) {
+			writeFixed( Float.floatToRawIntBits( ( (ConstantFloatInfo) info ).getValue() ), 4 );
+		} else if ( info instanceof ConstantDoubleInfo ) {
+			writeFixed( Double.doubleToRawLongBits( ( (ConstantDoubleInfo) info ).getValue() ), 8 );
+		} else if ( info instanceof ConstantClassInfo ) {
+			writeVarint( ( (ConstantClassInfo) info ).getNameIndex() );
+		} else if ( info instanceof ConstantStringInfo ) {
+			writeVarint( ( (ConstantStringInfo) info ).getStringIndex() );
+		} else if ( info instanceof AbstractReference ) {
+			writeVarint( ( (AbstractReference) info ).getClassIndex() );
+			writeVarint( ( (AbstractReference) info ).getNameAndTypeIndex() );
+		} else if ( info instanceof ConstantNameAndTypeInfo ) {
+			writeVarint( ( (ConstantNameAndTypeInfo) info ).getNameIndex() );
+			writeVarint( ( (ConstantNameAndTypeInfo) info ).getDescriptorIndex() );
+		}
+	}// writeConstant
+
+	/**
+	 * Writes a list of attributes: the count, then the attributes.
+	 */
+	private void writeAttributes(Attributes attributes) throws IOException {
+		writeVarint( attributes.getAttributesCount() );
+
+		for (int i=0; i<attributes.getAttributesCount(); ++i) {
+			AttributeInfo attribute = attributes.getAttribute(i);
+
+			writeVarint( attribute.getNameIndex() );
+			writeVarint( attribute.getAttributeLength() );
+
+			if ( attribute instanceof CodeAttribute ) {
+				record.write(ATTRIBUTE_CODE);
+				writeCode( (CodeAttribute) attribute );
+			} else {
+				record.write(ATTRIBUTE_OPAQUE);
+			}
+		}
+	}// writeAttributes
+
+	/**
+	 * Writes the contents of a code attribute. The offsets of the instructions are written as the difference from
+	 * the previous instruction, that is almost always a single byte.
+	 */
+	private void writeCode(CodeAttribute code) throws IOException {
+		writeVarint( code.getMaxStack() );
+		writeVarint( code.getMaxLocals() );
+		writeVarint( code.getCode().getCodeLength() );
+
+		Vector<CodeInstruction> instructions = code.getDisassembledCode();
+		writeVarint( instructions.size() );
+
+		int lastOffset = 0;
+		for (CodeInstruction ci : instructions) {
+			int operands[] = getOperands(ci);
+
+			writeVarint( ci.getOffset() - lastOffset );
+			record.write( ci.getOpcode() );
+			writeVarint(operands.length);
+			for (int operand : operands) {
+				writeSignedVarint(operand);
+			}
+
+			lastOffset = ci.getOffset();
+		}
+
+		ExceptionTable table = code.getExceptionTable();
+		writeVarint( table.getExceptionTableLength() );
+		for (int i=0; i<table.getExceptionTableLength(); ++i) {
+			ExceptionTableEntry entry = table.getEntry(i);
+			writeVarint( entry.getStartPc() );
+			writeVarint( entry.getEndPc() );
+			writeVarint( entry.getHandlerPc() );
+			writeVarint( entry.getCatchType() );
+		}
+
+		writeAttributes( code.getAttributes() );
+	}// writeCode
+
+	/**
+	 * Writes a field or a method.
+	 */
+	private void writeMember(int access, int name, int descriptor, Attributes attributes) throws IOException {
+		writeVarint(access);
+		writeVarint(name);
+		writeVarint(descriptor);
+		writeAttributes(attributes);
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	/**
+	 * Writes the model of the classfile as one record.
+	 *
+	 * @param cf a parsed classfile.
+	 * @throws IOException if the output cannot be written.
+	 */
+	protected void writeModel(ClassFile cf) throws IOException {
+		record.reset();
+
+		writeString( cf.getFileName() );
+		writeVarint( cf.getMinorVersion() );
+		writeVarint( cf.getMajorVersion() );
+
+		writeVarint( cf.getConstantPoolCount() );
+		for (int i=1; i<cf.getConstantPoolCount(); ++i) {
+			writeConstant( ConstantPool.getElement(i) );
+		}
+
+		writeVarint( cf.getAccessInt() );
+		writeVarint( cf.getThisClassIndex() );
+		writeVarint( cf.getSuperClassIndex() );
+
+		int interfacesCount = cf.getInterfaceItem().getInterfacesCount();
+		writeVarint(interfacesCount);
+		for (int i=0; i<interfacesCount; ++i) {
+			writeVarint( cf.getInterfaceItem().getInterfaceIndex(i) );
+		}
+
+		FieldInfo fields[] = cf.getFieldItem().getFields();
+		writeVarint(fields.length);
+		for (FieldInfo field : fields) {
+			writeMember( field.getAccessInt(), field.getNameIndex(), field.getDescriptorIndex(), field.getAttributes() );
+		}
+
+		MethodInfo methods[] = cf.getMethodItem().getMethods();
+		writeVarint(methods.length);
+		for (MethodInfo method : methods) {
+			writeMember( method.getAccessInt(), method.getNameIndex(), method.getDescriptorIndex(), method.getAttributes() );
+		}
+
+		writeAttributes( cf.getClassAttributes() );
+
+		writeVarint( out, record.size() );
+		record.writeTo(out);
+	}// write
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+}// class.BinaryModelWriter
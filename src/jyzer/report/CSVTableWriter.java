@@ -0,0 +1,106 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+
+/**
+ * Writes a chunk of a table as a CSV file (<code>&lt;table&gt;/part-NNNNN.csv</code>, UTF-8, with a header row). The
+ * values that contain a comma, a quote or a line terminator are quoted, the quotes are doubled.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class CSVTableWriter extends TableWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private Writer out;
+	private boolean firstInRow = true;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new chunk, and writes the header row.
+	 *
+	 * @param directory the output directory.
+	 * @param table the name of the table.
+	 * @param part the index of the chunk.
+	 * @param columns the columns of the table as <code>name:type</code> strings.
+	 * @throws IOException if the chunk cannot be created.
+	 */
+	public CSVTableWriter(File directory, String table, int part, String columns[]) throws IOException {
+		super(columns);
+
+		File file = new File( new File(directory, table), ColumnTableWriter.getPartName(part) + ".csv" );
+		createParent(file);
+		out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream(file), ReportWriter.ENCODING ), 16 * 1024 );
+
+		for (int i=0; i<getColumnCount(); ++i) {
+			writeValue( getColumnName(i) );
+		}
+		writeEndRow();
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Writes a value, quoted if needed.
+	 */
+	private void writeValue(String value) throws IOException {
+		if ( ! firstInRow ) {
+			out.write(',');
+		}
+		firstInRow = false;
+
+		boolean quote = false;
+		for (int i=0; i<value.length() && ! quote; ++i) {
+			char c = value.charAt(i);
+			quote = ( ',' == c || '"' == c || '\n' == c || '\r' == c );
+		}
+
+		if ( quote ) {
+			out.write('"');
+			out.write( value.replace("\"", "\"\"") );
+			out.write('"');
+		} else {
+			out.write(value);
+		}
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	protected void writeInt(int column, int value) throws IOException {
+		writeValue( String.valueOf(value) );
+	}
+
+	protected void writeString(int column, String value) throws IOException {
+		writeValue(value);
+	}
+
+	protected void writeEndRow() throws IOException {
+		out.write('\n');
+		firstInRow = true;
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+}// class.CSVTableWriter
@@ -0,0 +1,153 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * <p>Writes a chunk of a table as typed column files into the <code>&lt;table&gt;/part-NNNNN/</code> directory:</p>
+ * <ul>
+ * <li>an <code>int</code> column is a <code>&lt;column&gt;.i32</code> file of big-endian 32 bit integers,</li>
+ * <li>a <code>string</code> column is dictionary encoded: the <code>&lt;column&gt;.i32</code> file contains the codes,
+ *     the <code>&lt;column&gt;.dict</code> file contains the strings of the codes, one per line in the order of the
+ *     codes (UTF-8, the backslash, the line feed and the carriage return are escaped as <code>\\ \n \r</code>).</li>
+ * </ul>
+ * <p>The number of the rows is the size of a column file divided by 4. The dictionaries belong to the chunk, the
+ * same string may have different codes in different chunks.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class ColumnTableWriter extends TableWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private DataOutputStream values[];
+	private Writer dictionaryFiles[];
+	private Vector<Map<String, Integer>> dictionaries;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new chunk.
+	 *
+	 * @param directory the output directory.
+	 * @param table the name of the table.
+	 * @param part the index of the chunk.
+	 * @param columns the columns of the table as <code>name:type</code> strings.
+	 * @throws IOException if the chunk cannot be created.
+	 */
+	public ColumnTableWriter(File directory, String table, int part, String columns[]) throws IOException {
+		super(columns);
+
+		File partDirectory = new File( new File(directory, table), getPartName(part) );
+		createParent( new File(partDirectory, "x") );
+
+		values = new DataOutputStream[ getColumnCount() ];
+		dictionaryFiles = new Writer[ getColumnCount() ];
+		dictionaries = new Vector<Map<String, Integer>>( getColumnCount() );
+
+		for (int i=0; i<getColumnCount(); ++i) {
+			values[i] = new DataOutputStream( new BufferedOutputStream(
+					new FileOutputStream( new File(partDirectory, getColumnName(i) + ".i32") ), BUFFER_SIZE ) );
+
+			if ( isStringColumn(i) ) {
+				dictionaryFiles[i] = new BufferedWriter( new OutputStreamWriter(
+						new FileOutputStream( new File(partDirectory, getColumnName(i) + ".dict") ), ReportWriter.ENCODING ), BUFFER_SIZE );
+				dictionaries.add( new HashMap<String, Integer>() );
+			} else {
+				dictionaries.add(null);
+			}
+		}
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the name of the given chunk (<code>part-NNNNN</code>).
+	 */
+	static String getPartName(int part) {
+		String number = String.valueOf(part);
+		return "part-00000".substring( 0, 10 - Math.min(5, number.length()) ) + number;
+	}
+
+	/**
+	 * Writes a string into a dictionary file as a line.
+	 */
+	private static void writeEscaped(Writer out, String value) throws IOException {
+		for (int i=0; i<value.length(); ++i) {
+			char c = value.charAt(i);
+
+			switch (c) {
+				case '\\' : out.write("\\\\"); break;
+				case '\n' : out.write("\\n"); break;
+				case '\r' : out.write("\\r"); break;
+				default   : out.write(c);
+			}
+		}
+
+		out.write('\n');
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	protected void writeInt(int column, int value) throws IOException {
+		values[column].writeInt(value);
+	}
+
+	protected void writeString(int column, String value) throws IOException {
+		Integer code = dictionaries.get(column).get(value);
+
+		if ( null == code ) {
+			code = dictionaries.get(column).size();
+			dictionaries.get(column).put(value, code);
+			writeEscaped(dictionaryFiles[column], value);
+		}
+
+		values[column].writeInt(code);
+	}
+
+	protected void writeEndRow() {
+	}
+
+	public void close() throws IOException {
+		IOException first = null;
+
+		for (int i=0; i<getColumnCount(); ++i) {
+			try {
+				values[i].close();
+				if ( null != dictionaryFiles[i] ) {
+					dictionaryFiles[i].close();
+				}
+			} catch (IOException ioe) {
+				if ( null == first ) first = ioe;
+			}
+		}
+
+		if ( null != first ) {
+			throw first;
+		}
+	}// close
+
+}// class.ColumnTableWriter
@@ -0,0 +1,335 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.analysis.OptionParser;
+import jyzer.classpath.ClassScanner;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.AbstractReference;
+import jyzer.items.constantpool.types.ConstantNameAndTypeInfo;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * <p>Exports the classfiles of a directory or a jar file as tables for analytics tools: one table for the classes,
+ * the methods, the fields, the call sites and the instructions. The classfiles are parsed by more workers, and every
+ * worker writes its own chunk of each table, so the chunks of a table have to be concatenated (or loaded together)
+ * by the reader. The tables are written as typed column files (see <code>ColumnTableWriter</code>) or as CSV files.
+ * Every table directory contains a <code>schema.txt</code> with the names and the types of the columns. The tables
+ * are described in <code>doc/columnar-format.txt</code>.</p>
+ *
+ * <p>Usage: <code>java jyzer.report.ColumnarExporter [-columns|-csv] [-threads n] &lt;classfile|directory|jar&gt;
+ * &lt;output directory&gt;</code></p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ColumnarExporter {
+
+	// --- Tables --------------------------------------------------------------------------------------------------------
+
+	/** The name of the table of the classes. */
+	public static final String CLASSES = "classes";
+	/** The columns of the table of the classes. */
+	public static final String CLASSES_COLUMNS[] = {
+		"name:string", "super:string", "access:int", "major:int", "minor:int", "interfaces:int",
+		"fields:int", "methods:int", "constant_pool:int", "size:int", "file:string"
+	};
+
+	/** The name of the table of the methods. */
+	public static final String METHODS = "methods";
+	/** The columns of the table of the methods (the code columns are -1 if the method has no code). */
+	public static final String METHODS_COLUMNS[] = {
+		"class:string", "name:string", "descriptor:string", "access:int", "code_length:int",
+		"max_stack:int", "max_locals:int", "instructions:int", "handlers:int"
+	};
+
+	/** The name of the table of the fields. */
+	public static final String FIELDS = "fields";
+	/** The columns of the table of the fields. */
+	public static final String FIELDS_COLUMNS[] = {
+		"class:string", "name:string", "descriptor:string", "access:int"
+	};
+
+	/** The name of the table of the call sites (the invoke instructions). */
+	public static final String CALLSITES = "callsites";
+	/** The columns of the table of the call sites. */
+	public static final String CALLSITES_COLUMNS[] = {
+		"class:string", "method:string", "method_descriptor:string", "offset:int", "opcode:int",
+		"owner:string", "name:string", "descriptor:string"
+	};
+
+	/** The name of the table of the instructions. */
+	public static final String INSTRUCTIONS = "instructions";
+	/** The columns of the table of the instructions. */
+	public static final String INSTRUCTIONS_COLUMNS[] = {
+		"class:string", "method:string", "method_descriptor:string", "offset:int", "opcode:int", "length:int"
+	};
+
+	private static final String TABLES[] = { CLASSES, METHODS, FIELDS, CALLSITES, INSTRUCTIONS };
+	private static final String COLUMNS[][] = { CLASSES_COLUMNS, METHODS_COLUMNS, FIELDS_COLUMNS, CALLSITES_COLUMNS, INSTRUCTIONS_COLUMNS };
+
+	// --- Worker --------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Writes the chunks of a worker.
+	 */
+	private final class ChunkVisitor implements ClassScanner.Visitor {
+
+		private TableWriter classes;
+		private TableWriter methods;
+		private TableWriter fields;
+		private TableWriter callsites;
+		private TableWriter instructions;
+
+		ChunkVisitor(int part) throws IOException {
+			classes      = createWriter(CLASSES, part, CLASSES_COLUMNS);
+			methods      = createWriter(METHODS, part, METHODS_COLUMNS);
+			fields       = createWriter(FIELDS, part, FIELDS_COLUMNS);
+			callsites    = createWriter(CALLSITES, part, CALLSITES_COLUMNS);
+			instructions = createWriter(INSTRUCTIONS, part, INSTRUCTIONS_COLUMNS);
+		}
+
+		public void visitClass(ClassFile cf, byte bytes[]) throws IOException {
+			String className = cf.getThisClassName();
+
+			classes.add(className);
+			classes.add( cf.getSuperClassName() );
+			classes.add( cf.getAccessInt() );
+			classes.add( cf.getMajorVersion() );
+			classes.add( cf.getMinorVersion() );
+			classes.add( cf.getInterfaceItem().getInterfacesCount() );
+			classes.add( cf.getFieldItem().getFields().length );
+			classes.add( cf.getMethodItem().getMethods().length );
+			classes.add( cf.getConstantPoolCount() );
+			classes.add(bytes.length);
+			classes.add( cf.getFileName() );
+			classes.endRow();
+
+			for (FieldInfo field : cf.getFieldItem().getFields()) {
+				fields.add(className);
+				fields.add( field.getNameString() );
+				fields.add( ConstantPool.getUtf8String( field.getDescriptorIndex() ) );
+				fields.add( field.getAccessInt() );
+				fields.endRow();
+			}
+
+			for (MethodInfo method : cf.getMethodItem().getMethods()) {
+				visitMethod(className, method);
+			}
+		}// visitClass
+
+		/**
+		 * Writes the row of a method, and the rows of its instructions and call sites.
+		 */
+		private void visitMethod(String className, MethodInfo method) throws IOException {
+			String name = method.getNameString();
+			String descriptor = method.getDescriptorString();
+			CodeAttribute code = method.getAttributes().getCode();
+
+			methods.add(className);
+			methods.add(name);
+			methods.add(descriptor);
+			methods.add( method.getAccessInt() );
+
+			if ( null == code ) {
+				methods.add(-1);
+				methods.add(-1);
+				methods.add(-1);
+				methods.add(0);
+				methods.add(0);
+				methods.endRow();
+				return;
+			}
+
+			Vector<CodeInstruction> codeInstructions = code.getDisassembledCode();
+			methods.add( code.getCode().getCodeLength() );
+			methods.add( code.getMaxStack() );
+			methods.add( code.getMaxLocals() );
+			methods.add( codeInstructions.size() );
+			methods.add( code.getExceptionTable().getExceptionTableLength() );
+			methods.endRow();
+
+			for (CodeInstruction ci : codeInstructions) {
+				instructions.add(className);
+				instructions.add(name);
+				instructions.add(descriptor);
+				instructions.add( ci.getOffset() );
+				instructions.add( ci.getOpcode() );
+				instructions.add( ci.getLength() );
+				instructions.endRow();
+
+				if ( isInvoke( ci.getOpcode() ) ) {
+					visitCallSite(className, name, descriptor, ci);
+				}
+			}
+		}// visitMethod
+
+		/**
+		 * Writes the row of an invoke instruction.
+		 */
+		private void visitCallSite(String className, String name, String descriptor, CodeInstruction ci) throws IOException {
+			ConstantPoolInfo info = ConstantPool.getElement( ci.getOperands()[0] );
+			if ( ! ( info instanceof AbstractReference ) ) {
+				return;
+			}
+
+			AbstractReference ref = (AbstractReference) info;
+			ConstantPoolInfo natInfo = ConstantPool.getElement( ref.getNameAndTypeIndex() );
+			if ( ! ( natInfo instanceof ConstantNameAndTypeInfo ) ) {
+				return;
+			}
+			ConstantNameAndTypeInfo nat = (ConstantNameAndTypeInfo) natInfo;
+
+			callsites.add(className);
+			callsites.add(name);
+			callsites.add(descriptor);
+			callsites.add( ci.getOffset() );
+			callsites.add( ci.getOpcode() );
+			callsites.add( ConstantPool.getClassName( ref.getClassIndex() ) );
+			callsites.add( ConstantPool.getUtf8String( nat.getNameIndex() ) );
+			callsites.add( ConstantPool.getUtf8String( nat.getDescriptorIndex() ) );
+			callsites.endRow();
+		}// visitCallSite
+
+		public void finish() throws IOException {
+			TableWriter writers[] = { classes, methods, fields, callsites, instructions };
+			IOException first = null;
+
+			for (TableWriter writer : writers) {
+				try {
+					writer.close();
+				} catch (IOException ioe) {
+					if ( null == first ) first = ioe;
+				}
+			}
+
+			if ( null != first ) {
+				throw first;
+			}
+		}// finish
+
+	}// class.ChunkVisitor
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private File outputDirectory;
+	private boolean csv;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new exporter.
+	 *
+	 * @param outputDirectory the tables are written here, each into its own directory.
+	 * @param csv true to write CSV files instead of column files.
+	 */
+	public ColumnarExporter(File outputDirectory, boolean csv) {
+		this.outputDirectory = outputDirectory;
+		this.csv = csv;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns true for the invoke instructions (invokevirtual, invokespecial, invokestatic, invokeinterface).
+	 */
+	private static boolean isInvoke(int opcode) {
+		return ( 0xb6 <= opcode && opcode <= 0xb9 );
+	}
+
+	/**
+	 * Creates the writer of a chunk in the selected format.
+	 */
+	private TableWriter createWriter(String table, int part, String columns[]) throws IOException {
+		if ( csv ) {
+			return new CSVTableWriter(outputDirectory, table, part, columns);
+		}
+
+		return new ColumnTableWriter(outputDirectory, table, part, columns);
+	}
+
+	/**
+	 * Writes the <code>schema.txt</code> of the tables: a line for each column with its name and type.
+	 */
+	private void writeSchemas() throws IOException {
+		for (int i=0; i<TABLES.length; ++i) {
+			File file = new File( new File(outputDirectory, TABLES[i]), "schema.txt" );
+			TableWriter.createParent(file);
+
+			PrintWriter pw = new PrintWriter( new OutputStreamWriter( new FileOutputStream(file), ReportWriter.ENCODING ) );
+			for (String column : COLUMNS[i]) {
+				pw.println( column.replace(':', ' ') );
+			}
+			pw.close();
+
+			if ( pw.checkError() ) {
+				throw new IOException("Cannot write " + file);
+			}
+		}
+	}// writeSchemas
+
+	/**
+	 * Exports the classfiles of the given location.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @param scanner the scanner that parses the classfiles.
+	 * @throws IOException if the location cannot be read or the tables cannot be written.
+	 */
+	public void export(File location, ClassScanner scanner) throws IOException {
+		writeSchemas();
+
+		scanner.scan( location, new ClassScanner.VisitorFactory() {
+			public ClassScanner.Visitor newVisitor(int worker) throws IOException {
+				return new ChunkVisitor(worker);
+			}
+		});
+	}
+
+	/**
+	 * Entry point of the columnar export.
+	 *
+	 * @param args the options, the location and the output directory.
+	 */
+	public static void main(String args[]) {
+		OptionParser options = new OptionParser("jyzer.report.ColumnarExporter", "<classfile|directory|jar> <output directory>", 2, 2);
+		options.addFlag("-columns", "-csv");
+		options.addInt( "-threads", ClassScanner.getDefaultThreads() );
+		options.parseOrExit(args);
+
+		boolean csv = "-csv".equals( options.getLast("-columns", "-csv") );
+		ClassScanner scanner = new ClassScanner( options.getInt("-threads"), System.err );
+		try {
+			new ColumnarExporter( new File( options.getArgument(1) ), csv ).export( new File( options.getArgument(0) ), scanner );
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		}
+
+		System.err.println( "Exported: " + scanner.getScannedCount() + ", skipped: " + scanner.getFailedCount() );
+	}// main
+
+}// class.ColumnarExporter
@@ -0,0 +1,191 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.File;
+import java.io.IOException;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * Writes the html description of a classfile (the same document that was displayed on the Summary pane). Every
+ * constant pool entry, field and method is written out as soon as it is described, so the memory usage depends
+ * on the biggest method, not on the size of the classfile.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class HTMLReportWriter extends ReportWriter {
+
+	// --- Helper methods ------------------------------------------------------------------------------------------------
+
+	/**
+	 * Appends the header row of a section of the summary table.
+	 */
+	private static void appendSectionHeader(StringBuilder sb, String title) {
+		sb.append("<tr>");
+		sb.append("<td align=\"center\" bgcolor=\"green\">");
+		sb.append(title).append('\n');
+		sb.append("</td>");
+		sb.append("</tr>");
+	}
+
+	/**
+	 * Returns the name of the file without the directories (and without the package if it's a jar entry).
+	 */
+	private static String getSimpleName(String fileName) {
+		int index = Math.max( fileName.lastIndexOf(File.separator), fileName.lastIndexOf('/') );
+		return fileName.substring(index + 1);
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	public String getExtension() {
+		return "html";
+	}
+
+	/**
+	 * Writes the html description of the classfile.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param out the destination of the report.
+	 * @throws IOException if the destination cannot be written.
+	 */
+	protected void writeReport(ClassFile cf, Appendable out) throws IOException {
+		StringBuilder sb = getBuffer();
+
+		sb.append("<html>");
+		sb.append("<body>");
+
+		sb.append("<center>");
+		sb.append("<H1>").append( getSimpleName( cf.getFileName() ) ).append("</H1>");
+
+		sb.append("<H2>Summary:</H2>");
+		sb.append("<table border=\"1\" width=\"90%\">");
+
+		// general info
+		appendSectionHeader(sb, "General Info");
+		sb.append("<tr>");
+		sb.append("<td>");
+		cf.getGeneralInfoHTMLDescription(sb);
+		sb.append("</td>");
+		sb.append("</tr>");
+
+		// class attributes
+		appendSectionHeader(sb, "Class Attributes");
+		sb.append("<tr>");
+		sb.append("<td>");
+		cf.getClassAttributes().getHTMLDescription(sb);
+		sb.append("</td>");
+		sb.append("</tr>");
+		flushBuffer(out);
+
+		// constant pool
+		sb.append("<A name=\"CONST_POOL\">");
+		appendSectionHeader(sb, "<A name=\"CONST_POOL\">Constant Pool:");
+		sb.append("<tr>");
+		sb.append("<td>");
+
+		int constantPoolCount = cf.getConstantPoolCount();
+		sb.append("<UL>");
+		sb.append("<LI>Constant Pool Count: ").append(constantPoolCount);
+		sb.append("<LI>Constant Pool Infos: ");
+		sb.append("<OL>");
+		for (int i=1; i<constantPoolCount; ++i) {
+			sb.append("<LI>");
+			ConstantPool.getElement(i).getHTMLDescription(sb);
+			flushBuffer(out);
+		}
+		sb.append("</OL>");
+		sb.append("</UL>");
+
+		sb.append("</td>");
+		sb.append("</tr>");
+
+		// interfaces
+		appendSectionHeader(sb, "Interfaces");
+		sb.append("<tr>");
+		sb.append("<td>");
+		cf.getInterfaceItem().getHTMLDescription(sb);
+		sb.append("</td>");
+		sb.append("</tr>");
+		flushBuffer(out);
+
+		// fields
+		appendSectionHeader(sb, "Fields");
+		sb.append("<tr>");
+		sb.append("<td>");
+
+		FieldInfo fields[] = cf.getFieldItem().getFields();
+		if ( 0 == fields.length ) {
+			sb.append("<UL><LI>Fields: NONE</UL>");
+		} else {
+			sb.append("<UL>");
+			sb.append("<LI>Fields Count: ").append(fields.length);
+			sb.append("<LI>Fields:");
+			sb.append("<OL>");
+			for (FieldInfo finfo : fields) {
+				sb.append("<LI>");
+				finfo.getHTMLDescription(sb);
+				flushBuffer(out);
+			}
+			sb.append("</OL>");
+			sb.append("</UL>");
+		}
+
+		sb.append("</td>");
+		sb.append("</tr>");
+
+		// methods
+		appendSectionHeader(sb, "Methods");
+		sb.append("<tr>");
+		sb.append("<td>");
+
+		MethodInfo methods[] = cf.getMethodItem().getMethods();
+		if ( 0 == methods.length ) {
+			sb.append("<UL><LI>Methods: NONE</UL>");
+		} else {
+			sb.append("<UL>");
+			sb.append("<LI>Method Count: ").append(methods.length);
+			sb.append("<LI>Methods:");
+			sb.append("<OL>");
+			for (MethodInfo minfo : methods) {
+				sb.append("<LI>");
+				minfo.getHTMLDescription(sb);
+				flushBuffer(out);
+			}
+			sb.append("</OL>");
+			sb.append("</UL>");
+		}
+
+		sb.append("</td>");
+		sb.append("</tr>");
+
+		sb.append("</table>");
+		sb.append("</center>");
+
+		sb.append("</body>");
+		sb.append("</html>");
+		flushBuffer(out);
+	}// write
+
+}// class.HTMLReportWriter
@@ -0,0 +1,300 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.Attributes;
+import jyzer.items.attributes.types.AttributeInfo;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.attributes.types.helpers.ExceptionTable;
+import jyzer.items.attributes.types.helpers.ExceptionTableEntry;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.constantpool.types.*;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * Writes the model of the classfiles as newline delimited JSON (NDJSON): every classfile is a single JSON object on
+ * its own line. The schema is described in <code>doc/model-format.txt</code>.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class JSONModelWriter extends ModelWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private Writer out;
+
+	/** The pieces of the actual line are collected here, and written out after each entry and member. */
+	private StringBuilder sb = new StringBuilder();
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new writer. The output is encoded in UTF-8.
+	 *
+	 * @param os the destination of the model.
+	 * @throws IOException if the encoding is not supported.
+	 */
+	public JSONModelWriter(OutputStream os) throws IOException {
+		out = new BufferedWriter( new OutputStreamWriter(os, ReportWriter.ENCODING), ReportWriter.BUFFER_SIZE );
+	}
+
+	// --- Helper methods ------------------------------------------------------------------------------------------------
+
+	/**
+	 * Writes out the collected pieces.
+	 */
+	private void flushBuffer() throws IOException {
+		out.append(sb);
+		sb.setLength(0);
+	}
+
+	/**
+	 * Appends a JSON string literal.
+	 */
+	private void appendString(String str) {
+		sb.append('"');
+
+		for (int i=0; i<str.length(); ++i) {
+			char c = str.charAt(i);
+
+			switch (c) {
+				case '"'  : sb.append("\\\""); break;
+				case '\\' : sb.append("\\\\"); break;
+				case '\n' : sb.append("\\n"); break;
+				case '\r' : sb.append("\\r"); break;
+				case '\t' : sb.append("\\t"); break;
+				default   :
+					if ( c < 0x20 ) {
+						String hex = Integer.toHexString(c);
+						sb.append("\\u");
+						for (int j=hex.length(); j<4; ++j) sb.append('0');
+						sb.append(hex);
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+
+		sb.append('"');
+	}// appendString
+
+	/**
+	 * Appends a floating point number. JSON has no NaN and infinity, they are written as strings.
+	 */
+	private void appendDouble(double value) {
+		if ( Double.isNaN(value) || Double.isInfinite(value) ) {
+			appendString( String.valueOf(value) );
+		} else {
+			sb.append(value);
+		}
+	}
+
+	/**
+	 * Appends a constant pool entry.
+	 */
+	private void appendConstant(ConstantPoolInfo info) {
+		int tag = info.getTag();
+
+		if ( info instanceof ConstantDummyInfo ) { // the unusable entry after the longs and doubles
+			sb.append("null");
+			return;
+		}
+
+		sb.append("{\"tag\":").append(tag);
+
+		if ( info instanceof ConstantUtf8Info ) {
+			sb.append(",\"value\":");
+			appendString( ( (ConstantUtf8Info) info ).getUtf8String() );
+		} else if ( info instanceof ConstantIntegerInfo ) {
+			sb.append(",\"value\":").append( ( (ConstantIntegerInfo) info ).getValue() );
+		} else if ( info instanceof ConstantLongInfo ) {
+			sb.append(",\"value\":").append( ( (ConstantLongInfo) info ).getValue() );
+		} else if ( info instanceof ConstantFloatInfo ) {
+			sb.append(",\"value\":");
+			appendDouble( ( (ConstantFloatInfo) info ).getValue() );
+		} else if ( info instanceof ConstantDoubleInfo ) {
+			sb.append(",\"value\":");
+			appendDouble( ( (ConstantDoubleInfo) info ).getValue() );
+		} else if ( info instanceof ConstantClassInfo ) {
+			sb.append(",\"name\":").append( ( (ConstantClassInfo) info ).getNameIndex() );
+		} else if ( info instanceof ConstantStringInfo ) {
+			sb.append(",\"string\":").append( ( (ConstantStringInfo) info ).getStringIndex() );
+		} else if ( info instanceof AbstractReference ) {
+			AbstractReference ref = (AbstractReference) info;
+			sb.append(",\"class\":").append( ref.getClassIndex() );
+			sb.append(",\"nameAndType\":").append( ref.getNameAndTypeIndex() );
+		} else if ( info instanceof ConstantNameAndTypeInfo ) {
+			ConstantNameAndTypeInfo nat = (ConstantNameAndTypeInfo) info;
+			sb.append(",\"name\":").append( nat.getNameIndex() );
+			sb.append(",\"descriptor\":").append( nat.getDescriptorIndex() );
+		}
+
+		sb.append('}');
+	}// appendConstant
+
+	/**
+	 * Appends a list of attributes.
+	 */
+	private void appendAttributes(Attributes attributes) {
+		sb.append('[');
+
+		for (int i=0; i<attributes.getAttributesCount(); ++i) {
+			AttributeInfo attribute = attributes.getAttribute(i);
+
+			if ( 0 < i ) sb.append(',');
+			sb.append("{\"name\":").append( attribute.getNameIndex() );
+			sb.append(",\"length\":").append( attribute.getAttributeLength() );
+
+			if ( attribute instanceof CodeAttribute ) {
+				sb.append(",\"code\":");
+				appendCode( (CodeAttribute) attribute );
+			}
+
+			sb.append('}');
+		}
+
+		sb.append(']');
+	}// appendAttributes
+
+	/**
+	 * Appends the contents of a code attribute.
+	 */
+	private void appendCode(CodeAttribute code) {
+		sb.append("{\"maxStack\":").append( code.getMaxStack() );
+		sb.append(",\"maxLocals\":").append( code.getMaxLocals() );
+		sb.append(",\"length\":").append( code.getCode().getCodeLength() );
+
+		sb.append(",\"instructions\":[");
+		Vector<CodeInstruction> instructions = code.getDisassembledCode();
+		for (int i=0; i<instructions.size(); ++i) {
+			CodeInstruction ci = instructions.get(i);
+
+			if ( 0 < i ) sb.append(',');
+			sb.append('[').append( ci.getOffset() ).append(',').append( ci.getOpcode() );
+			for (int operand : getOperands(ci)) {
+				sb.append(',').append(operand);
+			}
+			sb.append(']');
+		}
+		sb.append(']');
+
+		sb.append(",\"exceptionTable\":[");
+		ExceptionTable table = code.getExceptionTable();
+		for (int i=0; i<table.getExceptionTableLength(); ++i) {
+			ExceptionTableEntry entry = table.getEntry(i);
+
+			if ( 0 < i ) sb.append(',');
+			sb.append('[').append( entry.getStartPc() ).append(',').append( entry.getEndPc() );
+			sb.append(',').append( entry.getHandlerPc() ).append(',').append( entry.getCatchType() ).append(']');
+		}
+		sb.append(']');
+
+		sb.append(",\"attributes\":");
+		appendAttributes( code.getAttributes() );
+		sb.append('}');
+	}// appendCode
+
+	/**
+	 * Appends a field or a method.
+	 */
+	private void appendMember(int access, int name, int descriptor, Attributes attributes) {
+		sb.append("{\"access\":").append(access);
+		sb.append(",\"name\":").append(name);
+		sb.append(",\"descriptor\":").append(descriptor);
+		sb.append(",\"attributes\":");
+		appendAttributes(attributes);
+		sb.append('}');
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	/**
+	 * Writes the model of the classfile as one line.
+	 *
+	 * @param cf a parsed classfile.
+	 * @throws IOException if the output cannot be written.
+	 */
+	protected void writeModel(ClassFile cf) throws IOException {
+		sb.setLength(0);
+
+		sb.append("{\"file\":");
+		appendString( cf.getFileName() );
+		sb.append(",\"minor\":").append( cf.getMinorVersion() );
+		sb.append(",\"major\":").append( cf.getMajorVersion() );
+
+		// constant pool
+		sb.append(",\"constantPool\":[null");
+		for (int i=1; i<cf.getConstantPoolCount(); ++i) {
+			sb.append(',');
+			appendConstant( ConstantPool.getElement(i) );
+			flushBuffer();
+		}
+		sb.append(']');
+
+		sb.append(",\"access\":").append( cf.getAccessInt() );
+		sb.append(",\"this\":").append( cf.getThisClassIndex() );
+		sb.append(",\"super\":").append( cf.getSuperClassIndex() );
+
+		// interfaces
+		sb.append(",\"interfaces\":[");
+		for (int i=0; i<cf.getInterfaceItem().getInterfacesCount(); ++i) {
+			if ( 0 < i ) sb.append(',');
+			sb.append( cf.getInterfaceItem().getInterfaceIndex(i) );
+		}
+		sb.append(']');
+
+		// fields
+		sb.append(",\"fields\":[");
+		FieldInfo fields[] = cf.getFieldItem().getFields();
+		for (int i=0; i<fields.length; ++i) {
+			if ( 0 < i ) sb.append(',');
+			appendMember( fields[i].getAccessInt(), fields[i].getNameIndex(), fields[i].getDescriptorIndex(), fields[i].getAttributes() );
+			flushBuffer();
+		}
+		sb.append(']');
+
+		// methods
+		sb.append(",\"methods\":[");
+		MethodInfo methods[] = cf.getMethodItem().getMethods();
+		for (int i=0; i<methods.length; ++i) {
+			if ( 0 < i ) sb.append(',');
+			appendMember( methods[i].getAccessInt(), methods[i].getNameIndex(), methods[i].getDescriptorIndex(), methods[i].getAttributes() );
+			flushBuffer();
+		}
+		sb.append(']');
+
+		sb.append(",\"attributes\":");
+		appendAttributes( cf.getClassAttributes() );
+		sb.append("}\n");
+		flushBuffer();
+	}// write
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+}// class.JSONModelWriter
@@ -0,0 +1,136 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+
+import jyzer.ClassFile;
+import jyzer.classpath.ClassSource;
+
+/**
+ * Exports the model of every classfile of a directory or a jar file into a single stream, in JSON or binary format.
+ * The classfiles are parsed and written one by one, so the memory usage doesn't depend on the number of the
+ * classfiles. A classfile that cannot be parsed is reported and skipped.
+ *
+ * <p>Usage: <code>java jyzer.report.ModelExporter [-json|-binary] &lt;classfile|directory|jar&gt; &lt;output file|-&gt;</code>
+ * (<code>-</code> means the standard output).</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public final class ModelExporter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private ModelWriter writer;
+	private PrintStream log;
+
+	private int exported = 0;
+	private int failed = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new exporter.
+	 *
+	 * @param writer the destination of the model.
+	 * @param log the failures are reported here.
+	 */
+	public ModelExporter(ModelWriter writer, PrintStream log) {
+		this.writer = writer;
+		this.log = log;
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the exported classfiles. */
+	public int getExportedCount() {
+		return exported;
+	}
+
+	/** Returns the number of the classfiles that could not be exported. */
+	public int getFailedCount() {
+		return failed;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Exports the model of every classfile of the given location. The writer is not closed.
+	 *
+	 * @param location a classfile, a directory or a jar file.
+	 * @throws IOException if the location cannot be read or the output cannot be written.
+	 */
+	public void export(File location) throws IOException {
+		new ClassSource(location).forEachClass( new ClassSource.Handler() {
+			public void handle(String name, InputStream in) throws IOException {
+				ClassFile cf = new ClassFile(name, in);
+
+				try {
+					cf.parse();
+				} catch (Exception e) {
+					failed++;
+					log.println( "Skipped " + name + ": " + e );
+					return;
+				}
+
+				writer.write(cf);
+				exported++;
+			}
+		});
+	}// export
+
+	/**
+	 * Entry point of the model export.
+	 *
+	 * @param args the format (optional, json by default), the location and the output file.
+	 */
+	public static void main(String args[]) {
+		String format = "-json";
+		int first = 0;
+
+		if ( 3 == args.length ) {
+			format = args[0];
+			first = 1;
+		}
+
+		if ( args.length - first != 2 || ! ( "-json".equals(format) || "-binary".equals(format) ) ) {
+			System.err.println("Usage: java jyzer.report.ModelExporter [-json|-binary] <classfile|directory|jar> <output file|->");
+			System.exit(2);
+		}
+
+		try {
+			OutputStream os = ( "-".equals(args[first + 1]) ) ? (OutputStream) System.out : new FileOutputStream(args[first + 1]);
+			ModelWriter writer = ( "-binary".equals(format) ) ? (ModelWriter) new BinaryModelWriter(os) : new JSONModelWriter(os);
+
+			ModelExporter exporter = new ModelExporter(writer, System.err);
+			try {
+				exporter.export( new File(args[first]) );
+			} finally {
+				writer.close();
+			}
+
+			System.err.println( "Exported: " + exporter.getExportedCount() + ", skipped: " + exporter.getFailedCount() );
+		} catch (IOException ioe) {
+			System.err.println( "Error: " + ioe.getMessage() );
+			System.exit(1);
+		}
+	}// main
+
+}// class.ModelExporter
@@ -0,0 +1,138 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.IOException;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+
+/**
+ * <p>Writes the parsed model of classfiles (the constant pool, the members, the attributes and the decoded
+ * instructions) in a machine-readable format for other tools. The classfiles are written one after the other into
+ * the same stream, and each of them is written out as soon as it's given, so any number of classfiles can be
+ * exported with constant memory.</p>
+ *
+ * <p>The formats are described in <code>doc/model-format.txt</code>.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public abstract class ModelWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	/** The opcode of the <code>tableswitch</code> instruction. */
+	protected static final int TABLESWITCH = 0xaa;
+	/** The opcode of the <code>lookupswitch</code> instruction. */
+	protected static final int LOOKUPSWITCH = 0xab;
+	/** The opcode of the <code>wide</code> instruction. */
+	protected static final int WIDE = 0xc4;
+	/** The opcode of the <code>iinc</code> instruction. */
+	protected static final int IINC = 0x84;
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the operands of an instruction as they are exported. It's the same as what
+	 * <code>CodeInstruction.getOperands()</code> returns, except for the switches, where the header is put in front
+	 * of the jump offsets just like in the classfile: <code>default, low, high, offsets...</code> for a
+	 * <code>tableswitch</code> and <code>default, npairs, match, offset, ...</code> for a <code>lookupswitch</code>,
+	 * and for the signed operands that are read unsigned: the 16 bit jump offsets, the constants of
+	 * <code>bipush</code>, <code>sipush</code> and <code>iinc</code> are sign extended.
+	 *
+	 * @param ci a decoded instruction.
+	 * @return the operands of the instruction.
+	 */
+	protected static int[] getOperands(CodeInstruction ci) {
+		int operands[] = ci.getOperands();
+		int header[];
+
+		if ( TABLESWITCH == ci.getOpcode() ) {
+			header = new int[] { ci.getDefaultOffset(), ci.getLow(), ci.getHigh() };
+		} else if ( LOOKUPSWITCH == ci.getOpcode() ) {
+			header = new int[] { ci.getDefaultOffset(), operands.length / 2 };
+		} else {
+			return getSignedOperands( ci.getOpcode(), operands );
+		}
+
+		int back[] = new int[header.length + operands.length];
+		System.arraycopy(header, 0, back, 0, header.length);
+		System.arraycopy(operands, 0, back, header.length, operands.length);
+
+		return back;
+	}// getOperands
+
+	/**
+	 * Sign extends the signed operands of an instruction that is not a switch.
+	 */
+	private static int[] getSignedOperands(int opcode, int operands[]) {
+		if ( 0x10 == opcode || IINC == opcode ) {                                       // bipush, iinc
+			int back[] = operands.clone();
+			back[back.length - 1] = (byte) back[back.length - 1];
+			return back;
+		}
+		if ( 0x11 == opcode || ( 0x99 <= opcode && opcode <= 0xa8 ) || 0xc6 == opcode || 0xc7 == opcode ) { // sipush, jumps
+			int back[] = operands.clone();
+			back[0] = (short) back[0];
+			return back;
+		}
+		if ( WIDE == opcode && IINC == operands[0] ) {
+			int back[] = operands.clone();
+			back[2] = (short) back[2];
+			return back;
+		}
+
+		return operands;
+	}
+
+	/**
+	 * Writes the model of a parsed classfile. Called with the constant pool of the classfile set as the current one.
+	 *
+	 * @param cf a parsed classfile.
+	 * @throws IOException if the output cannot be written.
+	 */
+	protected abstract void writeModel(ClassFile cf) throws IOException;
+
+	/**
+	 * Writes the model of a parsed classfile. Can be called on any thread, the constant pool of the classfile is used
+	 * even if other classfiles were parsed since then.
+	 *
+	 * @param cf a parsed classfile.
+	 * @throws IOException if the output cannot be written.
+	 */
+	public void write(ClassFile cf) throws IOException {
+		ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+
+		try {
+			writeModel(cf);
+		} finally {
+			ConstantPool.setCurrent(previous);
+		}
+	}
+
+	/**
+	 * Flushes and closes the output.
+	 *
+	 * @throws IOException if the output cannot be written.
+	 */
+	public abstract void close() throws IOException;
+
+}// class.ModelWriter
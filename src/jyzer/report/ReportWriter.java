@@ -0,0 +1,131 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+
+/**
+ * <p>Writes a report of a parsed classfile into an <code>Appendable</code> (a <code>Writer</code>, a
+ * <code>StringBuilder</code>, ...). The implementations write the report piece by piece (one constant pool entry, one
+ * field, one method at a time), so the whole document is never built up in the memory: only the piece that is being
+ * written is buffered.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public abstract class ReportWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	/** The size of the buffer of the writer created by <code>write(ClassFile, OutputStream)</code>. */
+	public static final int BUFFER_SIZE = 32 * 1024;
+
+	/** The encoding of the reports written into streams. */
+	public static final String ENCODING = "UTF-8";
+
+	/** The pieces are collected here before they are written out. It is reused, so it doesn't grow beyond the biggest piece. */
+	private StringBuilder buffer = new StringBuilder();
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns the buffer that has to be used for collecting the actual piece of the report. It's empty when returned.
+	 */
+	protected StringBuilder getBuffer() {
+		buffer.setLength(0);
+		return buffer;
+	}
+
+	/**
+	 * Writes the contents of the buffer to the destination, and empties the buffer.
+	 *
+	 * @param out the destination of the report.
+	 * @throws IOException if the destination cannot be written.
+	 */
+	protected void flushBuffer(Appendable out) throws IOException {
+		out.append(buffer);
+		buffer.setLength(0);
+	}
+
+	/**
+	 * Returns the extension of the files this writer creates (without the dot).
+	 */
+	public abstract String getExtension();
+
+	/**
+	 * Writes the report of the given classfile. Called with the constant pool of the classfile set as the current one.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param out the destination of the report.
+	 * @throws IOException if the destination cannot be written.
+	 */
+	protected abstract void writeReport(ClassFile cf, Appendable out) throws IOException;
+
+	/**
+	 * Writes the report of the given classfile to the end of the given <code>Appendable</code>. Can be called on any
+	 * thread, the constant pool of the classfile is used even if other classfiles were parsed since then.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param out the destination of the report.
+	 * @throws IOException if the destination cannot be written.
+	 */
+	public void write(ClassFile cf, Appendable out) throws IOException {
+		ConstantPool previous = ConstantPool.setCurrent( cf.getConstantPoolItem() );
+
+		try {
+			writeReport(cf, out);
+		} finally {
+			ConstantPool.setCurrent(previous);
+		}
+	}
+
+	/**
+	 * Writes the report of the given classfile into the given stream with <code>ENCODING</code>. The stream is flushed,
+	 * but not closed.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param os the destination of the report.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public void write(ClassFile cf, OutputStream os) throws IOException {
+		Writer writer = new BufferedWriter( new OutputStreamWriter(os, ENCODING), BUFFER_SIZE );
+		write(cf, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the report of the given classfile into the given file.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param file the destination of the report, it's overwritten if exists.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(ClassFile cf, File file) throws IOException {
+		OutputStream os = new FileOutputStream(file);
+		try {
+			write(cf, os);
+		} finally {
+			os.close();
+		}
+	}
+
+}// class.ReportWriter
@@ -0,0 +1,87 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.IOException;
+
+import jyzer.ClassFile;
+import jyzer.Disassembler;
+
+/**
+ * Writes the disassembled (pseudo-Java) source of a classfile. The <code>Disassembler</code> writes the source
+ * line by line, so nothing is buffered here.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class SourceReportWriter extends ReportWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private boolean showBridge = true;
+	private boolean showSynthetic = true;
+	private boolean showDisassembledCode = true;
+	private boolean showAnonymusInnerClasses = true;
+
+	// --- Setter methods ------------------------------------------------------------------------------------------------
+
+	/** Sets if the bridge methods should be written (in a comment). */
+	public void setShowBridge(boolean showBridge) {
+		this.showBridge = showBridge;
+	}
+
+	/** Sets if the synthetic methods should be written (in a comment). */
+	public void setShowSynthetic(boolean showSynthetic) {
+		this.showSynthetic = showSynthetic;
+	}
+
+	/** Sets if the disassembled code of the methods should be written. */
+	public void setShowDisassembledCode(boolean showDisassembledCode) {
+		this.showDisassembledCode = showDisassembledCode;
+	}
+
+	/** Sets if the anonymus inner classes should be written (in a comment). */
+	public void setShowAnonymusInnerClasses(boolean showAnonymusInnerClasses) {
+		this.showAnonymusInnerClasses = showAnonymusInnerClasses;
+	}
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	public String getExtension() {
+		return "java";
+	}
+
+	/**
+	 * Writes the disassembled source of the classfile.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param out the destination of the source.
+	 * @throws IOException if the destination cannot be written.
+	 */
+	protected void writeReport(ClassFile cf, Appendable out) throws IOException {
+		Disassembler disassembler = new Disassembler();
+		disassembler.setShowBridge(showBridge);
+		disassembler.setShowSynthetic(showSynthetic);
+		disassembler.setShowDisassembledCode(showDisassembledCode);
+		disassembler.setShowAnonymusInnerClasses(showAnonymusInnerClasses);
+
+		disassembler.disassemble(cf, out);
+	}
+
+}// class.SourceReportWriter
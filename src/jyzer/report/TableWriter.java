@@ -0,0 +1,170 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.*;
+
+/**
+ * <p>Writes one chunk of a table, row by row. The columns are given as <code>name:type</code> strings, where the type
+ * is <code>int</code> or <code>string</code>; the values of a row have to be added in the order of the columns,
+ * then the row has to be closed with <code>endRow()</code>.</p>
+ *
+ * <p>The chunks of a table are written into the directory of the table (<code>&lt;output&gt;/&lt;table&gt;/</code>),
+ * so more workers can write the same table at the same time, each into its own chunk.</p>
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public abstract class TableWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	/** The type of the integer columns. */
+	public static final String INT = "int";
+	/** The type of the string columns. */
+	public static final String STRING = "string";
+
+	private String names[];
+	private boolean stringColumn[];
+	private int column = 0;
+	private int rows = 0;
+
+	// --- Constructors --------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a new writer.
+	 *
+	 * @param columns the columns of the table as <code>name:type</code> strings.
+	 */
+	protected TableWriter(String columns[]) {
+		names = new String[columns.length];
+		stringColumn = new boolean[columns.length];
+
+		for (int i=0; i<columns.length; ++i) {
+			int colon = columns[i].indexOf(':');
+			String type = columns[i].substring(colon + 1);
+
+			if ( ! INT.equals(type) && ! STRING.equals(type) ) {
+				throw new IllegalArgumentException("Unknown column type: " + columns[i]);
+			}
+
+			names[i] = columns[i].substring(0, colon);
+			stringColumn[i] = STRING.equals(type);
+		}
+	}
+
+	// --- Getter methods ------------------------------------------------------------------------------------------------
+
+	/** Returns the number of the columns. */
+	public int getColumnCount() {
+		return names.length;
+	}
+
+	/** Returns the name of the given column. */
+	public String getColumnName(int index) {
+		return names[index];
+	}
+
+	/** Returns true if the given column contains strings. */
+	public boolean isStringColumn(int index) {
+		return stringColumn[index];
+	}
+
+	/** Returns the number of the finished rows. */
+	public int getRowCount() {
+		return rows;
+	}
+
+	// --- Own methods ---------------------------------------------------------------------------------------------------
+
+	/**
+	 * Checks the type of the next value, and steps to the next column.
+	 */
+	private int nextColumn(boolean string) {
+		if ( column >= names.length ) {
+			throw new IllegalStateException("Too many values in the row");
+		} else if ( stringColumn[column] != string ) {
+			throw new IllegalStateException("Wrong type of value for column " + names[column]);
+		}
+
+		return column++;
+	}
+
+	/**
+	 * Adds an integer value to the actual row.
+	 *
+	 * @param value the value of the next column.
+	 * @throws IOException if the chunk cannot be written.
+	 */
+	public void add(int value) throws IOException {
+		writeInt( nextColumn(false), value );
+	}
+
+	/**
+	 * Adds a string value to the actual row.
+	 *
+	 * @param value the value of the next column (<code>null</code> is written as an empty string).
+	 * @throws IOException if the chunk cannot be written.
+	 */
+	public void add(String value) throws IOException {
+		writeString( nextColumn(true), ( (null == value) ? "" : value ) );
+	}
+
+	/**
+	 * Closes the actual row.
+	 *
+	 * @throws IOException if the chunk cannot be written.
+	 */
+	public void endRow() throws IOException {
+		if ( column != names.length ) {
+			throw new IllegalStateException("Missing values in the row");
+		}
+
+		writeEndRow();
+		column = 0;
+		rows++;
+	}
+
+	/** Writes an integer value of the given column. */
+	protected abstract void writeInt(int column, int value) throws IOException;
+
+	/** Writes a string value of the given column. */
+	protected abstract void writeString(int column, String value) throws IOException;
+
+	/** Called when a row is finished. */
+	protected abstract void writeEndRow() throws IOException;
+
+	/**
+	 * Flushes and closes the chunk.
+	 *
+	 * @throws IOException if the chunk cannot be written.
+	 */
+	public abstract void close() throws IOException;
+
+	/**
+	 * Creates the directory of the given file if it doesn't exist.
+	 */
+	protected static void createParent(File file) throws IOException {
+		File parent = file.getParentFile();
+		if ( ! parent.isDirectory() && ! parent.mkdirs() && ! parent.isDirectory() ) {
+			throw new IOException("Cannot create directory: " + parent);
+		}
+	}
+
+}// class.TableWriter
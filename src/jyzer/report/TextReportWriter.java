@@ -0,0 +1,160 @@
+/*
+ * JYzer - A Java Bytecode Analyzer.
+ * Copyright (C) 2005 Legendi Richard Oliver
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jyzer.report;
+
+import java.io.IOException;
+import java.util.Vector;
+
+import jyzer.ClassFile;
+import jyzer.items.ConstantPool;
+import jyzer.items.attributes.types.CodeAttribute;
+import jyzer.items.attributes.types.helpers.CodeInstruction;
+import jyzer.items.attributes.types.helpers.ExceptionTable;
+import jyzer.items.attributes.types.helpers.ExceptionTableEntry;
+import jyzer.items.constantpool.ConstantPoolInfo;
+import jyzer.items.fields.FieldInfo;
+import jyzer.items.methods.MethodInfo;
+
+/**
+ * Writes a plain text description of a classfile: the general info, the constant pool (as it is displayed on the
+ * Constant Pool pane), the fields and the methods with their code. Every entry is written out as soon as it
+ * is described.
+ *
+ * @author Legendi Richard Oliver
+ * @version 1.0
+ */
+public class TextReportWriter extends ReportWriter {
+
+	// --- Variables -----------------------------------------------------------------------------------------------------
+
+	private static final String INSET = "    ";
+
+	// --- Helper methods ------------------------------------------------------------------------------------------------
+
+	/**
+	 * Appends the code of a method: the sizes, the instructions and the exception table.
+	 */
+	private void appendCode(StringBuilder sb, CodeAttribute code) {
+		sb.append(INSET).append(INSET).append("Max Stack: ").append( code.getMaxStack() );
+		sb.append(", Max Locals: ").append( code.getMaxLocals() );
+		sb.append(", Code Length: ").append( code.getCode().getCodeLength() ).append('\n');
+
+		Vector<CodeInstruction> instructions = code.getDisassembledCode();
+		if ( null != instructions ) {
+			for (CodeInstruction ci : instructions) {
+				sb.append(INSET).append(INSET).append(ci).append('\n');
+			}
+		}
+
+		ExceptionTable table = code.getExceptionTable();
+		if ( 0 < table.getExceptionTableLength() ) {
+			sb.append(INSET).append(INSET).append("Exception Table:\n");
+			for (int i=0; i<table.getExceptionTableLength(); ++i) {
+				ExceptionTableEntry entry = table.getEntry(i);
+				sb.append(INSET).append(INSET).append(INSET);
+				sb.append( entry.getStartPc() ).append(" - ").append( entry.getEndPc() );
+				sb.append(" -> ").append( entry.getHandlerPc() );
+				sb.append(" : ").append( entry.getCatchTypeString() ).append('\n');
+			}
+		}
+	}// appendCode
+
+	// --- Super methods -------------------------------------------------------------------------------------------------
+
+	public String getExtension() {
+		return "txt";
+	}
+
+	/**
+	 * Writes the plain text description of the classfile.
+	 *
+	 * @param cf a parsed classfile.
+	 * @param out the destination of the report.
+	 * @throws IOException if the destination cannot be written.
+	 */
+	protected void writeReport(ClassFile cf, Appendable out) throws IOException {
+		StringBuilder sb = getBuffer();
+		String thisClassName = cf.getThisClassName();
+
+		// general info
+		sb.append("Class: ").append(thisClassName).append('\n');
+		sb.append("Super Class: ").append( cf.getSuperClassName() ).append('\n');
+		sb.append("Access Flags: ").append( cf.getAccessString() ).append( cf.getRealModifierString() ).append('\n');
+		sb.append("Classfile Version: ").append( cf.getMajorVersion() ).append('.').append( cf.getMinorVersion() ).append('\n');
+
+		String interfaceNames[] = cf.getInterfaceNames();
+		sb.append("Interfaces (").append(interfaceNames.length).append("):\n");
+		for (String name : interfaceNames) {
+			sb.append(INSET).append(name).append('\n');
+		}
+		sb.append('\n');
+		flushBuffer(out);
+
+		// constant pool
+		int constantPoolCount = cf.getConstantPoolCount();
+		sb.append("Constant Pool (").append(constantPoolCount).append("):\n");
+		for (int i=1; i<constantPoolCount; ++i) {
+			ConstantPoolInfo info = ConstantPool.getElement(i);
+			sb.append(INSET).append('#').append(i).append(" = ").append( info.getDescription() );
+			sb.append(": ").append(info).append('\n');
+			flushBuffer(out);
+		}
+		sb.append('\n');
+
+		// fields
+		FieldInfo fields[] = cf.getFieldItem().getFields();
+		sb.append("Fields (").append(fields.length).append("):\n");
+		for (FieldInfo field : fields) {
+			sb.append(INSET).append( field.getAccessString() ).append( field.getRealModifierString() );
+			sb.append( field.getDescriptorString() ).append(' ').append( field.getNameString() );
+			if ( field.hasConstantValue() ) {
+				sb.append(" = ").append( field.getConstantValueString() );
+			}
+			sb.append('\n');
+			flushBuffer(out);
+		}
+		sb.append('\n');
+
+		// methods
+		MethodInfo methods[] = cf.getMethodItem().getMethods();
+		sb.append("Methods (").append(methods.length).append("):\n");
+		for (MethodInfo method : methods) {
+			sb.append(INSET).append( method.getSignature(thisClassName) );
+			if ( method.hasExceptions() ) {
+				sb.append(" throws ");
+				String exceptionNames[] = method.getPureExceptionNames(thisClassName);
+				for (int i=0; i<exceptionNames.length; ++i) {
+					sb.append( exceptionNames[i] );
+					if (i+1 < exceptionNames.length) sb.append(", ");
+				}
+			}
+			sb.append('\n');
+
+			CodeAttribute code = method.getAttributes().getCode();
+			if ( null != code ) {
+				appendCode(sb, code);
+			}
+			sb.append('\n');
+			flushBuffer(out);
+		}
+
+		flushBuffer(out);
+	}// write
+
+}// class.TextReportWriter